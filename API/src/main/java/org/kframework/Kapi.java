@@ -1,7 +1,6 @@
 // Copyright (c) 2016 K Team. All Rights Reserved.
 package org.kframework;
 
-import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.RewriterResult;
 import org.kframework.attributes.Att;
@@ -16,6 +15,7 @@ import org.kframework.backend.java.kil.KList;
 import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.frontend.compile.ExpandMacros;
+import org.kframework.backend.java.symbolic.ClaimProver;
 import org.kframework.backend.java.symbolic.ConjunctiveFormula;
 import org.kframework.backend.java.symbolic.InitializeRewriter;
 import org.kframework.backend.java.symbolic.JavaBackend;
@@ -41,6 +41,7 @@ import org.kframework.krun.api.io.FileSystem;
 import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
 import org.kframework.main.GlobalOptions;
 import org.kframework.parser.concrete2kore.generator.RuleGrammarGenerator;
+import org.kframework.rewriter.ProofStrategy;
 import org.kframework.rewriter.Rewriter;
 import org.kframework.utils.Stopwatch;
 import org.kframework.utils.errorsystem.KExceptionManager;
@@ -55,6 +56,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -82,6 +84,9 @@ import static org.kframework.Collections.*;
  *   // kprove
  *   kapi.kprove(prove, prelude, compiledDef);
  *
+ *   // kprove, exploring the states with the smallest <k> cell first
+ *   kapi.kprove(prove, prelude, compiledDef, ProofStrategy.BEST_FIRST, SymbolicRewriter::kCellSize);
+ *
  */
 public class Kapi {
 
@@ -163,7 +168,7 @@ public class Kapi {
 
         GlobalContext initializingContextGlobal = new GlobalContext(kapiGlobal, hookProvider, Stage.INITIALIZING);
         TermContext initializingContext = TermContext.builder(initializingContextGlobal).freshCounter(0).build();
-        org.kframework.backend.java.kil.Definition evaluatedDef = initializeDefinition.invoke(compiledDef.executionModule(), kapiGlobal.kem, initializingContext.global());
+        org.kframework.backend.java.kil.Definition evaluatedDef = initializeDefinition.invoke(compiledDef.executionModule(), kapiGlobal.kem, initializingContext);
 
         GlobalContext rewritingContextGlobal = new GlobalContext(kapiGlobal, hookProvider, Stage.REWRITING);
         rewritingContextGlobal.setDefinition(evaluatedDef);
@@ -241,8 +246,8 @@ public class Kapi {
 
         ConjunctiveFormula ensure = ConjunctiveFormula.of(global);
 
-        ImmutableList<Term> l1 = getChildren(e1);
-        ImmutableList<Term> l2 = getChildren(e2);
+        List<Term> l1 = getChildren(e1);
+        List<Term> l2 = getChildren(e2);
 
         assert l1.size() == l2.size();
         for (int j = 0; j < l1.size(); j++) {
@@ -255,7 +260,7 @@ public class Kapi {
         return ensure;
     }
 
-    private static ImmutableList<Term> getChildren(ConjunctiveFormula e) {
+    private static List<Term> getChildren(ConjunctiveFormula e) {
         // TODO: make it better
         assert e.equalities().size() == 1;
         assert e.equalities().get(0).leftHandSide() instanceof KItem;
@@ -347,7 +352,7 @@ public class Kapi {
 
         GlobalContext initializingContextGlobal = new GlobalContext(fs, false, globalOptions, krunOptions, kem, smtOptions, hookProvider, files, Stage.INITIALIZING);
         TermContext initializingContext = TermContext.builder(initializingContextGlobal).freshCounter(0).build();
-        org.kframework.backend.java.kil.Definition evaluatedDef = initializeDefinition.invoke(compiledDef.executionModule(), kem, initializingContext.global());
+        org.kframework.backend.java.kil.Definition evaluatedDef = initializeDefinition.invoke(compiledDef.executionModule(), kem, initializingContext);
 
         GlobalContext rewritingContextGlobal = new GlobalContext(fs, false, globalOptions, krunOptions, kem, smtOptions, hookProvider, files, Stage.REWRITING);
         rewritingContextGlobal.setDefinition(evaluatedDef);
@@ -443,7 +448,7 @@ public class Kapi {
 
         GlobalContext initializingContextGlobal = new GlobalContext(fs, false, globalOptions, krunOptions, kem, smtOptions, hookProvider, files, Stage.INITIALIZING);
         TermContext initializingContext = TermContext.builder(initializingContextGlobal).freshCounter(0).build();
-        org.kframework.backend.java.kil.Definition evaluatedDef = initializeDefinition.invoke(compiledDef.executionModule(), kem, initializingContext.global());
+        org.kframework.backend.java.kil.Definition evaluatedDef = initializeDefinition.invoke(compiledDef.executionModule(), kem, initializingContext);
 
         GlobalContext rewritingContextGlobal = new GlobalContext(fs, false, globalOptions, krunOptions, kem, smtOptions, hookProvider, files, Stage.REWRITING);
         rewritingContextGlobal.setDefinition(evaluatedDef);
@@ -458,6 +463,15 @@ public class Kapi {
      * compiledDef1: for symbolic execution
      */
     public void kprove(String proofFile, String prelude, CompiledDefinition compiledDef) {
+        kprove(proofFile, prelude, compiledDef, kapiGlobal.kRunOptions.experimental.proofStrategy, SymbolicRewriter::kCellSize);
+    }
+
+    /**
+     * strategy: the order in which the states of each proof are explored
+     * heuristic: the priority of a state for ProofStrategy.BEST_FIRST, least first
+     */
+    public void kprove(String proofFile, String prelude, CompiledDefinition compiledDef,
+                       ProofStrategy strategy, ToIntFunction<ConstrainedTerm> heuristic) {
 
         kapiGlobal.setSmtPrelude(prelude);
 
@@ -520,10 +534,12 @@ public class Kapi {
 
         //// prove spec rules
 
-        List<ConstrainedTerm> proofResults = javaRules.stream()
-                .filter(r -> !r.containsAttribute(Attribute.TRUSTED_KEY))
-                .map(r -> rewriter.proveRule(r.createLhsPattern(rewritingContext,1), r.createRhsPattern(1), allRules))
-                .flatMap(List::stream)
+        List<ConstrainedTerm> proofResults = new ClaimProver(rewritingContext.global(), kapiGlobal.kompileOptions.transition, converter, strategy, heuristic)
+                .prove(javaRules, allRules, rewritingContext,
+                        (r, claimContext) -> r.createLhsPattern(claimContext, 1),
+                        r -> r.createRhsPattern(1))
+                .stream()
+                .flatMap(result -> result.remaining.stream())
                 .collect(Collectors.toList());
 
         //// print result
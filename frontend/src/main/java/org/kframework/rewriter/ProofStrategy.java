@@ -0,0 +1,24 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.rewriter;
+
+/**
+ * The order in which a prover explores the states reachable from the left-hand side of a claim.
+ */
+public enum ProofStrategy {
+    /**
+     * All the states at one depth before the states at the next depth.
+     */
+    BFS,
+    /**
+     * The successors of a state before its siblings; the frontier grows with the depth of the proof only.
+     */
+    DFS,
+    /**
+     * Depth-first up to a depth bound which doubles until no state is left unexplored.
+     */
+    ITERATIVE_DEEPENING,
+    /**
+     * The state with the least value of a heuristic first, e.g., the size of its {@code <k>} cell.
+     */
+    BEST_FIRST
+}
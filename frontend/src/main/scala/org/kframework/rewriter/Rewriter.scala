@@ -22,6 +22,12 @@ trait Rewriter {
    */
   def execute(k: frontend.K, depth: Optional[Integer]): RewriterResult
 
+  /**
+   * Returns the state of this rewriter for the given configuration, which can be stepped repeatedly without
+   * converting the configuration between K and the representation of the rewriter at each step.
+   * By default, the state is stepped by [[execute]].
+   */
+  def initialState(k: frontend.K): RewriterState = new KRewriterState(this, k, 0)
 
   def `match`(k: frontend.K, rule: Rule): frontend.K
 
@@ -40,3 +46,34 @@ trait Rewriter {
 
   def prove(rules: java.util.List[Rule]): java.util.List[frontend.K]
 }
+
+/**
+ * A configuration reached by a rewriter, in the representation of the rewriter.
+ * States are immutable: stepping a state again reaches the same configurations.
+ */
+trait RewriterState {
+  /**
+   * The configuration, converted to K.
+   */
+  def k: frontend.K
+
+  /**
+   * The number of steps taken from the state this state was stepped from.
+   */
+  def stepsTaken: Int
+
+  /**
+   * Rewrites this state for at most the given number of steps.
+   */
+  def step(steps: Int): RewriterState
+}
+
+/**
+ * A state of a rewriter which only rewrites K, stepped by [[Rewriter.execute]].
+ */
+class KRewriterState(rewriter: Rewriter, val k: frontend.K, val stepsTaken: Int) extends RewriterState {
+  override def step(steps: Int): RewriterState = {
+    val result = rewriter.execute(k, Optional.of(steps))
+    new KRewriterState(rewriter, result.k, result.rewriteSteps.orElse(steps))
+  }
+}
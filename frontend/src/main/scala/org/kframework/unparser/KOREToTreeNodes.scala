@@ -43,21 +43,37 @@ object KOREToTreeNodes {
     items map up(mod) _
   }
 
-  def toString(t: Term): String = t match {
-    case Constant(s, _) => s
+  def toString(t: Term): String = {
+    val sb = new java.lang.StringBuilder
+    print(sb, t)
+    sb.toString
+  }
+
+  /**
+   * Prints the term to the given output, without building its string first. The items of each term are
+   * separated by a space.
+   */
+  def print(out: java.lang.Appendable, t: Term): Unit = t match {
+    case Constant(s, _) => out.append(s)
     case t@TermCons(items, p) => {
       var i = 0
-      val unparsedItems = p.items map {
-        case Terminal(s, _) => s
-        case NonTerminal(sort) => {
-          i = i + 1
-          toString(t.get(i - 1))
+      var first = true
+      for (item <- p.items) {
+        if (!first) {
+          out.append(" ")
+        } else {
+          first = false
+        }
+        item match {
+          case Terminal(s, _) => out.append(s)
+          case NonTerminal(sort) => {
+            i = i + 1
+            print(out, t.get(i - 1))
+          }
+          case RegexTerminal(_, _, _) => throw new AssertionError("Unimplemented yet")
         }
-        case RegexTerminal(_, _, _) => throw new AssertionError("Unimplemented yet")
       }
 
-      unparsedItems.mkString(" ")
-
       //TODO: Recover this code to enable format attribute (in PRETTY output mode).
       /*if (p.att.contains("format")) {
         p.att.get[String]("format").get.format(unparsedItems: _*)
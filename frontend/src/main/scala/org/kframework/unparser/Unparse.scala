@@ -34,10 +34,15 @@ object Unparse extends {
  */
 object ToKast {
   def apply(k: K): String = {
-    val b = StringBuilder.newBuilder
+    val b = new java.lang.StringBuilder
     unparse(b, false, 0, k)
     b.toString()
   }
+
+  /**
+   * Prints the term to the given output, without building its string first.
+   */
+  def apply(b: java.lang.Appendable, k: K): Unit = unparse(b, false, 0, k)
   def apply(l: KLabel): String = unparse(false, l)
 
   def escape(s: String): String = StringEscapeUtils.escapeJava(s)
@@ -70,42 +75,42 @@ object ToKast {
    * label quote from combining with the bracket,
    * as in the incorrect {@code ```_+_`(...}
    *
-   * @param b The printed representation of the term is appended to this builder.
+   * @param b The printed representation of the term is appended to this output.
    * @param inParen True if this term is the leftmost within a set of brackets
    * @param prec The current precedence level
    * @param k The term to print
    */
-  def unparse(b:StringBuilder, inParen: Boolean, prec: Int, k: K): Unit = k match {
-    case KToken(s, sort) => b ++= "#token(\"" + escape(s) + "\",\"" + escape(sort.name) + "\")"
-    case InjectedKLabel(l) => b ++= "#klabel("+apply(l)+")"
-    case KVariable(v) => b ++= v.toString
-    case KApply(l, List()) => b ++= unparse(inParen,l)+"(.KList)"
+  def unparse(b: java.lang.Appendable, inParen: Boolean, prec: Int, k: K): Unit = k match {
+    case KToken(s, sort) => b.append("#token(\"" + escape(s) + "\",\"" + escape(sort.name) + "\")")
+    case InjectedKLabel(l) => b.append("#klabel("+apply(l)+")")
+    case KVariable(v) => b.append(v.toString)
+    case KApply(l, List()) => b.append(unparse(inParen,l)+"(.KList)")
     case KApply(l, args) =>
-      b ++= unparse(inParen,l)
-      b ++= "("
+      b.append(unparse(inParen,l))
+      b.append("(")
       var first = true
       for (a <- args) {
         if (!first) {
-          b ++= ","
+          b.append(",")
         } else {
           first = false
         }
         unparse(b, false, 0, a)
       }
-      b ++= ")"
-    case KSequence(Seq()) => b ++= ".K"
+      b.append(")")
+    case KSequence(Seq()) => b.append(".K")
     case KSequence(a +: items) =>
       unparse(b, inParen, 2, a)
       for (i <- items) {
-        b ++= "~>"
+        b.append("~>")
         unparse(b, false, 2, i)
       }
     case KRewrite(l,r) =>
       val needParen = prec > 1
-      if (needParen) b ++= "``"
+      if (needParen) b.append("``")
       unparse(b,needParen || inParen,1,l)
-      b ++= "=>"
+      b.append("=>")
       unparse(b,false,1,r)
-      if (needParen) b ++= "``"
+      if (needParen) b.append("``")
   }
 }
@@ -0,0 +1,94 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import org.kframework.backend.java.kil.TermContext;
+
+import java.nio.charset.CharacterCodingException;
+
+/**
+ * Table of {@code public static} methods on builtin byte sequences.
+ * <p>
+ * The methods return null (i.e., the operation is not evaluated) if an index or a length is out of range.
+ */
+public final class BuiltinBytesOperations {
+
+    /**
+     * The largest number of bytes {@link #int2bytes} allocates; longer results are not evaluated rather than
+     * exhausting the memory.
+     */
+    public static final int MAX_INT2BYTES_LENGTH = 1 << 24;
+
+    public static IntToken length(BytesToken term, TermContext context) {
+        return IntToken.of(term.length());
+    }
+
+    public static BytesToken concat(BytesToken term1, BytesToken term2, TermContext context) {
+        return term1.concat(term2);
+    }
+
+    public static BoolToken eq(BytesToken term1, BytesToken term2, TermContext context) {
+        return BoolToken.of(term1.equals(term2));
+    }
+
+    public static BoolToken ne(BytesToken term1, BytesToken term2, TermContext context) {
+        return BoolToken.of(!term1.equals(term2));
+    }
+
+    public static BytesToken substr(BytesToken term, IntToken start, IntToken end, TermContext context) {
+        try {
+            return term.substr(start.intValue(), end.intValue());
+        } catch (IndexOutOfBoundsException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    public static IntToken get(BytesToken term, IntToken index, TermContext context) {
+        try {
+            return IntToken.of(term.byteAt(index.intValue()));
+        } catch (IndexOutOfBoundsException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    public static BytesToken update(BytesToken term, IntToken index, IntToken value, TermContext context) {
+        try {
+            int byteValue = value.intValue();
+            return byteValue >= 0 && byteValue <= 0xff ? term.update(index.intValue(), byteValue) : null;
+        } catch (IndexOutOfBoundsException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Converts the bytes to an integer in big-endian order.
+     */
+    public static IntToken bytes2int(BytesToken term, BoolToken signed, TermContext context) {
+        return IntToken.of(term.bigIntegerValue(signed.booleanValue()));
+    }
+
+    /**
+     * Converts an integer to the given number of bytes in big-endian order, keeping the least significant bytes.
+     * The length must be between 0 and {@link #MAX_INT2BYTES_LENGTH}.
+     */
+    public static BytesToken int2bytes(IntToken length, IntToken value, TermContext context) {
+        try {
+            int n = length.intValue();
+            return n >= 0 && n <= MAX_INT2BYTES_LENGTH ? BytesToken.of(value.bigIntegerValue(), n) : null;
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    public static StringToken bytes2string(BytesToken term, TermContext context) {
+        return StringToken.of(term.bytesValue());
+    }
+
+    public static BytesToken string2bytes(StringToken term, TermContext context) {
+        try {
+            return BytesToken.wrap(term.byteArrayValue());
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+}
@@ -93,6 +93,42 @@ public final class BuiltinCryptoOperations {
         return StringToken.of(digestString);
     }
 
+    /**
+     * Finds the keccak256 digest of the input bytes.
+     *
+     * @return the 32 bytes of the digest.
+     */
+    public static BytesToken keccak256bytes(BytesToken input, TermContext context) {
+        return input.digest(new Keccak.Digest256());
+    }
+
+    /**
+     * Finds the SHA3 digest of the input bytes.
+     *
+     * @return the 32 bytes of the digest.
+     */
+    public static BytesToken sha3256bytes(BytesToken input, TermContext context) {
+        return input.digest(new SHA3.Digest256());
+    }
+
+    /**
+     * Finds the SHA256 digest of the input bytes.
+     *
+     * @return the 32 bytes of the digest.
+     */
+    public static BytesToken sha256bytes(BytesToken input, TermContext context) {
+        return input.digest(new SHA256.Digest());
+    }
+
+    /**
+     * Finds the RIPEMD160 digest of the input bytes.
+     *
+     * @return the 20 bytes of the digest.
+     */
+    public static BytesToken ripemd160bytes(BytesToken input, TermContext context) {
+        return input.digest(new RIPEMD160.Digest());
+    }
+
     /**
      * Recovers the ECDSA Public key from a message hash and signature
      * @param messageHash a 32-character string in Latin-1 encoding representing the 32-byte message hash of the signed message
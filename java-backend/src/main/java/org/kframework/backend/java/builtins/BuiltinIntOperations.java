@@ -14,14 +14,42 @@ import java.util.Random;
 public class BuiltinIntOperations {
 
     public static IntToken add(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            long a = term1.longValue();
+            long b = term2.longValue();
+            long result = a + b;
+            // the addition overflows iff both operands have a different sign than the result
+            if (((a ^ result) & (b ^ result)) >= 0) {
+                return IntToken.of(result);
+            }
+        }
         return IntToken.of(term1.bigIntegerValue().add(term2.bigIntegerValue()));
     }
 
     public static IntToken sub(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            long a = term1.longValue();
+            long b = term2.longValue();
+            long result = a - b;
+            // the subtraction overflows iff the operands have different signs and the result has the sign of b
+            if (((a ^ b) & (a ^ result)) >= 0) {
+                return IntToken.of(result);
+            }
+        }
         return IntToken.of(term1.bigIntegerValue().subtract(term2.bigIntegerValue()));
     }
 
     public static IntToken mul(IntToken term1, IntToken term2, TermContext context) {
+        if (term1.isLong() && term2.isLong()) {
+            long a = term1.longValue();
+            long b = term2.longValue();
+            long result = a * b;
+            // same overflow check as Math.multiplyExact, without the exception
+            if ((Math.abs(a) | Math.abs(b)) >>> 31 == 0
+                    || (b == 0 || result / b == a) && !(a == Long.MIN_VALUE && b == -1)) {
+                return IntToken.of(result);
+            }
+        }
         return IntToken.of(term1.bigIntegerValue().multiply(term2.bigIntegerValue()));
     }
 
@@ -88,11 +116,11 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken min(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().min(term2.bigIntegerValue()));
+        return term1.compareTo(term2) <= 0 ? term1 : term2;
     }
 
     public static IntToken max(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().max(term2.bigIntegerValue()));
+        return term1.compareTo(term2) >= 0 ? term1 : term2;
     }
 
     public static IntToken abs(IntToken term, TermContext context) {
@@ -100,27 +128,27 @@ public class BuiltinIntOperations {
     }
 
     public static BoolToken eq(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) == 0);
+        return BoolToken.of(term1.compareTo(term2) == 0);
     }
 
     public static BoolToken ne(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) != 0);
+        return BoolToken.of(term1.compareTo(term2) != 0);
     }
 
     public static BoolToken gt(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) > 0);
+        return BoolToken.of(term1.compareTo(term2) > 0);
     }
 
     public static BoolToken ge(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) >= 0);
+        return BoolToken.of(term1.compareTo(term2) >= 0);
     }
 
     public static BoolToken lt(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) < 0);
+        return BoolToken.of(term1.compareTo(term2) < 0);
     }
 
     public static BoolToken le(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) <= 0);
+        return BoolToken.of(term1.compareTo(term2) <= 0);
     }
 
     private static final Random randomGenerator = new Random();
@@ -19,15 +19,15 @@ import org.kframework.utils.StringUtil;
 public class BuiltinStringOperations {
 
     public static StringToken add(StringToken term1, StringToken term2, TermContext context) {
-        return StringToken.of(term1.stringValue() + term2.stringValue());
+        return term1.concat(term2);
     }
 
     public static BoolToken eq(StringToken term1, StringToken term2, TermContext context) {
-        return BoolToken.of(term1.stringValue().compareTo(term2.stringValue()) == 0);
+        return BoolToken.of(term1.equals(term2));
     }
 
     public static BoolToken ne(StringToken term1, StringToken term2, TermContext context) {
-        return BoolToken.of(term1.stringValue().compareTo(term2.stringValue()) != 0);
+        return BoolToken.of(!term1.equals(term2));
     }
 
     public static BoolToken gt(StringToken term1, StringToken term2, TermContext context) {
@@ -47,7 +47,7 @@ public class BuiltinStringOperations {
     }
 
     public static IntToken len(StringToken term, TermContext context) {
-        return IntToken.of(term.stringValue().codePointCount(0, term.stringValue().length()));
+        return IntToken.of(term.length());
     }
 
     public static IntToken ord(StringToken term, TermContext context) {
@@ -69,14 +69,22 @@ public class BuiltinStringOperations {
         }
     }
 
+    /**
+     * Returns the substring between the given code point indices, or null (i.e., the operation is not evaluated)
+     * if the start is after the end.
+     * @throws IndexOutOfBoundsException if an index is negative or greater than the length of the string
+     */
     public static StringToken substr(StringToken term, IntToken start, IntToken end, TermContext context) {
-        int beginOffset = term.stringValue().offsetByCodePoints(0, start.intValue());
-        int endOffset = term.stringValue().offsetByCodePoints(0, end.intValue());
-        try {
-            return StringToken.of(term.stringValue().substring(beginOffset, endOffset));
-        } catch (StringIndexOutOfBoundsException e) {
+        int begin = start.intValue();
+        int endIndex = end.intValue();
+        int length = term.length();
+        if (begin < 0 || begin > length || endIndex < 0 || endIndex > length) {
+            throw new IndexOutOfBoundsException("substrString(" + begin + ", " + endIndex + ") of a string of length " + length);
+        }
+        if (begin > endIndex) {
             return null;
         }
+        return term.substr(begin, endIndex);
     }
 
     public static IntToken find(StringToken term1, StringToken term2, IntToken idx, TermContext context) {
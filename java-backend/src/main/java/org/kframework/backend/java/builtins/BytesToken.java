@@ -0,0 +1,223 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.Token;
+import org.kframework.backend.java.symbolic.Transformer;
+import org.kframework.kil.ASTNode;
+import org.kframework.utils.ByteArrayValue;
+import org.kframework.utils.StringUtil;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * A token representing a sequence of bytes.
+ * <p>
+ * The bytes are a range of a backing array which is never modified once the token is created,
+ * so that slices of a token share the array of the token instead of copying it.
+ */
+public final class BytesToken extends Token implements ByteArrayValue {
+
+    public static final Sort SORT = Sort.BYTES;
+
+    private static final BytesToken EMPTY = new BytesToken(new byte[0], 0, 0);
+
+    private final byte[] array;
+    private final int offset;
+    private final int length;
+
+    private BytesToken(byte[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns a {@code BytesToken} holding a copy of the given bytes.
+     */
+    public static BytesToken of(byte[] bytes) {
+        return wrap(bytes.clone());
+    }
+
+    /**
+     * Returns a {@code BytesToken} representation of the given textual representation of bytes.
+     * @see StringUtil#unquoteBytes(String)
+     */
+    public static BytesToken of(String value) {
+        return wrap(StringUtil.unquoteBytes(value));
+    }
+
+    /**
+     * Returns a {@code BytesToken} holding the bytes of the given value, without converting them to text.
+     */
+    public static BytesToken of(ByteArrayValue value) {
+        return value instanceof BytesToken ? (BytesToken) value : wrap(value.bytesValue());
+    }
+
+    /**
+     * Returns a {@code BytesToken} backed by the given array, which must not be modified afterwards.
+     */
+    static BytesToken wrap(byte[] array) {
+        return array.length == 0 ? EMPTY : new BytesToken(array, 0, array.length);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the byte at the given index, as an unsigned value between 0 and 255.
+     */
+    public int byteAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        return array[offset + index] & 0xff;
+    }
+
+    @Override
+    public byte[] bytesValue() {
+        return Arrays.copyOfRange(array, offset, offset + length);
+    }
+
+    /**
+     * Returns the bytes between {@code begin} (inclusive) and {@code end} (exclusive), without copying them.
+     */
+    public BytesToken substr(int begin, int end) {
+        if (begin < 0 || end > length || begin > end) {
+            throw new IndexOutOfBoundsException(begin + ", " + end);
+        }
+        if (begin == end) {
+            return EMPTY;
+        } else if (begin == 0 && end == length) {
+            return this;
+        }
+        return new BytesToken(array, offset + begin, end - begin);
+    }
+
+    /**
+     * Returns the bytes of this token followed by the bytes of the given token. The bytes are only copied
+     * if the two tokens are not adjacent ranges of the same array (e.g., two consecutive slices of a token).
+     */
+    public BytesToken concat(BytesToken other) {
+        if (other.length == 0) {
+            return this;
+        } else if (length == 0) {
+            return other;
+        } else if (array == other.array && offset + length == other.offset) {
+            return new BytesToken(array, offset, length + other.length);
+        }
+        byte[] result = Arrays.copyOfRange(array, offset, offset + length + other.length);
+        System.arraycopy(other.array, other.offset, result, length, other.length);
+        return wrap(result);
+    }
+
+    /**
+     * Returns a copy of this token in which the byte at the given index is replaced by the given value.
+     */
+    public BytesToken update(int index, int value) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        byte[] result = bytesValue();
+        result[index] = (byte) value;
+        return wrap(result);
+    }
+
+    /**
+     * Returns the integer represented by the bytes of this token in big-endian order.
+     * @param signed whether the bytes are interpreted in two's complement
+     */
+    public BigInteger bigIntegerValue(boolean signed) {
+        if (length == 0) {
+            return BigInteger.ZERO;
+        }
+        byte[] bytes = offset == 0 && length == array.length ? array : bytesValue();
+        return signed ? new BigInteger(bytes) : new BigInteger(1, bytes);
+    }
+
+    /**
+     * Returns the big-endian two's complement representation of the given integer on the given number of bytes,
+     * truncating or sign-extending it as needed.
+     */
+    public static BytesToken of(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        byte[] result = new byte[length];
+        int copied = Math.min(length, bytes.length);
+        System.arraycopy(bytes, bytes.length - copied, result, length - copied, copied);
+        if (value.signum() < 0) {
+            Arrays.fill(result, 0, length - copied, (byte) 0xff);
+        }
+        return wrap(result);
+    }
+
+    /**
+     * Returns the digest of the bytes of this token computed by the given engine.
+     */
+    public BytesToken digest(MessageDigest engine) {
+        engine.update(array, offset, length);
+        return wrap(engine.digest());
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.write(array, offset, length);
+    }
+
+    @Override
+    public Sort sort() {
+        return SORT;
+    }
+
+    @Override
+    public String javaBackendValue() {
+        return StringUtil.enquoteBytes(array, offset, length);
+    }
+
+    @Override
+    protected int computeHash() {
+        int h = 1;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + array[i];
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof BytesToken)) {
+            return false;
+        }
+        BytesToken other = (BytesToken) object;
+        if (length != other.length || hashCode() != other.hashCode()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (array[offset + i] != other.array[other.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ASTNode accept(Transformer transformer) {
+        return transformer.transform(this);
+    }
+
+    /**
+     * Serializes only the bytes of this token rather than the whole backing array.
+     */
+    private Object writeReplace() {
+        return offset == 0 && length == array.length ? this : new BytesToken(bytesValue(), 0, length);
+    }
+
+}
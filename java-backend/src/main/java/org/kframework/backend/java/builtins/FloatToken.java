@@ -1,6 +1,10 @@
 // Copyright (c) 2014-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.builtins;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
 import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.backend.java.kil.Sort;
 import org.kframework.backend.java.kil.Token;
@@ -19,8 +23,10 @@ public class FloatToken extends Token {
 
     public static final Sort SORT = Sort.FLOAT;
 
-    /* Token cache */
-    private static final Map<Integer, Map<BigFloat, FloatToken>> cache = new ConcurrentHashMap<>();
+    /**
+     * Token cache, by exponent range. As in {@link StringToken}, the tokens are weakly referenced.
+     */
+    private static final Map<Integer, LoadingCache<BigFloat, FloatToken>> cache = new ConcurrentHashMap<>();
 
     private final BigFloat value;
     private final int exponent;
@@ -37,8 +43,26 @@ public class FloatToken extends Token {
      * and {@code int} exponent return the same {@code FloatToken} object).
      */
     public static FloatToken of(BigFloat value, int exponent) {
-        Map<BigFloat, FloatToken> exponentCache = cache.computeIfAbsent(exponent, ConcurrentHashMap::new);
-        return exponentCache.computeIfAbsent(value, v -> new FloatToken(v, exponent));
+        return exponentCache(exponent).getUnchecked(value);
+    }
+
+    private static LoadingCache<BigFloat, FloatToken> exponentCache(int exponent) {
+        return cache.computeIfAbsent(exponent, e -> CacheBuilder.newBuilder()
+                .weakValues()
+                .recordStats()
+                .build(CacheLoader.from(v -> new FloatToken(v, e))));
+    }
+
+    /**
+     * Returns the number of tokens in the cache, including the ones that were collected
+     * but not yet removed.
+     */
+    public static long cacheSize() {
+        return cache.values().stream().mapToLong(LoadingCache::size).sum();
+    }
+
+    public static CacheStats cacheStats() {
+        return cache.values().stream().map(LoadingCache::stats).reduce(new CacheStats(0, 0, 0, 0, 0, 0), CacheStats::plus);
     }
 
     public static FloatToken of(String value) {
@@ -131,8 +155,8 @@ public class FloatToken extends Token {
      * instance.
      */
     private Object readResolve() {
-        Map<BigFloat, FloatToken> exponentCache = cache.computeIfAbsent(exponent, ConcurrentHashMap::new);
-        return exponentCache.computeIfAbsent(value, v -> this);
+        FloatToken cached = exponentCache(exponent).asMap().putIfAbsent(value, this);
+        return cached != null ? cached : this;
     }
 
 }
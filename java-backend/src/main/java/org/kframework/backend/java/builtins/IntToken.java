@@ -12,6 +12,10 @@ import java.math.BigInteger;
 
 /**
  * An integer token. Integer tokens have arbitrary precision.
+ * <p>
+ * Values which fit in a {@code long} are stored as a {@code long}, and all others as a {@link BigInteger};
+ * the representation of a value is unique, so that {@link #equals} and {@link #hashCode} need not convert
+ * between them.
  *
  * @author AndreiS
  */
@@ -19,25 +23,59 @@ public final class IntToken extends Token {
 
     public static final Sort SORT = Sort.INT;
 
-    /* BigInteger javaBackendValue wrapped by this IntToken */
-    private final BigInteger value;
+    private static final long CACHE_MIN = -1024;
+    private static final long CACHE_MAX = 65535;
+
+    /**
+     * Tokens for the small values, created on demand.
+     */
+    private static final IntToken[] cache = new IntToken[(int) (CACHE_MAX - CACHE_MIN + 1)];
+
+    /* whether the value wrapped by this IntToken fits in a long */
+    private final boolean isLong;
+
+    /* the value wrapped by this IntToken if it fits in a long */
+    private final long longValue;
+
+    /* the value wrapped by this IntToken; computed on demand if it fits in a long */
+    private BigInteger value;
+
+    private IntToken(long value) {
+        this.isLong = true;
+        this.longValue = value;
+    }
 
     private IntToken(BigInteger value) {
+        this.isLong = false;
+        this.longValue = 0;
         this.value = value;
     }
 
     /**
-     * Returns a {@code IntToken} representation of the given {@link BigInteger} javaBackendValue. The
-     * {@code IntToken} instances are cached to ensure uniqueness (subsequent invocations of this
-     * method with the same {@code BigInteger} javaBackendValue return the same {@code IntToken} object).
+     * Returns a {@code IntToken} representation of the given {@link BigInteger} javaBackendValue.
+     * Values between -1024 and 65535 are cached (subsequent invocations of this method with the same
+     * small value return the same {@code IntToken} object).
      */
     public static IntToken of(BigInteger value) {
         assert value != null;
+        if (value.bitLength() < Long.SIZE) {
+            return of(value.longValue());
+        }
         return new IntToken(value);
     }
 
     public static IntToken of(long value) {
-        return of(BigInteger.valueOf(value));
+        if (value < CACHE_MIN || value > CACHE_MAX) {
+            return new IntToken(value);
+        }
+        int index = (int) (value - CACHE_MIN);
+        IntToken token = cache[index];
+        if (token == null) {
+            // benign race: at worst two equal tokens are created
+            token = new IntToken(value);
+            cache[index] = token;
+        }
+        return token;
     }
 
     public static IntToken of(String value) {
@@ -54,11 +92,23 @@ public final class IntToken extends Token {
         }
     }
 
+    /**
+     * Returns true if the value of this IntToken fits in a {@code long}.
+     */
+    public boolean isLong() {
+        return isLong;
+    }
+
     /**
      * Returns a {@link BigInteger} representation of the (interpreted) javaBackendValue of this IntToken.
      */
     public BigInteger bigIntegerValue() {
-        return value;
+        BigInteger result = value;
+        if (result == null) {
+            result = BigInteger.valueOf(longValue);
+            value = result;
+        }
+        return result;
     }
 
     /**
@@ -67,13 +117,13 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer does not fit in an int.
      */
     public int intValue() {
-        if (value.compareTo(BigInteger.valueOf(Integer.MAX_VALUE)) > 0) {
+        if (!isLong || longValue > Integer.MAX_VALUE) {
             throw new ArithmeticException("IntToken too large for Int");
         }
-        if (value.compareTo(BigInteger.valueOf(Integer.MIN_VALUE)) < 0) {
+        if (longValue < Integer.MIN_VALUE) {
             throw new ArithmeticException("IntToken too low for Int");
         }
-        return (int)value.longValue();
+        return (int) longValue;
     }
 
     /**
@@ -82,13 +132,10 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer does not fit in a long.
      */
     public long longValue() {
-        if (value.compareTo(BigInteger.valueOf(Long.MAX_VALUE)) > 0) {
-            throw new ArithmeticException("IntToken too large for Long");
-        }
-        if (value.compareTo(BigInteger.valueOf(Long.MIN_VALUE)) < 0) {
-            throw new ArithmeticException("IntToken too low for Long");
+        if (!isLong) {
+            throw new ArithmeticException(value.signum() > 0 ? "IntToken too large for Long" : "IntToken too low for Long");
         }
-        return value.longValue();
+        return longValue;
     }
 
     /**
@@ -97,13 +144,23 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer is not in the range of an unsigned byte.
      */
     public byte unsignedByteValue() {
-        if (value.compareTo(BigInteger.valueOf(255)) > 0) {
+        if (!isLong ? value.signum() > 0 : longValue > 255) {
             throw new ArithmeticException("IntToken too large for byte");
         }
-        if (value.compareTo(BigInteger.valueOf(0)) < 0) {
+        if (!isLong || longValue < 0) {
             throw new ArithmeticException("IntToken too low for byte");
         }
-        return (byte)value.longValue();
+        return (byte) longValue;
+    }
+
+    /**
+     * Compares the values of this IntToken and the given one.
+     */
+    public int compareTo(IntToken that) {
+        if (this.isLong && that.isLong) {
+            return Long.compare(this.longValue, that.longValue);
+        }
+        return this.bigIntegerValue().compareTo(that.bigIntegerValue());
     }
 
     @Override
@@ -116,12 +173,12 @@ public final class IntToken extends Token {
      */
     @Override
     public String javaBackendValue() {
-        return value.toString();
+        return isLong ? Long.toString(longValue) : value.toString();
     }
 
     @Override
     protected int computeHash() {
-        return value.hashCode();
+        return isLong ? Long.hashCode(longValue) : value.hashCode();
     }
 
     @Override
@@ -131,6 +188,9 @@ public final class IntToken extends Token {
 
         IntToken intToken = (IntToken) o;
 
+        if (isLong || intToken.isLong) {
+            return isLong && intToken.isLong && longValue == intToken.longValue;
+        }
         return value.equals(intToken.value);
 
     }
@@ -0,0 +1,217 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+/**
+ * An immutable sequence of characters represented as a height-balanced binary tree whose leaves are strings.
+ * Concatenation and slicing take time logarithmic in the length of the sequence and share the subtrees
+ * of their operands; only the leaves at the boundaries of a slice are copied.
+ *
+ * @see StringToken#concat(StringToken)
+ */
+abstract class Rope implements CharSequence {
+
+    /**
+     * Adjacent leaves are merged on concatenation as long as the result is not longer than this.
+     */
+    static final int MAX_LEAF_LENGTH = 512;
+
+    static Rope of(String value) {
+        return new Leaf(value);
+    }
+
+    /**
+     * Returns the height of the tree; leaves have height 0.
+     */
+    abstract int height();
+
+    /**
+     * Returns true if the sequence contains no surrogate characters, in which case the indices of its characters
+     * coincide with the indices of its code points.
+     */
+    abstract boolean isBmp();
+
+    abstract void appendTo(StringBuilder sb);
+
+    /**
+     * Returns the concatenation of this sequence and the given one.
+     */
+    Rope concat(Rope other) {
+        if (other.length() == 0) {
+            return this;
+        } else if (length() == 0) {
+            return other;
+        }
+        return join(this, other);
+    }
+
+    @Override
+    public abstract Rope subSequence(int begin, int end);
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(length());
+        appendTo(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Joins two non-empty trees into a balanced tree, in time proportional to the difference of their heights.
+     */
+    private static Rope join(Rope left, Rope right) {
+        if (left instanceof Leaf && right instanceof Leaf && left.length() + right.length() <= MAX_LEAF_LENGTH) {
+            return new Leaf(((Leaf) left).value + ((Leaf) right).value);
+        } else if (left.height() > right.height() + 1) {
+            Node node = (Node) left;
+            Rope joined = join(node.right, right);
+            if (joined.height() <= node.left.height() + 1) {
+                return new Node(node.left, joined);
+            }
+            Node rotated = (Node) joined;
+            if (rotated.left.height() > rotated.right.height()) {
+                rotated = rotateRight(rotated);
+            }
+            return rotateLeft(new Node(node.left, rotated));
+        } else if (right.height() > left.height() + 1) {
+            Node node = (Node) right;
+            Rope joined = join(left, node.left);
+            if (joined.height() <= node.right.height() + 1) {
+                return new Node(joined, node.right);
+            }
+            Node rotated = (Node) joined;
+            if (rotated.right.height() > rotated.left.height()) {
+                rotated = rotateLeft(rotated);
+            }
+            return rotateRight(new Node(rotated, node.right));
+        } else {
+            return new Node(left, right);
+        }
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = (Node) node.right;
+        return new Node(new Node(node.left, right.left), right.right);
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = (Node) node.left;
+        return new Node(left.left, new Node(left.right, node.right));
+    }
+
+    private static final class Leaf extends Rope {
+        private final String value;
+        private final boolean bmp;
+
+        Leaf(String value) {
+            this.value = value;
+            boolean bmp = true;
+            for (int i = 0; i < value.length() && bmp; i++) {
+                bmp = !Character.isSurrogate(value.charAt(i));
+            }
+            this.bmp = bmp;
+        }
+
+        @Override
+        int height() {
+            return 0;
+        }
+
+        @Override
+        boolean isBmp() {
+            return bmp;
+        }
+
+        @Override
+        void appendTo(StringBuilder sb) {
+            sb.append(value);
+        }
+
+        @Override
+        public int length() {
+            return value.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return value.charAt(index);
+        }
+
+        @Override
+        public Rope subSequence(int begin, int end) {
+            return begin == 0 && end == value.length() ? this : new Leaf(value.substring(begin, end));
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    private static final class Node extends Rope {
+        private final Rope left;
+        private final Rope right;
+        private final int length;
+        private final int height;
+        private final boolean bmp;
+
+        Node(Rope left, Rope right) {
+            this.left = left;
+            this.right = right;
+            this.length = left.length() + right.length();
+            this.height = Math.max(left.height(), right.height()) + 1;
+            this.bmp = left.isBmp() && right.isBmp();
+        }
+
+        @Override
+        int height() {
+            return height;
+        }
+
+        @Override
+        boolean isBmp() {
+            return bmp;
+        }
+
+        @Override
+        void appendTo(StringBuilder sb) {
+            left.appendTo(sb);
+            right.appendTo(sb);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Rope rope = this;
+            while (rope instanceof Node) {
+                Node node = (Node) rope;
+                if (index < node.left.length()) {
+                    rope = node.left;
+                } else {
+                    index -= node.left.length();
+                    rope = node.right;
+                }
+            }
+            return rope.charAt(index);
+        }
+
+        @Override
+        public Rope subSequence(int begin, int end) {
+            if (begin < 0 || end > length || begin > end) {
+                throw new StringIndexOutOfBoundsException(begin + ", " + end);
+            }
+            int split = left.length();
+            if (begin == 0 && end == length) {
+                return this;
+            } else if (end <= split) {
+                return left.subSequence(begin, end);
+            } else if (begin >= split) {
+                return right.subSequence(begin - split, end - split);
+            } else {
+                return left.subSequence(begin, split).concat(right.subSequence(0, end - split));
+            }
+        }
+    }
+}
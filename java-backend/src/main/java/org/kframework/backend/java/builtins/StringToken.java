@@ -1,6 +1,10 @@
 // Copyright (c) 2013-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.builtins;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
 import org.kframework.backend.java.kil.Sort;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.symbolic.Transformer;
@@ -14,13 +18,16 @@ import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CodingErrorAction;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A string token. String tokens represent a sequence of unicode code points.
  * In this regard they differ from the underlying String class they are built
  * off of in Java because Java Strings are a sequence of 16-bit UTF-16 characters.
+ * <p>
+ * Long strings built by concatenation are represented as a {@link Rope}, so that repeated
+ * concatenation and slicing do not copy the whole string each time. Such tokens are not
+ * cached: the rope is only flattened when the {@code String} value, the hash code or a
+ * comparison of the contents of the token is needed, and is then dropped in favor of the flat value.
  *
  * @author DwightG
  */
@@ -28,14 +35,36 @@ public final class StringToken extends Token {
 
     public static final Sort SORT = Sort.STRING;
 
-    /* StringToken cache */
-    private static final Map<String, StringToken> cache = new ConcurrentHashMap<>();
+    /**
+     * StringToken cache. The tokens are weakly referenced, so that a token is removed once it is no longer
+     * in use; a token is never removed while it is reachable, which preserves the uniqueness of tokens.
+     */
+    private static final LoadingCache<String, StringToken> cache = CacheBuilder.newBuilder()
+            .weakValues()
+            .recordStats()
+            .build(CacheLoader.from(StringToken::new));
+
+    /**
+     * Strings at least this long which result from {@link #concat} or {@link #substr} are represented as ropes.
+     */
+    private static final int MIN_ROPE_LENGTH = Rope.MAX_LEAF_LENGTH;
+
+    /* String javaBackendValue wrapped by this StringToken; computed lazily from the rope if the token is not cached */
+    private String value;
 
-    /* String javaBackendValue wrapped by this StringToken */
-    private final String value;
+    /* Rope representation of this StringToken until it is flattened; null for cached tokens */
+    private transient volatile Rope rope;
+
+    private final boolean cached;
 
     private StringToken(String value) {
         this.value = value;
+        this.cached = true;
+    }
+
+    private StringToken(Rope rope) {
+        this.rope = rope;
+        this.cached = false;
     }
 
     /**
@@ -46,7 +75,19 @@ public final class StringToken extends Token {
      * @param value A UTF-16 representation of this sequence of code points.
      */
     public static StringToken of(String value) {
-        return cache.computeIfAbsent(value, StringToken::new);
+        return cache.getUnchecked(value);
+    }
+
+    /**
+     * Returns the number of tokens in the cache, including the ones that were collected
+     * but not yet removed.
+     */
+    public static long cacheSize() {
+        return cache.size();
+    }
+
+    public static CacheStats cacheStats() {
+        return cache.stats();
     }
 
     /**
@@ -69,9 +110,72 @@ public final class StringToken extends Token {
      * this StringToken.
      */
     public String stringValue() {
+        String value = this.value;
+        if (value == null) {
+            Rope rope = this.rope;
+            if (rope == null) {
+                // flattened by another thread
+                return this.value;
+            }
+            value = rope.toString();
+            this.value = value;
+            this.rope = null;
+        }
         return value;
     }
 
+    private Rope rope() {
+        Rope rope = this.rope;
+        return rope != null ? rope : Rope.of(stringValue());
+    }
+
+    /**
+     * Returns the number of UTF-16 characters of this StringToken.
+     */
+    private int charLength() {
+        Rope rope = this.rope;
+        return rope != null ? rope.length() : stringValue().length();
+    }
+
+    /**
+     * Returns the number of code points of this StringToken.
+     */
+    public int length() {
+        Rope rope = this.rope;
+        if (rope != null && rope.isBmp()) {
+            return rope.length();
+        }
+        String value = stringValue();
+        return value.codePointCount(0, value.length());
+    }
+
+    /**
+     * Returns the concatenation of this StringToken and the given one. Long results are represented
+     * as ropes sharing the representation of the operands.
+     */
+    public StringToken concat(StringToken other) {
+        if (charLength() + other.charLength() < MIN_ROPE_LENGTH) {
+            return of(stringValue() + other.stringValue());
+        }
+        return new StringToken(rope().concat(other.rope()));
+    }
+
+    /**
+     * Returns the code points of this StringToken between {@code begin} (inclusive) and {@code end} (exclusive).
+     * @throws IndexOutOfBoundsException if the indices are out of range
+     */
+    public StringToken substr(int begin, int end) {
+        Rope rope = this.rope;
+        if (rope != null && rope.isBmp()) {
+            Rope result = rope.subSequence(begin, end);
+            return result.length() < MIN_ROPE_LENGTH ? of(result.toString()) : new StringToken(result);
+        }
+        String value = stringValue();
+        int beginOffset = value.offsetByCodePoints(0, begin);
+        int endOffset = value.offsetByCodePoints(0, end);
+        return of(value.substring(beginOffset, endOffset));
+    }
+
     /**
      * Returns a {@code byte[]} representation of the interpreted javaBackendValue of this StringToken.
      * @throws CharacterCodingException Thrown if the String is not a valid sequence of code points
@@ -81,7 +185,7 @@ public final class StringToken extends Token {
         ByteBuffer buffer = Charset.forName("ISO-8859-1")
             .newEncoder()
             .onUnmappableCharacter(CodingErrorAction.REPORT)
-            .encode(CharBuffer.wrap(value));
+            .encode(CharBuffer.wrap(stringValue()));
         byte[] bytes = new byte[buffer.remaining()];
         buffer.get(bytes);
         return bytes;
@@ -97,18 +201,28 @@ public final class StringToken extends Token {
      */
     @Override
     public String javaBackendValue() {
-        return StringUtil.enquoteKString(value);
+        return StringUtil.enquoteKString(stringValue());
     }
 
     @Override
     protected int computeHash() {
-        return value.hashCode();
+        return stringValue().hashCode();
     }
 
     @Override
     public boolean equals(Object object) {
-        // cached
-        return this == object;
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof StringToken)) {
+            return false;
+        }
+        StringToken other = (StringToken) object;
+        // distinct cached tokens have distinct values
+        return !(cached && other.cached)
+                && charLength() == other.charLength()
+                && hashCode() == other.hashCode()
+                && stringValue().equals(other.stringValue());
     }
 
     @Override
@@ -121,12 +235,20 @@ public final class StringToken extends Token {
         visitor.visit(this);
     }
 
+    /**
+     * Serializes the tokens represented as ropes as cached tokens.
+     */
+    private Object writeReplace() {
+        return cached ? this : of(stringValue());
+    }
+
     /**
      * Returns the cached instance rather than the de-serialized instance if there is a cached
      * instance.
      */
     private Object readResolve() {
-        return cache.computeIfAbsent(value, v -> this);
+        StringToken cached = cache.asMap().putIfAbsent(value, this);
+        return cached != null ? cached : this;
     }
 
 }
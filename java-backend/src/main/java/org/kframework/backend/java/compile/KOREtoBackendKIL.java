@@ -6,6 +6,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.attributes.Att;
 import org.kframework.attributes.Location;
 import org.kframework.attributes.Source;
+import org.kframework.backend.java.builtins.BytesToken;
 import org.kframework.backend.java.kil.*;
 import org.kframework.backend.java.kil.KItem;
 import org.kframework.backend.java.symbolic.ConjunctiveFormula;
@@ -26,6 +27,7 @@ import org.kframework.frontend.KVariable;
 import org.kframework.frontend.compile.RewriteToTop;
 import org.kframework.frontend.convertors.KOREtoKIL;
 import org.kframework.utils.BitSet;
+import org.kframework.utils.ByteArrayValue;
 
 import static org.kframework.Collections.*;
 
@@ -281,6 +283,9 @@ public class KOREtoBackendKIL extends org.kframework.frontend.AbstractConstructo
     public Term convert(org.kframework.frontend.K k) {
         if (k instanceof Term)
             return (Term) k;
+        else if (k instanceof ByteArrayValue && k instanceof org.kframework.frontend.KToken
+                && Sort(((org.kframework.frontend.KToken) k).sort().name()).equals(BytesToken.SORT))
+            return BytesToken.of((ByteArrayValue) k);
         else if (k instanceof org.kframework.frontend.KToken)
             return KToken(((org.kframework.frontend.KToken) k).s(), ((org.kframework.frontend.KToken) k).sort(), k.att());
         else if (k instanceof org.kframework.frontend.KApply) {
@@ -5,10 +5,12 @@ import com.google.common.collect.ImmutableList;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
+import org.kframework.backend.java.util.PersistentVector;
 import org.kframework.builtin.KLabels;
 import org.kframework.kil.ASTNode;
 import org.kframework.utils.BitSet;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,21 +21,25 @@ import java.util.stream.Collectors;
 public class BuiltinList extends Collection implements CollectionInternalRepresentation, HasGlobalContext {
 
     /**
-     * Flattened list of children.
+     * Flattened list of children. The children are stored in a {@link PersistentVector}, so that slicing and
+     * concatenating lists share structure instead of copying the elements.
      */
-    public final ImmutableList<Term> children;
+    public final PersistentVector<Term> children;
     public final Sort sort;
     public final KLabelConstant operatorKLabel;
     public final KLabelConstant unitKLabel;
     private final GlobalContext global;
 
-    private final ElementTailSplit elementTailSplits[];
+    /**
+     * Allocated on the first call of {@link #splitElementTail(int, int)}, which only happens for rule patterns.
+     */
+    private ElementTailSplit elementTailSplits[];
 
     /**
      * Private constructor used by {@link BuiltinList.Builder}.
      */
     private BuiltinList(
-            ImmutableList<Term> children,
+            PersistentVector<Term> children,
             Sort sort,
             KLabelConstant operatorKLabel,
             KLabelConstant unitKLabel,
@@ -44,8 +50,6 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         this.operatorKLabel = operatorKLabel;
         this.unitKLabel = unitKLabel;
         this.global = global;
-
-        elementTailSplits = new ElementTailSplit[children.size()];
     }
 
     /**
@@ -77,6 +81,9 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
      * Returns the element component and the tail component of the list child on position index.
      */
     public ElementTailSplit splitElementTail(int index, int bitSetLength) {
+        if (elementTailSplits == null) {
+            elementTailSplits = new ElementTailSplit[children.size()];
+        }
         if (elementTailSplits[index] == null) {
             BitSet emptyListMask = BitSet.apply(bitSetLength);
             emptyListMask.makeOnes(bitSetLength);
@@ -165,7 +172,18 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
     public Term range(int beginIndex, int endIndex) {
         return BuiltinList.builder(sort, operatorKLabel, unitKLabel, global)
-                .addAll(children.subList(beginIndex, endIndex))
+                .addFlattened(children.subList(beginIndex, endIndex))
+                .build();
+    }
+
+    /**
+     * Returns the list obtained by replacing the child on the given position with the given term.
+     */
+    public Term set(int index, Term term) {
+        return BuiltinList.builder(sort, operatorKLabel, unitKLabel, global)
+                .addFlattened(children.subList(0, index))
+                .add(term)
+                .addFlattened(children.subList(index + 1, children.size()))
                 .build();
     }
 
@@ -289,7 +307,14 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
     public static class Builder {
 
-        private final ImmutableList.Builder<Term> childrenBuilder = new ImmutableList.Builder<>();
+        /**
+         * the children added so far, except for the ones still in {@link #pendingChildren}
+         */
+        private PersistentVector<Term> children = PersistentVector.empty();
+        /**
+         * the children added one by one since the last concatenation of a list
+         */
+        private final List<Term> pendingChildren = new ArrayList<>();
         private final Sort sort;
         private final KLabelConstant operatorKLabel;
         private final KLabelConstant unitKLabel;
@@ -306,15 +331,31 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
             if (term instanceof BuiltinList && sort.equals(term.sort())
                     && operatorKLabel.equals(((BuiltinList) term).operatorKLabel)
                     && unitKLabel.equals(((BuiltinList) term).unitKLabel)) {
-                return addAll(((BuiltinList) term).children);
+                return addFlattened(((BuiltinList) term).children);
             } else {
                 //assert global.getDefinition().subsorts().isSubsortedEq(sort, term.sort()) :
                 //        "unexpected term: " + term + " of sort " + term.sort() + " added to list of sort " + sort;
-                childrenBuilder.add(term);
+                pendingChildren.add(term);
                 return this;
             }
         }
 
+        /**
+         * Concatenates the children of a list of the same sort, which are already flattened, in O(log n) time.
+         */
+        private Builder addFlattened(PersistentVector<Term> terms) {
+            flushPendingChildren();
+            children = children.concat(terms);
+            return this;
+        }
+
+        private void flushPendingChildren() {
+            if (!pendingChildren.isEmpty()) {
+                children = children.concat(PersistentVector.from(pendingChildren));
+                pendingChildren.clear();
+            }
+        }
+
         public Builder addAll(List<Term> terms) {
             terms.forEach(this::add);
             return this;
@@ -328,8 +369,9 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         }
 
         public Term build() {
+            flushPendingChildren();
             BuiltinList builtinList = new BuiltinList(
-                    childrenBuilder.build(),
+                    children,
                     sort,
                     operatorKLabel,
                     unitKLabel,
@@ -353,7 +395,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
      */
     public static class SingletonBuiltinList extends BuiltinList {
         private SingletonBuiltinList(Term child, GlobalContext global, Sort sort, KLabelConstant operatorKLabel, KLabelConstant unitKLabel) {
-            super(ImmutableList.of(child), sort, operatorKLabel, unitKLabel, global);
+            super(PersistentVector.of(child), sort, operatorKLabel, unitKLabel, global);
         }
     }
 
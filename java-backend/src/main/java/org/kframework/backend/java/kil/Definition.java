@@ -38,6 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static org.kframework.Collections.*;
@@ -79,6 +80,10 @@ public class Definition extends JavaSymbolicObject {
     private final List<Rule> rules = Lists.newArrayList();
     private final List<Rule> macros = Lists.newArrayList();
     private final Multimap<KLabelConstant, Rule> functionRules = ArrayListMultimap.create();
+    /**
+     * the {@link FunctionRuleIndex} of each function, computed lazily from {@link #functionRules}
+     */
+    private transient volatile Map<KLabelConstant, FunctionRuleIndex> functionRuleIndices;
     private final Multimap<KLabelConstant, Rule> sortPredicateRules = HashMultimap.create();
     private final Multimap<KLabelConstant, Rule> anywhereRules = HashMultimap.create();
     private final Multimap<KLabelConstant, Rule> patternRules = ArrayListMultimap.create();
@@ -339,6 +344,9 @@ public class Definition extends JavaSymbolicObject {
     public void addRule(Rule rule) {
         if (rule.isFunction()) {
             functionRules.put(rule.definedKLabel(), rule);
+            if (functionRuleIndices != null) {
+                functionRuleIndices.remove(rule.definedKLabel());
+            }
             if (rule.isSortPredicate()) {
                 sortPredicateRules.put((KLabelConstant) rule.sortPredicateArgument().kLabel(), rule);
             }
@@ -392,6 +400,22 @@ public class Definition extends JavaSymbolicObject {
         return functionRules;
     }
 
+    /**
+     * Returns the index used to select the function rules which may apply to a given function application.
+     */
+    public FunctionRuleIndex functionRuleIndex(KLabelConstant kLabel) {
+        Map<KLabelConstant, FunctionRuleIndex> indices = functionRuleIndices;
+        if (indices == null) {
+            synchronized (this) {
+                if (functionRuleIndices == null) {
+                    functionRuleIndices = new ConcurrentHashMap<>();
+                }
+                indices = functionRuleIndices;
+            }
+        }
+        return indices.computeIfAbsent(kLabel, l -> new FunctionRuleIndex(functionRules.get(l)));
+    }
+
     public Multimap<KLabelConstant, Rule> anywhereRules() {
         return anywhereRules;
     }
@@ -0,0 +1,149 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+
+package org.kframework.backend.java.kil;
+
+import org.kframework.builtin.KLabels;
+import org.kframework.utils.BitSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A discrimination index over the function rules of a single {@link KLabelConstant}.
+ * Similarly to the {@link RuleAutomatonDisjunction} used for top-level rules, the rules are merged by the
+ * symbol heading each argument of their left-hand side, so that one traversal of the arguments of a function
+ * application yields the rules which may match it.
+ * <p>
+ * The index is conservative: a rule is filtered out only if one of its arguments is headed by a {@link KItem}
+ * with a constant {@link KLabel} or by a {@link Token} which is different from the corresponding symbol of the
+ * subject. Candidate rules are returned in definition order, so the [owise] and [concrete] semantics of
+ * function evaluation are preserved.
+ */
+public class FunctionRuleIndex {
+
+    private final List<Rule> rules;
+
+    private final int arity;
+
+    /**
+     * the rules which have to be tried regardless of the arguments of the function application
+     */
+    private final BitSet unindexedRules;
+
+    /**
+     * the rules whose pattern at the given position may match any argument (e.g., variables and collections)
+     */
+    private final BitSet[] wildcardRules;
+
+    /**
+     * maps, for each position, the heading symbol of the pattern (a {@link KLabelConstant} or a {@link Token})
+     * to the rules whose pattern is headed by that symbol
+     */
+    private final List<Map<Object, BitSet>> symbolRules;
+
+    public FunctionRuleIndex(Collection<Rule> functionRules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(functionRules));
+        this.arity = rules.stream()
+                .map(FunctionRuleIndex::arguments)
+                .filter(arguments -> arguments != null)
+                .mapToInt(List::size)
+                .findFirst()
+                .orElse(0);
+
+        unindexedRules = BitSet.apply(rules.size());
+        wildcardRules = new BitSet[arity];
+        symbolRules = new ArrayList<>(arity);
+        for (int position = 0; position < arity; ++position) {
+            wildcardRules[position] = BitSet.apply(rules.size());
+            symbolRules.add(new HashMap<>());
+        }
+
+        for (int i = 0; i < rules.size(); ++i) {
+            List<Term> arguments = arguments(rules.get(i));
+            if (arguments == null || arguments.size() != arity) {
+                unindexedRules.set(i);
+                continue;
+            }
+            for (int position = 0; position < arity; ++position) {
+                Object symbol = headSymbol(arguments.get(position));
+                if (symbol == null) {
+                    wildcardRules[position].set(i);
+                } else {
+                    symbolRules.get(position).computeIfAbsent(symbol, s -> BitSet.apply(rules.size())).set(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the rules which may match the given function application, in definition order.
+     */
+    public List<Rule> candidateRules(KItem kItem) {
+        if (!(kItem.kList() instanceof KList) || ((KList) kItem.kList()).size() != arity) {
+            return rules;
+        }
+
+        List<Term> arguments = ((KList) kItem.kList()).getContents();
+        BitSet candidates = null;
+        for (int position = 0; position < arity; ++position) {
+            Object symbol = headSymbol(arguments.get(position));
+            if (symbol == null) {
+                /* the argument is a variable or is not in normal form, so any rule may match it */
+                continue;
+            }
+
+            BitSet positionCandidates = wildcardRules[position].clone();
+            BitSet symbolCandidates = symbolRules.get(position).get(symbol);
+            if (symbolCandidates != null) {
+                positionCandidates.or(symbolCandidates);
+            }
+            if (candidates == null) {
+                candidates = positionCandidates;
+            } else {
+                candidates.and(positionCandidates);
+            }
+        }
+
+        if (candidates == null) {
+            return rules;
+        }
+
+        candidates.or(unindexedRules);
+        List<Rule> result = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            result.add(rules.get(i));
+        }
+        return result;
+    }
+
+    private static List<Term> arguments(Rule rule) {
+        if (!(rule.leftHandSide() instanceof KItem) || !(((KItem) rule.leftHandSide()).kList() instanceof KList)) {
+            return null;
+        }
+        return ((KList) ((KItem) rule.leftHandSide()).kList()).getContents();
+    }
+
+    /**
+     * Returns the symbol heading the given term, or null if the term can be matched or unified by terms with
+     * different heading symbols. K sequences are excluded because the unifier normalizes them
+     * (e.g., a {@link KItem} may match a K sequence of one element).
+     */
+    private static Object headSymbol(Term term) {
+        if (term instanceof Token) {
+            return term;
+        }
+        if (term instanceof KItem && ((KItem) term).kLabel() instanceof KLabelConstant) {
+            KLabelConstant kLabel = (KLabelConstant) ((KItem) term).kLabel();
+            if (kLabel.name().equals(KLabels.KSEQ) || kLabel.name().equals(KLabels.DOTK)) {
+                return null;
+            }
+            return kLabel;
+        }
+        return null;
+    }
+
+}
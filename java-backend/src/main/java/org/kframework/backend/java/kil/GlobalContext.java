@@ -52,8 +52,12 @@ public class GlobalContext implements Serializable {
         this.hookProvider = hookProvider;
         this.files = files;
         this.equalityOps = new EqualityOperations(() -> def);
-        this.constraintOps = new SMTOperations(() -> def, smtOptions, new Z3Wrapper(smtOptions, kem, globalOptions, files), kem, globalOptions);
-        this.kItemOps = new KItemOperations(stage, deterministicFunctions, kem, this::builtins, globalOptions);
+        int threads = krunOptions != null ?
+                Math.max(krunOptions.experimental.searchThreads, krunOptions.experimental.proveThreads) :
+                1;
+        this.constraintOps = new SMTOperations(() -> def, smtOptions, new Z3Wrapper(smtOptions, kem, globalOptions, files, threads), kem, globalOptions);
+        this.kItemOps = new KItemOperations(stage, deterministicFunctions, kem, this::builtins, globalOptions,
+                krunOptions != null ? krunOptions.experimental.functionCacheSize : 0);
         this.stage = stage;
     }
 
@@ -1,6 +1,9 @@
 // Copyright (c) 2013-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.kil;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Sets;
 import com.google.inject.Provider;
 import org.kframework.attributes.Location;
@@ -25,12 +28,13 @@ import org.kframework.utils.errorsystem.KEMException;
 
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 
 /**
@@ -308,18 +312,33 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         private final KExceptionManager kem;
         private final Provider<BuiltinFunction> builtins;
         private final GlobalOptions options;
+        /**
+         * the results of [memo] functions applied to concrete arguments, or null if memoization is disabled
+         */
+        private final Cache<FunctionCacheKey, Term> functionCache;
 
         public KItemOperations(
                 Stage stage,
                 boolean deterministicFunctions,
                 KExceptionManager kem,
                 Provider<BuiltinFunction> builtins,
-                GlobalOptions options) {
+                GlobalOptions options,
+                int functionCacheSize) {
             this.stage = stage;
             this.deterministicFunctions = deterministicFunctions;
             this.kem = kem;
             this.builtins = builtins;
             this.options = options;
+            this.functionCache = stage == Stage.REWRITING && functionCacheSize > 0 ?
+                    CacheBuilder.newBuilder().maximumSize(functionCacheSize).recordStats().build() :
+                    null;
+        }
+
+        /**
+         * Returns the hit/miss statistics of the cache of [memo] functions, or null if memoization is disabled.
+         */
+        public CacheStats functionCacheStats() {
+            return functionCache != null ? functionCache.stats() : null;
         }
 
         private static final String TRACE_MSG = "Function evaluation triggered infinite recursion. Trace:";
@@ -398,6 +417,50 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
                 return kItem;
             }
 
+            KLabelConstant kLabelConstant = (KLabelConstant) kItem.kLabel;
+            if (functionCache == null || !kLabelConstant.isMemo() || !isConcrete((KList) kItem.kList)) {
+                return evaluateFunctionWithoutCache(kItem, context);
+            }
+
+            FunctionCacheKey key = new FunctionCacheKey(kLabelConstant, (KList) kItem.kList);
+            Term result = functionCache.getIfPresent(key);
+            if (result == null) {
+                BigInteger counter = context.getCounterValue();
+                result = evaluateFunctionWithoutCache(kItem, context);
+                if (isCacheable(kItem, result, !Objects.equals(counter, context.getCounterValue()))) {
+                    functionCache.put(key, result);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns true if the result of a function application can be remembered: it must be evaluated, it
+         * must be concrete and no fresh constant may have been generated while evaluating it. An application
+         * which could not be evaluated yet (e.g., an impure hook), or whose result still contains function calls
+         * which could not be evaluated, may evaluate differently later; and each evaluation of a function whose
+         * rules generate fresh constants (through {@code !X} or {@code #fresh}) must get new ones.
+         *
+         * @param generatedFresh whether the fresh counter was advanced while evaluating the application
+         */
+        static boolean isCacheable(KItem kItem, Term result, boolean generatedFresh) {
+            return !generatedFresh && result != kItem && result.isGround() && result.isNormal();
+        }
+
+        /**
+         * Returns true if all the given arguments are concrete, i.e., they do not contain variables
+         * or unresolved functions.
+         */
+        private static boolean isConcrete(KList kList) {
+            for (Term argument : kList.getContents()) {
+                if (!argument.isGround() || !argument.isNormal()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Term evaluateFunctionWithoutCache(KItem kItem, TermContext context) {
             Definition definition = context.definition();
             KLabelConstant kLabelConstant = (KLabelConstant) kItem.kLabel;
 
@@ -451,8 +514,12 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
                     Term owiseResult = null;
 
                     // an argument is concrete if it doesn't contain variables or unresolved functions
-                    boolean isConcrete = kList.getContents().stream().filter(elem -> !elem.isGround() || !elem.isNormal()).collect(Collectors.toList()).isEmpty();
-                    for (Rule rule : definition.functionRules().get(kLabelConstant)) {
+                    boolean isConcrete = isConcrete(kList);
+                    // when auditing, every rule is tried so that the audited rule reports why it does not apply
+                    Iterable<Rule> rules = RuleAuditing.getAuditingRule() == null && !RuleAuditing.isAuditBegun() ?
+                            definition.functionRuleIndex(kLabelConstant).candidateRules(kItem) :
+                            definition.functionRules().get(kLabelConstant);
+                    for (Rule rule : rules) {
                         try {
                             if (rule == RuleAuditing.getAuditingRule()) {
                                 RuleAuditing.beginAudit();
@@ -789,6 +856,38 @@ public class KItem extends Term implements KItemRepresentation, HasGlobalContext
         }
     }
 
+    /**
+     * The result of a [memo] function applied to concrete arguments depends only on the
+     * {@code KLabelConstant} and the arguments, which are compared structurally.
+     */
+    static final class FunctionCacheKey {
+
+        final KLabelConstant kLabelConstant;
+        final Term[] arguments;
+        final int hashCode;
+
+        public FunctionCacheKey(KLabelConstant kLabelConstant, KList kList) {
+            this.kLabelConstant = kLabelConstant;
+            arguments = kList.getContents().toArray(new Term[kList.getContents().size()]);
+            hashCode = kLabelConstant.hashCode() * Constants.HASH_PRIME + Arrays.hashCode(arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof FunctionCacheKey)) {
+                return false;
+            }
+            FunctionCacheKey key = (FunctionCacheKey) object;
+            return kLabelConstant.equals(key.kLabelConstant)
+                    && Arrays.equals(arguments, key.arguments);
+        }
+    }
+
     /**
      * When serializing a KItem, compute its sort so that we don't end up serializing the TermContext
      *
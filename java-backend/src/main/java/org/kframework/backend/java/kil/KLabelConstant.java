@@ -64,6 +64,12 @@ public class KLabelConstant extends KLabel implements org.kframework.frontend.KL
 
     private final boolean isSortPredicate;
 
+    /*
+     * boolean flag set iff a production tagged with "memo" but not with "impure"
+     * generates this {@code KLabelConstant}
+     */
+    private final boolean isMemo;
+
     private final Sort predicateSort;
 
     private final String smtlib;
@@ -101,6 +107,8 @@ public class KLabelConstant extends KLabel implements org.kframework.frontend.KL
         this.isFunction = isFunction;
         this.isPattern = isPattern;
         this.smtlib = smtlib;
+        this.isMemo = productionAttributes.getAttr(Attribute.MEMO_KEY) != null
+                && productionAttributes.getAttr(Attribute.IMPURE_KEY) == null;
     }
 
     /**
@@ -241,6 +249,13 @@ public class KLabelConstant extends KLabel implements org.kframework.frontend.KL
         return productionAttributes.getAttr(attribute);
     }
 
+    /**
+     * Returns true iff the results of this function on concrete arguments may be memoized.
+     */
+    public boolean isMemo() {
+        return isMemo;
+    }
+
     public boolean isMetaBinder() {
         return getAttr("metabinder") != null;
     }
@@ -46,6 +46,7 @@ public final class Sort extends org.kframework.frontend.AbstractSort implements
     public static final Sort FLOAT          =   Sort.of("Float@FLOAT-SYNTAX");
     public static final Sort STRING         =   Sort.of("String@STRING-SYNTAX");
     public static final Sort BIT_VECTOR     =   Sort.of("MInt@MINT");
+    public static final Sort BYTES          =   Sort.of("Bytes@BYTES");
 
     public static final Sort KVARIABLE      =   Sort.of("KVariable@SUBSTITUTION");
 
@@ -71,7 +71,20 @@ public class TermContext extends JavaSymbolicObject {
      * Forks an identical {@link TermContext}.
      */
     public TermContext fork() {
-        return counter != null ? new TermContext(global, new FreshCounter(counter.value)) : this;
+        return fork(counter != null ? counter.value : null);
+    }
+
+    /**
+     * Forks an identical {@link TermContext} whose fresh counter starts at the given value.
+     */
+    public TermContext fork(BigInteger counterValue) {
+        if (counter == null) {
+            return this;
+        }
+        TermContext forked = new TermContext(global, new FreshCounter(counterValue));
+        forked.initialVariables = initialVariables;
+        forked.converter = converter;
+        return forked;
     }
 
     public BigInteger freshConstant() {
@@ -81,8 +94,18 @@ public class TermContext extends JavaSymbolicObject {
         return counter.incrementAndGet();
     }
 
+    /**
+     * Returns the last fresh constant, or null if this context has no fresh counter.
+     */
     public BigInteger getCounterValue() {
-        return counter.value;
+        return counter != null ? counter.value : null;
+    }
+
+    public void setCounterValue(BigInteger value) {
+        if (counter == null) {
+            throw KEMException.criticalError("No fresh counter available in this TermContext.");
+        }
+        counter.value = value;
     }
 
     public Definition definition() {
@@ -0,0 +1,175 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+
+package org.kframework.backend.java.kil;
+
+import org.kframework.builtin.KLabels;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A discrimination index of values by the shape of a pattern term, e.g., the specification rules used by the
+ * prover by their left-hand sides, or the states visited by the prover.
+ * <p>
+ * Like the {@link RuleAutomatonDisjunction} of the top-level rules, the patterns are merged into a single
+ * tree by the symbol heading each position, and each node records the values whose pattern uses it. One
+ * traversal of a term along this tree yields the values whose pattern may match the term, instead of
+ * matching the term against every pattern.
+ * <p>
+ * The index is conservative: a value is filtered out only if, at some position, both its pattern and the
+ * term are headed by a constructor {@link KLabelConstant} or a {@link Token}, and the two differ. A K
+ * sequence is indexed by its first element, and a single {@link KItem} is treated as a K sequence of one
+ * element, as in the unifier. Variables, functions, patterns and builtin collections match anything.
+ * Candidate values are returned in the order they were added.
+ */
+public class TermShapeIndex<T> {
+
+    private final List<T> values = new ArrayList<>();
+    private final Node root = new Node();
+
+    /**
+     * Adds a value, indexed by the given pattern.
+     */
+    public void add(Term pattern, T value) {
+        root.add(pattern, values.size());
+        values.add(value);
+    }
+
+    /**
+     * Returns the values whose pattern may match the given term, in the order they were added.
+     */
+    public List<T> candidates(Term term) {
+        BitSet candidates = root.candidates(term);
+        List<T> result = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            result.add(values.get(i));
+        }
+        return result;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * A position in the merged patterns.
+     */
+    private static final class Node {
+        /**
+         * the values which have a pattern at this position
+         */
+        private final BitSet all = new BitSet();
+        /**
+         * the values whose pattern at this position may match any term
+         */
+        private final BitSet wildcard = new BitSet();
+        /**
+         * the values whose pattern at this position is headed by the given symbol
+         */
+        private final Map<Object, BitSet> symbolValues = new HashMap<>();
+        /**
+         * the positions of the arguments under the given symbol
+         */
+        private final Map<Object, Node[]> arguments = new HashMap<>();
+
+        void add(Term pattern, int value) {
+            all.set(value);
+            pattern = head(pattern);
+            Object symbol = symbol(pattern);
+            List<Term> patternArguments = symbol != null ? arguments(pattern) : null;
+            Node[] nodes = symbol != null ? arguments.get(symbol) : null;
+            if (symbol == null || nodes != null && nodes.length != patternArguments.size()) {
+                wildcard.set(value);
+                return;
+            }
+
+            symbolValues.computeIfAbsent(symbol, s -> new BitSet()).set(value);
+            if (nodes == null) {
+                nodes = new Node[patternArguments.size()];
+                for (int i = 0; i < nodes.length; ++i) {
+                    nodes[i] = new Node();
+                }
+                arguments.put(symbol, nodes);
+            }
+            for (int i = 0; i < nodes.length; ++i) {
+                nodes[i].add(patternArguments.get(i), value);
+            }
+        }
+
+        BitSet candidates(Term subject) {
+            subject = head(subject);
+            Object symbol = symbol(subject);
+            if (symbol == null) {
+                return (BitSet) all.clone();
+            }
+
+            BitSet result = (BitSet) wildcard.clone();
+            BitSet values = symbolValues.get(symbol);
+            if (values == null) {
+                return result;
+            }
+            values = (BitSet) values.clone();
+            Node[] nodes = arguments.get(symbol);
+            List<Term> subjectArguments = arguments(subject);
+            if (nodes.length == subjectArguments.size()) {
+                for (int i = 0; i < nodes.length && !values.isEmpty(); ++i) {
+                    values.and(nodes[i].candidates(subjectArguments.get(i)));
+                }
+            }
+            result.or(values);
+            return result;
+        }
+    }
+
+    /**
+     * Returns the first element of the given K sequence, or the given term if it is not a K sequence.
+     */
+    private static Term head(Term term) {
+        while (true) {
+            if (term instanceof KSequence) {
+                KSequence kSequence = (KSequence) term;
+                if (kSequence.concreteSize() == 0) {
+                    return null;
+                }
+                term = kSequence.get(0);
+            } else if (term instanceof KItem
+                    && ((KItem) term).kLabel() instanceof KLabelConstant
+                    && ((KLabelConstant) ((KItem) term).kLabel()).name().equals(KLabels.KSEQ)
+                    && ((KItem) term).kList() instanceof KList
+                    && ((KList) ((KItem) term).kList()).size() == 2) {
+                term = ((KList) ((KItem) term).kList()).get(0);
+            } else {
+                return term;
+            }
+        }
+    }
+
+    /**
+     * Returns the symbol heading the given term, or null if terms with different heading symbols may match it.
+     */
+    private static Object symbol(Term term) {
+        if (term instanceof Token) {
+            return term;
+        }
+        if (term instanceof KItem
+                && ((KItem) term).kLabel() instanceof KLabelConstant
+                && ((KItem) term).kList() instanceof KList) {
+            KLabelConstant kLabel = (KLabelConstant) ((KItem) term).kLabel();
+            if (kLabel.isFunction() || kLabel.isPattern() || kLabel.name().equals(KLabels.DOTK)
+                    || ((KList) ((KItem) term).kList()).hasFrame()) {
+                return null;
+            }
+            return kLabel;
+        }
+        return null;
+    }
+
+    private static List<Term> arguments(Term term) {
+        return term instanceof KItem ? ((KList) ((KItem) term).kList()).getContents() : Collections.emptyList();
+    }
+
+}
@@ -1,8 +1,10 @@
 // Copyright (c) 2013-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.kil;
 
+import com.google.common.cache.CacheStats;
 import org.kframework.backend.java.builtins.BitVector;
 import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.builtins.BytesToken;
 import org.kframework.backend.java.builtins.FloatToken;
 import org.kframework.backend.java.builtins.IntToken;
 import org.kframework.backend.java.builtins.StringToken;
@@ -30,6 +32,8 @@ public abstract class Token extends Term implements KoreRepresentation, KToken {
             return FloatToken.of(value);
         } else if (sort.equals(StringToken.SORT)) {
             return StringToken.of(StringUtil.unquoteKString(value));
+        } else if (sort.equals(BytesToken.SORT)) {
+            return BytesToken.of(value);
         } else if (sort.equals(BitVector.SORT)) {
             String[] values = value.split("'");
             return BitVector.of(Long.parseLong(values[1]), Integer.parseInt(values[0]));
@@ -42,6 +46,18 @@ public abstract class Token extends Term implements KoreRepresentation, KToken {
         super(Kind.KITEM);
     }
 
+    /**
+     * Returns a summary of the size and effectiveness of the {@link StringToken} and {@link FloatToken} caches.
+     */
+    public static String cacheStatistics() {
+        CacheStats stringStats = StringToken.cacheStats();
+        CacheStats floatStats = FloatToken.cacheStats();
+        return "[tokens: " + StringToken.cacheSize() + " strings, " + FloatToken.cacheSize() + " floats cached, "
+                + (stringStats.hitCount() + floatStats.hitCount()) + " hits, "
+                + (stringStats.missCount() + floatStats.missCount()) + " misses, "
+                + (stringStats.evictionCount() + floatStats.evictionCount()) + " collected]";
+    }
+
     @Override
     public boolean isExactSort() {
         return true;
@@ -35,6 +35,31 @@ public class Variable extends Term implements org.kframework.frontend.KVariable
         counter.set(c);
     }
 
+    /**
+     * The next anonymous variable of the current thread, if set by {@link #setLocalCounter}.
+     */
+    private static final ThreadLocal<int[]> localCounter = new ThreadLocal<>();
+
+    /**
+     * Numbers the anonymous variables created by the current thread from the given value instead of the global
+     * counter, until {@link #clearLocalCounter} is called. The names of the variables created by a task then do
+     * not depend on the tasks running concurrently.
+     */
+    public static void setLocalCounter(int c) {
+        localCounter.set(new int[] {c});
+    }
+
+    /**
+     * Numbers the anonymous variables created by the current thread from the global counter again.
+     *
+     * @return the value the local counter reached
+     */
+    public static int clearLocalCounter() {
+        int c = localCounter.get()[0];
+        localCounter.remove();
+        return c;
+    }
+
     /**
      * Given a set of {@link Variable}s, returns a substitution that maps each
      * element inside to a fresh {@code Variable}.
@@ -59,7 +84,9 @@ public class Variable extends Term implements org.kframework.frontend.KVariable
      * @return the fresh variable
      */
     public static Variable getAnonVariable(Sort sort) {
-        return new Variable(VARIABLE_PREFIX + counter.getAndIncrement(), sort, true, -1);
+        int[] local = localCounter.get();
+        int id = local != null ? local[0]++ : counter.getAndIncrement();
+        return new Variable(VARIABLE_PREFIX + id, sort, true, -1);
     }
 
     /* TODO(AndreiS): cache the variables */
@@ -107,6 +134,35 @@ public class Variable extends Term implements org.kframework.frontend.KVariable
         return var;
     }
 
+    /**
+     * Returns the number of this variable if it was created by {@link #getAnonVariable}, or -1 otherwise.
+     */
+    public int anonymousNumber() {
+        if (!anonymous || !name.startsWith(VARIABLE_PREFIX) || name.length() == VARIABLE_PREFIX.length()) {
+            return -1;
+        }
+        for (int i = VARIABLE_PREFIX.length(); i < name.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return -1;
+            }
+        }
+        try {
+            return Integer.parseInt(name.substring(VARIABLE_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns a copy of this anonymous variable with the given number instead of its own.
+     */
+    public Variable renumber(int number) {
+        Variable var = new Variable(VARIABLE_PREFIX + number, sort, true, -1);
+        var.copyAttributesFrom(this);
+        var.originalName = this.originalName;
+        return var;
+    }
+
     /**
      * Returns a {@code String} representation of the name of this variable.
      */
@@ -3,6 +3,7 @@ package org.kframework.backend.java.symbolic;
 
 import org.kframework.backend.java.builtins.BitVector;
 import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.builtins.BytesToken;
 import org.kframework.backend.java.builtins.FloatToken;
 import org.kframework.backend.java.builtins.IntToken;
 import org.kframework.backend.java.builtins.StringToken;
@@ -289,6 +290,11 @@ public class BackendJavaKILtoKILTransformer implements Transformer {
         return transform((Token) stringToken);
     }
 
+    @Override
+    public ASTNode transform(BytesToken bytesToken) {
+        return transform((Token) bytesToken);
+    }
+
     @Override
     public ASTNode transform(Term node) {
         throw new UnsupportedOperationException("This method should never be called");
@@ -0,0 +1,218 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import com.google.common.base.Stopwatch;
+import org.kframework.backend.java.compile.KOREtoBackendKIL;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.TermShapeIndex;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.kil.Attribute;
+import org.kframework.krun.api.KRunState;
+import org.kframework.rewriter.ProofStrategy;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Proves the claims of a specification, on a work-stealing pool of {@code --prove-threads} threads.
+ * <p>
+ * With a single thread, the claims are proven one after another by one {@link SymbolicRewriter}, in the given
+ * {@link TermContext}, so they get the same fresh constants and anonymous variables as before the pool was
+ * introduced. With more threads, each claim is proven by its own rewriter, in a context forked from the given
+ * one, and numbers its anonymous variables from a counter local to its thread (see
+ * {@link Variable#setLocalCounter}). Every claim then starts from the same fresh counter and the same variable
+ * counter whatever the scheduling of the pool, so the results do not depend on it, but they may differ from the
+ * sequential ones in the names of the fresh constants and anonymous variables.
+ * <p>
+ * The specification rules, including the trusted claims, are indexed once and only read while proving. The
+ * other state shared by the claims is the {@link GlobalContext}: its function cache is a concurrent cache whose
+ * entries do not depend on the claim which computed them, and its Z3 solvers are pooled per thread. The results
+ * are returned in the order of the claims.
+ */
+public class ClaimProver {
+
+    /**
+     * The outcome of the proof of one claim.
+     */
+    public static class Result {
+        public final Rule claim;
+        /**
+         * The final states which do not imply the right-hand side of the claim; the claim is proven if empty.
+         */
+        public final List<ConstrainedTerm> remaining;
+        public final int steps;
+        public final int states;
+        /**
+         * The number of states pruned because they are instances of visited states (see {@code --prune-subsumed}).
+         */
+        public final int pruned;
+        public final long milliseconds;
+
+        private Result(Rule claim, List<ConstrainedTerm> remaining, int steps, int states, int pruned, long milliseconds) {
+            this.claim = claim;
+            this.remaining = remaining;
+            this.steps = steps;
+            this.states = states;
+            this.pruned = pruned;
+            this.milliseconds = milliseconds;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + claim.getSource() + ":" + claim.getLocation() + ": "
+                    + (remaining.isEmpty() ? "proven" : remaining.size() + " remaining states") + ", "
+                    + steps + " steps, " + states + " states, " + pruned + " pruned, " + milliseconds + " ms]";
+        }
+    }
+
+    private final GlobalContext global;
+    private final List<String> transitions;
+    private final KOREtoBackendKIL converter;
+    private final ProofStrategy strategy;
+    private final ToIntFunction<ConstrainedTerm> heuristic;
+
+    public ClaimProver(GlobalContext global, List<String> transitions, KOREtoBackendKIL converter) {
+        this(global, transitions, converter, global.krunOptions.experimental.proofStrategy, SymbolicRewriter::kCellSize);
+    }
+
+    /**
+     * @param strategy  the order in which the states of each proof are explored
+     * @param heuristic the priority of a state for {@link ProofStrategy#BEST_FIRST}, least first
+     */
+    public ClaimProver(
+            GlobalContext global,
+            List<String> transitions,
+            KOREtoBackendKIL converter,
+            ProofStrategy strategy,
+            ToIntFunction<ConstrainedTerm> heuristic) {
+        this.global = global;
+        this.transitions = transitions;
+        this.converter = converter;
+        this.strategy = strategy;
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Proves the claims which are not trusted.
+     *
+     * @param claims     the claims, among the specification rules
+     * @param specRules  the specification rules which may be applied during the proofs
+     * @param context    the context of the claims, forked for each claim if they are proven in parallel
+     * @param lhsPattern builds the initial state of a claim in the given context
+     * @param rhsPattern builds the target state of a claim
+     */
+    public List<Result> prove(
+            List<Rule> claims,
+            List<Rule> specRules,
+            TermContext context,
+            BiFunction<Rule, TermContext, ConstrainedTerm> lhsPattern,
+            Function<Rule, ConstrainedTerm> rhsPattern) {
+        List<Rule> untrusted = claims.stream()
+                .filter(r -> !r.containsAttribute(Attribute.TRUSTED_KEY))
+                .collect(Collectors.toList());
+        int threads = global.krunOptions.experimental.proveThreads;
+        TermShapeIndex<Rule> specRuleIndex = SymbolicRewriter.specRuleIndex(specRules);
+
+        List<Result> results;
+        if (threads > 1 && untrusted.size() > 1) {
+            BigInteger fresh = context.getCounterValue();
+            int variables = Variable.getCounter();
+            List<Fork> forks;
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                List<ForkJoinTask<Fork>> tasks = untrusted.stream()
+                        .map(claim -> pool.submit(() -> proveInFork(claim, specRuleIndex, context, fresh, variables, lhsPattern, rhsPattern)))
+                        .collect(Collectors.toList());
+                forks = tasks.stream().map(ForkJoinTask::join).collect(Collectors.toList());
+            } finally {
+                pool.shutdown();
+            }
+            results = forks.stream().map(fork -> fork.result).collect(Collectors.toList());
+            /* the counters continue after the values taken by any of the claims */
+            if (fresh != null) {
+                context.setCounterValue(forks.stream().map(fork -> fork.freshEnd).max(BigInteger::compareTo).get());
+            }
+            Variable.setCounter(forks.stream().mapToInt(fork -> fork.variableEnd).max().getAsInt());
+        } else {
+            SymbolicRewriter rewriter = new SymbolicRewriter(global, transitions, new KRunState.Counter(), converter);
+            results = new ArrayList<>();
+            for (Rule claim : untrusted) {
+                results.add(prove(claim, specRuleIndex, rewriter, context, lhsPattern, rhsPattern));
+            }
+        }
+
+        if (global.krunOptions.experimental.statistics) {
+            results.forEach(System.err::println);
+        }
+        return results;
+    }
+
+    /**
+     * The outcome of a claim proven in parallel, with the values its counters reached.
+     */
+    private static final class Fork {
+        final Result result;
+        final BigInteger freshEnd;
+        final int variableEnd;
+
+        Fork(Result result, BigInteger freshEnd, int variableEnd) {
+            this.result = result;
+            this.freshEnd = freshEnd;
+            this.variableEnd = variableEnd;
+        }
+    }
+
+    /**
+     * Proves a claim in a fork of {@code context} whose fresh counter starts at {@code fresh}, numbering the
+     * anonymous variables of the current thread from {@code variables}.
+     */
+    private Fork proveInFork(
+            Rule claim,
+            TermShapeIndex<Rule> specRuleIndex,
+            TermContext context,
+            BigInteger fresh,
+            int variables,
+            BiFunction<Rule, TermContext, ConstrainedTerm> lhsPattern,
+            Function<Rule, ConstrainedTerm> rhsPattern) {
+        TermContext claimContext = context.fork(fresh);
+        Result result;
+        int variableEnd;
+        Variable.setLocalCounter(variables);
+        try {
+            result = prove(claim, specRuleIndex, new SymbolicRewriter(global, transitions, new KRunState.Counter(), converter),
+                    claimContext, lhsPattern, rhsPattern);
+        } finally {
+            variableEnd = Variable.clearLocalCounter();
+        }
+        return new Fork(result, claimContext.getCounterValue(), variableEnd);
+    }
+
+    private Result prove(
+            Rule claim,
+            TermShapeIndex<Rule> specRuleIndex,
+            SymbolicRewriter rewriter,
+            TermContext claimContext,
+            BiFunction<Rule, TermContext, ConstrainedTerm> lhsPattern,
+            Function<Rule, ConstrainedTerm> rhsPattern) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        List<ConstrainedTerm> remaining = rewriter.proveRule(
+                lhsPattern.apply(claim, claimContext),
+                rhsPattern.apply(claim),
+                specRuleIndex,
+                strategy,
+                heuristic);
+        return new Result(claim, remaining, rewriter.getProofSteps(), rewriter.getProofStates(), rewriter.getProofPruned(),
+                stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+}
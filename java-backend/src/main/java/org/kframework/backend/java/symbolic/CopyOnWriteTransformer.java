@@ -4,6 +4,7 @@ package org.kframework.backend.java.symbolic;
 import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.backend.java.builtins.BitVector;
 import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.builtins.BytesToken;
 import org.kframework.backend.java.builtins.FloatToken;
 import org.kframework.backend.java.builtins.IntToken;
 import org.kframework.backend.java.builtins.StringToken;
@@ -252,6 +253,11 @@ public abstract class CopyOnWriteTransformer implements Transformer {
         return transform((Token) stringToken);
     }
 
+    @Override
+    public ASTNode transform(BytesToken bytesToken) {
+        return transform((Token) bytesToken);
+    }
+
     @Override
     public ASTNode transform(KCollection kCollection) {
         throw new UnsupportedOperationException();
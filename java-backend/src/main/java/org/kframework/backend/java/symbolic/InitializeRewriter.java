@@ -2,6 +2,7 @@
 package org.kframework.backend.java.symbolic;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.kframework.HookProvider;
 import org.kframework.KapiGlobal;
 import org.kframework.RewriterResult;
 import org.kframework.backend.java.MiniKoreUtils;
@@ -17,29 +18,36 @@ import org.kframework.backend.java.util.JavaKRunState;
 import org.kframework.definition.Module;
 import org.kframework.definition.Rule;
 import org.kframework.kast.Kast;
-import org.kframework.kil.Attribute;
 import org.kframework.frontend.K;
 import org.kframework.krun.KRunOptions;
 import org.kframework.krun.api.KRunState;
 import org.kframework.krun.api.io.FileSystem;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
 import org.kframework.main.GlobalOptions;
 import org.kframework.minikore.converters.MiniToKore;
 import org.kframework.rewriter.Rewriter;
+import org.kframework.rewriter.RewriterState;
 import org.kframework.rewriter.SearchType;
+import org.kframework.utils.errorsystem.KException;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
 import org.kframework.utils.options.SMTOptions;
 import scala.Tuple2;
 import scala.collection.JavaConversions;
 
+import java.io.File;
 import java.lang.invoke.MethodHandle;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -96,9 +104,9 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
         Definition definition;
         if (modulePair.getRight() != null) {
             mainModule = MiniKoreUtils.getMainModule(modulePair.getRight());
-            definition = initializeDefinition.invoke(kem, initializingContext.global(), mainModule, modulePair.getRight());
+            definition = initializeDefinition.invoke(kem, initializingContext, mainModule, modulePair.getRight());
         } else {
-            definition = initializeDefinition.invoke(modulePair.getKey(), kem, initializingContext.global());
+            definition = initializeDefinition.invoke(modulePair.getKey(), kem, initializingContext);
         }
         GlobalContext rewritingContext = new GlobalContext(fs, deterministicFunctions, globalOptions, krunOptions, kem, smtOptions, hookProvider, files, Stage.REWRITING);
         rewritingContext.setDefinition(definition);
@@ -110,7 +118,10 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
 
     public static class SymbolicRewriterGlue implements Rewriter {
 
-        private SymbolicRewriter rewriter;
+        /* the rewriter of the last execute or search */
+        SymbolicRewriter rewriter;
+        /* the outcome of each claim of the last prove */
+        List<ClaimProver.Result> claimResults;
         public final Definition definition;
         public Definition miniKoreDefinition;
         public final Module module;
@@ -139,13 +150,32 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
 
         @Override
         public RewriterResult execute(K k, Optional<Integer> depth) {
+            ConstrainedTerm initialTerm = initialTerm(k);
+            this.rewriter = newSymbolicRewriter(initialTerm);
+            JavaKRunState result = (JavaKRunState) rewriter.rewrite(initialTerm, depth.orElse(-1));
+            return new RewriterResult(result.getStepsTaken(), result.getJavaKilTerm());
+        }
+
+        @Override
+        public RewriterState initialState(K k) {
+            ConstrainedTerm initialTerm = initialTerm(k);
+            return new JavaRewriterState(newSymbolicRewriter(initialTerm), initialTerm, 0);
+        }
+
+        /**
+         * Converts the given configuration to the backend in a new term context, and expands its macros.
+         */
+        private ConstrainedTerm initialTerm(K k) {
             TermContext termContext = TermContext.builder(rewritingContext).freshCounter(initCounterValue).build();
             KOREtoBackendKIL converter = new KOREtoBackendKIL(module, definition, termContext.global(), false);
             termContext.setKOREtoBackendKILConverter(converter);
             Term backendKil = MacroExpander.expandAndEvaluate(termContext, kem, converter.convert(k));
-            this.rewriter = new SymbolicRewriter(rewritingContext, transitions, new KRunState.Counter(), converter);
-            JavaKRunState result = (JavaKRunState) rewriter.rewrite(new ConstrainedTerm(backendKil, termContext), depth.orElse(-1));
-            return new RewriterResult(result.getStepsTaken(), result.getJavaKilTerm());
+            return new ConstrainedTerm(backendKil, termContext);
+        }
+
+        private SymbolicRewriter newSymbolicRewriter(ConstrainedTerm initialTerm) {
+            return new SymbolicRewriter(rewritingContext, transitions, new KRunState.Counter(),
+                    initialTerm.termContext().getKOREtoBackendKILConverter());
         }
 
         @Override
@@ -199,19 +229,22 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
                     .map(org.kframework.backend.java.kil.Rule::renameVariables)
                     .collect(Collectors.toList());
 
-            this.rewriter = new SymbolicRewriter(rewritingContext, transitions, new KRunState.Counter(), converter);
-
-            List<ConstrainedTerm> proofResults = javaRules.stream()
-                    .filter(r -> !r.containsAttribute(Attribute.TRUSTED_KEY))
-                    .map(r -> {
-                        ConstrainedTerm lhs = r.createLhsPattern(termContext);
-                        ConstrainedTerm rhs = r.createRhsPattern();
-                        termContext.setInitialVariables(lhs.variableSet());
-                        return rewriter.proveRule(lhs, rhs, allRules);
-                    })
-                    .flatMap(List::stream)
+            claimResults = new ClaimProver(rewritingContext, transitions, converter)
+                    .prove(javaRules, allRules, termContext,
+                            (r, claimContext) -> {
+                                ConstrainedTerm lhs = r.createLhsPattern(claimContext);
+                                claimContext.setInitialVariables(lhs.variableSet());
+                                return lhs;
+                            },
+                            org.kframework.backend.java.kil.Rule::createRhsPattern);
+            List<ConstrainedTerm> proofResults = claimResults.stream()
+                    .flatMap(result -> result.remaining.stream())
                     .collect(Collectors.toList());
 
+            if (termContext.global().krunOptions.experimental.statistics) {
+                SymbolicRewriter.printStatistics(termContext.global());
+            }
+
             return proofResults.stream()
                     .map(ConstrainedTerm::term)
                     .map(t -> (KItem) t)
@@ -221,48 +254,157 @@ public class InitializeRewriter implements Function<Pair<Module, org.kframework.
     }
 
 
+    /**
+     * Builds the backend definitions of modules, caching them together with the value of the fresh counter
+     * after their initialization. An instance may be shared by rewriters initialized concurrently, e.g., by
+     * the requests served by the K server; see {@link #shared}.
+     */
     public static class InitializeDefinition {
 
-        private final Map<Module, Definition> cache = new LinkedHashMap<Module, Definition>() {
+        private static class Initialized {
+            final Definition definition;
+            final BigInteger counterValue;
+            /* the warnings registered while building the definition, if it was built against a context of its own */
+            final List<KException> warnings;
+
+            Initialized(Definition definition, BigInteger counterValue, List<KException> warnings) {
+                this.definition = definition;
+                this.counterValue = counterValue;
+                this.warnings = warnings;
+            }
+        }
+
+        private final Map<Module, Initialized> cache = new LinkedHashMap<Module, Initialized>() {
             @Override
-            protected boolean removeEldestEntry(Map.Entry<Module, Definition> eldest) {
+            protected boolean removeEldestEntry(Map.Entry<Module, Initialized> eldest) {
                 return this.size() > 20;
             }
         };
 
-        public Definition invoke(Module module, KExceptionManager kem, GlobalContext global) {
-            if (cache.containsKey(module)) {
-                return cache.get(module);
-            }
-            Definition definition = new Definition(module, kem);
+        /*
+         * the mini-KORE modules are keyed by the kompiled directory they were loaded from, its last modification
+         * and the name of the module, as computing their hash codes is expensive
+         */
+        private final Map<List<Object>, Initialized> miniKoreCache = new HashMap<>();
+
+        /* creates the context each definition is built against; null to build it against the initializing context */
+        private final Supplier<GlobalContext> sharedContext;
 
-            global.setDefinition(definition);
+        public InitializeDefinition() {
+            this(null);
+        }
+
+        private InitializeDefinition(Supplier<GlobalContext> sharedContext) {
+            this.sharedContext = sharedContext;
+        }
 
-            JavaConversions.setAsJavaSet(module.attributesFor().keySet()).stream()
-                    .map(l -> KLabelConstant.of(l.name(), definition))
-                    .forEach(definition::addKLabel);
-            definition.addKoreRules(module, global);
-            cache.put(module, definition);
-            return definition;
+        /**
+         * Returns an instance whose definitions can be shared by rewriters with different options and exception
+         * managers. The rules and terms of a definition keep the context they were built against, so each
+         * definition is built against a context of its own instead of the initializing context of the rewriter
+         * which requests it first. That context has the default options and its own exception manager, and runs
+         * processes in the definition directory of {@code files}. The warnings registered while building a
+         * definition are passed on to the exception manager of every rewriter which requests it.
+         */
+        public static InitializeDefinition shared(FileUtil files) {
+            File definitionDir = files.resolveDefinitionDirectory(".").getAbsoluteFile();
+            File kompiledDir = files.resolveKompiled(".").getAbsoluteFile();
+            return new InitializeDefinition(() -> {
+                KRunOptions krunOptions = new KRunOptions();
+                KExceptionManager kem = new KExceptionManager(krunOptions.global);
+                File tempDir = new File(System.getProperty("java.io.tmpdir"), FileUtil.generateUniqueFolderName(".kserver"));
+                FileUtil sharedFiles = new FileUtil(tempDir, definitionDir, definitionDir, kompiledDir, krunOptions.global, System.getenv());
+                return new GlobalContext(new PortableFileSystem(kem, sharedFiles), new JavaExecutionOptions().deterministicFunctions,
+                        krunOptions.global, krunOptions, kem, krunOptions.experimental.smt, HookProvider.get(kem), sharedFiles,
+                        Stage.INITIALIZING);
+            });
         }
 
+        public Definition invoke(Module module, KExceptionManager kem, GlobalContext global) {
+            return invoke(module, kem, TermContext.builder(global).freshCounter(0).build());
+        }
+
+        /**
+         * Returns the backend definition of the given module. The fresh counter of the given context is
+         * advanced as by the initialization of the definition, also when the definition is cached.
+         */
+        public synchronized Definition invoke(Module module, KExceptionManager kem, TermContext initializingContext) {
+            Initialized initialized = cache.get(module);
+            if (initialized == null) {
+                TermContext context = buildContext(initializingContext);
+                GlobalContext global = context.global();
+                Definition definition = new Definition(module, sharedContext != null ? global.kem : kem);
+
+                global.setDefinition(definition);
+
+                JavaConversions.setAsJavaSet(module.attributesFor().keySet()).stream()
+                        .map(l -> KLabelConstant.of(l.name(), definition))
+                        .forEach(definition::addKLabel);
+                definition.addKoreRules(module, global);
+                initialized = initialized(definition, context);
+                cache.put(module, initialized);
+            }
+            return restore(initialized, kem, initializingContext);
+        }
 
         public Definition invoke(KExceptionManager kem, GlobalContext global, org.kframework.kore.Module miniKoreModule, org.kframework.kore.Definition miniKoreDefinition) {
-            MiniKoreUtils.ModuleUtils moduleUtils = new MiniKoreUtils.ModuleUtils(miniKoreModule, miniKoreDefinition);
-            Definition definition = new Definition(moduleUtils, kem);
+            return invoke(kem, TermContext.builder(global).freshCounter(0).build(), miniKoreModule, miniKoreDefinition);
+        }
 
-            global.setDefinition(definition);
+        public synchronized Definition invoke(KExceptionManager kem, TermContext initializingContext, org.kframework.kore.Module miniKoreModule, org.kframework.kore.Definition miniKoreDefinition) {
+            List<Object> key = miniKoreKey(initializingContext.global().files, miniKoreModule);
+            Initialized initialized = miniKoreCache.get(key);
+            if (initialized == null) {
+                TermContext context = buildContext(initializingContext);
+                GlobalContext global = context.global();
+                MiniKoreUtils.ModuleUtils moduleUtils = new MiniKoreUtils.ModuleUtils(miniKoreModule, miniKoreDefinition);
+                Definition definition = new Definition(moduleUtils, sharedContext != null ? global.kem : kem);
+
+                global.setDefinition(definition);
+
+                JavaConversions.setAsJavaSet(moduleUtils.attributesFor().keySet()).stream()
+                        .map(l -> KLabelConstant.of(l, definition))
+                        .forEach(definition::addKLabel);
+
+                //Todo: Bypass Conversion to Kore
+                Module koreModule = MiniToKore.apply(MiniKoreUtils.getOriginalModuleMap(miniKoreDefinition), JavaConversions.mapAsScalaMap(new HashMap<String, Module>()), miniKoreModule);
+
+                //TODO: Change add KoreRules and the converter to use MiniKore
+                definition.addKoreRules(koreModule, global);
+                initialized = initialized(definition, context);
+                // drop the definitions loaded from an earlier version of the kompiled directory
+                miniKoreCache.keySet().removeIf(k -> k.get(0).equals(key.get(0)) && !k.get(1).equals(key.get(1)));
+                miniKoreCache.put(key, initialized);
+            }
+            return restore(initialized, kem, initializingContext);
+        }
 
-            JavaConversions.setAsJavaSet(moduleUtils.attributesFor().keySet()).stream()
-                    .map(l -> KLabelConstant.of(l, definition))
-                    .forEach(definition::addKLabel);
+        /**
+         * Returns the context to build a definition against, with the fresh counter of the initializing context.
+         */
+        private TermContext buildContext(TermContext initializingContext) {
+            if (sharedContext == null) {
+                return initializingContext;
+            }
+            return TermContext.builder(sharedContext.get()).freshCounter(initializingContext.getCounterValue()).build();
+        }
+
+        private Initialized initialized(Definition definition, TermContext context) {
+            List<KException> warnings = sharedContext != null
+                    ? new ArrayList<>(context.global().kem.getExceptions())
+                    : Collections.emptyList();
+            return new Initialized(definition, context.getCounterValue(), warnings);
+        }
 
-            //Todo: Bypass Conversion to Kore
-            Module koreModule = MiniToKore.apply(MiniKoreUtils.getOriginalModuleMap(miniKoreDefinition), JavaConversions.mapAsScalaMap(new HashMap<String, Module>()), miniKoreModule);
+        private static Definition restore(Initialized initialized, KExceptionManager kem, TermContext initializingContext) {
+            kem.addAllKException(initialized.warnings);
+            initializingContext.setCounterValue(initialized.counterValue);
+            return initialized.definition;
+        }
 
-            //TODO: Change add KoreRules and the converter to use MiniKore
-            definition.addKoreRules(koreModule, global);
-            return definition;
+        private static List<Object> miniKoreKey(FileUtil files, org.kframework.kore.Module miniKoreModule) {
+            File kompiledDir = files.resolveKompiled(".").getAbsoluteFile();
+            return Arrays.asList(kompiledDir, FileUtil.lastModified(kompiledDir), miniKoreModule.name().str());
         }
 
     }
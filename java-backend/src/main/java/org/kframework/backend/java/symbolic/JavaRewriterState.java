@@ -0,0 +1,56 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.frontend.K;
+import org.kframework.rewriter.RewriterState;
+
+/**
+ * A configuration of the java backend, stepped by {@link SymbolicRewriter} without being converted to K and back.
+ * <p>
+ * Each step rewrites in a fork of the context of the state, so that the state is not changed by stepping it:
+ * stepping it again, e.g., when the debugger replays an execution from a checkpoint, reaches the same
+ * configurations with the same fresh constants. The configurations reached share the subterms left unchanged
+ * by rewriting.
+ */
+public class JavaRewriterState implements RewriterState {
+
+    private final SymbolicRewriter rewriter;
+    private final ConstrainedTerm constrainedTerm;
+    private final int stepsTaken;
+    private K k;
+
+    public JavaRewriterState(SymbolicRewriter rewriter, ConstrainedTerm constrainedTerm, int stepsTaken) {
+        this.rewriter = rewriter;
+        this.constrainedTerm = constrainedTerm;
+        this.stepsTaken = stepsTaken;
+    }
+
+    public ConstrainedTerm constrainedTerm() {
+        return constrainedTerm;
+    }
+
+    @Override
+    public K k() {
+        if (k == null) {
+            k = new RenameAnonymousVariables().apply(constrainedTerm.term());
+        }
+        return k;
+    }
+
+    @Override
+    public int stepsTaken() {
+        return stepsTaken;
+    }
+
+    @Override
+    public RewriterState step(int steps) {
+        ConstrainedTerm initial = new ConstrainedTerm(
+                constrainedTerm.term(),
+                constrainedTerm.constraint(),
+                constrainedTerm.termContext().fork());
+        Pair<ConstrainedTerm, Integer> result = rewriter.step(initial, steps);
+        return new JavaRewriterState(rewriter, result.getLeft(), result.getRight());
+    }
+}
@@ -4,6 +4,7 @@ package org.kframework.backend.java.symbolic;
 import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.backend.java.builtins.BitVector;
 import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.builtins.BytesToken;
 import org.kframework.backend.java.builtins.FloatToken;
 import org.kframework.backend.java.builtins.IntToken;
 import org.kframework.backend.java.builtins.UninterpretedToken;
@@ -48,6 +49,7 @@ public class KILtoSMTLib extends CopyOnWriteTransformer {
             Sort.BOOL,
             Sort.INT,
             Sort.BIT_VECTOR,
+            Sort.BYTES,
             Sort.of(Sorts.Float().name()),
             Sort.of(Sorts.String().name()),
             Sort.of("IntSet@INT-SET"),
@@ -58,6 +60,8 @@ public class KILtoSMTLib extends CopyOnWriteTransformer {
             Sort.of("MIntSeq@MINT-LIST"),
             Sort.of("FloatSeq@FLOAT-LIST"),
             Sort.of("StringSeq@STRING-LIST"));
+    private static final String BYTES_SMT_SORT = "(Seq (_ BitVec 8))";
+
     public static final ImmutableSet<String> SMTLIB_BUILTIN_FUNCTIONS = ImmutableSet.of(
             "forall",
             "exists",
@@ -122,6 +126,12 @@ public class KILtoSMTLib extends CopyOnWriteTransformer {
             "string_le",
             "string_gt",
             "string_ge",
+            /* z3 sequence theory, for bytes */
+            "seq.++",
+            "seq.len",
+            "seq.extract",
+            "seq.at",
+            "seq.unit",
             /* set theory */
             "smt_set_mem", "smt_miset_mem",
             "smt_set_add", "smt_miset_add",
@@ -375,6 +385,8 @@ public class KILtoSMTLib extends CopyOnWriteTransformer {
         s = renameSort(s);
         if (s == Sort.BIT_VECTOR) {
             return "(_ BitVec " + BitVector.getBitwidthOrDie(node) + ")";
+        } else if (s == Sort.BYTES) {
+            return BYTES_SMT_SORT;
         } else if (s == Sort.FLOAT && !krunOptions.experimental.smt.floatsAsPO) {
             Pair<Integer, Integer> pair = FloatToken.getExponentAndSignificandOrDie(node);
             return "(_ FP " + pair.getLeft() + " " + pair.getRight() + ")";
@@ -601,6 +613,27 @@ public class KILtoSMTLib extends CopyOnWriteTransformer {
         return new SMTLibTerm(sb.toString());
     }
 
+    /**
+     * Translates the bytes to a sequence of 8-bit bit vectors.
+     */
+    @Override
+    public ASTNode transform(BytesToken bytesToken) {
+        if (bytesToken.length() == 0) {
+            return new SMTLibTerm("(as seq.empty " + BYTES_SMT_SORT + ")");
+        }
+        StringBuilder sb = new StringBuilder();
+        if (bytesToken.length() > 1) {
+            sb.append("(seq.++");
+        }
+        for (int i = 0; i < bytesToken.length(); i++) {
+            sb.append(String.format(" (seq.unit #x%02x)", bytesToken.byteAt(i)));
+        }
+        if (bytesToken.length() > 1) {
+            sb.append(")");
+        }
+        return new SMTLibTerm(sb.toString().trim());
+    }
+
     @Override
     public ASTNode transform(UninterpretedToken uninterpretedToken) {
         if (tokenEncoding.get(uninterpretedToken) == null) {
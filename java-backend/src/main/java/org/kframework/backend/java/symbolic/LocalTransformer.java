@@ -139,6 +139,11 @@ public class LocalTransformer implements Transformer {
         return transform((Token) stringToken);
     }
 
+    @Override
+    public ASTNode transform(BytesToken bytesToken) {
+        return transform((Token) bytesToken);
+    }
+
     @Override
     public ASTNode transform(Term node) {
         return transform((JavaSymbolicObject) node);
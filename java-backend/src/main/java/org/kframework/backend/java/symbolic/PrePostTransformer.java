@@ -129,6 +129,11 @@ public abstract class PrePostTransformer extends CopyOnWriteTransformer {
         return transform((Token) stringToken);
     }
 
+    @Override
+    public ASTNode transform(BytesToken bytesToken) {
+        return transform((Token) bytesToken);
+    }
+
     @Override
     public ASTNode transform(KCollection kCollection) {
         throw new UnsupportedOperationException();
@@ -1,15 +1,27 @@
 // Copyright (c) 2015-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.symbolic;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.main.GlobalOptions;
 import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.Variable;
 import org.kframework.backend.java.util.Z3Wrapper;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.options.SMTOptions;
 import org.kframework.utils.options.SMTSolver;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.google.inject.Provider;
 
@@ -20,6 +32,12 @@ public class SMTOperations {
     private final GlobalOptions     global;
     private final KExceptionManager kem;
 
+    /**
+     * Results of previous implication checks, keyed up to the renaming of variables;
+     * null if --smt-cache-size is 0.
+     */
+    private final Cache<ImplicationKey, Boolean> implicationCache;
+
     public SMTOperations(
             Provider<Definition> definitionProvider,
             SMTOptions smtOptions,
@@ -30,6 +48,9 @@ public class SMTOperations {
         this.z3         = z3;
         this.kem        = kem;
         this.global     = global;
+        this.implicationCache = smtOptions.smtCacheSize > 0 ?
+                CacheBuilder.newBuilder().maximumSize(smtOptions.smtCacheSize).recordStats().build() :
+                null;
     }
 
     public boolean checkUnsat(ConjunctiveFormula constraint) {
@@ -54,13 +75,51 @@ public class SMTOperations {
         return result;
     }
 
+    /**
+     * Returns the number of queries, cache hits and cumulative solver time of the SMT solver.
+     */
+    public String statistics() {
+        if (implicationCache == null) {
+            return z3.statistics();
+        }
+        CacheStats stats = implicationCache.stats();
+        return z3.statistics() + "\n[implication cache: " + stats.hitCount() + " hits, "
+                + stats.missCount() + " misses, "
+                + stats.evictionCount() + " evictions]";
+    }
+
+    /**
+     * Returns the hits, misses and evictions of the implication cache, or null if the cache is disabled.
+     */
+    public CacheStats implicationCacheStats() {
+        return implicationCache != null ? implicationCache.stats() : null;
+    }
+
     /**
      * Checks if {@code left => right}, or {@code left /\ !right} is unsat.
+     * The results are cached up to the renaming of variables.
      */
     public boolean impliesSMT(
             ConjunctiveFormula left,
             ConjunctiveFormula right,
             Set<Variable> rightOnlyVariables) {
+        if (implicationCache == null) {
+            return checkImplication(left, right, rightOnlyVariables);
+        }
+
+        ImplicationKey key = ImplicationKey.of(left, right, rightOnlyVariables);
+        Boolean result = implicationCache.getIfPresent(key);
+        if (result == null) {
+            result = checkImplication(left, right, rightOnlyVariables);
+            implicationCache.put(key, result);
+        }
+        return result;
+    }
+
+    boolean checkImplication(
+            ConjunctiveFormula left,
+            ConjunctiveFormula right,
+            Set<Variable> rightOnlyVariables) {
         if (smtOptions.smt == SMTSolver.Z3) {
             try {
                 return z3.isUnsat(
@@ -77,4 +136,110 @@ public class SMTOperations {
         }
         return false;
     }
+
+    /**
+     * An implication with its variables renamed in the order of their first occurrence, so that implications
+     * obtained from different instantiations of the same rules have equal keys. The renaming is a bijection,
+     * hence implications with equal keys are either both valid or both invalid. Implications with disjunctions
+     * are not renamed.
+     */
+    static final class ImplicationKey {
+        private final Object left;
+        private final Object right;
+        private final Set<Variable> rightOnlyVariables;
+
+        private ImplicationKey(Object left, Object right, Set<Variable> rightOnlyVariables) {
+            this.left = left;
+            this.right = right;
+            this.rightOnlyVariables = rightOnlyVariables;
+        }
+
+        static ImplicationKey of(ConjunctiveFormula left, ConjunctiveFormula right, Set<Variable> rightOnlyVariables) {
+            if (!left.disjunctions().isEmpty() || !right.disjunctions().isEmpty()) {
+                return new ImplicationKey(left, right, ImmutableSet.copyOf(rightOnlyVariables));
+            }
+
+            VariableOrderCollector collector = new VariableOrderCollector();
+            collector.collect(left);
+            collector.collect(right);
+            Map<Variable, Variable> renaming = new HashMap<>();
+            collector.order.forEach((variable, index) ->
+                    renaming.put(variable, new Variable("_%" + index + "_" + variable.sort(), variable.sort())));
+
+            return new ImplicationKey(
+                    rename(left, renaming),
+                    rename(right, renaming),
+                    rightOnlyVariables.stream()
+                            .map(variable -> renaming.getOrDefault(variable, variable))
+                            .collect(Collectors.toSet()));
+        }
+
+        /**
+         * Renames the substitution and the equalities of the given formula. The substitution is represented
+         * as a map, so that its iteration order does not matter.
+         */
+        private static Pair<Map<Variable, Term>, List<Pair<Term, Term>>> rename(
+                ConjunctiveFormula formula,
+                Map<Variable, Variable> renaming) {
+            Map<Variable, Term> substitution = new HashMap<>();
+            formula.substitution().forEach((variable, term) ->
+                    substitution.put(renaming.getOrDefault(variable, variable), term.substitute(renaming)));
+            List<Pair<Term, Term>> equalities = formula.equalities().stream()
+                    .map(e -> Pair.of(e.leftHandSide().substitute(renaming), e.rightHandSide().substitute(renaming)))
+                    .collect(Collectors.toList());
+            return Pair.of(substitution, equalities);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof ImplicationKey)) {
+                return false;
+            }
+            ImplicationKey key = (ImplicationKey) object;
+            return left.equals(key.left) && right.equals(key.right) && rightOnlyVariables.equals(key.rightOnlyVariables);
+        }
+
+        @Override
+        public int hashCode() {
+            return (left.hashCode() * 31 + right.hashCode()) * 31 + rightOnlyVariables.hashCode();
+        }
+    }
+
+    /**
+     * Numbers the variables of formulas in the order of their first occurrence. The equalities are visited
+     * first, as their order is fixed; the bindings of the substitution are then visited starting with the
+     * ones whose variables already occurred.
+     */
+    private static class VariableOrderCollector extends BottomUpVisitor {
+        private final Map<Variable, Integer> order = new LinkedHashMap<>();
+
+        void collect(ConjunctiveFormula formula) {
+            for (Equality equality : formula.equalities()) {
+                equality.leftHandSide().accept(this);
+                equality.rightHandSide().accept(this);
+            }
+
+            List<Map.Entry<Variable, Term>> bindings = new ArrayList<>(formula.substitution().entrySet());
+            while (!bindings.isEmpty()) {
+                Map.Entry<Variable, Term> next = bindings.get(0);
+                for (Map.Entry<Variable, Term> binding : bindings) {
+                    Integer index = order.get(binding.getKey());
+                    if (index != null && (order.get(next.getKey()) == null || index < order.get(next.getKey()))) {
+                        next = binding;
+                    }
+                }
+                bindings.remove(next);
+                next.getKey().accept(this);
+                next.getValue().accept(this);
+            }
+        }
+
+        @Override
+        public void visit(Variable variable) {
+            order.putIfAbsent(variable, order.size());
+        }
+    }
 }
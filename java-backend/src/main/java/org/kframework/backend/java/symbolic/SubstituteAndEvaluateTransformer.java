@@ -5,6 +5,7 @@ import java.util.Map;
 
 import org.kframework.backend.java.builtins.BitVector;
 import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.builtins.BytesToken;
 import org.kframework.backend.java.builtins.IntToken;
 import org.kframework.backend.java.builtins.StringToken;
 import org.kframework.backend.java.builtins.UninterpretedToken;
@@ -142,6 +143,11 @@ public class SubstituteAndEvaluateTransformer extends CopyOnWriteTransformer {
         return stringToken;
     }
 
+    @Override
+    public ASTNode transform(BytesToken bytesToken) {
+        return bytesToken;
+    }
+
     @Override
     public ASTNode transform(UninterpretedToken uninterpretedToken) {
         return uninterpretedToken;
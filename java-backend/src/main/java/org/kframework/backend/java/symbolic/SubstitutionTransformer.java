@@ -3,6 +3,7 @@ package org.kframework.backend.java.symbolic;
 
 import org.kframework.backend.java.builtins.BitVector;
 import org.kframework.backend.java.builtins.BoolToken;
+import org.kframework.backend.java.builtins.BytesToken;
 import org.kframework.backend.java.builtins.IntToken;
 import org.kframework.backend.java.builtins.StringToken;
 import org.kframework.backend.java.builtins.UninterpretedToken;
@@ -129,6 +130,11 @@ public class SubstitutionTransformer extends CopyOnWriteTransformer {
         return stringToken;
     }
 
+    @Override
+    public ASTNode transform(BytesToken bytesToken) {
+        return bytesToken;
+    }
+
     @Override
     public ASTNode transform(UninterpretedToken uninterpretedToken) {
         return uninterpretedToken;
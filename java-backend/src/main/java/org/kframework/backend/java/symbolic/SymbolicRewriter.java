@@ -2,6 +2,7 @@
 package org.kframework.backend.java.symbolic;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.tuple.Pair;
@@ -17,12 +18,16 @@ import org.kframework.backend.java.kil.GlobalContext;
 import org.kframework.backend.java.kil.KItem;
 import org.kframework.backend.java.kil.KLabelConstant;
 import org.kframework.backend.java.kil.KList;
+import org.kframework.backend.java.kil.KSequence;
 import org.kframework.backend.java.kil.Rule;
 import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.TermShapeIndex;
 import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.kil.Variable;
 import org.kframework.backend.java.strategies.TransitionCompositeStrategy;
+import org.kframework.backend.java.util.Coverage;
 import org.kframework.backend.java.util.JavaKRunState;
 import org.kframework.builtin.KLabels;
 import org.kframework.kil.ASTNode;
@@ -31,17 +36,31 @@ import org.kframework.frontend.K;
 import org.kframework.frontend.KApply;
 import org.kframework.frontend.KORE;
 import org.kframework.krun.api.KRunState;
+import org.kframework.rewriter.ProofStrategy;
 import org.kframework.rewriter.SearchType;
 import org.kframework.utils.BitSet;
 
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -54,12 +73,22 @@ public class SymbolicRewriter {
     private final Stopwatch stopwatch = Stopwatch.createUnstarted();
     private final KOREtoBackendKIL constructor;
     private boolean transition;
-    private final Set<ConstrainedTerm> superheated = Sets.newHashSet();
-    private final Set<ConstrainedTerm> newSuperheated = Sets.newHashSet();
+    private final Set<ConstrainedTerm> superheated = Sets.newConcurrentHashSet();
+    private final Set<ConstrainedTerm> newSuperheated = Sets.newConcurrentHashSet();
     private final KRunState.Counter counter;
     private final FastRuleMatcher theFastMatcher;
+    /**
+     * {@link FastRuleMatcher} is stateful, so each worker of a parallel search gets its own.
+     */
+    private final ThreadLocal<FastRuleMatcher> workerFastMatcher;
     private final Definition definition;
     private final BitSet allRuleBits;
+    /* the number of frontier terms rewritten by the last search */
+    private int searchExpansions;
+    /* the number of steps, of states and of pruned states of the last proof */
+    private int proofSteps;
+    private int proofStates;
+    private int proofPruned;
 
     public SymbolicRewriter(GlobalContext global, List<String> transitions,
                             KRunState.Counter counter, KOREtoBackendKIL constructor) {
@@ -71,6 +100,7 @@ public class SymbolicRewriter {
         this.strategy = new TransitionCompositeStrategy(transitions);
         this.transitions = transitions;
         this.theFastMatcher = new FastRuleMatcher(global, definition.ruleTable.size());
+        this.workerFastMatcher = ThreadLocal.withInitial(() -> new FastRuleMatcher(global, definition.ruleTable.size()));
         this.transition = true;
     }
 
@@ -80,26 +110,56 @@ public class SymbolicRewriter {
 
     public KRunState rewrite(ConstrainedTerm constrainedTerm, int bound) {
         stopwatch.start();
-        int step = 0;
-        List<ConstrainedTerm> results;
-        while (step != bound && !(results = computeRewriteStep(constrainedTerm, step, true)).isEmpty()) {
-            /* get the first solution */
-            constrainedTerm = results.get(0);
-            step++;
-        }
+        Pair<ConstrainedTerm, Integer> stepped = step(constrainedTerm, bound);
+        constrainedTerm = stepped.getLeft();
+        int step = stepped.getRight();
 
         ConstrainedTerm afterVariableRename = new ConstrainedTerm(new RenameAnonymousVariables().apply(constrainedTerm.term()), constrainedTerm.termContext());
 
         KRunState finalState = new JavaKRunState(afterVariableRename, counter, Optional.of(step));
 
         stopwatch.stop();
+        Coverage.flush();
         if (afterVariableRename.termContext().global().krunOptions.experimental.statistics) {
             System.err.println("[" + step + ", " + stopwatch + " ]");
+            printStatistics(afterVariableRename.termContext().global());
         }
 
         return finalState;
     }
 
+    /**
+     * Rewrites the given term for at most {@code bound} steps, or until no rule applies if {@code bound} is
+     * negative. Unlike {@link #rewrite}, the anonymous variables of the result are not renamed.
+     *
+     * @return the last term reached, and the number of steps taken
+     */
+    public Pair<ConstrainedTerm, Integer> step(ConstrainedTerm constrainedTerm, int bound) {
+        int step = 0;
+        List<ConstrainedTerm> results;
+        while (step != bound && !(results = computeRewriteStep(constrainedTerm, step, true)).isEmpty()) {
+            /* get the first solution */
+            constrainedTerm = results.get(0);
+            step++;
+        }
+        return Pair.of(constrainedTerm, step);
+    }
+
+    /**
+     * Prints the statistics of the caches shared by all the rewriting steps: the cache of [memo]
+     * functions if it was used, the constraint operations and the token caches.
+     */
+    static void printStatistics(GlobalContext global) {
+        CacheStats functionCacheStats = global.kItemOps.functionCacheStats();
+        if (functionCacheStats != null && functionCacheStats.requestCount() > 0) {
+            System.err.println("[memo: " + functionCacheStats.hitCount() + " hits, "
+                    + functionCacheStats.missCount() + " misses, "
+                    + functionCacheStats.evictionCount() + " evictions]");
+        }
+        System.err.println(global.constraintOps.statistics());
+        System.err.println(Token.cacheStatistics());
+    }
+
     private List<ConstrainedTerm> computeRewriteStep(ConstrainedTerm constrainedTerm, int step, boolean computeOne) {
         return fastComputeRewriteStep(constrainedTerm, computeOne, false, false);
     }
@@ -156,11 +216,28 @@ public class SymbolicRewriter {
     }
 
     public List<ConstrainedTerm> fastComputeRewriteStep(ConstrainedTerm subject, boolean computeOne, boolean narrowing, boolean proofFlag) {
+        File coverage = subject.termContext().global().krunOptions.experimental.coverage;
+        return fastComputeRewriteStep(subject, computeOne, narrowing, proofFlag, theFastMatcher,
+                rule -> Coverage.print(coverage, rule), newSuperheated::add);
+    }
+
+    /**
+     * @param appliedRules receives the rules applied, for coverage
+     * @param heated       receives the results of heating rules which are transitions
+     */
+    private List<ConstrainedTerm> fastComputeRewriteStep(
+            ConstrainedTerm subject,
+            boolean computeOne,
+            boolean narrowing,
+            boolean proofFlag,
+            FastRuleMatcher matcher,
+            Consumer<Rule> appliedRules,
+            Consumer<ConstrainedTerm> heated) {
         List<ConstrainedTerm> results = new ArrayList<>();
         if (definition.automaton == null) {
             return results;
         }
-        List<FastRuleMatcher.RuleMatchResult> matches = theFastMatcher.matchRulePattern(
+        List<FastRuleMatcher.RuleMatchResult> matches = matcher.matchRulePattern(
                 subject,
                 definition.automaton.leftHandSide(),
                 allRuleBits,
@@ -221,11 +298,12 @@ public class SymbolicRewriter {
 
             /* TODO(AndreiS): remove this hack for super strictness after strategies work */
             if (rule.containsAttribute(Att.heat()) && transitions.stream().anyMatch(rule::containsAttribute)) {
-                newSuperheated.add(result);
+                heated.accept(result);
             } else if (rule.containsAttribute(Att.cool()) && transitions.stream().anyMatch(rule::containsAttribute) && superheated.contains(subject)) {
                 continue;
             }
 
+            appliedRules.accept(rule);
             results.add(result);
         }
 
@@ -303,12 +381,8 @@ public class SymbolicRewriter {
                 return KItem.of(kItemSubject.kLabel(), KList.concatenate(newContents), context.global()).applyAnywhereRules(context);
             } else if (subject instanceof BuiltinList) {
                 BuiltinList builtinListSubject = (BuiltinList) subject;
-                List<Term> newContents = new ArrayList<>(builtinListSubject.children);
-                newContents.set(path.head().getLeft(), buildRHS(newContents.get(path.head().getLeft()), substitution, (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context));
-                return BuiltinList
-                        .builder(builtinListSubject.sort, builtinListSubject.operatorKLabel, builtinListSubject.unitKLabel, builtinListSubject.globalContext())
-                        .addAll(newContents)
-                        .build();
+                int index = path.head().getLeft();
+                return builtinListSubject.set(index, buildRHS(builtinListSubject.get(index), substitution, (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context));
             } else {
                 throw new AssertionError("unexpected rewrite in subject: " + subject);
             }
@@ -467,9 +541,10 @@ public class SymbolicRewriter {
             TermContext context,
             boolean substitution) {
         stopwatch.start();
+        searchExpansions = 0;
 
         List<K> searchResults = new ArrayList<>();
-        Set<ConstrainedTerm> visited = Sets.newHashSet();
+        VisitedStates visited = new VisitedStates(context.global().krunOptions.experimental.pruneSubsumed);
 
         ConstrainedTerm initCnstrTerm = new ConstrainedTerm(initialTerm, context);
 
@@ -503,60 +578,221 @@ public class SymbolicRewriter {
             }
         }
 
+        int searchThreads = context.global().krunOptions.experimental.searchThreads;
+        ForkJoinPool pool = searchThreads > 1 ? new ForkJoinPool(searchThreads) : null;
+
         int step;
-    label:
-        for (step = 0; !queue.isEmpty(); ++step) {
-            superheated.clear();
-            superheated.addAll(newSuperheated);
-            newSuperheated.clear();
-            for (Map.Entry<ConstrainedTerm, Integer> entry : queue.entrySet()) {
-                ConstrainedTerm term = entry.getKey();
-                Integer currentDepth = entry.getValue();
-
-                List<ConstrainedTerm> results = computeRewriteStep(term, step, false);
-
-                if (results.isEmpty() && searchType == SearchType.FINAL) {
-                    if (addSearchResult(searchResults, term, pattern, bound, context, substitution)) {
-                        break label;
+        try {
+        label:
+            for (step = 0; !queue.isEmpty(); ++step) {
+                superheated.clear();
+                superheated.addAll(newSuperheated);
+                newSuperheated.clear();
+                List<List<ConstrainedTerm>> successors = expandFrontier(queue.keySet(), context, pool);
+                int index = 0;
+                for (Map.Entry<ConstrainedTerm, Integer> entry : queue.entrySet()) {
+                    ConstrainedTerm term = entry.getKey();
+                    Integer currentDepth = entry.getValue();
+
+                    List<ConstrainedTerm> results = successors.get(index++);
+
+                    if (results.isEmpty() && searchType == SearchType.FINAL) {
+                        if (addSearchResult(searchResults, term, pattern, bound, context, substitution)) {
+                            break label;
+                        }
                     }
-                }
 
-                for (ConstrainedTerm result : results) {
-                    if (!transition) {
-                        nextQueue.put(result, currentDepth);
-                        break;
-                    } else {
-                        // Continue searching if we haven't reached our target
-                        // depth and we haven't already visited this state.
-                        if (currentDepth + 1 != depth && visited.add(result)) {
-                            nextQueue.put(result, currentDepth + 1);
-                        }
-                        // If we aren't searching for only final results, then
-                        // also add this as a result if it matches the pattern.
-                        if (searchType != SearchType.FINAL || currentDepth + 1 == depth) {
-                            if (addSearchResult(searchResults, result, pattern, bound, context, substitution)) {
-                                break label;
+                    for (ConstrainedTerm result : results) {
+                        if (!transition) {
+                            nextQueue.put(result, currentDepth);
+                            break;
+                        } else {
+                            // Continue searching if we haven't reached our target
+                            // depth and we haven't already visited this state.
+                            if (currentDepth + 1 != depth && visited.add(result)) {
+                                nextQueue.put(result, currentDepth + 1);
+                            }
+                            // If we aren't searching for only final results, then
+                            // also add this as a result if it matches the pattern.
+                            if (searchType != SearchType.FINAL || currentDepth + 1 == depth) {
+                                if (addSearchResult(searchResults, result, pattern, bound, context, substitution)) {
+                                    break label;
+                                }
                             }
                         }
                     }
                 }
-            }
 
-            /* swap the queues */
-            Map<ConstrainedTerm, Integer> temp;
-            temp = queue;
-            queue = nextQueue;
-            nextQueue = temp;
-            nextQueue.clear();
+                /* swap the queues */
+                Map<ConstrainedTerm, Integer> temp;
+                temp = queue;
+                queue = nextQueue;
+                nextQueue = temp;
+                nextQueue.clear();
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
         }
 
         stopwatch.stop();
+        Coverage.flush();
         if (context.global().krunOptions.experimental.statistics) {
-            System.err.println("[" + visited.size() + "states, " + step + "steps, " + stopwatch + "]");
+            System.err.println("[" + visited.size() + "states, " + step + "steps, " + visited.pruned() + " pruned, " + stopwatch + "]");
+            printStatistics(context.global());
         }
         return disjunctResults(searchResults);
     }
 
+    /**
+     * Computes the successors of all the terms of a search frontier, on the given pool if not null.
+     * <p>
+     * The successors are those of rewriting the terms in frontier order, each from the fresh counter of
+     * {@code context} and the anonymous variable counter left by the previous term, as if they shared a
+     * single {@link TermContext}. On the pool, every term is rewritten once, in a forked {@link TermContext}
+     * with the {@link FastRuleMatcher} of its worker thread, numbering its fresh constants and anonymous
+     * variables from the counters at the start of the level. The anonymous variables of the successors are
+     * then renumbered in frontier order. Fresh constants cannot be renumbered, as rules may compute with
+     * them, so a term which created fresh constants and did not start from the fresh counter left by the
+     * previous terms is rewritten again on the calling thread. The coverage and the superheated states of
+     * a rewrite are only recorded once it is kept, in frontier order. The successors are therefore the same,
+     * fresh names included, whatever the number of threads, and the counters are advanced past all of them
+     * at the end.
+     */
+    private List<List<ConstrainedTerm>> expandFrontier(Collection<ConstrainedTerm> frontier, TermContext context, ForkJoinPool pool) {
+        BigInteger freshBase = context.getCounterValue();
+        int variableBase = Variable.getCounter();
+        List<ForkJoinTask<Expansion>> tasks = pool == null ? null : frontier.stream()
+                .map(term -> pool.submit(() -> expand(term, context, freshBase, variableBase, workerFastMatcher.get())))
+                .collect(Collectors.toList());
+        if (tasks != null) {
+            searchExpansions += tasks.size();
+        }
+
+        File coverage = context.global().krunOptions.experimental.coverage;
+        List<List<ConstrainedTerm>> successors = new ArrayList<>(frontier.size());
+        BigInteger fresh = freshBase;
+        int variables = variableBase;
+        int index = 0;
+        for (ConstrainedTerm term : frontier) {
+            Expansion speculative = tasks != null ? tasks.get(index++).join() : null;
+            Expansion expansion;
+            if (speculative != null && speculative.startsAt(fresh)) {
+                expansion = speculative;
+            } else {
+                expansion = expand(term, context, fresh, variables, theFastMatcher);
+                searchExpansions++;
+            }
+            int shift = variables - expansion.variableStart;
+            fresh = expansion.freshEnd;
+            variables = expansion.variableEnd + shift;
+
+            expansion.appliedRules.forEach(rule -> Coverage.print(coverage, rule));
+            expansion.heated.forEach(result -> newSuperheated.add(expansion.renumber(result, shift)));
+            successors.add(expansion.successors.stream()
+                    .map(result -> expansion.renumber(result, shift))
+                    .map(result -> new ConstrainedTerm(result.term(), result.constraint(), context))
+                    .collect(Collectors.toList()));
+        }
+        if (fresh != null) {
+            context.setCounterValue(fresh);
+        }
+        Variable.setCounter(variables);
+        return successors;
+    }
+
+    /**
+     * Rewrites a term of a search frontier in a fork of {@code context}, with the given initial counters.
+     */
+    private Expansion expand(ConstrainedTerm term, TermContext context, BigInteger freshStart, int variableStart, FastRuleMatcher matcher) {
+        TermContext forked = context.fork(freshStart);
+        List<Rule> appliedRules = new ArrayList<>();
+        List<ConstrainedTerm> heated = new ArrayList<>();
+        List<ConstrainedTerm> successors;
+        int variableEnd;
+        Variable.setLocalCounter(variableStart);
+        try {
+            successors = fastComputeRewriteStep(
+                    new ConstrainedTerm(term.term(), term.constraint(), forked),
+                    false,
+                    false,
+                    false,
+                    matcher,
+                    appliedRules::add,
+                    heated::add);
+        } finally {
+            variableEnd = Variable.clearLocalCounter();
+        }
+        return new Expansion(successors, appliedRules, heated, freshStart, forked.getCounterValue(), variableStart, variableEnd);
+    }
+
+    /**
+     * Returns the number of frontier terms rewritten by the last call of {@link #search}, including the terms
+     * rewritten again because they created fresh constants from a counter which turned out to be taken.
+     */
+    int getSearchExpansions() {
+        return searchExpansions;
+    }
+
+    private static final class Expansion {
+        final List<ConstrainedTerm> successors;
+        final List<Rule> appliedRules;
+        final List<ConstrainedTerm> heated;
+        final BigInteger freshStart;
+        final BigInteger freshEnd;
+        final int variableStart;
+        final int variableEnd;
+
+        Expansion(
+                List<ConstrainedTerm> successors,
+                List<Rule> appliedRules,
+                List<ConstrainedTerm> heated,
+                BigInteger freshStart,
+                BigInteger freshEnd,
+                int variableStart,
+                int variableEnd) {
+            this.successors = successors;
+            this.appliedRules = appliedRules;
+            this.heated = heated;
+            this.freshStart = freshStart;
+            this.freshEnd = freshEnd;
+            this.variableStart = variableStart;
+            this.variableEnd = variableEnd;
+        }
+
+        /**
+         * Returns true if rewriting from the given fresh counter gives the same successors as this expansion,
+         * up to the numbering of anonymous variables.
+         */
+        boolean startsAt(BigInteger fresh) {
+            return Objects.equals(freshStart, freshEnd) || Objects.equals(freshStart, fresh);
+        }
+
+        /**
+         * Shifts the numbers of the anonymous variables created by this expansion in the given result.
+         */
+        ConstrainedTerm renumber(ConstrainedTerm result, int shift) {
+            if (shift == 0 || variableStart == variableEnd) {
+                return result;
+            }
+            Map<Variable, Variable> renumbering = new HashMap<>();
+            for (Variable variable : Sets.union(result.term().variableSet(), result.constraint().variableSet())) {
+                int number = variable.anonymousNumber();
+                if (number >= variableStart && number < variableEnd) {
+                    renumbering.put(variable, variable.renumber(number + shift));
+                }
+            }
+            if (renumbering.isEmpty()) {
+                return result;
+            }
+            return new ConstrainedTerm(
+                    result.term().substituteWithBinders(renumbering),
+                    (ConjunctiveFormula) result.constraint().substituteWithBinders(renumbering),
+                    result.termContext());
+        }
+    }
+
     private K kApplyConversion(K k) {
         if (k instanceof KItem) {
             KItem kItem = (KItem) k;
@@ -591,113 +827,262 @@ public class SymbolicRewriter {
                 .reduce(KORE.KApply(KORE.KLabel(KLabels.ML_FALSE)), (x, y) -> KORE.KApply(KORE.KLabel(KLabels.ML_OR), x, y));
     }
 
+    /**
+     * Proves that every final state reachable from {@code initialTerm} implies {@code targetTerm}, exploring
+     * the states in the order of the {@code --proof-strategy} option, with the size of the {@code <k>} cell as
+     * the heuristic of {@link ProofStrategy#BEST_FIRST}.
+     *
+     * @return the final states which do not imply {@code targetTerm}
+     */
     public List<ConstrainedTerm> proveRule(
             ConstrainedTerm initialTerm,
             ConstrainedTerm targetTerm,
             List<Rule> specRules) {
-        List<ConstrainedTerm> proofResults = new ArrayList<>();
-        Set<ConstrainedTerm> visited = new HashSet<>();
-        List<ConstrainedTerm> queue = new ArrayList<>();
-        List<ConstrainedTerm> nextQueue = new ArrayList<>();
+        return proveRule(initialTerm, targetTerm, specRules,
+                initialTerm.termContext().global().krunOptions.experimental.proofStrategy,
+                SymbolicRewriter::kCellSize);
+    }
 
+    /**
+     * Proves that every final state reachable from {@code initialTerm} implies {@code targetTerm}, exploring
+     * the states in the order of the given strategy.
+     * <p>
+     * The states waiting to be explored are kept in a single frontier: a queue for {@link ProofStrategy#BFS},
+     * a stack for {@link ProofStrategy#DFS} and {@link ProofStrategy#ITERATIVE_DEEPENING}, and a priority
+     * queue ordered by {@code heuristic} for {@link ProofStrategy#BEST_FIRST}. Iterative deepening explores
+     * depth-first up to a bound, starting at 1 and doubling it as long as some state was left unexplored at
+     * the bound; only the final states of the last iteration are returned.
+     * <p>
+     * Whatever the strategy, every state reached is kept in the visited set until the exploration ends: it
+     * is what cuts the cycles of the proof and, with {@code --prune-subsumed}, what new states are checked
+     * against. So depth-first exploration bounds the frontier by the depth of the proof times its branching,
+     * but not the visited set; iterative deepening starts each iteration with an empty visited set.
+     *
+     * @param heuristic the priority of a state for {@link ProofStrategy#BEST_FIRST}; the states with the least
+     *                  priority are explored first, ties being broken by the order in which they were reached
+     * @return the final states which do not imply {@code targetTerm}
+     */
+    public List<ConstrainedTerm> proveRule(
+            ConstrainedTerm initialTerm,
+            ConstrainedTerm targetTerm,
+            List<Rule> specRules,
+            ProofStrategy strategy,
+            ToIntFunction<ConstrainedTerm> heuristic) {
+        return proveRule(initialTerm, targetTerm, specRuleIndex(specRules), strategy, heuristic);
+    }
+
+    /**
+     * Same as {@link #proveRule(ConstrainedTerm, ConstrainedTerm, List, ProofStrategy, ToIntFunction)}, with the
+     * specification rules already indexed by {@link #specRuleIndex(List)}, so that the index can be shared by the
+     * proofs of several claims.
+     */
+    public List<ConstrainedTerm> proveRule(
+            ConstrainedTerm initialTerm,
+            ConstrainedTerm targetTerm,
+            TermShapeIndex<Rule> specRuleIndex,
+            ProofStrategy strategy,
+            ToIntFunction<ConstrainedTerm> heuristic) {
         initialTerm = initialTerm.expandPatterns(true);
+        if (strategy != ProofStrategy.ITERATIVE_DEEPENING) {
+            return proveRule(initialTerm, targetTerm, specRuleIndex, strategy, heuristic, Integer.MAX_VALUE).proofResults;
+        }
+        for (int depthLimit = 1; ; depthLimit = depthLimit <= Integer.MAX_VALUE / 2 ? depthLimit * 2 : Integer.MAX_VALUE) {
+            Exploration exploration = proveRule(initialTerm, targetTerm, specRuleIndex, ProofStrategy.DFS, heuristic, depthLimit);
+            if (!exploration.cut) {
+                return exploration.proofResults;
+            }
+        }
+    }
 
-        visited.add(initialTerm);
-        queue.add(initialTerm);
-        boolean guarded = false;
-        int step = 0;
-        while (!queue.isEmpty()) {
-            step++;
-            for (ConstrainedTerm term : queue) {
-                if (term.implies(targetTerm)) {
-                    continue;
-                }
+    /**
+     * Indexes the given specification rules by their left-hand sides, keeping their order. The index is only
+     * read while proving, so it may be shared by proofs running concurrently.
+     */
+    public static TermShapeIndex<Rule> specRuleIndex(List<Rule> specRules) {
+        TermShapeIndex<Rule> specRuleIndex = new TermShapeIndex<>();
+        specRules.forEach(r -> specRuleIndex.add(r.leftHandSide(), r));
+        return specRuleIndex;
+    }
 
-                /* TODO(AndreiS): terminate the proof with failure based on the klabel _~>_
-                List<Term> leftKContents = term.term().getCellContentsByName("<k>");
-                List<Term> rightKContents = targetTerm.term().getCellContentsByName("<k>");
-                // TODO(YilongL): the `get(0)` seems hacky
-                if (leftKContents.size() == 1 && rightKContents.size() == 1) {
-                    Pair<Term, Variable> leftKPattern = KSequence.splitContentAndFrame(leftKContents.get(0));
-                    Pair<Term, Variable> rightKPattern = KSequence.splitContentAndFrame(rightKContents.get(0));
-                    if (leftKPattern.getRight() != null && rightKPattern.getRight() != null
-                            && leftKPattern.getRight().equals(rightKPattern.getRight())) {
-                        BoolToken matchable = MetaK.matchable(
-                                leftKPattern.getLeft(),
-                                rightKPattern.getLeft(),
-                                term.termContext());
-                        if (matchable != null && matchable.booleanValue()) {
-                            proofResults.add(term);
-                            continue;
-                        }
-                    }
-                }*/
+    /**
+     * Explores the states reachable from {@code initialTerm} in at most {@code depthLimit} steps.
+     */
+    private Exploration proveRule(
+            ConstrainedTerm initialTerm,
+            ConstrainedTerm targetTerm,
+            TermShapeIndex<Rule> specRuleIndex,
+            ProofStrategy strategy,
+            ToIntFunction<ConstrainedTerm> heuristic,
+            int depthLimit) {
+        if (strategy != ProofStrategy.BEST_FIRST) {
+            heuristic = state -> 0;
+        }
+        List<ConstrainedTerm> proofResults = new ArrayList<>();
+        VisitedStates visited = new VisitedStates(initialTerm.termContext().global().krunOptions.experimental.pruneSubsumed);
+        Queue<ProofState> frontier = ProofState.frontier(strategy);
+        boolean cut = false;
+        int maxDepth = 0;
+        long reached = 0;
 
-                if (guarded) {
-                    ConstrainedTerm result = applySpecRules(term, specRules);
-                    if (result != null) {
-                        if (visited.add(result))
-                            nextQueue.add(result);
+        visited.add(initialTerm);
+        frontier.add(new ProofState(initialTerm, 0, heuristic, 0));
+        while (!frontier.isEmpty()) {
+            ProofState state = frontier.poll();
+            ConstrainedTerm term = state.term;
+            int depth = state.depth;
+            boolean implied = term.implies(targetTerm);
+            if (!implied && depth == depthLimit) {
+                /* the successors of this state are explored by the next iteration of iterative deepening */
+                cut = true;
+                continue;
+            }
+            maxDepth = Math.max(maxDepth, depth);
+            if (implied) {
+                continue;
+            }
+
+            /* TODO(AndreiS): terminate the proof with failure based on the klabel _~>_
+            List<Term> leftKContents = term.term().getCellContentsByName("<k>");
+            List<Term> rightKContents = targetTerm.term().getCellContentsByName("<k>");
+            // TODO(YilongL): the `get(0)` seems hacky
+            if (leftKContents.size() == 1 && rightKContents.size() == 1) {
+                Pair<Term, Variable> leftKPattern = KSequence.splitContentAndFrame(leftKContents.get(0));
+                Pair<Term, Variable> rightKPattern = KSequence.splitContentAndFrame(rightKContents.get(0));
+                if (leftKPattern.getRight() != null && rightKPattern.getRight() != null
+                        && leftKPattern.getRight().equals(rightKPattern.getRight())) {
+                    BoolToken matchable = MetaK.matchable(
+                            leftKPattern.getLeft(),
+                            rightKPattern.getLeft(),
+                            term.termContext());
+                    if (matchable != null && matchable.booleanValue()) {
+                        proofResults.add(term);
                         continue;
                     }
                 }
+            }*/
 
-                List<ConstrainedTerm> results = fastComputeRewriteStep(term, false, true, true);
-                if (results.isEmpty()) {
-                    /* final term */
-                    proofResults.add(term);
-                } else {
+            if (depth > 0) {
+                ConstrainedTerm result = applySpecRules(term, specRuleIndex);
+                if (result != null) {
+                    if (visited.add(result))
+                        frontier.add(new ProofState(result, depth + 1, heuristic, ++reached));
+                    continue;
+                }
+            }
+
+            List<ConstrainedTerm> results = fastComputeRewriteStep(term, false, true, true);
+            if (results.isEmpty()) {
+                /* final term */
+                proofResults.add(term);
+            } else {
 //                    for (Rule rule : appliedRules) {
 //                        System.err.println(rule.getLocation() + " " + rule.getSource());
 //                    }
 
-                    /* add helper rule */
-                    HashSet<Variable> ruleVariables = new HashSet<>(initialTerm.variableSet());
-                    ruleVariables.addAll(targetTerm.variableSet());
-
-                    /*
-                    rules.add(new Rule(
-                            term.term().substitute(freshSubstitution, definition),
-                            targetTerm.term().substitute(freshSubstitution, definition),
-                            term.constraint().substitute(freshSubstitution, definition),
-                            Collections.<Variable>emptyList(),
-                            new SymbolicConstraint(definition).substitute(freshSubstitution, definition),
-                            IndexingPair.getIndexingPair(term.term()),
-                            new Attributes()));
-                     */
-                }
+                /* add helper rule */
+                HashSet<Variable> ruleVariables = new HashSet<>(initialTerm.variableSet());
+                ruleVariables.addAll(targetTerm.variableSet());
+
+                /*
+                rules.add(new Rule(
+                        term.term().substitute(freshSubstitution, definition),
+                        targetTerm.term().substitute(freshSubstitution, definition),
+                        term.constraint().substitute(freshSubstitution, definition),
+                        Collections.<Variable>emptyList(),
+                        new SymbolicConstraint(definition).substitute(freshSubstitution, definition),
+                        IndexingPair.getIndexingPair(term.term()),
+                        new Attributes()));
+                 */
+            }
 
-                for (ConstrainedTerm cterm : results) {
-                    ConstrainedTerm result = new ConstrainedTerm(
-                            cterm.term(),
-                            cterm.constraint().removeBindings(
-                                    Sets.difference(
-                                            cterm.constraint().substitution().keySet(),
-                                            initialTerm.variableSet())),
-                            cterm.termContext());
-                    if (visited.add(result)) {
-                        nextQueue.add(result);
-                    }
+            for (ConstrainedTerm cterm : results) {
+                ConstrainedTerm result = new ConstrainedTerm(
+                        cterm.term(),
+                        cterm.constraint().removeBindings(
+                                Sets.difference(
+                                        cterm.constraint().substitution().keySet(),
+                                        initialTerm.variableSet())),
+                        cterm.termContext());
+                if (visited.add(result)) {
+                    frontier.add(new ProofState(result, depth + 1, heuristic, ++reached));
                 }
             }
+        }
+
+        proofSteps = maxDepth + 1;
+        proofStates = visited.size();
+        proofPruned = visited.pruned();
+        return new Exploration(proofResults, cut);
+    }
+
+    /**
+     * Returns the number of items in the {@code <k>} cell of the given state, the default heuristic of
+     * {@link ProofStrategy#BEST_FIRST}. It is computed once per state, when the state is added to the frontier.
+     * <p>
+     * The {@code <k>} cell is looked up through the cells of the configuration, without visiting the contents
+     * of the other cells; the whole configuration is only visited if it is not found that way.
+     */
+    public static int kCellSize(ConstrainedTerm state) {
+        List<Term> kContents = new ArrayList<>();
+        collectKCells(state.term(), kContents);
+        if (kContents.isEmpty()) {
+            kContents = state.term().getCellContentsByName(K_CELL);
+        }
+        if (kContents.size() != 1) {
+            return 0;
+        }
+        Term k = kContents.get(0);
+        return k instanceof KSequence ? ((KSequence) k).concreteSize() : 1;
+    }
+
+    private static final String K_CELL = "<k>";
 
-            /* swap the queues */
-            List<ConstrainedTerm> temp;
-            temp = queue;
-            queue = nextQueue;
-            nextQueue = temp;
-            nextQueue.clear();
-            guarded = true;
+    private static void collectKCells(Term term, List<Term> kContents) {
+        if (!(term instanceof KItem) || !(((KItem) term).kList() instanceof KList)) {
+            return;
+        }
+        String label = ((KItem) term).kLabel().toString();
+        if (label.equals(K_CELL)) {
+            kContents.add(((KList) ((KItem) term).kList()).get(0));
+        } else if (label.startsWith("<") && label.endsWith(">")) {
+            for (Term child : ((KList) ((KItem) term).kList()).getContents()) {
+                collectKCells(child, kContents);
+            }
         }
+    }
+
+    /**
+     * Returns the number of states of the last call of {@link #proveRule} which were pruned because
+     * they are instances of visited states.
+     */
+    public int getProofPruned() {
+        return proofPruned;
+    }
+
+    /**
+     * Returns the number of steps of the last call of {@link #proveRule}: the number of levels of states
+     * explored from the initial state, counting the initial state as the first level. With
+     * {@link ProofStrategy#BFS} this is the number of rounds of the exploration, as before the other
+     * strategies were introduced; with the others, a state is counted at the level it was first reached at,
+     * and under {@link ProofStrategy#ITERATIVE_DEEPENING} only the last iteration is counted.
+     */
+    public int getProofSteps() {
+        return proofSteps;
+    }
 
-        return proofResults;
+    /**
+     * Returns the number of distinct states explored by the last call of {@link #proveRule}.
+     */
+    public int getProofStates() {
+        return proofStates;
     }
 
     /**
-     * Applies the first applicable specification rule and returns the result.
+     * Applies the first applicable specification rule and returns the result. Only the rules selected
+     * by the index are matched against the term.
      */
-    private ConstrainedTerm applySpecRules(ConstrainedTerm constrainedTerm, List<Rule> specRules) {
-        for (Rule specRule : specRules) {
+    private ConstrainedTerm applySpecRules(ConstrainedTerm constrainedTerm, TermShapeIndex<Rule> specRuleIndex) {
+        for (Rule specRule : specRuleIndex.candidates(constrainedTerm.term())) {
             ConstrainedTerm pattern = specRule.createLhsPattern(constrainedTerm.termContext());
             ConjunctiveFormula constraint = constrainedTerm.matchImplies(pattern, true);
             if (constraint != null) {
@@ -707,4 +1092,97 @@ public class SymbolicRewriter {
         return null;
     }
 
+    /**
+     * A state waiting to be explored by {@link #proveRule}, with the number of steps from the initial state.
+     */
+    private static final class ProofState {
+        private static final Comparator<ProofState> BY_PRIORITY =
+                Comparator.<ProofState>comparingInt(s -> s.priority).thenComparingLong(s -> s.order);
+
+        final ConstrainedTerm term;
+        final int depth;
+        final int priority;
+        final long order;
+
+        ProofState(ConstrainedTerm term, int depth, ToIntFunction<ConstrainedTerm> heuristic, long order) {
+            this.term = term;
+            this.depth = depth;
+            this.priority = heuristic.applyAsInt(term);
+            this.order = order;
+        }
+
+        static Queue<ProofState> frontier(ProofStrategy strategy) {
+            switch (strategy) {
+            case BFS:
+                return new ArrayDeque<>();
+            case DFS:
+            case ITERATIVE_DEEPENING:
+                return Collections.asLifoQueue(new ArrayDeque<>());
+            case BEST_FIRST:
+                return new PriorityQueue<>(BY_PRIORITY);
+            default:
+                throw new AssertionError("unexpected proof strategy " + strategy);
+            }
+        }
+    }
+
+    private static final class Exploration {
+        final List<ConstrainedTerm> proofResults;
+        /**
+         * whether some state was left unexplored at the depth limit
+         */
+        final boolean cut;
+
+        Exploration(List<ConstrainedTerm> proofResults, boolean cut) {
+            this.proofResults = proofResults;
+            this.cut = cut;
+        }
+    }
+
+    /**
+     * The states visited by a search or a proof. A state is new if it is not structurally equal to a
+     * visited state. With {@code --prune-subsumed}, a new state is also dropped if it is an instance of a
+     * visited state, i.e., if it matches the term of that state and its constraint implies the constraint
+     * of that state ({@link ConstrainedTerm#matchImplies}); the states reachable from it are instances of
+     * the states reachable from the visited one. Only the visited states with a compatible shape, found
+     * through a {@link TermShapeIndex}, are checked.
+     */
+    private static class VisitedStates {
+        private final Set<ConstrainedTerm> states = new HashSet<>();
+        private final TermShapeIndex<ConstrainedTerm> index;
+        private int pruned = 0;
+
+        VisitedStates(boolean pruneSubsumed) {
+            this.index = pruneSubsumed ? new TermShapeIndex<>() : null;
+        }
+
+        /**
+         * Adds the state and returns true if it is neither visited nor subsumed by a visited state; pruned
+         * states are not added, so they are not counted by {@link #size()}.
+         */
+        boolean add(ConstrainedTerm state) {
+            if (states.contains(state)) {
+                return false;
+            }
+            if (index != null) {
+                for (ConstrainedTerm visited : index.candidates(state.term())) {
+                    if (state.matchImplies(visited, false) != null) {
+                        pruned++;
+                        return false;
+                    }
+                }
+                index.add(state.term(), state);
+            }
+            states.add(state);
+            return true;
+        }
+
+        int size() {
+            return states.size();
+        }
+
+        int pruned() {
+            return pruned;
+        }
+    }
 }
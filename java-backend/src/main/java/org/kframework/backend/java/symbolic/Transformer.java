@@ -17,6 +17,8 @@ public interface Transformer {
 
     ASTNode transform(BitVector bitVector);
     ASTNode transform(BoolToken boolToken);
+
+    ASTNode transform(BytesToken bytesToken);
     ASTNode transform(BuiltinList builtinList);
     ASTNode transform(BuiltinMap builtinMap);
     ASTNode transform(BuiltinSet builtinSet);
@@ -1,22 +1,60 @@
 // Copyright (c) 2014-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.kframework.backend.java.kil.*;
 import org.kframework.attributes.Source;
 import org.kframework.utils.errorsystem.KEMException;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-
-import static org.apache.commons.io.FileUtils.writeStringToFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * For measuring semantic coverage
+ * <p>
+ * The locations are written to the coverage file by a background thread, through a bounded buffer.
+ * Each location is interned to an integer id, so the file is a sequence of 4-byte ids, preceded by the
+ * header {@code "KCOV"}. The first occurrence of an id is preceded by its definition: the marker -1, the
+ * id and the location in modified UTF-8. Each run appends to the file, starting with the marker -2,
+ * after which the ids are defined anew. The file is flushed when the JVM exits, or by {@link #flush()}.
+ * Use {@link #aggregate(File)}, or run this class with the coverage file as argument, to count the hits
+ * of each location.
  *
  * @author daejunpark
  */
 public class Coverage {
 
+    private static final byte[] MAGIC = {'K', 'C', 'O', 'V'};
+    private static final int DEFINITION = -1;
+    private static final int SESSION = -2;
+    private static final int BUFFER_SIZE = 1 << 16;
+    /* the writer thread is woken up once this many ids are buffered, or on flush */
+    private static final int BATCH_SIZE = BUFFER_SIZE / 2;
+
+    private static final Map<File, Writer> writers = new ConcurrentHashMap<>();
+
+    /* locations of the rules, weakly keyed by identity */
+    private static final LoadingCache<Rule, String> ruleLocations = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(Coverage::getSourceLocation));
+
     /**
      * Print location information of {@code constrainedTerm} into {@code file}.
      * - If {@code file} is null, then it does nothing.
@@ -55,20 +93,89 @@ public class Coverage {
      */
     public static void print(File file, Rule rule) {
         if (file != null) {
-            print(file, getSourceLocation(rule));
+            print(file, ruleLocations.getUnchecked(rule));
         }
     }
 
-    private synchronized static void print(File file, String string) {
+    private static void print(File file, String string) {
         if (file != null && string != null) {
-            try {
-                writeStringToFile(file, string + "\n", true);
-            } catch (IOException e) {
-                throw KEMException.internalError("Could not write to " + file, e);
+            writers.computeIfAbsent(file, Writer::new).record(string);
+        }
+    }
+
+    /**
+     * Waits until all the locations printed so far are written to their coverage files.
+     */
+    public static void flush() {
+        for (Writer writer : writers.values()) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Closes the writer of the given file after writing the locations printed so far. The next location
+     * printed to the file is appended to it in a new session.
+     */
+    static void close(File file) {
+        Writer writer = writers.remove(file);
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Returns the number of hits of each location recorded in the given coverage file, in decreasing order.
+     */
+    public static Map<String, Long> aggregate(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            readMagic(in, file);
+            List<String> locations = new ArrayList<>();
+            List<Long> counts = new ArrayList<>();
+            /* index of the id 0 of the current session */
+            int base = 0;
+            while (true) {
+                int id;
+                try {
+                    id = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (id == SESSION) {
+                    base = locations.size();
+                } else if (id == DEFINITION) {
+                    in.readInt();
+                    locations.add(in.readUTF());
+                    counts.add(0L);
+                } else {
+                    counts.set(base + id, counts.get(base + id) + 1);
+                }
+            }
+            Map<String, Long> result = new HashMap<>();
+            for (int i = 0; i < locations.size(); i++) {
+                result.merge(locations.get(i), counts.get(i), Long::sum);
             }
+            Map<String, Long> sorted = new LinkedHashMap<>();
+            result.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+            return sorted;
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not read from " + file, e);
         }
     }
 
+    /**
+     * Prints the number of hits of each location recorded in the coverage file given as argument.
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("usage: " + Coverage.class.getName() + " <coverage file>");
+            System.exit(1);
+        }
+        aggregate(new File(args[0])).forEach((location, count) -> System.out.println(count + "\t" + location));
+    }
+
     private static String getSourceLocation(ConstrainedTerm constrainedTerm) {
         return getSourceLocation(constrainedTerm.term());
     }
@@ -92,4 +199,164 @@ public class Coverage {
         s = source.toString() + ":" + rule.getLocation().toString();
         return s;
     }
+
+    private static void readMagic(DataInputStream in, File file) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw KEMException.criticalError("Not a coverage file: " + file);
+        }
+    }
+
+    /**
+     * Writes the ids of the locations of one coverage file from a ring buffer, on a daemon thread.
+     * The threads which record locations wait while the buffer is full, so no location is dropped.
+     * If writing fails, the error is reported by the next call to {@link #record}, {@link #flush} or
+     * {@link #close}.
+     */
+    private static class Writer implements Runnable {
+        private final File file;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        /* locations by id, guarded by this */
+        private final List<String> locations = new ArrayList<>();
+
+        /* ring buffer of ids, guarded by this */
+        private final int[] buffer = new int[BUFFER_SIZE];
+        private long recorded = 0;
+        private long written = 0;
+        /* the writer thread writes the ids buffered before this count even if they are less than a batch */
+        private long flushRequested = 0;
+        private boolean closed = false;
+        private IOException failure;
+
+        private final DataOutputStream out;
+        private int definedIds = 0;
+
+        Writer(File file) {
+            this.file = file;
+            try {
+                boolean append = file.length() > 0;
+                if (append) {
+                    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                        readMagic(in, file);
+                    }
+                }
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+                if (append) {
+                    out.writeInt(SESSION);
+                } else {
+                    out.write(MAGIC);
+                }
+            } catch (IOException e) {
+                throw KEMException.criticalError("Could not write to " + file, e);
+            }
+            Thread thread = new Thread(this, "coverage writer " + file);
+            thread.setDaemon(true);
+            thread.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+        }
+
+        void record(String location) {
+            Integer id = ids.get(location);
+            synchronized (this) {
+                if (id == null) {
+                    id = ids.get(location);
+                    if (id == null) {
+                        id = locations.size();
+                        locations.add(location);
+                        ids.put(location, id);
+                    }
+                }
+                while (recorded - written == buffer.length && !closed) {
+                    await();
+                }
+                if (closed) {
+                    checkFailure();
+                    return;
+                }
+                buffer[(int) (recorded++ % buffer.length)] = id;
+                if (recorded - written == BATCH_SIZE) {
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized void flush() {
+            long target = recorded;
+            flushRequested = target;
+            notifyAll();
+            while (written < target && !closed) {
+                await();
+            }
+            checkFailure();
+        }
+
+        void close() {
+            flush();
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+        }
+
+        private void checkFailure() {
+            if (failure != null) {
+                throw KEMException.criticalError("Could not write to " + file, failure);
+            }
+        }
+
+        @Override
+        public void run() {
+            int[] batch = new int[buffer.length];
+            try {
+                while (true) {
+                    int size;
+                    String[] newLocations;
+                    synchronized (this) {
+                        while (!closed && (recorded == written
+                                || (recorded - written < BATCH_SIZE && written >= flushRequested))) {
+                            await();
+                        }
+                        if (recorded == written) {
+                            break;
+                        }
+                        size = (int) (recorded - written);
+                        for (int i = 0; i < size; i++) {
+                            batch[i] = buffer[(int) ((written + i) % buffer.length)];
+                        }
+                        newLocations = locations.subList(definedIds, locations.size()).toArray(new String[0]);
+                    }
+                    for (String location : newLocations) {
+                        out.writeInt(DEFINITION);
+                        out.writeInt(definedIds++);
+                        out.writeUTF(location);
+                    }
+                    for (int i = 0; i < size; i++) {
+                        out.writeInt(batch[i]);
+                    }
+                    out.flush();
+                    synchronized (this) {
+                        written += size;
+                        notifyAll();
+                    }
+                }
+                out.close();
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    closed = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        private void await() {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw KEMException.internalError("Interrupted while writing to " + file, e);
+            }
+        }
+    }
 }
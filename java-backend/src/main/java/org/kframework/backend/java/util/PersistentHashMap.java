@@ -0,0 +1,576 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable hash map with structural sharing, implemented as a compressed hash-array mapped trie (CHAMP).
+ * Updates ({@link #plus}, {@link #minus}) return a new map in O(log n) time and space, leaving the original map
+ * unchanged. Every node caches the number of entries and the sum of the hash codes of the entries of its subtree,
+ * so {@link #size()} and {@link #hashCode()} take constant time and {@link #equals} fails fast on maps with
+ * different hash codes.
+ * <p>
+ * The mutators inherited from {@link java.util.Map} throw {@link UnsupportedOperationException}.
+ * Null keys and values are not supported.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int HASH_BITS = 32;
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final PersistentHashMap EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY);
+
+    private final Node<K, V> root;
+
+    private transient Set<Entry<K, V>> entrySet;
+
+    private PersistentHashMap(Node<K, V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns a persistent map with the entries of the given map; persistent maps are returned as is.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> from(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap) {
+            return (PersistentHashMap<K, V>) map;
+        }
+        return PersistentHashMap.<K, V>empty().plusAll(map);
+    }
+
+    /**
+     * Returns a map with the given key mapped to the given value.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        Node<K, V> newRoot = root.put(Objects.requireNonNull(key), Objects.requireNonNull(value), key.hashCode(), 0);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot);
+    }
+
+    /**
+     * Returns a map with all the entries of this map and of the given map; the entries of the given map take
+     * precedence.
+     */
+    public PersistentHashMap<K, V> plusAll(Map<? extends K, ? extends V> map) {
+        if (isEmpty() && map instanceof PersistentHashMap) {
+            return from(map);
+        }
+        Node<K, V> newRoot = root;
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            K key = Objects.requireNonNull(entry.getKey());
+            newRoot = newRoot.put(key, Objects.requireNonNull(entry.getValue()), key.hashCode(), 0);
+        }
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot);
+    }
+
+    /**
+     * Returns a map without the entry of the given key.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (key == null) {
+            return this;
+        }
+        Node<K, V> newRoot = root.remove(key, key.hashCode(), 0);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot);
+    }
+
+    @Override
+    public V get(Object key) {
+        return key != null ? root.get(key, key.hashCode(), 0) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return root.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root.size == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return root.hashSum;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object instanceof PersistentHashMap) {
+            PersistentHashMap<?, ?> map = (PersistentHashMap<?, ?>) object;
+            if (root == map.root) {
+                return true;
+            }
+            if (root.size != map.root.size || root.hashSum != map.root.hashSum) {
+                return false;
+            }
+        }
+        return super.equals(object);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> result = entrySet;
+        if (result == null) {
+            result = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return root.size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Map.Entry)) {
+                        return false;
+                    }
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                    V value = get(entry.getKey());
+                    return value != null && value.equals(entry.getValue());
+                }
+            };
+            entrySet = result;
+        }
+        return result;
+    }
+
+    private static int entryHash(Object key, Object value) {
+        return key.hashCode() ^ value.hashCode();
+    }
+
+    private static int fragment(int hash, int shift) {
+        return (hash >>> shift) & ((1 << BITS_PER_LEVEL) - 1);
+    }
+
+    private abstract static class Node<K, V> implements Serializable {
+
+        /**
+         * the number of entries in the subtree rooted at this node
+         */
+        final int size;
+
+        /**
+         * the sum of the hash codes of the entries in the subtree rooted at this node
+         */
+        final int hashSum;
+
+        Node(int size, int hashSum) {
+            this.size = size;
+            this.hashSum = hashSum;
+        }
+
+        abstract V get(Object key, int hash, int shift);
+
+        /**
+         * Returns the node obtained by mapping the given key to the given value, or this node if nothing changes.
+         */
+        abstract Node<K, V> put(K key, V value, int hash, int shift);
+
+        /**
+         * Returns the node obtained by removing the given key, or this node if the key is not present.
+         */
+        abstract Node<K, V> remove(Object key, int hash, int shift);
+
+        abstract int entryCount();
+
+        abstract K entryKey(int index);
+
+        abstract V entryValue(int index);
+
+        abstract int nodeCount();
+
+        abstract Node<K, V> childNode(int index);
+    }
+
+    /**
+     * A trie node storing entries inline and sub-tries in separate regions of one array.
+     * Invariant: a sub-trie always holds at least two entries (single entries are inlined into the parent).
+     */
+    private static final class BitmapNode<K, V> extends Node<K, V> {
+
+        @SuppressWarnings("rawtypes")
+        static final BitmapNode EMPTY = new BitmapNode<>(0, 0, new Object[0]);
+
+        /**
+         * the fragments of the hash codes of the inline entries
+         */
+        private final int dataMap;
+
+        /**
+         * the fragments of the hash codes of the sub-tries
+         */
+        private final int nodeMap;
+
+        /**
+         * the keys and values of the inline entries, followed by the sub-tries
+         */
+        private final Object[] content;
+
+        BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            super(computeSize(dataMap, nodeMap, content), computeHashSum(dataMap, nodeMap, content));
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        private static int computeSize(int dataMap, int nodeMap, Object[] content) {
+            int dataCount = Integer.bitCount(dataMap);
+            int size = dataCount;
+            for (int i = 0; i < Integer.bitCount(nodeMap); i++) {
+                size += ((Node<?, ?>) content[2 * dataCount + i]).size;
+            }
+            return size;
+        }
+
+        private static int computeHashSum(int dataMap, int nodeMap, Object[] content) {
+            int dataCount = Integer.bitCount(dataMap);
+            int hashSum = 0;
+            for (int i = 0; i < dataCount; i++) {
+                hashSum += entryHash(content[2 * i], content[2 * i + 1]);
+            }
+            for (int i = 0; i < Integer.bitCount(nodeMap); i++) {
+                hashSum += ((Node<?, ?>) content[2 * dataCount + i]).hashSum;
+            }
+            return hashSum;
+        }
+
+        private int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        private int nodeIndex(int bit) {
+            return 2 * Integer.bitCount(dataMap) + Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V get(Object key, int hash, int shift) {
+            int bit = 1 << fragment(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                return key.equals(content[2 * index]) ? (V) content[2 * index + 1] : null;
+            }
+            if ((nodeMap & bit) != 0) {
+                return ((Node<K, V>) content[nodeIndex(bit)]).get(key, hash, shift + BITS_PER_LEVEL);
+            }
+            return null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> put(K key, V value, int hash, int shift) {
+            int bit = 1 << fragment(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                K currentKey = (K) content[2 * index];
+                V currentValue = (V) content[2 * index + 1];
+                if (currentKey.equals(key)) {
+                    if (currentValue.equals(value)) {
+                        return this;
+                    }
+                    Object[] newContent = content.clone();
+                    newContent[2 * index + 1] = value;
+                    return new BitmapNode<>(dataMap, nodeMap, newContent);
+                }
+
+                /* replace the inline entry with a sub-trie holding both entries */
+                Node<K, V> subNode = mergeTwo(
+                        currentKey, currentValue, currentKey.hashCode(),
+                        key, value, hash,
+                        shift + BITS_PER_LEVEL);
+                int oldIndex = 2 * index;
+                int newIndex = content.length - 2 - Integer.bitCount(nodeMap & ~(bit - 1));
+                Object[] newContent = new Object[content.length - 1];
+                System.arraycopy(content, 0, newContent, 0, oldIndex);
+                System.arraycopy(content, oldIndex + 2, newContent, oldIndex, newIndex - oldIndex);
+                newContent[newIndex] = subNode;
+                System.arraycopy(content, newIndex + 2, newContent, newIndex + 1, content.length - newIndex - 2);
+                return new BitmapNode<>(dataMap ^ bit, nodeMap | bit, newContent);
+            }
+
+            if ((nodeMap & bit) != 0) {
+                int index = nodeIndex(bit);
+                Node<K, V> subNode = (Node<K, V>) content[index];
+                Node<K, V> newSubNode = subNode.put(key, value, hash, shift + BITS_PER_LEVEL);
+                if (newSubNode == subNode) {
+                    return this;
+                }
+                Object[] newContent = content.clone();
+                newContent[index] = newSubNode;
+                return new BitmapNode<>(dataMap, nodeMap, newContent);
+            }
+
+            /* insert a new inline entry */
+            int index = 2 * dataIndex(bit);
+            Object[] newContent = new Object[content.length + 2];
+            System.arraycopy(content, 0, newContent, 0, index);
+            newContent[index] = key;
+            newContent[index + 1] = value;
+            System.arraycopy(content, index, newContent, index + 2, content.length - index);
+            return new BitmapNode<>(dataMap | bit, nodeMap, newContent);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> remove(Object key, int hash, int shift) {
+            int bit = 1 << fragment(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                if (!key.equals(content[2 * index])) {
+                    return this;
+                }
+                Object[] newContent = new Object[content.length - 2];
+                System.arraycopy(content, 0, newContent, 0, 2 * index);
+                System.arraycopy(content, 2 * index + 2, newContent, 2 * index, content.length - 2 * index - 2);
+                return new BitmapNode<>(dataMap ^ bit, nodeMap, newContent);
+            }
+
+            if ((nodeMap & bit) != 0) {
+                int index = nodeIndex(bit);
+                Node<K, V> subNode = (Node<K, V>) content[index];
+                Node<K, V> newSubNode = subNode.remove(key, hash, shift + BITS_PER_LEVEL);
+                if (newSubNode == subNode) {
+                    return this;
+                }
+                if (newSubNode.size != 1) {
+                    Object[] newContent = content.clone();
+                    newContent[index] = newSubNode;
+                    return new BitmapNode<>(dataMap, nodeMap, newContent);
+                }
+
+                /* inline the single remaining entry of the sub-trie */
+                int newIndex = 2 * dataIndex(bit);
+                Object[] newContent = new Object[content.length + 1];
+                System.arraycopy(content, 0, newContent, 0, newIndex);
+                newContent[newIndex] = newSubNode.entryKey(0);
+                newContent[newIndex + 1] = newSubNode.entryValue(0);
+                System.arraycopy(content, newIndex, newContent, newIndex + 2, index - newIndex);
+                System.arraycopy(content, index + 1, newContent, index + 2, content.length - index - 1);
+                return new BitmapNode<>(dataMap | bit, nodeMap ^ bit, newContent);
+            }
+
+            return this;
+        }
+
+        @Override
+        int entryCount() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        K entryKey(int index) {
+            return (K) content[2 * index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V entryValue(int index) {
+            return (V) content[2 * index + 1];
+        }
+
+        @Override
+        int nodeCount() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> childNode(int index) {
+            return (Node<K, V>) content[2 * Integer.bitCount(dataMap) + index];
+        }
+    }
+
+    /**
+     * A leaf node storing entries whose keys have the same hash code.
+     */
+    private static final class CollisionNode<K, V> extends Node<K, V> {
+
+        private final int hash;
+        private final Object[] keys;
+        private final Object[] values;
+
+        CollisionNode(int hash, Object[] keys, Object[] values) {
+            super(keys.length, computeHashSum(keys, values));
+            this.hash = hash;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        private static int computeHashSum(Object[] keys, Object[] values) {
+            int hashSum = 0;
+            for (int i = 0; i < keys.length; i++) {
+                hashSum += entryHash(keys[i], values[i]);
+            }
+            return hashSum;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V get(Object key, int hash, int shift) {
+            int index = indexOf(key);
+            return index >= 0 ? (V) values[index] : null;
+        }
+
+        @Override
+        Node<K, V> put(K key, V value, int hash, int shift) {
+            assert hash == this.hash;
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (values[index].equals(value)) {
+                    return this;
+                }
+                Object[] newValues = values.clone();
+                newValues[index] = value;
+                return new CollisionNode<>(hash, keys, newValues);
+            }
+            Object[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+            Object[] newValues = Arrays.copyOf(values, values.length + 1);
+            newKeys[keys.length] = key;
+            newValues[values.length] = value;
+            return new CollisionNode<>(hash, newKeys, newValues);
+        }
+
+        @Override
+        Node<K, V> remove(Object key, int hash, int shift) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            Object[] newKeys = new Object[keys.length - 1];
+            Object[] newValues = new Object[values.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(values, 0, newValues, 0, index);
+            System.arraycopy(values, index + 1, newValues, index, values.length - index - 1);
+            return new CollisionNode<>(hash, newKeys, newValues);
+        }
+
+        @Override
+        int entryCount() {
+            return keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        K entryKey(int index) {
+            return (K) keys[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V entryValue(int index) {
+            return (V) values[index];
+        }
+
+        @Override
+        int nodeCount() {
+            return 0;
+        }
+
+        @Override
+        Node<K, V> childNode(int index) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private static <K, V> Node<K, V> mergeTwo(K key1, V value1, int hash1, K key2, V value2, int hash2, int shift) {
+        if (shift >= HASH_BITS) {
+            return new CollisionNode<>(hash1, new Object[]{key1, key2}, new Object[]{value1, value2});
+        }
+
+        int fragment1 = fragment(hash1, shift);
+        int fragment2 = fragment(hash2, shift);
+        if (fragment1 != fragment2) {
+            Object[] content = fragment1 < fragment2 ?
+                    new Object[]{key1, value1, key2, value2} :
+                    new Object[]{key2, value2, key1, value1};
+            return new BitmapNode<>((1 << fragment1) | (1 << fragment2), 0, content);
+        } else {
+            Node<K, V> subNode = mergeTwo(key1, value1, hash1, key2, value2, hash2, shift + BITS_PER_LEVEL);
+            return new BitmapNode<>(0, 1 << fragment1, new Object[]{subNode});
+        }
+    }
+
+    /**
+     * Iterates over the entries of a trie in depth-first order.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+        private final Deque<Node<K, V>> pendingNodes = new ArrayDeque<>();
+        private Node<K, V> currentNode;
+        private int currentIndex;
+
+        EntryIterator(Node<K, V> root) {
+            enter(root);
+        }
+
+        private void enter(Node<K, V> node) {
+            currentNode = node;
+            currentIndex = 0;
+            for (int i = node.nodeCount() - 1; i >= 0; i--) {
+                pendingNodes.push(node.childNode(i));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (currentIndex >= currentNode.entryCount()) {
+                if (pendingNodes.isEmpty()) {
+                    return false;
+                }
+                enter(pendingNodes.pop());
+            }
+            return true;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> entry = new SimpleImmutableEntry<>(
+                    currentNode.entryKey(currentIndex),
+                    currentNode.entryValue(currentIndex));
+            currentIndex++;
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable sequence backed by a height-balanced tree of small arrays (a chunked rope).
+ * <p>
+ * Indexing, update, concatenation and splitting all take O(log n) time and share structure with the original
+ * vectors, so that slicing a long list or appending two lists does not copy the elements. Each node maintains
+ * the contribution of its elements to {@link List#hashCode()}, which makes hashing of concatenations O(1).
+ */
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess, Serializable {
+
+    /**
+     * the maximal number of elements stored in a leaf
+     */
+    private static final int CHUNK = 32;
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final PersistentVector EMPTY = new PersistentVector(Leaf.EMPTY);
+
+    private final Node<E> root;
+
+    private PersistentVector(Node<E> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    public static <E> PersistentVector<E> of(E element) {
+        return new PersistentVector<>(new Leaf<>(new Object[]{element}));
+    }
+
+    /**
+     * Returns a vector with the elements of the given list, in O(n) time.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> from(List<? extends E> elements) {
+        if (elements instanceof PersistentVector) {
+            return (PersistentVector<E>) elements;
+        }
+        return elements.isEmpty() ? empty() : new PersistentVector<>(build(elements.toArray(), 0, elements.size()));
+    }
+
+    private static <E> Node<E> build(Object[] elements, int begin, int end) {
+        if (end - begin <= CHUNK) {
+            return new Leaf<>(Arrays.copyOfRange(elements, begin, end));
+        }
+        int chunks = (end - begin + CHUNK - 1) / CHUNK;
+        int middle = begin + chunks / 2 * CHUNK;
+        return new Branch<>(build(elements, begin, middle), build(elements, middle, end));
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= root.size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + root.size);
+        }
+        return root.get(index);
+    }
+
+    @Override
+    public int size() {
+        return root.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root.size == 0;
+    }
+
+    /**
+     * Returns a vector which differs from this one only in the element at the given position.
+     */
+    public PersistentVector<E> with(int index, E element) {
+        if (index < 0 || index >= root.size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + root.size);
+        }
+        return new PersistentVector<>(root.with(index, element));
+    }
+
+    public PersistentVector<E> append(E element) {
+        return concat(of(element));
+    }
+
+    public PersistentVector<E> prepend(E element) {
+        return of(element).concat(this);
+    }
+
+    public PersistentVector<E> concat(PersistentVector<E> other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        return new PersistentVector<>(join(root, other.root));
+    }
+
+    /**
+     * Returns the elements between the given positions as a new vector, in O(log n) time.
+     */
+    @Override
+    public PersistentVector<E> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > root.size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + root.size);
+        }
+        if (fromIndex == 0 && toIndex == root.size) {
+            return this;
+        }
+        if (fromIndex == toIndex) {
+            return empty();
+        }
+        return new PersistentVector<>(slice(root, fromIndex, toIndex));
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new LeafIterator<>(root);
+    }
+
+    @Override
+    public int hashCode() {
+        return root.power + root.hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (object instanceof PersistentVector
+                && (((PersistentVector) object).size() != size() || object.hashCode() != hashCode())) {
+            return false;
+        }
+        return super.equals(object);
+    }
+
+    private static <E> Node<E> join(Node<E> left, Node<E> right) {
+        if (left.size == 0) {
+            return right;
+        }
+        if (right.size == 0) {
+            return left;
+        }
+        if (left instanceof Leaf && right instanceof Leaf) {
+            return left.size + right.size <= CHUNK ? Leaf.concat((Leaf<E>) left, (Leaf<E>) right) : new Branch<>(left, right);
+        }
+        if (left.height > right.height + 1
+                || right instanceof Leaf && right.size + lastLeaf(left).size <= CHUNK) {
+            Branch<E> branch = (Branch<E>) left;
+            return balance(branch.left, join(branch.right, right));
+        }
+        if (right.height > left.height + 1
+                || left instanceof Leaf && left.size + firstLeaf(right).size <= CHUNK) {
+            Branch<E> branch = (Branch<E>) right;
+            return balance(join(left, branch.left), branch.right);
+        }
+        return new Branch<>(left, right);
+    }
+
+    /**
+     * Builds a branch from two balanced trees whose heights differ by at most two.
+     */
+    private static <E> Node<E> balance(Node<E> left, Node<E> right) {
+        if (left.height > right.height + 1) {
+            Branch<E> branch = (Branch<E>) left;
+            if (branch.left.height >= branch.right.height) {
+                return new Branch<>(branch.left, new Branch<>(branch.right, right));
+            }
+            Branch<E> inner = (Branch<E>) branch.right;
+            return new Branch<>(new Branch<>(branch.left, inner.left), new Branch<>(inner.right, right));
+        }
+        if (right.height > left.height + 1) {
+            Branch<E> branch = (Branch<E>) right;
+            if (branch.right.height >= branch.left.height) {
+                return new Branch<>(new Branch<>(left, branch.left), branch.right);
+            }
+            Branch<E> inner = (Branch<E>) branch.left;
+            return new Branch<>(new Branch<>(left, inner.left), new Branch<>(inner.right, branch.right));
+        }
+        return new Branch<>(left, right);
+    }
+
+    private static <E> Node<E> slice(Node<E> node, int begin, int end) {
+        if (begin == 0 && end == node.size) {
+            return node;
+        }
+        if (node instanceof Leaf) {
+            return new Leaf<>(Arrays.copyOfRange(((Leaf<E>) node).elements, begin, end));
+        }
+        Branch<E> branch = (Branch<E>) node;
+        int leftSize = branch.left.size;
+        if (end <= leftSize) {
+            return slice(branch.left, begin, end);
+        }
+        if (begin >= leftSize) {
+            return slice(branch.right, begin - leftSize, end - leftSize);
+        }
+        return join(slice(branch.left, begin, leftSize), slice(branch.right, 0, end - leftSize));
+    }
+
+    private static <E> Node<E> firstLeaf(Node<E> node) {
+        while (node instanceof Branch) {
+            node = ((Branch<E>) node).left;
+        }
+        return node;
+    }
+
+    private static <E> Node<E> lastLeaf(Node<E> node) {
+        while (node instanceof Branch) {
+            node = ((Branch<E>) node).right;
+        }
+        return node;
+    }
+
+    private static int power(int exponent) {
+        int result = 1;
+        int base = 31;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>= 1;
+        }
+        return result;
+    }
+
+    private static abstract class Node<E> implements Serializable {
+        final int size;
+        final int height;
+        /**
+         * the sum of hashCode(e_i) * 31^(size - 1 - i) over the elements e_i of this node
+         */
+        final int hash;
+        /**
+         * 31^size
+         */
+        final int power;
+
+        Node(int size, int height, int hash, int power) {
+            this.size = size;
+            this.height = height;
+            this.hash = hash;
+            this.power = power;
+        }
+
+        abstract E get(int index);
+
+        abstract Node<E> with(int index, E element);
+    }
+
+    private static final class Leaf<E> extends Node<E> {
+        @SuppressWarnings("rawtypes")
+        static final Leaf EMPTY = new Leaf<>(new Object[0]);
+
+        final Object[] elements;
+
+        Leaf(Object[] elements) {
+            super(elements.length, 0, hash(elements), power(elements.length));
+            this.elements = elements;
+        }
+
+        private static int hash(Object[] elements) {
+            int hash = 0;
+            for (Object element : elements) {
+                hash = 31 * hash + Objects.hashCode(element);
+            }
+            return hash;
+        }
+
+        static <E> Leaf<E> concat(Leaf<E> left, Leaf<E> right) {
+            Object[] elements = Arrays.copyOf(left.elements, left.size + right.size);
+            System.arraycopy(right.elements, 0, elements, left.size, right.size);
+            return new Leaf<>(elements);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        E get(int index) {
+            return (E) elements[index];
+        }
+
+        @Override
+        Node<E> with(int index, E element) {
+            Object[] newElements = elements.clone();
+            newElements[index] = element;
+            return new Leaf<>(newElements);
+        }
+    }
+
+    private static final class Branch<E> extends Node<E> {
+        final Node<E> left;
+        final Node<E> right;
+
+        Branch(Node<E> left, Node<E> right) {
+            super(left.size + right.size,
+                    Math.max(left.height, right.height) + 1,
+                    left.hash * right.power + right.hash,
+                    left.power * right.power);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        E get(int index) {
+            Node<E> node = this;
+            while (node instanceof Branch) {
+                Branch<E> branch = (Branch<E>) node;
+                if (index < branch.left.size) {
+                    node = branch.left;
+                } else {
+                    index -= branch.left.size;
+                    node = branch.right;
+                }
+            }
+            return node.get(index);
+        }
+
+        @Override
+        Node<E> with(int index, E element) {
+            return index < left.size ?
+                    new Branch<>(left.with(index, element), right) :
+                    new Branch<>(left, right.with(index - left.size, element));
+        }
+    }
+
+    /**
+     * Iterates over the leaves in order, keeping the pending right subtrees on a stack.
+     */
+    private static final class LeafIterator<E> implements Iterator<E> {
+        private final Deque<Node<E>> pending = new ArrayDeque<>();
+        private Leaf<E> leaf;
+        private int index;
+
+        LeafIterator(Node<E> root) {
+            descend(root);
+        }
+
+        private void descend(Node<E> node) {
+            while (node instanceof Branch) {
+                pending.push(((Branch<E>) node).right);
+                node = ((Branch<E>) node).left;
+            }
+            leaf = (Leaf<E>) node;
+            index = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index == leaf.size) {
+                if (pending.isEmpty()) {
+                    return false;
+                }
+                descend(pending.pop());
+            }
+            return true;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return leaf.get(index++);
+        }
+    }
+}
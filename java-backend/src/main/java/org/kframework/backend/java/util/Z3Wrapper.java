@@ -1,11 +1,21 @@
 // Copyright (c) 2013-2016 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
+import com.microsoft.z3.BoolExpr;
+import com.microsoft.z3.Expr;
+import com.microsoft.z3.FuncDecl;
 import com.microsoft.z3.Params;
+import com.microsoft.z3.Quantifier;
 import com.microsoft.z3.Solver;
+import com.microsoft.z3.Sort;
 import com.microsoft.z3.Status;
+import com.microsoft.z3.Symbol;
+import com.microsoft.z3.UninterpretedSort;
 import com.microsoft.z3.Z3Exception;
+import com.microsoft.z3.enumerations.Z3_decl_kind;
 import org.kframework.main.GlobalOptions;
 import org.kframework.utils.OS;
 import org.kframework.utils.errorsystem.KExceptionManager;
@@ -17,7 +27,19 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 /**
  * @author Traian
@@ -28,30 +50,146 @@ public class Z3Wrapper {
 
     private static final Set<String> Z3_QUERY_RESULTS = ImmutableSet.of("unknown", "sat", "unsat");
 
+    /**
+     * Printed by a pooled Z3 process after each query, so that error messages cannot desynchronize the results.
+     */
+    private static final String END_OF_QUERY = "k-end-of-query";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     public final String SMT_PRELUDE;
     private final SMTOptions options;
     private final GlobalOptions globalOptions;
     private final KExceptionManager kem;
     private final FileUtil files;
 
+    /**
+     * Results of previous queries, keyed by the timeout and the query with normalized whitespace;
+     * null if --smt-cache-size is 0.
+     */
+    private final Cache<String, Boolean> resultCache;
+
+    /**
+     * The pools of solvers, keyed by everything their solvers depend on: the kind of solver, the size of the pool,
+     * the prelude, the debug flag, and for Z3 processes, their working directory and environment. Pools are
+     * shared by all the runs of the JVM with the same configuration, e.g., by the requests of the K server, and
+     * their idle solvers are closed when it exits.
+     */
+    private static final Map<List<Object>, SolverPool> pools = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> pools.values().forEach(SolverPool::close)));
+    }
+
+    /**
+     * The pool of solvers for the configuration of this wrapper; null if the pool size is 0, in which case
+     * the queries create a fresh solver each, one at a time.
+     */
+    private final SolverPool pool;
+
+    private final AtomicLong queryCount = new AtomicLong();
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong solverNanos = new AtomicLong();
+
     public Z3Wrapper(
             SMTOptions options,
             KExceptionManager kem,
             GlobalOptions globalOptions,
             FileUtil files) {
+        this(options, kem, globalOptions, files, 1);
+    }
+
+    /**
+     * @param threads the number of threads which may check queries concurrently. If --z3-pool-size is 0 and
+     *                there are several threads, the pool has one solver per thread, as the queries would
+     *                otherwise wait for each other.
+     */
+    public Z3Wrapper(
+            SMTOptions options,
+            KExceptionManager kem,
+            GlobalOptions globalOptions,
+            FileUtil files,
+            int threads) {
         this.options = options;
         this.kem = kem;
         this.globalOptions = globalOptions;
         this.files = files;
 
         SMT_PRELUDE = options.smtPrelude == null ? "" : files.loadFromWorkingDirectory(options.smtPrelude);
-    }
 
-    public synchronized boolean isUnsat(String query, int timeout) {
-        if (options.z3Executable) {
-            return checkQueryWithExternalProcess(query, timeout);
+        resultCache = options.smtCacheSize > 0 ?
+                CacheBuilder.newBuilder().maximumSize(options.smtCacheSize).build() :
+                null;
+        int poolSize = options.z3PoolSize > 0 ? options.z3PoolSize : threads > 1 ? threads : 0;
+        if (poolSize > 0) {
+            String prelude = SMT_PRELUDE;
+            boolean debug = globalOptions.debug;
+            if (options.z3Executable) {
+                ProcessBuilder pb = files.getProcessBuilder();
+                pool = pools.computeIfAbsent(
+                        Arrays.asList("process", poolSize, prelude, debug, pb.directory(), new HashMap<>(pb.environment())),
+                        key -> new SolverPool(poolSize, () -> new ProcessSolver(pb, prelude, debug)));
+            } else {
+                pool = pools.computeIfAbsent(
+                        Arrays.asList("library", poolSize, prelude),
+                        key -> new SolverPool(poolSize, () -> new LibrarySolver(prelude)));
+            }
         } else {
-            return checkQueryWithLibrary(query, timeout);
+            pool = null;
+        }
+    }
+
+    public boolean isUnsat(String query, int timeout) {
+        queryCount.incrementAndGet();
+        if (resultCache == null) {
+            return check(query, timeout);
+        }
+
+        String key = timeout + ":" + WHITESPACE.matcher(query).replaceAll(" ").trim();
+        Boolean result = resultCache.getIfPresent(key);
+        if (result != null) {
+            cacheHitCount.incrementAndGet();
+            return result;
+        }
+        result = check(query, timeout);
+        resultCache.put(key, result);
+        return result;
+    }
+
+    public long queryCount() {
+        return queryCount.get();
+    }
+
+    public long cacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    /**
+     * Returns the cumulative time spent in the solver, in milliseconds.
+     */
+    public long solverMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(solverNanos.get());
+    }
+
+    public String statistics() {
+        return "[smt: " + queryCount() + " queries, " + cacheHitCount() + " cache hits, " + solverMillis() + " ms in z3]";
+    }
+
+    private boolean check(String query, int timeout) {
+        long start = System.nanoTime();
+        try {
+            if (pool != null) {
+                return checkQueryWithPool(query, timeout);
+            }
+            synchronized (this) {
+                if (options.z3Executable) {
+                    return checkQueryWithExternalProcess(query, timeout);
+                } else {
+                    return checkQueryWithLibrary(query, timeout);
+                }
+            }
+        } finally {
+            solverNanos.addAndGet(System.nanoTime() - start);
         }
     }
 
@@ -103,6 +241,10 @@ public class Z3Wrapper {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        return interpretResult(query, result);
+    }
+
+    private boolean interpretResult(String query, String result) {
         if (result == null) {
             result = "unknown";
             if (globalOptions.debug) {
@@ -117,5 +259,257 @@ public class Z3Wrapper {
         }
         return result.equals("unsat");
     }
-}
 
+    /**
+     * Checks the query on an idle solver of the pool. A new solver is started if all the solvers are busy
+     * and the pool is not full; otherwise, the query waits for a solver to become idle.
+     * A solver which fails is discarded, and the query is retried on another one.
+     */
+    private boolean checkQueryWithPool(String query, int timeout) {
+        String result = null;
+        for (int i = 0; i < Z3_RESTART_LIMIT && result == null; i++) {
+            PooledSolver solver = acquireSolver();
+            try {
+                result = solver.check(query, timeout);
+            } catch (IOException | Z3Exception e) {
+                if (e instanceof Z3Exception) {
+                    kem.registerCriticalWarning(
+                            "failed to translate smtlib expression:\n" + SMT_PRELUDE + query);
+                    result = "unknown";
+                }
+                solver.close();
+                solver = null;
+                pool.count.decrementAndGet();
+            } finally {
+                if (solver != null) {
+                    pool.idle.add(solver);
+                }
+            }
+        }
+        return interpretResult(query, result);
+    }
+
+    private PooledSolver acquireSolver() {
+        PooledSolver solver = pool.idle.poll();
+        if (solver != null) {
+            return solver;
+        }
+        while (true) {
+            int count = pool.count.get();
+            if (count >= pool.size) {
+                break;
+            }
+            if (pool.count.compareAndSet(count, count + 1)) {
+                try {
+                    return pool.factory.start();
+                } catch (IOException | Z3Exception e) {
+                    pool.count.decrementAndGet();
+                    throw new RuntimeException("failed to start z3", e);
+                }
+            }
+        }
+        try {
+            return pool.idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The solvers started for one configuration.
+     */
+    private static final class SolverPool {
+        final BlockingQueue<PooledSolver> idle = new LinkedBlockingQueue<>();
+        final AtomicInteger count = new AtomicInteger();
+        final int size;
+        final SolverFactory factory;
+
+        SolverPool(int size, SolverFactory factory) {
+            this.size = size;
+            this.factory = factory;
+        }
+
+        /**
+         * Closes the idle solvers. A busy Z3 process exits by itself when the JVM exits and closes its input.
+         */
+        void close() {
+            PooledSolver solver;
+            while ((solver = idle.poll()) != null) {
+                solver.close();
+            }
+        }
+    }
+
+    private interface SolverFactory {
+        PooledSolver start() throws IOException, Z3Exception;
+    }
+
+    /**
+     * A solver which is reused across queries. Returns the answer of Z3 to the given query
+     * ("sat", "unsat" or "unknown"), or null if Z3 did not answer.
+     */
+    private interface PooledSolver {
+        String check(String query, int timeout) throws IOException, Z3Exception;
+
+        void close();
+    }
+
+    /**
+     * A solver with its own Z3 context, which is expensive to create. The prelude is parsed once, when the solver
+     * is created: its assertions stay in the base scope of the solver, and the sorts and functions they use are
+     * passed to the parser with each query, as the library does not keep declarations between parses. If a
+     * query uses a symbol of the prelude which cannot be recovered this way (e.g., a macro defined with
+     * define-fun, which the parser expands), the solver goes back to parsing the prelude with each query.
+     */
+    private static final class LibrarySolver implements PooledSolver {
+        private final String prelude;
+        private final com.microsoft.z3.Context context;
+        private final Solver solver;
+        private final Symbol[] sortNames;
+        private final Sort[] sorts;
+        private final Symbol[] declNames;
+        private final FuncDecl[] decls;
+        private boolean preludeParsed = true;
+        private int currentTimeout = -1;
+
+        LibrarySolver(String prelude) throws Z3Exception {
+            this.prelude = prelude;
+            context = new com.microsoft.z3.Context();
+            solver = context.mkSolver();
+            BoolExpr assertions = context.parseSMTLIB2String(prelude, null, null, null, null);
+            solver.add(assertions);
+
+            Map<String, Sort> preludeSorts = new LinkedHashMap<>();
+            Map<String, FuncDecl> preludeDecls = new LinkedHashMap<>();
+            collectDeclarations(assertions, preludeSorts, preludeDecls);
+            sorts = preludeSorts.values().toArray(new Sort[preludeSorts.size()]);
+            sortNames = new Symbol[sorts.length];
+            for (int i = 0; i < sorts.length; i++) {
+                sortNames[i] = sorts[i].getName();
+            }
+            decls = preludeDecls.values().toArray(new FuncDecl[preludeDecls.size()]);
+            declNames = new Symbol[decls.length];
+            for (int i = 0; i < decls.length; i++) {
+                declNames[i] = decls[i].getName();
+            }
+        }
+
+        private void collectDeclarations(Expr expr, Map<String, Sort> sorts, Map<String, FuncDecl> decls) throws Z3Exception {
+            if (expr.getSort() instanceof UninterpretedSort) {
+                sorts.putIfAbsent(expr.getSort().getName().toString(), expr.getSort());
+            }
+            if (expr.isQuantifier()) {
+                collectDeclarations(((Quantifier) expr).getBody(), sorts, decls);
+            } else if (expr.isApp()) {
+                FuncDecl decl = expr.getFuncDecl();
+                if (decl.getDeclKind() == Z3_decl_kind.Z3_OP_UNINTERPRETED) {
+                    decls.putIfAbsent(decl.getName().toString(), decl);
+                }
+                for (Expr argument : expr.getArgs()) {
+                    collectDeclarations(argument, sorts, decls);
+                }
+            }
+        }
+
+        @Override
+        public String check(String query, int timeout) throws Z3Exception {
+            if (timeout != currentTimeout) {
+                Params params = context.mkParams();
+                params.add("timeout", timeout);
+                solver.setParameters(params);
+                currentTimeout = timeout;
+            }
+            solver.push();
+            try {
+                solver.add(parse(query));
+                return solver.check() == Status.UNSATISFIABLE ? "unsat" : "sat";
+            } finally {
+                solver.pop();
+            }
+        }
+
+        private BoolExpr parse(String query) throws Z3Exception {
+            if (!preludeParsed) {
+                return context.parseSMTLIB2String(prelude + query, null, null, null, null);
+            }
+            try {
+                return context.parseSMTLIB2String(query, sortNames, sorts, declNames, decls);
+            } catch (Z3Exception e) {
+                /* rethrows if the query itself is malformed */
+                BoolExpr assertions = context.parseSMTLIB2String(prelude + query, null, null, null, null);
+                preludeParsed = false;
+                return assertions;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                context.dispose();
+            } catch (Exception e) {
+                /* the solver is discarded anyway */
+            }
+        }
+    }
+
+    /**
+     * A long-lived Z3 process which loads the prelude once and checks each query in its own scope.
+     */
+    private static final class ProcessSolver implements PooledSolver {
+        private final boolean debug;
+        private final Process process;
+        private final BufferedWriter input;
+        private final BufferedReader output;
+        private int currentTimeout = -1;
+
+        /**
+         * @param template the process builder of the working directory and environment of the process, which is copied
+         *           as it is shared by the solvers of a pool
+         */
+        ProcessSolver(ProcessBuilder template, String prelude, boolean debug) throws IOException {
+            this.debug = debug;
+            ProcessBuilder pb = new ProcessBuilder(
+                    OS.current().getNativeExecutable("z3"),
+                    "-in",
+                    "-smt2").directory(template.directory());
+            pb.environment().clear();
+            pb.environment().putAll(template.environment());
+            pb.redirectInput(ProcessBuilder.Redirect.PIPE);
+            pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
+            process = pb.start();
+            input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+            output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            input.write(prelude);
+        }
+
+        @Override
+        public String check(String query, int timeout) throws IOException {
+            if (timeout != currentTimeout) {
+                input.write("(set-option :timeout " + timeout + ")\n");
+                currentTimeout = timeout;
+            }
+            input.write("(push)\n" + query + "(check-sat)\n(pop)\n(echo \"" + END_OF_QUERY + "\")\n");
+            input.flush();
+
+            String result = null;
+            String line;
+            while ((line = output.readLine()) != null && !line.equals(END_OF_QUERY)) {
+                if (Z3_QUERY_RESULTS.contains(line)) {
+                    result = line;
+                } else if (debug) {
+                    System.err.println("Z3: " + line);
+                }
+            }
+            if (line == null) {
+                throw new IOException("z3 terminated unexpectedly");
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            process.destroy();
+        }
+    }
+}
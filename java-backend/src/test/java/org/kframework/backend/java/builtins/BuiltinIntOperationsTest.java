@@ -0,0 +1,71 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.kframework.backend.java.kil.TermContext;
+import org.mockito.Mock;
+
+import java.math.BigInteger;
+
+public class BuiltinIntOperationsTest {
+
+    @Mock
+    TermContext context;
+
+    private static final BigInteger[] VALUES = {
+            BigInteger.ZERO,
+            BigInteger.ONE,
+            BigInteger.valueOf(-1),
+            BigInteger.valueOf(65535),
+            BigInteger.valueOf(65536),
+            BigInteger.valueOf(-1025),
+            BigInteger.valueOf(Integer.MAX_VALUE),
+            BigInteger.valueOf(Integer.MIN_VALUE),
+            BigInteger.valueOf(3037000500L),
+            BigInteger.valueOf(Long.MAX_VALUE),
+            BigInteger.valueOf(Long.MIN_VALUE),
+            BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE),
+            BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE),
+            BigInteger.ONE.shiftLeft(100).negate(),
+    };
+
+    @Test
+    public void testArithmeticAgainstBigInteger() {
+        for (BigInteger a : VALUES) {
+            for (BigInteger b : VALUES) {
+                IntToken x = IntToken.of(a);
+                IntToken y = IntToken.of(b);
+                assertEquals(IntToken.of(a.add(b)), BuiltinIntOperations.add(x, y, context));
+                assertEquals(IntToken.of(a.subtract(b)), BuiltinIntOperations.sub(x, y, context));
+                assertEquals(IntToken.of(a.multiply(b)), BuiltinIntOperations.mul(x, y, context));
+                assertEquals(a.compareTo(b) < 0, BuiltinIntOperations.lt(x, y, context).booleanValue());
+                assertEquals(a.equals(b), BuiltinIntOperations.eq(x, y, context).booleanValue());
+                assertEquals(a.add(b), BuiltinIntOperations.add(x, y, context).bigIntegerValue());
+            }
+        }
+    }
+
+    @Test
+    public void testRepresentations() {
+        IntToken small = IntToken.of(42);
+        assertSame(small, IntToken.of(BigInteger.valueOf(42)));
+        assertSame(small, IntToken.of("42"));
+
+        IntToken large = IntToken.of(Long.MAX_VALUE);
+        assertEquals(large, IntToken.of(BigInteger.valueOf(Long.MAX_VALUE)));
+        assertEquals(large.hashCode(), IntToken.of(BigInteger.valueOf(Long.MAX_VALUE)).hashCode());
+        assertTrue(large.isLong());
+
+        IntToken huge = IntToken.of(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE));
+        assertFalse(huge.isLong());
+        assertNotEquals(large, huge);
+        assertEquals("9223372036854775808", huge.javaBackendValue());
+        try {
+            huge.longValue();
+            fail();
+        } catch (ArithmeticException e) {
+        }
+    }
+}
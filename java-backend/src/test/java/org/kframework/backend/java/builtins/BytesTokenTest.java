@@ -0,0 +1,73 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import static org.junit.Assert.*;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+import org.kframework.backend.java.kil.TermContext;
+import org.mockito.Mock;
+
+import java.math.BigInteger;
+
+public class BytesTokenTest {
+
+    @Mock
+    TermContext context;
+
+    private final BytesToken token = BytesToken.of(new byte[] {0, 1, 2, 3, 4, (byte) 0xff});
+
+    @Test
+    public void testSlices() {
+        BytesToken left = token.substr(0, 2);
+        BytesToken right = token.substr(2, 6);
+        assertEquals(BytesToken.of(new byte[] {0, 1}), left);
+        assertEquals(left.hashCode(), BytesToken.of(new byte[] {0, 1}).hashCode());
+        assertEquals(255, right.byteAt(3));
+        assertEquals(token, left.concat(right));
+        assertEquals(BytesToken.of(new byte[] {2, 3, 4, (byte) 0xff, 0, 1}), right.concat(left));
+        assertEquals(0, token.substr(3, 3).length());
+        assertNull(BuiltinBytesOperations.substr(token, IntToken.of(4), IntToken.of(7), context));
+    }
+
+    @Test
+    public void testUpdate() {
+        BytesToken updated = token.substr(1, 3).update(0, 0x80);
+        assertEquals(BytesToken.of(new byte[] {(byte) 0x80, 2}), updated);
+        assertEquals(1, token.byteAt(1));
+        assertEquals(BytesToken.of(new byte[] {1, (byte) 0xff}),
+                BuiltinBytesOperations.update(token.substr(1, 3), IntToken.of(1), IntToken.of(0xff), context));
+        assertNull(BuiltinBytesOperations.update(token, IntToken.of(0), IntToken.of(256), context));
+        assertNull(BuiltinBytesOperations.update(token, IntToken.of(0), IntToken.of(-1), context));
+    }
+
+    @Test
+    public void testIntConversions() {
+        assertEquals(BigInteger.valueOf(0xff), token.substr(5, 6).bigIntegerValue(false));
+        assertEquals(BigInteger.valueOf(-1), token.substr(5, 6).bigIntegerValue(true));
+        assertEquals(BytesToken.of(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xfe}),
+                BytesToken.of(BigInteger.valueOf(-2), 3));
+        assertEquals(BytesToken.of(new byte[] {3, 4}), BytesToken.of(BigInteger.valueOf(0x010304), 2));
+        assertEquals(BytesToken.of(new byte[] {0, 0, 0, 7}),
+                BuiltinBytesOperations.int2bytes(IntToken.of(4), IntToken.of(7), context));
+        assertNull(BuiltinBytesOperations.int2bytes(IntToken.of(-1), IntToken.of(7), context));
+        assertNull(BuiltinBytesOperations.int2bytes(IntToken.of(BuiltinBytesOperations.MAX_INT2BYTES_LENGTH + 1L), IntToken.of(7), context));
+        assertNull(BuiltinBytesOperations.int2bytes(IntToken.of(Long.MAX_VALUE), IntToken.of(7), context));
+    }
+
+    @Test
+    public void testTextualRepresentation() {
+        assertEquals("b\"\\x00\\x01\\x02\\x03\\x04\\xff\"", token.javaBackendValue());
+        assertEquals(token, BytesToken.of(token.javaBackendValue()));
+    }
+
+    @Test
+    public void testDigest() {
+        assertArrayEquals(
+                Hex.decode("c5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470"),
+                BuiltinCryptoOperations.keccak256bytes(token.substr(2, 2), context).bytesValue());
+        assertEquals(
+                BuiltinCryptoOperations.sha256bytes(BytesToken.of(new byte[] {1, 2}), context),
+                BuiltinCryptoOperations.sha256bytes(token.substr(1, 3), context));
+    }
+}
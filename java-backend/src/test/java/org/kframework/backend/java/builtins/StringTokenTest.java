@@ -0,0 +1,122 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+
+public class StringTokenTest {
+
+    @Test
+    public void testUniqueness() throws Exception {
+        StringToken token = StringToken.of("unique" + System.nanoTime());
+        assertSame(token, StringToken.of(new String(token.stringValue())));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(token);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSame(token, in.readObject());
+        }
+    }
+
+    @Test
+    public void testConcatenation() throws Exception {
+        StringToken token = StringToken.of("");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            token = token.concat(StringToken.of("item " + i + "\n"));
+            expected.append("item ").append(i).append("\n");
+        }
+        StringToken flat = StringToken.of(expected.toString());
+        assertEquals(flat, token);
+        assertEquals(token, flat);
+        assertEquals(flat.hashCode(), token.hashCode());
+        assertEquals(expected.length(), token.length());
+        assertSame(StringToken.of("item 5000\n"), token.substr(expected.indexOf("item 5000"), expected.indexOf("item 5001")));
+        assertEquals(flat.substr(1000, 9000), token.substr(1000, 9000));
+        assertEquals(expected.toString(), token.stringValue());
+        // the flattened token no longer has a rope, but behaves the same
+        assertEquals(expected.length(), token.length());
+        assertEquals(flat.substr(1000, 9000), token.substr(1000, 9000));
+        assertEquals(StringToken.of(expected + "end"), token.concat(StringToken.of("end")));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(token);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSame(flat, in.readObject());
+        }
+    }
+
+    @Test
+    public void testSupplementaryCodePoints() {
+        StringToken token = StringToken.of(new String(Character.toChars(0x1F600)));
+        for (int i = 0; i < 10; i++) {
+            token = token.concat(token);
+        }
+        assertEquals(1024, token.length());
+        assertEquals(StringToken.of(new String(Character.toChars(0x1F600))), token.substr(1000, 1001));
+    }
+
+    @Test
+    public void testSharing() {
+        String value = "shared" + System.nanoTime();
+        StringToken token = StringToken.of(value);
+        long hits = StringToken.cacheStats().hitCount();
+        assertSame(token, StringToken.of(new String(value)));
+        assertSame(token, StringToken.of(value.substring(0, 3)).concat(StringToken.of(value.substring(3))));
+        assertTrue(StringToken.cacheStats().hitCount() > hits);
+
+        FloatToken half = FloatToken.of("0.5f");
+        assertSame(half, FloatToken.of("0.5f"));
+        assertSame(half, FloatToken.of(half.bigFloatValue(), half.exponent()));
+        assertNotSame(half, FloatToken.of("0.5d"));
+    }
+
+    @Test
+    public void testUnreachableTokensAreCollected() throws Exception {
+        String value = "collected" + System.nanoTime();
+        WeakReference<StringToken> reference = new WeakReference<>(StringToken.of(value));
+        WeakReference<FloatToken> floatReference = new WeakReference<>(FloatToken.of("0.4375f"));
+        for (int i = 0; i < 100 && (reference.get() != null || floatReference.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        // the cache does not keep the tokens reachable
+        assertNull(reference.get());
+        assertNull(floatReference.get());
+        assertEquals(value, StringToken.of(value).stringValue());
+    }
+
+    @Test
+    public void testSubstrOutOfRange() {
+        StringToken flat = StringToken.of("abc");
+        StringToken rope = StringToken.of("");
+        for (int i = 0; i < 1000; i++) {
+            rope = rope.concat(StringToken.of("x"));
+        }
+        for (StringToken token : new StringToken[] {flat, rope}) {
+            int length = token.length();
+            assertEquals(StringToken.of(""), BuiltinStringOperations.substr(token, IntToken.of(length), IntToken.of(length), null));
+            // a start after the end is not evaluated
+            assertNull(BuiltinStringOperations.substr(token, IntToken.of(2), IntToken.of(1), null));
+            // indices outside of the string are an error
+            for (int[] indices : new int[][] {{-1, 1}, {0, length + 1}, {length + 1, length + 2}}) {
+                try {
+                    BuiltinStringOperations.substr(token, IntToken.of(indices[0]), IntToken.of(indices[1]), null);
+                    fail("expected an exception for " + indices[0] + ", " + indices[1]);
+                } catch (IndexOutOfBoundsException e) {
+                }
+            }
+        }
+    }
+}
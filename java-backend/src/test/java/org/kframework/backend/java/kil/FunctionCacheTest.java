@@ -0,0 +1,66 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.kil.Attribute;
+import org.kframework.kil.Attributes;
+import org.kframework.utils.BaseTestCase;
+import org.mockito.Mock;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class FunctionCacheTest extends BaseTestCase {
+
+    @Mock
+    Definition definition;
+
+    private static final Sort SORT = Sort.of("Foo@FOO");
+
+    private static Attributes attributes(String... keys) {
+        Attributes attributes = new Attributes();
+        for (String key : keys) {
+            attributes.add(Attribute.of(key, ""));
+        }
+        return attributes;
+    }
+
+    @Before
+    public void setUp() {
+        when(definition.signaturesOf(anyString())).thenReturn(Collections.emptySet());
+        when(definition.allSorts()).thenReturn(Collections.singleton(SORT));
+        when(definition.kLabelAttributesOf("foo")).thenReturn(attributes());
+        when(definition.kLabelAttributesOf("memoFoo")).thenReturn(attributes(Attribute.FUNCTION_KEY, Attribute.MEMO_KEY));
+        when(definition.kLabelAttributesOf("impureFoo")).thenReturn(attributes(Attribute.FUNCTION_KEY, Attribute.IMPURE_KEY));
+    }
+
+    private KItem apply(String label, Term... arguments) {
+        return new KItem(KLabelConstant.of(label, definition), KList.concatenate(arguments), SORT, true);
+    }
+
+    @Test
+    public void testCacheableResults() {
+        KItem application = apply("memoFoo");
+        assertTrue(KItem.KItemOperations.isCacheable(application, apply("foo"), false));
+        assertFalse(KItem.KItemOperations.isCacheable(application, application, false));
+        assertFalse(KItem.KItemOperations.isCacheable(application, new Variable("X", SORT), false));
+    }
+
+    @Test
+    public void testImpureResultNotCached() {
+        KItem application = apply("memoFoo");
+        /* the memo function returned a call to an impure function which could not be evaluated yet */
+        assertFalse(KItem.KItemOperations.isCacheable(application, apply("impureFoo"), false));
+        assertFalse(KItem.KItemOperations.isCacheable(application, apply("foo", apply("impureFoo")), false));
+    }
+
+    @Test
+    public void testFreshResultNotCached() {
+        KItem application = apply("memoFoo");
+        /* the memo function generated a fresh constant, which the next call must not return again */
+        assertFalse(KItem.KItemOperations.isCacheable(application, apply("foo"), true));
+    }
+}
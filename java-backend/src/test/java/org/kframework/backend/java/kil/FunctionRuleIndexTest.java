@@ -0,0 +1,132 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.kil.Attribute;
+import org.kframework.kil.Attributes;
+import org.kframework.utils.BaseTestCase;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class FunctionRuleIndexTest extends BaseTestCase {
+
+    @Mock
+    Definition definition;
+
+    private static final Sort SORT = Sort.of("Foo@FOO");
+
+    private List<Rule> rules;
+    private FunctionRuleIndex index;
+
+    private static Attributes attributes(String... keys) {
+        Attributes attributes = new Attributes();
+        for (String key : keys) {
+            attributes.add(Attribute.of(key, ""));
+        }
+        return attributes;
+    }
+
+    @Before
+    public void setUp() {
+        when(definition.signaturesOf(anyString())).thenReturn(Collections.emptySet());
+        when(definition.allSorts()).thenReturn(Collections.singleton(SORT));
+        when(definition.kLabelAttributesOf("f")).thenReturn(attributes(Attribute.FUNCTION_KEY));
+        when(definition.kLabelAttributesOf("g")).thenReturn(attributes());
+        when(definition.kLabelAttributesOf("h")).thenReturn(attributes());
+        when(definition.kLabelAttributesOf("k")).thenReturn(attributes());
+
+        rules = Arrays.asList(
+                rule(f(IntToken.of(0), variable("X"))),
+                rule(f(IntToken.of(1), variable("X"))),
+                rule(f(variable("X"), apply("g", variable("Y")))),
+                rule(f(variable("X"), apply("h"))),
+                rule(f(variable("X"), variable("Y"))),
+                rule(variable("F")));
+        index = new FunctionRuleIndex(rules);
+    }
+
+    private KItem apply(String label, Term... arguments) {
+        return new KItem(KLabelConstant.of(label, definition), KList.concatenate(arguments), SORT, true);
+    }
+
+    private KItem f(Term... arguments) {
+        return apply("f", arguments);
+    }
+
+    private static Variable variable(String name) {
+        return new Variable(name, SORT);
+    }
+
+    private static Rule rule(Term leftHandSide) {
+        Rule rule = mock(Rule.class);
+        when(rule.leftHandSide()).thenReturn(leftHandSide);
+        return rule;
+    }
+
+    /**
+     * The rules tried before the index: all of them, in definition order, filtered by the condition the index
+     * is documented to check.
+     */
+    private List<Rule> linearScan(KItem subject) {
+        return rules.stream().filter(rule -> mayMatch(rule.leftHandSide(), subject)).collect(Collectors.toList());
+    }
+
+    private static boolean mayMatch(Term pattern, KItem subject) {
+        if (!(pattern instanceof KItem)) {
+            return true;
+        }
+        List<Term> patternArguments = ((KList) ((KItem) pattern).kList()).getContents();
+        List<Term> subjectArguments = ((KList) subject.kList()).getContents();
+        for (int i = 0; i < patternArguments.size(); ++i) {
+            Object patternSymbol = symbol(patternArguments.get(i));
+            Object subjectSymbol = symbol(subjectArguments.get(i));
+            if (patternSymbol != null && subjectSymbol != null && !patternSymbol.equals(subjectSymbol)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object symbol(Term term) {
+        if (term instanceof Token) {
+            return term;
+        }
+        return term instanceof KItem ? ((KItem) term).kLabel() : null;
+    }
+
+    @Test
+    public void testSameRulesAsLinearScan() {
+        for (KItem subject : Arrays.asList(
+                f(IntToken.of(0), apply("g", IntToken.of(1))),
+                f(IntToken.of(1), apply("h")),
+                f(IntToken.of(2), apply("k")),
+                f(variable("V"), apply("h")),
+                f(IntToken.of(0), variable("V")),
+                f(variable("V"), variable("W")))) {
+            assertEquals(linearScan(subject), index.candidateRules(subject));
+        }
+    }
+
+    @Test
+    public void testCandidates() {
+        assertEquals(Arrays.asList(rules.get(0), rules.get(2), rules.get(4), rules.get(5)),
+                index.candidateRules(f(IntToken.of(0), apply("g", IntToken.of(1)))));
+        /* only the rules with a variable in both positions, including the one with a variable left-hand side */
+        assertEquals(Arrays.asList(rules.get(4), rules.get(5)),
+                index.candidateRules(f(IntToken.of(2), apply("k"))));
+    }
+
+    @Test
+    public void testOtherArityGetsAllRules() {
+        assertEquals(rules, index.candidateRules(f(IntToken.of(0))));
+    }
+}
@@ -0,0 +1,165 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.symbolic.SymbolicRewriter;
+import org.kframework.kil.Attribute;
+import org.kframework.kil.Attributes;
+import org.kframework.utils.BaseTestCase;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class TermShapeIndexTest extends BaseTestCase {
+
+    @Mock
+    Definition definition;
+
+    private static final Sort SORT = Sort.of("Foo@FOO");
+
+    private List<Rule> rules;
+    private TermShapeIndex<Rule> index;
+
+    private static Attributes attributes(String... keys) {
+        Attributes attributes = new Attributes();
+        for (String key : keys) {
+            attributes.add(Attribute.of(key, ""));
+        }
+        return attributes;
+    }
+
+    @Before
+    public void setUp() {
+        when(definition.signaturesOf(anyString())).thenReturn(Collections.emptySet());
+        when(definition.allSorts()).thenReturn(Collections.singleton(SORT));
+        when(definition.kLabelAttributesOf("c")).thenReturn(attributes());
+        when(definition.kLabelAttributesOf("d")).thenReturn(attributes());
+        when(definition.kLabelAttributesOf("g")).thenReturn(attributes());
+        when(definition.kLabelAttributesOf("f")).thenReturn(attributes(Attribute.FUNCTION_KEY));
+
+        rules = Arrays.asList(
+                rule(apply("c", IntToken.of(0), variable("X"))),
+                rule(apply("c", IntToken.of(1), variable("X"))),
+                rule(apply("c", variable("X"), apply("g", variable("Y")))),
+                /* a symbol with another arity than the first pattern it heads */
+                rule(apply("c", variable("X"), apply("g", variable("Y"), variable("Z")))),
+                rule(apply("c", variable("X"), apply("f", variable("Y")))),
+                rule(variable("S")),
+                rule(kSequence(apply("c", IntToken.of(0), apply("g", variable("Y"))), new Variable("R", Sort.KSEQUENCE))),
+                rule(apply("d", IntToken.of(0))),
+                rule(apply("c", variable("X"), variable("Y"))));
+        index = SymbolicRewriter.specRuleIndex(rules);
+    }
+
+    private KItem apply(String label, Term... arguments) {
+        return new KItem(KLabelConstant.of(label, definition), KList.concatenate(arguments), SORT, true);
+    }
+
+    private static KSequence kSequence(Term... terms) {
+        KSequence.Builder builder = KSequence.builder();
+        for (Term term : terms) {
+            builder.concatenate(term);
+        }
+        return (KSequence) builder.build();
+    }
+
+    private static Variable variable(String name) {
+        return new Variable(name, SORT);
+    }
+
+    private static Rule rule(Term leftHandSide) {
+        Rule rule = mock(Rule.class);
+        when(rule.leftHandSide()).thenReturn(leftHandSide);
+        return rule;
+    }
+
+    /**
+     * The rules tried by the prover before the index: all of them, in specification order, filtered by the
+     * condition the index is documented to check.
+     */
+    private List<Rule> linearScan(Term subject) {
+        return rules.stream().filter(rule -> mayMatch(rule.leftHandSide(), subject)).collect(Collectors.toList());
+    }
+
+    private static boolean mayMatch(Term pattern, Term subject) {
+        pattern = head(pattern);
+        subject = head(subject);
+        Object patternSymbol = symbol(pattern);
+        Object subjectSymbol = symbol(subject);
+        if (patternSymbol == null || subjectSymbol == null) {
+            return true;
+        }
+        if (!patternSymbol.equals(subjectSymbol)) {
+            return false;
+        }
+        List<Term> patternArguments = arguments(pattern);
+        List<Term> subjectArguments = arguments(subject);
+        if (patternArguments.size() != subjectArguments.size()) {
+            return true;
+        }
+        for (int i = 0; i < patternArguments.size(); ++i) {
+            if (!mayMatch(patternArguments.get(i), subjectArguments.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Term head(Term term) {
+        return term instanceof KSequence ? ((KSequence) term).get(0) : term;
+    }
+
+    private static Object symbol(Term term) {
+        if (term instanceof Token) {
+            return term;
+        }
+        if (term instanceof KItem && !((KLabelConstant) ((KItem) term).kLabel()).isFunction()) {
+            return ((KItem) term).kLabel();
+        }
+        return null;
+    }
+
+    private static List<Term> arguments(Term term) {
+        return ((KList) ((KItem) term).kList()).getContents();
+    }
+
+    @Test
+    public void testSameRulesAsLinearScan() {
+        for (Term subject : Arrays.asList(
+                apply("c", IntToken.of(0), apply("g", IntToken.of(1))),
+                apply("c", IntToken.of(1), apply("g", IntToken.of(2), IntToken.of(3))),
+                apply("c", IntToken.of(2), apply("d", IntToken.of(0))),
+                apply("c", variable("V"), apply("g", IntToken.of(1))),
+                apply("c", IntToken.of(0), variable("V")),
+                apply("c", IntToken.of(0), apply("f", IntToken.of(1))),
+                kSequence(apply("c", IntToken.of(1), apply("g", IntToken.of(0))), new Variable("K", Sort.KSEQUENCE)),
+                apply("d", IntToken.of(0)),
+                apply("d", IntToken.of(1)),
+                apply("f", IntToken.of(0)),
+                variable("V"))) {
+            assertEquals(subject.toString(), linearScan(subject), index.candidates(subject));
+        }
+    }
+
+    @Test
+    public void testCandidates() {
+        /* the rule with a variable left-hand side is a candidate for every term */
+        assertEquals(Arrays.asList(rules.get(3), rules.get(4), rules.get(5), rules.get(8)),
+                index.candidates(apply("c", IntToken.of(2), apply("d", IntToken.of(0)))));
+        assertEquals(Collections.singletonList(rules.get(5)), index.candidates(apply("d", IntToken.of(1))));
+        /* a K sequence is indexed by its first element */
+        assertEquals(Arrays.asList(rules.get(0), rules.get(2), rules.get(3), rules.get(4), rules.get(5), rules.get(6), rules.get(8)),
+                index.candidates(kSequence(apply("c", IntToken.of(0), apply("g", IntToken.of(1))), new Variable("K", Sort.KSEQUENCE))));
+        /* a variable or a function may become any term */
+        assertEquals(rules, index.candidates(variable("V")));
+        assertEquals(rules, index.candidates(apply("f", IntToken.of(0))));
+    }
+}
@@ -0,0 +1,118 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.Sort;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.Z3Wrapper;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.options.SMTOptions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SMTOperationsTest {
+
+    private static final Variable X = new Variable("X", Sort.INT);
+    private static final Variable Y = new Variable("Y", Sort.INT);
+    private static final Variable A = new Variable("A", Sort.INT);
+    private static final Variable B = new Variable("B", Sort.INT);
+
+    /**
+     * Returns operations whose implication checks are answered syntactically, as the solver is not available:
+     * an implication holds if the equalities of its right-hand side are among the ones of its left-hand side.
+     * This answer does not depend on the names of the variables, as the answers of the solver.
+     */
+    private static SMTOperations operations(int cacheSize) {
+        SMTOptions options = new SMTOptions();
+        options.smtCacheSize = cacheSize;
+        SMTOperations operations = spy(new SMTOperations(() -> null, options, mock(Z3Wrapper.class), null, new GlobalOptions()));
+        doAnswer(invocation -> {
+            ConjunctiveFormula left = (ConjunctiveFormula) invocation.getArguments()[0];
+            ConjunctiveFormula right = (ConjunctiveFormula) invocation.getArguments()[1];
+            return left.equalities().containsAll(right.equalities());
+        }).when(operations).checkImplication(any(ConjunctiveFormula.class), any(ConjunctiveFormula.class), anySetOf(Variable.class));
+        return operations;
+    }
+
+    private static ConjunctiveFormula formula(Term... sides) {
+        ConjunctiveFormula formula = ConjunctiveFormula.of((GlobalContext) null);
+        for (int i = 0; i < sides.length; i += 2) {
+            formula = formula.add(sides[i], sides[i + 1]);
+        }
+        return formula;
+    }
+
+    private static final class Implication {
+        final ConjunctiveFormula left;
+        final ConjunctiveFormula right;
+        final Set<Variable> rightOnlyVariables;
+
+        Implication(ConjunctiveFormula left, ConjunctiveFormula right, Set<Variable> rightOnlyVariables) {
+            this.left = left;
+            this.right = right;
+            this.rightOnlyVariables = rightOnlyVariables;
+        }
+
+        boolean check(SMTOperations operations) {
+            return operations.impliesSMT(left, right, rightOnlyVariables);
+        }
+    }
+
+    @Test
+    public void testRenamedImplicationsShareEntry() {
+        SMTOperations operations = operations(100);
+        assertTrue(operations.impliesSMT(formula(X, IntToken.of(1), Y, X), formula(X, IntToken.of(1)), Collections.emptySet()));
+        assertTrue(operations.impliesSMT(formula(A, IntToken.of(1), B, A), formula(A, IntToken.of(1)), Collections.emptySet()));
+        verify(operations, times(1)).checkImplication(any(ConjunctiveFormula.class), any(ConjunctiveFormula.class), anySetOf(Variable.class));
+        assertEquals(1, operations.implicationCacheStats().hitCount());
+        assertEquals(1, operations.implicationCacheStats().missCount());
+    }
+
+    @Test
+    public void testRenamingIsBijective() {
+        SMTOperations operations = operations(100);
+        /* X = Y and A = A are not renamings of each other */
+        assertFalse(operations.impliesSMT(formula(X, IntToken.of(1)), formula(X, Y), ImmutableSet.of(Y)));
+        assertTrue(operations.impliesSMT(formula(A, A), formula(A, A), Collections.emptySet()));
+        assertEquals(0, operations.implicationCacheStats().hitCount());
+        /* the variables only on the right-hand side are part of the key */
+        operations.impliesSMT(formula(X, IntToken.of(1)), formula(X, Y), Collections.emptySet());
+        assertEquals(0, operations.implicationCacheStats().hitCount());
+    }
+
+    @Test
+    public void testSameResultsAsWithoutCache() {
+        List<Implication> implications = Arrays.asList(
+                new Implication(formula(X, IntToken.of(1)), formula(X, IntToken.of(1)), Collections.emptySet()),
+                new Implication(formula(A, IntToken.of(1)), formula(A, IntToken.of(1)), Collections.emptySet()),
+                new Implication(formula(A, IntToken.of(1)), formula(A, IntToken.of(2)), Collections.emptySet()),
+                new Implication(formula(X, IntToken.of(1)), formula(X, IntToken.of(2)), Collections.emptySet()),
+                new Implication(formula(X, Y, Y, IntToken.of(0)), formula(Y, IntToken.of(0)), Collections.emptySet()),
+                new Implication(formula(B, A, A, IntToken.of(0)), formula(A, IntToken.of(0)), Collections.emptySet()),
+                new Implication(formula(B, A, A, IntToken.of(0)), formula(B, IntToken.of(0)), Collections.emptySet()),
+                new Implication(formula(X, IntToken.of(1)), formula(X, Y), ImmutableSet.of(Y)),
+                new Implication(formula(A, IntToken.of(1)), formula(A, B), ImmutableSet.of(B)));
+
+        SMTOperations cached = operations(100);
+        SMTOperations uncached = operations(0);
+        SMTOperations evicting = operations(1);
+        for (Implication implication : implications) {
+            boolean expected = implication.check(uncached);
+            assertEquals(expected, implication.check(cached));
+            assertEquals(expected, implication.check(evicting));
+        }
+        assertNull(uncached.implicationCacheStats());
+        assertEquals(4, cached.implicationCacheStats().hitCount());
+        assertTrue(evicting.implicationCacheStats().evictionCount() > 0);
+    }
+}
@@ -0,0 +1,76 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.attributes.Location;
+import org.kframework.attributes.Source;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CoverageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static org.kframework.backend.java.kil.Rule rule(int line) {
+        org.kframework.backend.java.kil.Rule rule = mock(org.kframework.backend.java.kil.Rule.class);
+        when(rule.getSource()).thenReturn(Source.apply("test.k"));
+        when(rule.getLocation()).thenReturn(new Location(line, 1, line, 10));
+        return rule;
+    }
+
+    @Test
+    public void testAggregate() throws Exception {
+        File file = folder.newFile("coverage.bin");
+        org.kframework.backend.java.kil.Rule first = rule(1);
+        org.kframework.backend.java.kil.Rule second = rule(2);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100000; j++) {
+                    Coverage.print(file, first);
+                    if (j % 4 == 0) {
+                        Coverage.print(file, second);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Coverage.flush();
+
+        Map<String, Long> counts = Coverage.aggregate(file);
+        String firstLocation = Source.apply("test.k") + ":" + new Location(1, 1, 1, 10);
+        assertEquals(2, counts.size());
+        assertEquals(Long.valueOf(400000), counts.get(firstLocation));
+        assertEquals(Long.valueOf(100000), counts.get(Source.apply("test.k") + ":" + new Location(2, 1, 2, 10)));
+        assertEquals(firstLocation, counts.keySet().iterator().next());
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        File file = folder.newFile("appended.bin");
+        org.kframework.backend.java.kil.Rule first = rule(1);
+        org.kframework.backend.java.kil.Rule second = rule(2);
+        Coverage.print(file, first);
+        Coverage.print(file, second);
+        Coverage.close(file);
+        // the second run defines the ids anew, in a different order
+        Coverage.print(file, second);
+        Coverage.print(file, second);
+        Coverage.print(file, first);
+        Coverage.close(file);
+
+        Map<String, Long> counts = Coverage.aggregate(file);
+        assertEquals(Long.valueOf(2), counts.get(Source.apply("test.k") + ":" + new Location(1, 1, 1, 10)));
+        assertEquals(Long.valueOf(3), counts.get(Source.apply("test.k") + ":" + new Location(2, 1, 2, 10)));
+    }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentHashMapTest {
+
+    /**
+     * A key with a configurable hash code, used to force hash collisions.
+     */
+    private static final class Key {
+        private final int id;
+        private final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Key && ((Key) object).id == id;
+        }
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(42);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer, Integer> actual = PersistentHashMap.empty();
+        for (int i = 0; i < 10000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                actual = actual.minus(key);
+            } else {
+                expected.put(key, i);
+                actual = actual.plus(key, i);
+            }
+        }
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        assertEquals(expected.hashCode(), actual.hashCode());
+        assertEquals(expected.size(), actual.entrySet().stream().count());
+    }
+
+    @Test
+    public void testPersistence() {
+        PersistentHashMap<Integer, String> map = PersistentHashMap.<Integer, String>empty().plus(1, "a").plus(2, "b");
+        PersistentHashMap<Integer, String> updated = map.plus(1, "c").minus(2);
+        assertEquals("a", map.get(1));
+        assertEquals("b", map.get(2));
+        assertEquals("c", updated.get(1));
+        assertFalse(updated.containsKey(2));
+        assertSame(map, map.plus(1, "a"));
+        assertSame(map, map.minus(3));
+    }
+
+    @Test
+    public void testCollisions() {
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.plus(new Key(i, i % 2), i);
+        }
+        assertEquals(10, map.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Integer.valueOf(i), map.get(new Key(i, i % 2)));
+        }
+        for (int i = 0; i < 9; i++) {
+            map = map.minus(new Key(i, i % 2));
+        }
+        assertEquals(1, map.size());
+        assertEquals(Integer.valueOf(9), map.get(new Key(9, 1)));
+        assertEquals(PersistentHashMap.<Key, Integer>empty().plus(new Key(9, 1), 9), map);
+    }
+}
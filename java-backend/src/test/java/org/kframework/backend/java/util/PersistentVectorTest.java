@@ -0,0 +1,92 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class PersistentVectorTest {
+
+    @Test
+    public void testAgainstArrayList() {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<>();
+        PersistentVector<Integer> actual = PersistentVector.empty();
+        for (int i = 0; i < 5000; i++) {
+            switch (random.nextInt(6)) {
+            case 0:
+                expected.add(i);
+                actual = actual.append(i);
+                break;
+            case 1:
+                expected.add(0, i);
+                actual = actual.prepend(i);
+                break;
+            case 2:
+                if (!expected.isEmpty()) {
+                    int index = random.nextInt(expected.size());
+                    expected.set(index, i);
+                    actual = actual.with(index, i);
+                }
+                break;
+            case 3:
+                int begin = expected.isEmpty() ? 0 : random.nextInt(expected.size());
+                int end = begin + random.nextInt(expected.size() - begin + 1);
+                assertEquals(expected.subList(begin, end), actual.subList(begin, end));
+                break;
+            case 4:
+                List<Integer> suffix = new ArrayList<>();
+                for (int j = random.nextInt(100); j > 0; j--) {
+                    suffix.add(random.nextInt());
+                }
+                expected.addAll(suffix);
+                actual = actual.concat(PersistentVector.from(suffix));
+                break;
+            default:
+                if (expected.size() > 2) {
+                    int from = random.nextInt(expected.size() / 2);
+                    expected = new ArrayList<>(expected.subList(from, expected.size() - from));
+                    actual = actual.subList(from, actual.size() - from);
+                }
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        assertEquals(expected.hashCode(), actual.hashCode());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void testPersistence() {
+        PersistentVector<String> vector = PersistentVector.from(Arrays.asList("a", "b", "c"));
+        PersistentVector<String> updated = vector.with(1, "d").append("e");
+        assertEquals(Arrays.asList("a", "b", "c"), vector);
+        assertEquals(Arrays.asList("a", "d", "c", "e"), updated);
+        assertEquals(Arrays.asList("b", "c"), vector.subList(1, 3));
+        assertSame(vector, vector.subList(0, 3));
+    }
+
+    @Test
+    public void testLargeConcatenation() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(i);
+            vector = vector.concat(PersistentVector.of(i));
+        }
+        for (int i = 0; i < 10; i++) {
+            vector = vector.concat(vector);
+            expected.addAll(new ArrayList<>(expected));
+        }
+        assertEquals(expected, vector);
+        assertEquals(expected.hashCode(), vector.hashCode());
+    }
+}
@@ -0,0 +1,69 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import com.google.common.cache.CacheStats;
+import org.junit.Test;
+import org.kframework.attributes.Source;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.kframework.builtin.Sorts;
+import org.kframework.frontend.K;
+import org.kframework.main.GlobalOptions;
+import org.kframework.rewriter.Rewriter;
+import org.kframework.utils.KoreUtils;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ * Evaluates [memo] functions through the function cache of the rewriter, and compares the results with those
+ * of the same functions evaluated without the cache.
+ */
+public class FunctionCacheIntegrationTest {
+
+    private static final String PGM = "run 3";
+
+    private final KoreUtils utils;
+    private final K pgm;
+
+    public FunctionCacheIntegrationTest() throws Exception {
+        utils = new KoreUtils("/compiler-tests/memo.k", "MEMO", "MEMO-SYNTAX", false, Sorts.K(), false, false,
+                new KExceptionManager(new GlobalOptions()));
+        pgm = utils.getParsed(PGM, Source.apply("generated by " + getClass().getSimpleName()));
+    }
+
+    private Rewriter rewriter(int functionCacheSize) {
+        utils.krunOptions.experimental.functionCacheSize = functionCacheSize;
+        return utils.getRewriter();
+    }
+
+    private static CacheStats stats(Rewriter rewriter) {
+        return ((InitializeRewriter.SymbolicRewriterGlue) rewriter).rewritingContext.kItemOps.functionCacheStats();
+    }
+
+    @Test
+    public void testSameResultsAsWithoutCache() {
+        Rewriter uncached = rewriter(0);
+        K expected = uncached.execute(pgm, Optional.empty()).k();
+        assertNull(stats(uncached));
+
+        Rewriter cached = rewriter(10000);
+        assertEquals(expected, cached.execute(pgm, Optional.empty()).k());
+        /*
+         * square(3) and double(3) are remembered after the first step; tag(3) generates a fresh constant, so if it
+         * were remembered, the three items it adds would be equal instead of the ones without the cache
+         */
+        assertTrue(stats(cached).hitCount() >= 4);
+    }
+
+    @Test
+    public void testSameResultsAfterEviction() {
+        K expected = rewriter(0).execute(pgm, Optional.empty()).k();
+
+        /* square(3) and double(3) evict each other */
+        Rewriter cached = rewriter(1);
+        assertEquals(expected, cached.execute(pgm, Optional.empty()).k());
+        assertTrue(stats(cached).evictionCount() > 0);
+    }
+}
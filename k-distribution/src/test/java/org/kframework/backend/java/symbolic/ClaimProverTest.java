@@ -0,0 +1,122 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.junit.Test;
+import org.kframework.attributes.Source;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.builtin.Sorts;
+import org.kframework.frontend.K;
+import org.kframework.main.GlobalOptions;
+import org.kframework.rewriter.ProofStrategy;
+import org.kframework.rewriter.Rewriter;
+import org.kframework.utils.KoreUtils;
+import org.kframework.utils.Stopwatch;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ClaimProverTest {
+
+    private static KoreUtils utils(String definition, String mainModule) throws Exception {
+        return new KoreUtils(definition, mainModule, mainModule + "-SYNTAX", false, Sorts.K(), false, false,
+                new KExceptionManager(new GlobalOptions()));
+    }
+
+    /**
+     * Proves the claims of the given specification as {@code krun --prove} does, returning the remaining states.
+     */
+    private static List<K> prove(KoreUtils utils, K pgm, String spec, Rewriter rewriter) throws Exception {
+        utils.krunOptions.experimental.prove = new File(ClaimProverTest.class.getResource(spec).toURI()).getAbsolutePath();
+        GlobalOptions globalOptions = new GlobalOptions();
+        return new ProofExecutionMode(utils.kem, utils.krunOptions, new Stopwatch(globalOptions), FileUtil.testFileUtil(), globalOptions)
+                .execute(pgm, rewriter, utils.compiledDef);
+    }
+
+    private static List<ClaimProver.Result> claimResults(Rewriter rewriter) {
+        return ((InitializeRewriter.SymbolicRewriterGlue) rewriter).claimResults;
+    }
+
+    @Test
+    public void testSameResultsInClaimOrder() throws Exception {
+        KoreUtils utils = utils("/compiler-tests/prove.k", "PROVE");
+        K pgm = utils.getParsed("count 0", Source.apply("generated by " + getClass().getSimpleName()));
+        int variables = Variable.getCounter();
+
+        utils.krunOptions.experimental.proveThreads = 1;
+        List<K> sequential = prove(utils, pgm, "/compiler-tests/prove-spec.k", utils.getRewriter());
+        // one remaining state for the second and the last claims, two for the third one
+        assertEquals(4, sequential.size());
+        utils.krunOptions.experimental.proveThreads = 4;
+        for (int i = 0; i < 3; i++) {
+            Variable.setCounter(variables);
+            assertEquals(sequential, prove(utils, pgm, "/compiler-tests/prove-spec.k", utils.getRewriter()));
+        }
+    }
+
+    @Test
+    public void testPruneSubsumedStates() throws Exception {
+        KoreUtils utils = utils("/compiler-tests/subsume.k", "SUBSUME");
+        K pgm = utils.getParsed("done", Source.apply("generated by " + getClass().getSimpleName()));
+        int variables = Variable.getCounter();
+
+        utils.krunOptions.experimental.pruneSubsumed = false;
+        Rewriter unprunedRewriter = utils.getRewriter();
+        List<K> unpruned = prove(utils, pgm, "/compiler-tests/subsume-spec.k", unprunedRewriter);
+        Variable.setCounter(variables);
+        utils.krunOptions.experimental.pruneSubsumed = true;
+        Rewriter prunedRewriter = utils.getRewriter();
+        List<K> pruned = prove(utils, pgm, "/compiler-tests/subsume-spec.k", prunedRewriter);
+
+        // the first claim is proven, the second one fails on the single final state
+        assertEquals(unpruned, pruned);
+        assertEquals(1, pruned.size());
+        assertTrue(claimResults(prunedRewriter).get(0).remaining.isEmpty());
+
+        // run(3) is an instance of the visited run(?V), so it is pruned instead of visited
+        for (int i = 0; i < 2; i++) {
+            ClaimProver.Result withoutPruning = claimResults(unprunedRewriter).get(i);
+            ClaimProver.Result withPruning = claimResults(prunedRewriter).get(i);
+            assertEquals(0, withoutPruning.pruned);
+            assertEquals(5, withoutPruning.states);
+            assertEquals(1, withPruning.pruned);
+            assertEquals(4, withPruning.states);
+        }
+    }
+
+    @Test
+    public void testSameVerdictWithEveryStrategy() throws Exception {
+        for (String[] definition : new String[][] {{"/compiler-tests/prove.k", "PROVE", "count 0"}, {"/compiler-tests/subsume.k", "SUBSUME", "done"}}) {
+            KoreUtils utils = utils(definition[0], definition[1]);
+            K pgm = utils.getParsed(definition[2], Source.apply("generated by " + getClass().getSimpleName()));
+            String spec = definition[0].replace(".k", "-spec.k");
+            int variables = Variable.getCounter();
+
+            utils.krunOptions.experimental.proofStrategy = ProofStrategy.BFS;
+            Rewriter bfs = utils.getRewriter();
+            prove(utils, pgm, spec, bfs);
+            for (ProofStrategy strategy : ProofStrategy.values()) {
+                Variable.setCounter(variables);
+                utils.krunOptions.experimental.proofStrategy = strategy;
+                Rewriter rewriter = utils.getRewriter();
+                prove(utils, pgm, spec, rewriter);
+
+                // the final states of a claim may be reached in another order
+                assertEquals(definition[0] + " " + strategy, claimResults(bfs).size(), claimResults(rewriter).size());
+                for (int i = 0; i < claimResults(bfs).size(); i++) {
+                    assertEquals(definition[0] + " " + strategy, remaining(claimResults(bfs).get(i)), remaining(claimResults(rewriter).get(i)));
+                }
+            }
+        }
+    }
+
+    private static Set<ConstrainedTerm> remaining(ClaimProver.Result result) {
+        return result.remaining.stream().collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,61 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.junit.Test;
+import org.kframework.attributes.Source;
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.debugger.DebuggerState;
+import org.kframework.debugger.KoreKDebug;
+import org.kframework.frontend.K;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.KoreUtils;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JavaRewriterStateTest {
+
+    private static final int STEPS = 6;
+
+    private static ConstrainedTerm constrainedTerm(DebuggerState state) {
+        return ((JavaRewriterState) state.getCurrentState()).constrainedTerm();
+    }
+
+    private static void assertReplayed(DebuggerState original, DebuggerState replayed) {
+        assertEquals(original.getStepNum(), replayed.getStepNum());
+        assertEquals(constrainedTerm(original).term(), constrainedTerm(replayed).term());
+        assertEquals(constrainedTerm(original).termContext().getCounterValue(), constrainedTerm(replayed).termContext().getCounterValue());
+        assertEquals(original.getCurrentK(), replayed.getCurrentK());
+    }
+
+    @Test
+    public void testReplayReachesSameConfigurations() throws Exception {
+        KoreUtils utils = new KoreUtils("/compiler-tests/fresh.k", "FRESH", "FRESH-SYNTAX", new KExceptionManager(new GlobalOptions()));
+        K pgm = utils.getParsed("gen 8", Source.apply("generated by " + getClass().getSimpleName()));
+
+        // the configurations of an execution stepped one step at a time
+        KoreKDebug stepping = new KoreKDebug(pgm, utils.getRewriter(), 2, null, null, null, null);
+        List<DebuggerState> original = new ArrayList<>();
+        original.add(stepping.getActiveState());
+        for (int i = 1; i <= STEPS; i++) {
+            original.add(stepping.step(0, 1));
+        }
+        // every step generates fresh constants
+        for (int i = 1; i <= STEPS; i++) {
+            assertTrue(constrainedTerm(original.get(i)).termContext().getCounterValue()
+                    .compareTo(constrainedTerm(original.get(i - 1)).termContext().getCounterValue()) > 0);
+        }
+
+        // the same execution, with checkpoints at steps 2, 4 and 6
+        KoreKDebug debugger = new KoreKDebug(pgm, utils.getRewriter(), 2, null, null, null, null);
+        assertReplayed(original.get(STEPS), debugger.step(0, STEPS));
+        assertReplayed(original.get(STEPS - 3), debugger.backStep(0, 3));
+        assertReplayed(original.get(1), debugger.jumpTo(0, 1));
+        assertReplayed(original.get(5), debugger.jumpTo(0, 5));
+        assertReplayed(original.get(0), debugger.jumpTo(0, 0));
+        assertReplayed(original.get(STEPS), debugger.jumpTo(0, STEPS));
+    }
+}
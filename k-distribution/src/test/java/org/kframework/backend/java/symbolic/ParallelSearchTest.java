@@ -0,0 +1,107 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.junit.Test;
+import org.kframework.attributes.Source;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.backend.java.util.Coverage;
+import org.kframework.builtin.BooleanUtils;
+import org.kframework.builtin.KLabels;
+import org.kframework.builtin.Sorts;
+import org.kframework.definition.Rule;
+import org.kframework.frontend.Assoc;
+import org.kframework.frontend.K;
+import org.kframework.frontend.KApply;
+import org.kframework.frontend.KORE;
+import org.kframework.main.GlobalOptions;
+import org.kframework.rewriter.Rewriter;
+import org.kframework.rewriter.SearchType;
+import org.kframework.utils.KoreUtils;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class ParallelSearchTest {
+
+    @Test
+    public void testSameResultsWithFreshValues() throws Exception {
+        KoreUtils utils = new KoreUtils("/compiler-tests/fresh.k", "FRESH", "FRESH-SYNTAX", true, Sorts.K(), false, false,
+                new KExceptionManager(new GlobalOptions()));
+        K pgm = utils.getParsed("gen 4", Source.apply("generated by " + getClass().getSimpleName()));
+        int variables = Variable.getCounter();
+
+        utils.krunOptions.experimental.searchThreads = 1;
+        K sequential = search(utils, pgm);
+        Variable.setCounter(variables);
+        utils.krunOptions.experimental.searchThreads = 4;
+        K parallel = search(utils, pgm);
+
+        assertEquals(16, Assoc.flatten(KORE.KLabel(KLabels.ML_OR), ((KApply) sequential).klist().items(), KORE.KLabel(KLabels.ML_FALSE)).size());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testEachTermRewrittenOnce() throws Exception {
+        KoreUtils utils = new KoreUtils("/compiler-tests/branch.k", "BRANCH", "BRANCH-SYNTAX", true, Sorts.K(), false, false,
+                new KExceptionManager(new GlobalOptions()));
+        K pgm = utils.getParsed("branch 4", Source.apply("generated by " + getClass().getSimpleName()));
+        int variables = Variable.getCounter();
+
+        utils.krunOptions.experimental.searchThreads = 1;
+        Rewriter sequentialRewriter = utils.getRewriter();
+        K sequential = search(sequentialRewriter, pgm);
+        Variable.setCounter(variables);
+        utils.krunOptions.experimental.searchThreads = 4;
+        Rewriter parallelRewriter = utils.getRewriter();
+        K parallel = search(parallelRewriter, pgm);
+
+        assertEquals(sequential, parallel);
+        // the levels of the search have 1, 2, 3, 4 and 5 distinct states
+        assertEquals(15, expansions(sequentialRewriter));
+        assertEquals(15, expansions(parallelRewriter));
+    }
+
+    @Test
+    public void testSameCoverage() throws Exception {
+        for (String[] definition : new String[][] {{"/compiler-tests/fresh.k", "FRESH", "gen 4"}, {"/compiler-tests/branch.k", "BRANCH", "branch 4"}}) {
+            KoreUtils utils = new KoreUtils(definition[0], definition[1], definition[1] + "-SYNTAX", true, Sorts.K(), false, false,
+                    new KExceptionManager(new GlobalOptions()));
+            K pgm = utils.getParsed(definition[2], Source.apply("generated by " + getClass().getSimpleName()));
+            int variables = Variable.getCounter();
+
+            File sequentialCoverage = File.createTempFile("coverage", ".kcov");
+            sequentialCoverage.deleteOnExit();
+            utils.krunOptions.experimental.coverage = sequentialCoverage;
+            utils.krunOptions.experimental.searchThreads = 1;
+            search(utils.getRewriter(), pgm);
+            Variable.setCounter(variables);
+            File parallelCoverage = File.createTempFile("coverage", ".kcov");
+            parallelCoverage.deleteOnExit();
+            utils.krunOptions.experimental.coverage = parallelCoverage;
+            utils.krunOptions.experimental.searchThreads = 4;
+            search(utils.getRewriter(), pgm);
+
+            Map<String, Long> counts = Coverage.aggregate(sequentialCoverage);
+            assertFalse(definition[0], counts.isEmpty());
+            assertEquals(definition[0], counts, Coverage.aggregate(parallelCoverage));
+        }
+    }
+
+    private static K search(KoreUtils utils, K pgm) {
+        return search(utils.getRewriter(), pgm);
+    }
+
+    private static K search(Rewriter rewriter, K pgm) {
+        return rewriter.search(pgm, Optional.empty(), Optional.empty(),
+                new Rule(KORE.KVariable("X"), BooleanUtils.TRUE, BooleanUtils.TRUE, KORE.Att()),
+                SearchType.FINAL, false);
+    }
+
+    private static int expansions(Rewriter rewriter) {
+        return ((InitializeRewriter.SymbolicRewriterGlue) rewriter).rewriter.getSearchExpansions();
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.backend.java.symbolic;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.kframework.HookProvider;
+import org.kframework.attributes.Source;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.Rule;
+import org.kframework.backend.java.kil.Variable;
+import org.kframework.frontend.K;
+import org.kframework.kompile.KompileOptions;
+import org.kframework.krun.KRunOptions;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.KoreUtils;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the definitions shared by the requests served by the K server.
+ */
+public class SharedDefinitionTest {
+
+    private static InitializeRewriter.SymbolicRewriterGlue rewriter(KoreUtils utils, InitializeRewriter.InitializeDefinition initializeDefinition,
+                                                                    KRunOptions krunOptions, KExceptionManager kem) {
+        FileUtil files = FileUtil.testFileUtil();
+        return (InitializeRewriter.SymbolicRewriterGlue) new InitializeRewriter(new PortableFileSystem(kem, files), false,
+                krunOptions.global, kem, krunOptions.experimental.smt, HookProvider.get(kem), new KompileOptions().transition,
+                krunOptions, files, initializeDefinition).apply(Pair.of(utils.compiledDef.executionModule(), null));
+    }
+
+    @Test
+    public void testRequestsDoNotShareState() throws Exception {
+        KoreUtils utils = new KoreUtils("/compiler-tests/fresh.k", "FRESH", "FRESH-SYNTAX", new KExceptionManager(new GlobalOptions()));
+        K pgm = utils.getParsed("gen 3", Source.apply("generated by " + getClass().getSimpleName()));
+        InitializeRewriter.InitializeDefinition shared = InitializeRewriter.InitializeDefinition.shared(FileUtil.testFileUtil());
+
+        KRunOptions firstOptions = new KRunOptions();
+        KExceptionManager firstKem = new KExceptionManager(firstOptions.global);
+        KRunOptions secondOptions = new KRunOptions();
+        secondOptions.experimental.functionCacheSize = 0;
+        secondOptions.experimental.smt.smtCacheSize = 0;
+        KExceptionManager secondKem = new KExceptionManager(secondOptions.global);
+
+        InitializeRewriter.SymbolicRewriterGlue first = rewriter(utils, shared, firstOptions, firstKem);
+        InitializeRewriter.SymbolicRewriterGlue second = rewriter(utils, shared, secondOptions, secondKem);
+
+        // the definition is reused, but holds the state of neither request
+        assertSame(first.definition, second.definition);
+        assertFalse(first.definition.rules().isEmpty());
+        for (Rule rule : first.definition.rules()) {
+            GlobalContext global = rule.globalContext();
+            assertNotSame(first.rewritingContext, global);
+            assertNotSame(second.rewritingContext, global);
+            assertNotSame(firstKem, global.kem);
+            assertNotSame(secondKem, global.kem);
+            assertNotSame(firstOptions, global.krunOptions);
+            assertNotSame(secondOptions, global.krunOptions);
+        }
+        assertSame(firstOptions, first.rewritingContext.krunOptions);
+        assertSame(secondKem, second.rewritingContext.kem);
+
+        // and rewrites as a definition built for the request alone
+        int variables = Variable.getCounter();
+        K expected = rewriter(utils, new InitializeRewriter.InitializeDefinition(), firstOptions, new KExceptionManager(firstOptions.global))
+                .execute(pgm, Optional.empty()).k();
+        Variable.setCounter(variables);
+        assertEquals(expected, first.execute(pgm, Optional.empty()).k());
+        Variable.setCounter(variables);
+        assertEquals(expected, second.execute(pgm, Optional.empty()).k());
+        assertEquals(firstKem.getExceptions().size(), secondKem.getExceptions().size());
+    }
+
+    @Test
+    public void testDefinitionsOfOtherRequestsAreCached() throws Exception {
+        KoreUtils utils = new KoreUtils("/compiler-tests/fresh.k", "FRESH", "FRESH-SYNTAX", new KExceptionManager(new GlobalOptions()));
+        InitializeRewriter.InitializeDefinition shared = InitializeRewriter.InitializeDefinition.shared(FileUtil.testFileUtil());
+        KRunOptions options = new KRunOptions();
+
+        InitializeRewriter.SymbolicRewriterGlue first = rewriter(utils, shared, options, new KExceptionManager(options.global));
+        InitializeRewriter.SymbolicRewriterGlue second = rewriter(utils, shared, options, new KExceptionManager(options.global));
+        assertSame(first.definition, second.definition);
+        // each request gets its own rewriting context
+        assertNotSame(first.rewritingContext, second.rewritingContext);
+        // the definitions of different instances are not shared
+        assertNotSame(first.definition, rewriter(utils, InitializeRewriter.InitializeDefinition.shared(FileUtil.testFileUtil()),
+                options, new KExceptionManager(options.global)).definition);
+    }
+}
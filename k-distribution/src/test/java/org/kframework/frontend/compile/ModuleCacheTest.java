@@ -0,0 +1,85 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+
+package org.kframework.frontend.compile;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.definition.Definition;
+import org.kframework.kompile.DefinitionParsing;
+import org.kframework.main.GlobalOptions;
+import org.kframework.parser.concrete2kore.ParserUtils;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ModuleCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String MAIN_MODULE = "PARSE-THREADS";
+
+    private File definitionFile;
+    private File cacheFile;
+
+    private DefinitionParsing definitionParsing(boolean cacheParses) {
+        KExceptionManager kem = new KExceptionManager(new GlobalOptions());
+        FileUtil files = FileUtil.testFileUtil();
+        return new DefinitionParsing(Collections.emptyList(), false, kem,
+                new ParserUtils(files::resolveWorkingDirectory, kem, new GlobalOptions()),
+                cacheParses, cacheFile, true, 1);
+    }
+
+    private Definition parse(DefinitionParsing definitionParsing) {
+        return definitionParsing.parseDefinitionAndResolveBubbles(definitionFile, MAIN_MODULE, MAIN_MODULE);
+    }
+
+    private void setUp() throws Exception {
+        definitionFile = new File(folder.getRoot(), "parse-threads.k");
+        FileUtils.copyFile(new File(ModuleCacheTest.class.getResource("/compiler-tests/parse-threads.k").toURI()), definitionFile);
+        cacheFile = new File(folder.newFolder("extras"), "cache.bin");
+    }
+
+    @Test
+    public void testUnchangedModulesAreReused() throws Exception {
+        setUp();
+        DefinitionParsing first = definitionParsing(true);
+        Definition parsed = parse(first);
+        assertEquals(0, first.cachedModules.get());
+
+        DefinitionParsing second = definitionParsing(true);
+        assertEquals(parsed, parse(second));
+        assertTrue(second.cachedModules.get() > 0);
+        assertEquals(0, second.parsedBubbles.get());
+        assertEquals(parse(definitionParsing(false)), parsed);
+    }
+
+    @Test
+    public void testChangedModuleIsResolvedAgain() throws Exception {
+        setUp();
+        DefinitionParsing first = definitionParsing(true);
+        Definition original = parse(first);
+        DefinitionParsing second = definitionParsing(true);
+        parse(second);
+        int allModules = second.cachedModules.get();
+
+        String text = FileUtils.readFileToString(definitionFile, StandardCharsets.UTF_8);
+        assertTrue(text.contains("rule f(X) => X + 1"));
+        FileUtils.writeStringToFile(definitionFile, text.replace("rule f(X) => X + 1", "rule f(X) => X + 2"), StandardCharsets.UTF_8);
+
+        DefinitionParsing cached = definitionParsing(true);
+        Definition changed = parse(cached);
+        /* the changed module is resolved again, and only its changed rule is parsed */
+        assertTrue(cached.cachedModules.get() < allModules);
+        assertEquals(1, cached.parsedBubbles.get());
+        assertNotEquals(original, changed);
+        assertEquals(parse(definitionParsing(false)), changed);
+    }
+}
@@ -0,0 +1,67 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+
+package org.kframework.frontend.compile;
+
+import org.junit.Test;
+import org.kframework.definition.Definition;
+import org.kframework.kompile.Kompile;
+import org.kframework.kompile.KompileOptions;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.errorsystem.KException;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ParallelParsingTest {
+
+    private static File testResource(String baseName) throws URISyntaxException {
+        return new File(ParallelParsingTest.class.getResource(baseName).toURI());
+    }
+
+    private static Kompile kompile(int parseThreads, KExceptionManager kem) {
+        KompileOptions kompileOptions = new KompileOptions();
+        kompileOptions.experimental.parseThreads = parseThreads;
+        return new Kompile(kompileOptions, FileUtil.testFileUtil(), kem, false);
+    }
+
+    private static Definition parse(String fileName, String mainModule, int parseThreads) throws URISyntaxException {
+        KExceptionManager kem = new KExceptionManager(new GlobalOptions());
+        return kompile(parseThreads, kem).parseDefinition(testResource(fileName), mainModule, mainModule);
+    }
+
+    /**
+     * Returns the errors reported when parsing the given definition, in the order they are reported.
+     */
+    private static List<String> errors(String fileName, String mainModule, int parseThreads) throws URISyntaxException {
+        KExceptionManager kem = new KExceptionManager(new GlobalOptions());
+        try {
+            kompile(parseThreads, kem).parseDefinition(testResource(fileName), mainModule, mainModule);
+            fail("Expected parsing errors.");
+        } catch (KEMException e) {
+        }
+        return kem.getExceptions().stream().map(KException::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSameDefinitionAsSequential() throws URISyntaxException {
+        Definition sequential = parse("/compiler-tests/parse-threads.k", "PARSE-THREADS", 1);
+        assertEquals(sequential, parse("/compiler-tests/parse-threads.k", "PARSE-THREADS", 4));
+        assertEquals(sequential, parse("/compiler-tests/parse-threads.k", "PARSE-THREADS", 0));
+    }
+
+    @Test
+    public void testSameErrorsInSameOrder() throws URISyntaxException {
+        List<String> sequential = errors("/compiler-tests/parse-errors.k", "PARSE-ERRORS", 1);
+        assertFalse(sequential.isEmpty());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(sequential, errors("/compiler-tests/parse-errors.k", "PARSE-ERRORS", 4));
+        }
+    }
+}
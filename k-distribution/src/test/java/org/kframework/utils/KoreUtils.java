@@ -47,6 +47,7 @@ public class KoreUtils {
 
     public final CompiledDefinition compiledDef;
     public final KExceptionManager kem;
+    public final KRunOptions krunOptions;
     public final BiFunction<String, Source, K> programParser;
     public InitializeRewriter initializeRewriter;
     public Rewriter rewriter;
@@ -70,7 +71,7 @@ public class KoreUtils {
         kompileOptions.experimental.heatCoolStrategies = heatCoolStrategies;
         kompileOptions.outerParsing.noPrelude = noPrelude;
 
-        KRunOptions krunOptions = new KRunOptions();
+        krunOptions = new KRunOptions();
         krunOptions.search = search;
 
         JavaExecutionOptions javaExecutionOptions = new JavaExecutionOptions();
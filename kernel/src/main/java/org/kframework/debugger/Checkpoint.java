@@ -0,0 +1,61 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.debugger;
+
+import org.kframework.rewriter.RewriterState;
+
+/**
+ * A configuration saved by the debugger every checkpoint interval, linked to the checkpoint saved before it.
+ * <p>
+ * Checkpoints are immutable, so saving a checkpoint, going back to an earlier one, or copying a debugger state
+ * shares the history instead of copying it. The configurations are kept in the representation of the
+ * rewriter, and any configuration between two checkpoints is reached by stepping from the earlier one.
+ */
+public final class Checkpoint {
+
+    private final int stepNum;
+    private final RewriterState state;
+    private final Checkpoint previous;
+
+    public Checkpoint(int stepNum, RewriterState state, Checkpoint previous) {
+        this.stepNum = stepNum;
+        this.state = state;
+        this.previous = previous;
+    }
+
+    public int getStepNum() {
+        return stepNum;
+    }
+
+    public RewriterState getState() {
+        return state;
+    }
+
+    /**
+     * @return The checkpoint saved before this one, or null if this is the first checkpoint.
+     */
+    public Checkpoint getPrevious() {
+        return previous;
+    }
+
+    /**
+     * @return The latest checkpoint at or before the given step, or null if there is none.
+     */
+    public Checkpoint floor(int stepNum) {
+        Checkpoint checkpoint = this;
+        while (checkpoint != null && checkpoint.stepNum > stepNum) {
+            checkpoint = checkpoint.previous;
+        }
+        return checkpoint;
+    }
+
+    /**
+     * @return The first checkpoint of the history ending with this one.
+     */
+    public Checkpoint first() {
+        Checkpoint checkpoint = this;
+        while (checkpoint.previous != null) {
+            checkpoint = checkpoint.previous;
+        }
+        return checkpoint;
+    }
+}
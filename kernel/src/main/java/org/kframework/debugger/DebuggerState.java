@@ -1,14 +1,12 @@
 // Copyright (c) 2015-2016 K Team. All Rights Reserved.
 package org.kframework.debugger;
 
-import com.google.common.collect.Maps;
 import org.kframework.frontend.K;
+import org.kframework.rewriter.RewriterState;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.NavigableMap;
-import java.util.TreeMap;
 
 /**
  * Created by Manasvi on 6/15/15.
@@ -24,30 +22,40 @@ import java.util.TreeMap;
  */
 public class DebuggerState {
 
-    private final NavigableMap<Integer, K> checkpointMap;
+    private final Checkpoint checkpoints;
 
     private final List<DebuggerMatchResult> watchList;
 
-    private final K currentK;
+    private final RewriterState currentState;
 
     private final int stepNum;
 
-    public DebuggerState(K currentK, int stepNum, NavigableMap<Integer, K> checkpointMap, List<DebuggerMatchResult> watchList) {
-        this.checkpointMap = new TreeMap<>(checkpointMap);
+    /**
+     * @param checkpoints The latest checkpoint of the history of the state.
+     */
+    public DebuggerState(RewriterState currentState, int stepNum, Checkpoint checkpoints, List<DebuggerMatchResult> watchList) {
+        this.checkpoints = checkpoints;
         this.watchList = new ArrayList<>(watchList);
-        this.currentK = currentK;
+        this.currentState = currentState;
         this.stepNum = stepNum;
     }
 
     public DebuggerState(DebuggerState copyState) {
-        this.checkpointMap = new TreeMap<>(copyState.getCheckpointMap());
+        this.checkpoints = copyState.getCheckpoints();
         this.watchList = new ArrayList<>(copyState.getWatchList());
-        this.currentK = copyState.getCurrentK();
+        this.currentState = copyState.getCurrentState();
         this.stepNum = copyState.getStepNum();
     }
 
     public K getCurrentK() {
-        return currentK;
+        return currentState.k();
+    }
+
+    /**
+     * @return The current configuration, in the representation of the rewriter.
+     */
+    public RewriterState getCurrentState() {
+        return currentState;
     }
 
     public int getStepNum() {
@@ -55,20 +63,23 @@ public class DebuggerState {
     }
 
     /**
-     * Get the last checkpoint from the Map.
+     * Get the last checkpoint from the history.
      * The last checkpoint may not have the most recent K.
      *
-     * @return The most recent checkpoint element in the Map
+     * @return The step of the most recent checkpoint
      */
     public int getlastMapCheckpoint() {
-        return checkpointMap.lastKey();
+        return checkpoints.getStepNum();
     }
 
     public List<DebuggerMatchResult> getWatchList() {
         return Collections.unmodifiableList(watchList);
     }
 
-    public NavigableMap<Integer, K> getCheckpointMap() {
-        return Maps.unmodifiableNavigableMap(checkpointMap);
+    /**
+     * @return The most recent checkpoint, linked to the earlier ones.
+     */
+    public Checkpoint getCheckpoints() {
+        return checkpoints;
     }
 }
@@ -3,7 +3,7 @@ package org.kframework.debugger;
 
 
 import org.kframework.rewriter.Rewriter;
-import org.kframework.RewriterResult;
+import org.kframework.rewriter.RewriterState;
 import org.kframework.attributes.Source;
 import org.kframework.definition.Rule;
 import org.kframework.kompile.CompiledDefinition;
@@ -16,14 +16,15 @@ import org.kframework.utils.file.FileUtil;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
 import java.util.Optional;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
  * Kore Based Debugger Implementation.
+ * <p>
+ * Configurations are stepped in the representation of the rewriter (see {@link Rewriter#initialState}), and only
+ * converted to K when they are displayed or matched. Every checkpoint interval, the configuration reached is saved
+ * as a {@link Checkpoint}; going back replays from the nearest earlier checkpoint.
  */
 public class KoreKDebug implements KDebug {
 
@@ -57,10 +58,10 @@ public class KoreKDebug implements KDebug {
         this.kem = kem;
         this.options = options;
         this.compiledDef = compiledDef;
-        NavigableMap<Integer, K> checkpointMap = new TreeMap<>();
-        checkpointMap.put(DEFAULT_ID, initialK);
+        RewriterState initialRewriterState = rewriter.initialState(initialK);
+        Checkpoint checkpoints = new Checkpoint(DEFAULT_ID, initialRewriterState, null);
         List<DebuggerMatchResult> watchList = new ArrayList<>();
-        DebuggerState initialState = new DebuggerState(initialK, DEFAULT_ID, checkpointMap, watchList);
+        DebuggerState initialState = new DebuggerState(initialRewriterState, DEFAULT_ID, checkpoints, watchList);
         stateList.add(initialState);
         activeStateIndex = DEFAULT_ID;
     }
@@ -72,54 +73,47 @@ public class KoreKDebug implements KDebug {
 
     @Override
     public DebuggerState step(int currentStateIndex, int steps) {
-        DebuggerState currentState = stateList.get(currentStateIndex);
-        K currentK = currentState.getCurrentK();
+        return step(stateList.get(currentStateIndex), currentStateIndex, steps);
+    }
+
+    /* Steps from the given state, which replaces the state at stateNum */
+    private DebuggerState step(DebuggerState currentState, int stateNum, int steps) {
+        RewriterState current = currentState.getCurrentState();
         int activeStateCheckpoint = currentState.getStepNum();
-        RewriterResult result;
-        NavigableMap<Integer, K> checkpointMap = new TreeMap<>(currentState.getCheckpointMap());
+        Checkpoint checkpoints = currentState.getCheckpoints();
         List<DebuggerMatchResult> origWatchList = currentState.getWatchList();
         while (steps >= checkpointInterval) {
-            result = rewriter.execute(currentK, Optional.of(checkpointInterval));
-            if (isFinalState(checkpointInterval, result)) {
-                return processStateData(result.k(),
-                        activeStateCheckpoint + result.rewriteSteps().get(),
-                        currentStateIndex,
-                        checkpointMap,
+            RewriterState next = current.step(checkpointInterval);
+            if (isFinalState(checkpointInterval, next)) {
+                return processStateData(next,
+                        activeStateCheckpoint + next.stepsTaken(),
+                        stateNum,
+                        checkpoints,
                         origWatchList
                 );
             }
             steps -= checkpointInterval;
             activeStateCheckpoint += checkpointInterval;
-            checkpointMap.put(activeStateCheckpoint, result.k());
-            currentK = result.k();
-        }
-        result = rewriter.execute(currentK, Optional.of(steps));
-        if (isFinalState(steps, result)) {
-            return processStateData(result.k(),
-                    activeStateCheckpoint + result.rewriteSteps().get(),
-                    currentStateIndex,
-                    checkpointMap,
-                    origWatchList
-            );
-
+            checkpoints = new Checkpoint(activeStateCheckpoint, next, checkpoints);
+            current = next;
         }
-        activeStateCheckpoint += steps;
-        return processStateData(result.k(),
-                activeStateCheckpoint,
-                currentStateIndex,
-                checkpointMap,
+        RewriterState next = current.step(steps);
+        return processStateData(next,
+                activeStateCheckpoint + (isFinalState(steps, next) ? next.stepsTaken() : steps),
+                stateNum,
+                checkpoints,
                 origWatchList
         );
     }
 
     /* Private Helper function to do make a new state with the requested data */
-    private DebuggerState processStateData(K finalK, int stepNum, int stateNum, NavigableMap<Integer, K> checkpointMap, List<DebuggerMatchResult> watchList) {
-        List<DebuggerMatchResult> updatedWatchList = updateWatchList(watchList, finalK);
+    private DebuggerState processStateData(RewriterState finalState, int stepNum, int stateNum, Checkpoint checkpoints, List<DebuggerMatchResult> watchList) {
+        List<DebuggerMatchResult> updatedWatchList = updateWatchList(watchList, finalState.k());
         stateList.remove(stateNum);
         DebuggerState nextState = new DebuggerState(
-                finalK,
+                finalState,
                 stepNum,
-                checkpointMap,
+                checkpoints,
                 updatedWatchList
         );
         stateList.add(stateNum, nextState);
@@ -139,12 +133,8 @@ public class KoreKDebug implements KDebug {
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
-    private boolean isFinalState(int steps, RewriterResult result) {
-        return result.rewriteSteps().isPresent() && result.rewriteSteps().get() < steps;
-    }
-
-    private boolean isFinalConfiguration(K config) {
-        return rewriter.execute(config, Optional.of(1)).equals(config);
+    private boolean isFinalState(int steps, RewriterState state) {
+        return state.stepsTaken() < steps;
     }
 
     @Override
@@ -152,27 +142,25 @@ public class KoreKDebug implements KDebug {
         DebuggerState currentState = stateList.get(initialStateNum);
         int currentCheckpoint = currentState.getStepNum();
         int target = currentCheckpoint - steps;
-        NavigableMap<Integer, K> currMap = new TreeMap<>(currentState.getCheckpointMap());
-        Map.Entry<Integer, K> relevantEntry = currMap.floorEntry(target);
-        if (relevantEntry == null) {
+        Checkpoint relevantCheckpoint = currentState.getCheckpoints().floor(target);
+        if (relevantCheckpoint == null) {
             /* Invalid Operation, no need to change the state */
             return null;
         }
 
-        int floorKey = relevantEntry.getKey();
-        processStateData(relevantEntry.getValue(),
+        int floorKey = relevantCheckpoint.getStepNum();
+        DebuggerState checkpointState = new DebuggerState(
+                relevantCheckpoint.getState(),
                 floorKey,
-                initialStateNum,
-                currMap.headMap(floorKey, true),
-                updateWatchList(currentState.getWatchList(), relevantEntry.getValue()));
-        return step(initialStateNum, target - floorKey);
+                relevantCheckpoint,
+                currentState.getWatchList());
+        return step(checkpointState, initialStateNum, target - floorKey);
     }
 
     @Override
     public DebuggerState jumpTo(int initialStateNum, int configurationNum) {
         DebuggerState currentState = stateList.get(initialStateNum);
-        NavigableMap<Integer, K> checkpointMap = new TreeMap<>(currentState.getCheckpointMap());
-        int firstKey = checkpointMap.firstKey();
+        int firstKey = currentState.getCheckpoints().first().getStepNum();
         if (configurationNum < firstKey) {
             return null;
         }
@@ -196,7 +184,7 @@ public class KoreKDebug implements KDebug {
             activeState = steppedState;
             steppedState = step(activeStateIndex, checkpointInterval);
         }
-        while (steppedState.getStepNum() - activeState.getStepNum() >= checkpointInterval && !isFinalConfiguration(steppedState.getCurrentK()));
+        while (steppedState.getStepNum() - activeState.getStepNum() >= checkpointInterval);
         return steppedState;
     }
 
@@ -255,9 +243,9 @@ public class KoreKDebug implements KDebug {
         List<DebuggerMatchResult> watchList = new ArrayList<>(activeState.getWatchList());
         watchList.add(matchResult);
         DebuggerState nextState = new DebuggerState(
-                activeState.getCurrentK(),
+                activeState.getCurrentState(),
                 activeState.getStepNum(),
-                new TreeMap<>(activeState.getCheckpointMap()),
+                activeState.getCheckpoints(),
                 watchList);
         stateList.add(activeStateIndex, nextState);
     }
@@ -274,9 +262,9 @@ public class KoreKDebug implements KDebug {
         updatedList.remove(watchNum);
         stateList.add(activeStateIndex,
                 new DebuggerState(
-                        currActiveState.getCurrentK(),
+                        currActiveState.getCurrentState(),
                         currActiveState.getStepNum(),
-                        new TreeMap<>(currActiveState.getCheckpointMap()),
+                        currActiveState.getCheckpoints(),
                         updatedList)
 
         );
@@ -34,6 +34,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -42,7 +43,11 @@ import java.util.stream.Collectors;
 
 public class CompiledDefinition implements Serializable {
     public final KompileOptions kompileOptions;
-    private final Definition parsedDefinition;
+    private Definition parsedDefinition;
+    /**
+     * Loads the parsed definition on its first use; null once it is loaded.
+     */
+    private transient Supplier<Definition> parsedDefinitionLoader;
     public final Definition kompiledDefinition;
     public final Sort programStartSymbol;
     public final HashMap<String, Sort> configurationVariableDefaultSorts = new HashMap<>();
@@ -64,6 +69,23 @@ public class CompiledDefinition implements Serializable {
         this.cachedParsedPatterns = new ConcurrentHashMap<>();
     }
 
+    /**
+     * Creates a compiled definition whose parsed definition is only loaded when it is first needed, e.g., to
+     * parse a program. The sorts of the configuration variables, which are otherwise computed from the parsed
+     * definition, are given.
+     */
+    public CompiledDefinition(KompileOptions kompileOptions, Supplier<Definition> parsedDefinition, Map<String, Sort> configurationVariableDefaultSorts, Definition kompiledDefinition, KLabel topCellInitializer) {
+        this.kompileOptions = kompileOptions;
+        this.parsedDefinitionLoader = parsedDefinition;
+        this.kompiledDefinition = kompiledDefinition;
+        this.configurationVariableDefaultSorts.putAll(configurationVariableDefaultSorts);
+        this.programStartSymbol = configurationVariableDefaultSorts.getOrDefault("$PGM", Sorts.K());
+        this.topCellInitializer = topCellInitializer;
+        this.languageParsingModule = kompiledDefinition.getModule("LANGUAGE-PARSING").get();
+        this.cachedcompiledPatterns = new ConcurrentHashMap<>();
+        this.cachedParsedPatterns = new ConcurrentHashMap<>();
+    }
+
     private void initializeConfigurationVariableDefaultSorts() {
         // searching for #SemanticCastTo<Sort>(_Map_.lookup(_, #token(<VarName>, KConfigVar)))
         Collections.stream(parsedDefinition.mainModule().rules())
@@ -99,7 +121,11 @@ public class CompiledDefinition implements Serializable {
     /**
      * The parsed but uncompiled definition
      */
-    public Definition getParsedDefinition() {
+    public synchronized Definition getParsedDefinition() {
+        if (parsedDefinitionLoader != null) {
+            parsedDefinition = parsedDefinitionLoader.get();
+            parsedDefinitionLoader = null;
+        }
         return parsedDefinition;
     }
 
@@ -110,7 +136,7 @@ public class CompiledDefinition implements Serializable {
         return kompiledDefinition.mainModule();
     }
 
-    public String mainSyntaxModuleName() { return parsedDefinition.att().<String>getOptional(Att.syntaxModule()).get(); }
+    public String mainSyntaxModuleName() { return getParsedDefinition().att().<String>getOptional(Att.syntaxModule()).get(); }
 
     /**
      * @return the module used for generating the program (i.e. ground) parser for the module named moduleName
@@ -118,6 +144,7 @@ public class CompiledDefinition implements Serializable {
      * {@link RuleGrammarGenerator#POSTFIX}. In latter case, it uses the user-defined module.
      */
     public Option<Module> programParsingModuleFor(String moduleName, KExceptionManager kem) {
+        Definition parsedDefinition = getParsedDefinition();
         Option<Module> moduleOption;
 
         if(moduleName.endsWith(RuleGrammarGenerator.POSTFIX)) {
@@ -174,6 +201,11 @@ public class CompiledDefinition implements Serializable {
         return cachedParsedPatterns.computeIfAbsent(pattern, p -> new Kompile(kompileOptions, files, kem).parseRule(this, p, source));
     }
 
+    private void writeObject(java.io.ObjectOutputStream stream) throws IOException {
+        getParsedDefinition();
+        stream.defaultWriteObject();
+    }
+
     private void readObject(java.io.ObjectInputStream stream)
             throws IOException, ClassNotFoundException {
         stream.defaultReadObject();
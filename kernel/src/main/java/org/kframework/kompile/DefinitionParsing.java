@@ -4,7 +4,6 @@ package org.kframework.kompile;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.commons.collections15.ListUtils;
-import org.kframework.Collections;
 import org.kframework.attributes.Source;
 import org.kframework.builtin.BooleanUtils;
 import org.kframework.definition.Bubble;
@@ -20,6 +19,7 @@ import org.kframework.frontend.K;
 import org.kframework.frontend.KApply;
 import org.kframework.frontend.Sort;
 import org.kframework.parser.TreeNodesToKORE;
+import org.kframework.parser.concrete2kore.ModuleParseCache;
 import org.kframework.parser.concrete2kore.ParseCache;
 import org.kframework.parser.concrete2kore.ParseCache.ParsedSentence;
 import org.kframework.parser.concrete2kore.ParseInModule;
@@ -28,6 +28,7 @@ import org.kframework.parser.concrete2kore.generator.RuleGrammarGenerator;
 import org.kframework.utils.BinaryLoader;
 import org.kframework.utils.StringUtil;
 import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.errorsystem.KException;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.errorsystem.ParseFailedException;
 import org.kframework.utils.file.FileUtil;
@@ -40,10 +41,19 @@ import scala.util.Right;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -63,6 +73,7 @@ import static org.kframework.frontend.KORE.*;
 public class DefinitionParsing {
     public static final Sort START_SYMBOL = Sort("RuleContent", ModuleName.apply("REQUIRES-ENSURES"));
     private final File cacheFile;
+    private final File moduleCacheFile;
     private boolean autoImportDomains;
 
     private final KExceptionManager kem;
@@ -72,8 +83,13 @@ public class DefinitionParsing {
 
     public final AtomicInteger parsedBubbles = new AtomicInteger(0);
     public final AtomicInteger cachedBubbles = new AtomicInteger(0);
+    public final AtomicInteger cachedModules = new AtomicInteger(0);
     private final boolean isStrict;
     private final List<File> lookupDirectories;
+    /**
+     * the number of threads parsing the rule and context bubbles of a module
+     */
+    private final int parseThreads;
 
     public DefinitionParsing(
             List<File> lookupDirectories,
@@ -83,11 +99,28 @@ public class DefinitionParsing {
             boolean cacheParses,
             File cacheFile,
             boolean autoImportDomains) {
+        this(lookupDirectories, isStrict, kem, parser, cacheParses, cacheFile, autoImportDomains, 0);
+    }
+
+    /**
+     * @param parseThreads the number of threads parsing bubbles; 0 uses one thread per available processor
+     */
+    public DefinitionParsing(
+            List<File> lookupDirectories,
+            boolean isStrict,
+            KExceptionManager kem,
+            ParserUtils parser,
+            boolean cacheParses,
+            File cacheFile,
+            boolean autoImportDomains,
+            int parseThreads) {
+        this.parseThreads = parseThreads > 0 ? parseThreads : Runtime.getRuntime().availableProcessors();
         this.lookupDirectories = lookupDirectories;
         this.kem = kem;
         this.parser = parser;
         this.cacheParses = cacheParses;
         this.cacheFile = cacheFile;
+        this.moduleCacheFile = cacheFile == null ? null : new File(cacheFile.getParentFile(), "moduleCache.bin");
         this.autoImportDomains = autoImportDomains;
         this.loader = new BinaryLoader(this.kem);
         this.isStrict = isStrict;
@@ -107,17 +140,8 @@ public class DefinitionParsing {
 
         Module module = modules.iterator().next();
 
-        errors = java.util.Collections.synchronizedSet(Sets.newHashSet());
-        caches = new HashMap<>();
-
-        if (cacheParses) {
-            try {
-                caches = loader.load(Map.class, cacheFile);
-            } catch (FileNotFoundException e) {
-            } catch (IOException | ClassNotFoundException e) {
-                kem.registerInternalHiddenWarning("Invalidating serialized cache due to corruption.", e);
-            }
-        }
+        errors = java.util.Collections.synchronizedSet(Sets.newLinkedHashSet());
+        loadCaches();
 
         ResolveConfig resolveConfig = new ResolveConfig(definition.getParsedDefinition(), isStrict, this::parseBubble, this::getParser);
         Module modWithConfig = resolveConfig.apply(module);
@@ -133,9 +157,30 @@ public class DefinitionParsing {
         throwExceptionIfThereAreErrors();
     }
 
+    private void loadCaches() {
+        caches = new ConcurrentHashMap<>();
+        moduleCaches = new HashMap<>();
+
+        if (cacheParses) {
+            try {
+                caches = new ConcurrentHashMap<String, ParseCache>(loader.load(Map.class, cacheFile));
+            } catch (FileNotFoundException e) {
+            } catch (IOException | ClassNotFoundException e) {
+                kem.registerInternalHiddenWarning("Invalidating serialized cache due to corruption.", e);
+            }
+            try {
+                moduleCaches = loader.load(Map.class, moduleCacheFile);
+            } catch (FileNotFoundException e) {
+            } catch (IOException | ClassNotFoundException e) {
+                kem.registerInternalHiddenWarning("Invalidating serialized module cache due to corruption.", e);
+            }
+        }
+    }
+
     private void saveCaches() {
         if (cacheParses) {
             loader.saveOrDie(cacheFile, caches);
+            loader.saveOrDie(moduleCacheFile, moduleCaches);
         }
     }
 
@@ -195,17 +240,8 @@ public class DefinitionParsing {
             definitionWithConfigBubble = definition;
         }
 
-        errors = java.util.Collections.synchronizedSet(Sets.newHashSet());
-        caches = new HashMap<>();
-
-        if (cacheParses) {
-            try {
-                caches = loader.load(Map.class, cacheFile);
-            } catch (FileNotFoundException e) {
-            } catch (IOException | ClassNotFoundException e) {
-                kem.registerInternalHiddenWarning("Invalidating serialized cache due to corruption.", e);
-            }
-        }
+        errors = java.util.Collections.synchronizedSet(Sets.newLinkedHashSet());
+        loadCaches();
 
         ResolveConfig resolveConfig = new ResolveConfig(definitionWithConfigBubble, isStrict, this::parseBubble, this::getParser);
         Definition defWithConfig = DefinitionTransformer.fromHybrid(resolveConfig::apply, "parsing configurations").apply(definitionWithConfigBubble);
@@ -214,6 +250,11 @@ public class DefinitionParsing {
     }
 
     Map<String, ParseCache> caches;
+    /**
+     * the sentences obtained by resolving the bubbles of each module, keyed by module name
+     */
+    Map<String, ModuleParseCache> moduleCaches;
+    private final Map<Module, String> moduleHashes = new IdentityHashMap<>();
     private java.util.Set<KEMException> errors;
     Definition definitionWithConfigBubble;
 
@@ -239,42 +280,119 @@ public class DefinitionParsing {
                 .map(b -> (Bubble) b)
                 .filter(b -> !b.sentenceType().equals("config")).count() == 0)
             return module;
+
+        String hash = cacheParses ? contentHash(module) : null;
+        ModuleParseCache moduleCache = hash != null ? moduleCaches.get(module.name()) : null;
+        if (moduleCache != null && moduleCache.getHash().equals(hash)) {
+            cachedModules.getAndIncrement();
+            kem.addAllKException(moduleCache.getWarnings());
+            return Module(module.name(), module.imports(), immutable(moduleCache.getSentences()), module.att());
+        }
+
         Module ruleParserModule = RuleGrammarGenerator.getRuleGrammar(module, getProcessedModule);
 
         ParseCache cache = loadCache(ruleParserModule);
         ParseInModule parser = RuleGrammarGenerator.getCombinedGrammar(cache.getModule(), isStrict);
 
-        java.util.Set<Bubble> bubbles = stream(module.localSentences())
-                .parallel()
+        List<Bubble> bubbles = stream(module.localSentences())
                 .filter(s -> s instanceof Bubble)
-                .map(b -> (Bubble) b).collect(Collectors.toSet());
-
-        Set<Sentence> ruleSet = bubbles.stream()
-                .filter(b -> b.sentenceType().equals("rule"))
-                .map(b -> performParse(cache.getCache(), parser, b))
-                .flatMap(r -> {
-                    if (r.isRight()) {
-                        return Stream.of(this.upRule(r.right().get()));
-                    } else {
-                        errors.addAll(r.left().get());
-                        return Stream.empty();
-                    }
-                }).collect(Collections.toSet());
-
-        Set<Sentence> contextSet = bubbles.stream()
-                .filter(b -> b.sentenceType().equals("context"))
-                .map(b -> performParse(cache.getCache(), parser, b))
-                .flatMap(r -> {
-                    if (r.isRight()) {
-                        return Stream.of(this.upContext(r.right().get()));
-                    } else {
-                        errors.addAll(r.left().get());
-                        return Stream.empty();
-                    }
-                }).collect(Collections.toSet());
-
-        return Module(module.name(), module.imports(),
-                stream((Set<Sentence>) module.localSentences().$bar(ruleSet).$bar(contextSet)).filter(b -> !(b instanceof Bubble)).collect(Collections.toSet()), module.att());
+                .map(b -> (Bubble) b)
+                .filter(b -> b.sentenceType().equals("rule") || b.sentenceType().equals("context"))
+                .collect(Collectors.toList());
+
+        List<Tuple2<Either<java.util.Set<ParseFailedException>, K>, List<KException>>> parses =
+                parseBubbles(cache.getCache(), parser, bubbles);
+
+        /* warnings, errors and sentences are collected in the order of the bubbles, regardless of the thread count */
+        java.util.Set<Sentence> sentences = new HashSet<>();
+        List<KException> warnings = new ArrayList<>();
+        boolean hasErrors = false;
+        for (int i = 0; i < bubbles.size(); i++) {
+            Either<java.util.Set<ParseFailedException>, K> r = parses.get(i)._1();
+            warnings.addAll(parses.get(i)._2());
+            if (r.isRight()) {
+                sentences.add(bubbles.get(i).sentenceType().equals("rule") ? upRule(r.right().get()) : upContext(r.right().get()));
+            } else {
+                errors.addAll(r.left().get());
+                hasErrors = true;
+            }
+        }
+        kem.addAllKException(warnings);
+
+        java.util.Set<Sentence> resolvedSentences = Stream.concat(stream(module.localSentences()), sentences.stream())
+                .filter(b -> !(b instanceof Bubble))
+                .collect(Collectors.toSet());
+        if (hash != null && !hasErrors) {
+            moduleCaches.put(module.name(), new ModuleParseCache(hash, resolvedSentences, warnings));
+        }
+
+        return Module(module.name(), module.imports(), immutable(resolvedSentences), module.att());
+    }
+
+    /**
+     * Returns a digest of the name, attributes and local sentences of the given module and, recursively, of
+     * its imports. Resolving the bubbles of a module whose digest did not change yields the same sentences.
+     */
+    private String contentHash(Module module) {
+        String hash = moduleHashes.get(module);
+        if (hash != null) {
+            return hash;
+        }
+
+        List<String> components = new ArrayList<>();
+        for (Module importedModule : iterable(module.imports())) {
+            components.add("import " + contentHash(importedModule));
+        }
+        for (Sentence sentence : iterable(module.localSentences())) {
+            components.add(sentence.toString() + " " + sentence.att().toString());
+        }
+        /* the iteration order of Scala sets is not stable across runs */
+        java.util.Collections.sort(components);
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((module.name() + "\n" + module.att() + "\n" + isStrict + "\n").getBytes(StandardCharsets.UTF_8));
+            for (String component : components) {
+                digest.update(component.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            hash = new BigInteger(1, digest.digest()).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw KEMException.internalError("SHA-256 is not available", e);
+        }
+        moduleHashes.put(module, hash);
+        return hash;
+    }
+
+    /**
+     * Parses the given bubbles on {@link #parseThreads} threads. The results are returned in the order of the
+     * bubbles, each paired with the warnings of its parse, so that the caller can report them deterministically.
+     */
+    private List<Tuple2<Either<java.util.Set<ParseFailedException>, K>, List<KException>>> parseBubbles(
+            Map<String, ParsedSentence> cache, ParseInModule parser, List<Bubble> bubbles) {
+        Function<Bubble, Tuple2<Either<java.util.Set<ParseFailedException>, K>, List<KException>>> parse = b -> {
+            List<KException> warnings = new ArrayList<>();
+            return new Tuple2<>(performParse(cache, parser, b, warnings), warnings);
+        };
+
+        if (parseThreads == 1 || bubbles.size() <= 1) {
+            return bubbles.stream().map(parse).collect(Collectors.toList());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parseThreads, bubbles.size()));
+        try {
+            return pool.submit(() -> bubbles.parallelStream().map(parse).collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KEMException.criticalError("Interrupted while parsing rules.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw KEMException.criticalError("Failed to parse rules.", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
     }
 
 
@@ -321,7 +439,7 @@ public class DefinitionParsing {
     private ParseCache loadCache(Module parser) {
         ParseCache cachedParser = caches.get(parser.name());
         if (cachedParser == null || !equalsSyntax(cachedParser.getModule(), parser) || cachedParser.isStrict() != isStrict) {
-            cachedParser = new ParseCache(parser, isStrict, java.util.Collections.synchronizedMap(new HashMap<>()));
+            cachedParser = new ParseCache(parser, isStrict, new ConcurrentHashMap<>());
             caches.put(parser.name(), cachedParser);
         }
         return cachedParser;
@@ -347,19 +465,30 @@ public class DefinitionParsing {
     }
 
     private Either<java.util.Set<ParseFailedException>, K> performParse(Map<String, ParsedSentence> cache, ParseInModule parser, Bubble b) {
+        List<KException> warnings = new ArrayList<>();
+        Either<java.util.Set<ParseFailedException>, K> result = performParse(cache, parser, b, warnings);
+        kem.addAllKException(warnings);
+        return result;
+    }
+
+    /**
+     * Parses the given bubble, or retrieves its parse from the cache, and adds the parsing warnings to
+     * the given list. The cache map has to be thread-safe, as this method is called from several threads.
+     */
+    private Either<java.util.Set<ParseFailedException>, K> performParse(Map<String, ParsedSentence> cache, ParseInModule parser, Bubble b, List<KException> warnings) {
         int startLine = b.att().<Integer>get("contentStartLine").get();
         int startColumn = b.att().<Integer>get("contentStartColumn").get();
         String source = b.att().<String>get("Source").get();
         Tuple2<Either<java.util.Set<ParseFailedException>, K>, java.util.Set<ParseFailedException>> result;
-        if (cache.containsKey(b.contents())) {
-            ParsedSentence parse = cache.get(b.contents());
+        ParsedSentence parse = cache.get(b.contents());
+        if (parse != null) {
             cachedBubbles.getAndIncrement();
-            kem.addAllKException(parse.getWarnings().stream().map(e -> e.getKException()).collect(Collectors.toList()));
+            warnings.addAll(parse.getWarnings().stream().map(e -> e.getKException()).collect(Collectors.toList()));
             return Right.apply(parse.getParse());
         } else {
             result = parser.parseString(b.contents(), START_SYMBOL, Source.apply(source), startLine, startColumn);
             parsedBubbles.getAndIncrement();
-            kem.addAllKException(result._2().stream().map(e -> e.getKException()).collect(Collectors.toList()));
+            warnings.addAll(result._2().stream().map(e -> e.getKException()).collect(Collectors.toList()));
             if (result._1().isRight()) {
                 KApply k = (KApply) TreeNodesToKORE.down(result._1().right().get());
                 k = KApply(k.klabel(), k.klist(), k.att().addAll(b.att().remove("contentStartLine").remove("contentStartColumn").remove("Source").remove("Location")));
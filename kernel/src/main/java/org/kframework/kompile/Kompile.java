@@ -97,7 +97,8 @@ public class Kompile {
         List<File> lookupDirectories = kompileOptions.outerParsing.includes.stream().map(files::resolveWorkingDirectory).collect(Collectors.toList());
         this.definitionParsing = new DefinitionParsing(
                 lookupDirectories, kompileOptions.strict(), kem,
-                parser, cacheParses, files.resolveKompiled(FileUtil.CACHE_BIN), !kompileOptions.outerParsing.noPrelude);
+                parser, cacheParses, files.resolveKompiled(FileUtil.CACHE_BIN), !kompileOptions.outerParsing.noPrelude,
+                kompileOptions.experimental.parseThreads);
         this.sw = sw;
     }
 
@@ -120,7 +121,7 @@ public class Kompile {
      */
     public CompiledDefinition run(File definitionFile, String mainModuleName, String mainProgramsModuleName, Function<Definition, Definition> pipeline) {
         Definition parsedDef = parseDefinition(definitionFile, mainModuleName, mainProgramsModuleName);
-        sw.printIntermediate("Parse definition [" + definitionParsing.parsedBubbles.get() + "/" + (definitionParsing.parsedBubbles.get() + definitionParsing.cachedBubbles.get()) + " rules]");
+        sw.printIntermediate("Parse definition [" + definitionParsing.parsedBubbles.get() + "/" + (definitionParsing.parsedBubbles.get() + definitionParsing.cachedBubbles.get()) + " rules, " + definitionParsing.cachedModules.get() + " cached modules]");
 
         return compile(parsedDef, pipeline);
     }
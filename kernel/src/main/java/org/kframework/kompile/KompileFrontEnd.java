@@ -15,6 +15,9 @@ import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
 import org.kframework.utils.inject.DefinitionLoadingModule;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class KompileFrontEnd extends FrontEnd {
 
 
@@ -84,9 +87,12 @@ public class KompileFrontEnd extends FrontEnd {
     public void save(CompiledDefinition def) {
         files.saveToKompiled(FileUtil.KORE_TXT, KoreToText.apply(KoreToMini.apply(def.kompiledDefinition)));
         // loader.saveOrDie(files.resolveKompiled(FileUtil.KOMPILED_DEFINITION_BIN), def.kompiledDefinition); // deprecated
-        loader.saveOrDie(files.resolveKompiled(FileUtil.KOMPILE_OPTIONS_BIN), def.kompileOptions);
-        loader.saveOrDie(files.resolveKompiled(FileUtil.PARSED_DEFINITION_BIN), def.getParsedDefinition());
-        loader.saveOrDie(files.resolveKompiled(FileUtil.TOP_CELL_INITIALIZER_BIN), def.topCellInitializer);
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put(FileUtil.KOMPILE_OPTIONS_SECTION, def.kompileOptions);
+        sections.put(FileUtil.TOP_CELL_INITIALIZER_SECTION, def.topCellInitializer);
+        sections.put(FileUtil.CONFIGURATION_VARIABLE_SORTS_SECTION, def.configurationVariableDefaultSorts);
+        sections.put(FileUtil.PARSED_DEFINITION_SECTION, def.getParsedDefinition());
+        loader.saveSectionsOrDie(files.resolveKompiled(FileUtil.COMPILED_DEFINITION_KBIN), sections);
         // saveTest(def);
     }
 
@@ -107,5 +107,8 @@ public class KompileOptions implements Serializable {
         @Parameter(names="--legacy-kast", description="Compile with settings based on the old KAST structure")
         public boolean legacyKast = false;
 
+        @Parameter(names="--parse-threads", description="Number of threads used to parse the rules of a module. 0 uses one thread per available processor.")
+        public int parseThreads = 0;
+
     }
 }
@@ -30,6 +30,7 @@ import org.kframework.frontend.compile.KTokenVariablesToTrueVariables;
 import org.kframework.krun.modes.ExecutionMode;
 import org.kframework.minikore.converters.KoreToMini;
 import org.kframework.parser.ProductionReference;
+import org.kframework.parser.Term;
 import org.kframework.parser.binary.BinaryParser;
 import org.kframework.parser.frontend.KoreParser;
 import org.kframework.rewriter.Rewriter;
@@ -47,8 +48,12 @@ import scala.Some;
 import scala.Tuple2;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -69,6 +74,8 @@ import static org.kframework.frontend.KORE.*;
  */
 public class KRun {
 
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
     private final KExceptionManager kem;
     private final FileUtil files;
     private final boolean ttyStdin;
@@ -212,7 +219,11 @@ public class KRun {
             outputFile("No Search Results\n", options);
             return;
         }
-        outputFile(filterAnonVarsAndPrint(result, patternVariables, compiledDef, options).toString(), options);
+        if (result instanceof KApply && ((KApply) result).klabel().toString().equals(KLabels.ML_AND)) {
+            outputFile(filterAnonVarsAndPrint(result, patternVariables, compiledDef, options).toString(), options);
+            return;
+        }
+        outputFile(out -> prettyPrint(compiledDef, options.output, out, result), options);
     }
 
     /**
@@ -261,6 +272,22 @@ public class KRun {
         outputFile(output, options, files);
     }
 
+    /**
+     * Passes the stream of the output (standard output, or the --output-file) to the given printer.
+     */
+    public void outputFile(Consumer<OutputStream> printer, KRunOptions options) {
+        if (options.outputFile == null) {
+            printer.accept(System.out);
+            System.out.flush();
+        } else {
+            try (OutputStream out = files.writeToWorkingDirectory(options.outputFile)) {
+                printer.accept(out);
+            } catch (IOException e) {
+                throw KEMException.criticalError("Could not write to file " + options.outputFile, e);
+            }
+        }
+    }
+
     public static void outputFile(byte[] output, KRunOptions options, FileUtil files) {
         if (options.outputFile == null) {
             try {
@@ -302,23 +329,50 @@ public class KRun {
     }
 
     public static void prettyPrint(CompiledDefinition compiledDef, OutputModes output, Consumer<byte[]> print, K result) {
-        switch (output) {
-        case KAST:
-            print.accept((ToKast.apply(result) + "\n").getBytes());
-            break;
-        case NONE:
-            print.accept("".getBytes());
-            break;
-        case PRETTY:
-        case NOWRAP:
-            Module unparsingModule = compiledDef.getExtensionModule(compiledDef.languageParsingModule());
-            print.accept((unparseTerm(result, unparsingModule, output == OutputModes.NOWRAP) + "\n").getBytes());
-            break;
-        case BINARY:
-            print.accept(ToBinary.apply(result));
-            break;
-        default:
-            throw KEMException.criticalError("Unsupported output mode: " + output);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        prettyPrint(compiledDef, output, out, result);
+        print.accept(out.toByteArray());
+    }
+
+    /**
+     * Prints the term to the given stream in the given output mode, and flushes the stream at the end.
+     * Use {@link java.nio.channels.Channels#newOutputStream} to print to a channel.
+     * <p>
+     * Only the {@code KAST}, {@code BINARY} and {@code NONE} modes are streamed: their output is written as it
+     * is produced, through a buffer of bounded size, and nothing but the term itself is held in memory.
+     * The {@code PRETTY} and {@code NOWRAP} modes are not: their text is printed from the parse tree of the
+     * whole term, which {@link AddBrackets} needs to decide where brackets go, so they hold a tree node per
+     * node of the term in memory while printing. Only the text itself is not built in memory first.
+     */
+    public static void prettyPrint(CompiledDefinition compiledDef, OutputModes output, OutputStream out, K result) {
+        try {
+            switch (output) {
+            case KAST: {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out), OUTPUT_BUFFER_SIZE);
+                ToKast.apply(writer, result);
+                writer.write("\n");
+                writer.flush();
+                break;
+            }
+            case NONE:
+                break;
+            case PRETTY:
+            case NOWRAP: {
+                Module unparsingModule = compiledDef.getExtensionModule(compiledDef.languageParsingModule());
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out), OUTPUT_BUFFER_SIZE);
+                KOREToTreeNodes.print(writer, unparseTree(result, unparsingModule, output == OutputModes.NOWRAP));
+                writer.write("\n");
+                writer.flush();
+                break;
+            }
+            case BINARY:
+                ToBinary.apply(out, result);
+                break;
+            default:
+                throw KEMException.criticalError("Unsupported output mode: " + output);
+            }
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write the output", e);
         }
     }
 
@@ -427,13 +481,12 @@ public class KRun {
         return KORE.KApply(compiledDef.topCellInitializer, output.entrySet().stream().map(e -> KORE.KApply(KLabel("_|->_"), e.getKey(), e.getValue())).reduce(KORE.KApply(KLabel(".Map")), (a, b) -> KORE.KApply(KLabel("_Map_"), a, b)));
     }
 
-    private static String unparseTerm(K input, Module test, Boolean noWrap) {
+    private static Term unparseTree(K input, Module test, Boolean noWrap) {
         if (noWrap){
-            return KOREToTreeNodes.toString(KOREToTreeNodes.apply(KOREToTreeNodes.up(test, input), test));
+            return KOREToTreeNodes.apply(KOREToTreeNodes.up(test, input), test);
         }
-        return KOREToTreeNodes.toString(
-                new AddBrackets(test).addBrackets((ProductionReference)
-                        KOREToTreeNodes.apply(KOREToTreeNodes.up(test, input), test)));
+        return new AddBrackets(test).addBrackets((ProductionReference)
+                KOREToTreeNodes.apply(KOREToTreeNodes.up(test, input), test));
     }
 
     public K parse(String parser, String value, Sort startSymbol, Source source, String mainSyntaxModuleName, FileUtil files) {
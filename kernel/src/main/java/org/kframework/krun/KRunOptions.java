@@ -8,6 +8,7 @@ import com.beust.jcommander.ParametersDelegate;
 import org.apache.commons.lang3.tuple.Pair;
 import org.kframework.ktest.ExecNames;
 import org.kframework.main.GlobalOptions;
+import org.kframework.rewriter.ProofStrategy;
 import org.kframework.rewriter.SearchType;
 import org.kframework.unparser.OutputModes;
 import org.kframework.utils.errorsystem.KEMException;
@@ -270,7 +271,8 @@ public final class KRunOptions {
         @Parameter(names="--trace", description="Print a trace of every rule applied.")
         public boolean trace = false;
 
-        @Parameter(names="--coverage-file", description="Record a trace of locations of all rules and terms applied.")
+        @Parameter(names="--coverage-file", description="Record a trace of locations of all rules and terms applied, in a binary format. "
+                + "Run org.kframework.backend.java.util.Coverage on the file to get the number of hits of each rule.")
         public File coverage = null;
 
         @Parameter(names="--native-libraries", description="Native libraries to link the rewrite engine against. Useful in defining rewriter plugins.",
@@ -283,5 +285,43 @@ public final class KRunOptions {
 
         @Parameter(names="--profile", description="Run krun multiple times to gather better performance metrics.")
         public int profile = 1;
+
+        @Parameter(names="--search-threads", description="Number of threads used to compute the successors of the search frontier. "
+                + "Defaults to 1, i.e., sequential search.")
+        public int searchThreads = 1;
+
+        @Parameter(names="--prove-threads", description="Number of threads used to prove the claims of a specification. "
+                + "Each claim is proven independently by one thread. Defaults to 1, i.e., the claims are proven one after another.")
+        public int proveThreads = 1;
+
+        @Parameter(names="--prune-subsumed", description="Drop the states of a search or proof which are instances of "
+                + "already visited states, i.e., which match them and whose constraints imply theirs. A proof then "
+                + "omits the remaining states which are instances of reported ones, and a search the solutions "
+                + "which are instances of found ones.")
+        public boolean pruneSubsumed = false;
+
+        @Parameter(names="--proof-strategy", converter=ProofStrategyConverter.class,
+                description="The order in which the states of a proof are explored. <strategy> is either "
+                        + "[bfs|dfs|iterative-deepening|best-first]. iterative-deepening explores depth-first up to a "
+                        + "bound which doubles until no state is left beyond it; each iteration explores the shallower "
+                        + "levels again and starts from an empty set of visited states. best-first explores the states "
+                        + "with the smallest <k> cell first.")
+        public ProofStrategy proofStrategy = ProofStrategy.BFS;
+
+        public static class ProofStrategyConverter extends BaseEnumConverter<ProofStrategy> {
+
+            public ProofStrategyConverter(String optionName) {
+                super(optionName);
+            }
+
+            @Override
+            public Class<ProofStrategy> enumClass() {
+                return ProofStrategy.class;
+            }
+        }
+
+        @Parameter(names="--function-cache-size", description="Maximum number of results of functions tagged with [memo] "
+                + "kept by the java backend. A value of 0 disables memoization.")
+        public int functionCacheSize = 10000;
     }
 }
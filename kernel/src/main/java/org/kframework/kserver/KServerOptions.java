@@ -13,4 +13,11 @@ public class KServerOptions {
 
     @Parameter(names={"--port", "-p"}, description="The port to start the server on.")
     public int port = 2113;
+
+    @Parameter(names={"--threads", "-t"}, description="The maximum number of requests served concurrently. " +
+            "Further requests wait until a running one completes. Defaults to the number of processors.")
+    public int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names="--cache-size", description="The number of compiled definitions kept loaded between requests.")
+    public int cacheSize = 4;
 }
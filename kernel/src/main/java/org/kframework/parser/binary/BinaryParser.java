@@ -4,6 +4,8 @@ package org.kframework.parser.binary;
 import org.kframework.frontend.ADT;
 import org.kframework.frontend.K;
 import org.kframework.frontend.KLabel;
+import org.kframework.utils.ByteArrayToken;
+import org.kframework.utils.StringUtil;
 import org.kframework.utils.errorsystem.KEMException;
 import scala.collection.immutable.List$;
 
@@ -24,7 +26,8 @@ import static org.kframework.frontend.KORE.*;
  *
  * First five bytes are the magic header "\x7fKAST".
  * Next 3 bytes are the major, minor, and release version of the format. Currently
- * they are set to "\x04\x00\x00".
+ * they are set to "\x04\x00\x00", or to "\x04\x01\x00" if the term contains a KBytes node, which version 4.0.0
+ * does not have.
  *
  * Subsequently, the format contains a post-order traversal of the term according to the following rules:
  *
@@ -37,6 +40,9 @@ import static org.kframework.frontend.KORE.*;
  * * KVariable:      The byte "\x04" followed by a representation of the name of the variable.
  * * KRewrite:       Representation of the LHS of the rewrite, followed by the RHS, followed by the byte "\x05".
  * * InjectedKLabel: The byte "\x06" followed by the representation of the klabel.
+ * * KBytes:         A token backed by a byte array: the byte "\x08" followed by a 4-byte length, the bytes themselves,
+ *                   and the representation of the sort of the token. It is read as a {@link ByteArrayToken}, whose
+ *                   string is the textual representation of the bytes (see {@link StringUtil#enquoteBytes}).
  * * KLabel:         The representation of the string of the klabel, followed by the byte "\x01" if the klabel is a
  *                   variable, and "\x00" if it's a concrete klabel.
  * * String:         A 4-byte offset in the string intern table. The intern table is commputed as the term is traversed.
@@ -56,13 +62,15 @@ public class BinaryParser {
     private static final byte[] MAGIC = {0x7f, 'K', 'A', 'S', 'T'};
 
     public static final int BEGIN = 0, KTOKEN = 1, KAPPLY = 2, KSEQUENCE = 3, KVARIABLE = 4, KREWRITE = 5,
-            INJECTEDKLABEL = 6, END = 7;
+            INJECTEDKLABEL = 6, END = 7, KBYTES = 8;
 
     private final ByteBuffer data;
+    private final boolean hasBytes;
     private final List<String> interns = new ArrayList<>();
 
-    private BinaryParser(ByteBuffer data) {
+    private BinaryParser(ByteBuffer data, boolean hasBytes) {
         this.data = data;
+        this.hasBytes = hasBytes;
     }
 
     private K read400() throws IOException {
@@ -105,6 +113,14 @@ public class BinaryParser {
             case INJECTEDKLABEL:
                 stack.push(InjectedKLabel(readKLabel()));
                 break;
+            case KBYTES:
+                if (!hasBytes) {
+                    throw KEMException.criticalError("Unexpected code found in KAST binary term of version 4.0.0: " + type);
+                }
+                byte[] bytes = new byte[data.getInt()];
+                data.get(bytes);
+                stack.push(new ByteArrayToken(bytes, Sort(readString())));
+                break;
             case END:
                 break;
             default:
@@ -153,8 +169,8 @@ public class BinaryParser {
             int major = data.get();
             int minor = data.get();
             int build = data.get();
-            if (major == 4 && minor == 0 && build == 0) {
-                return new BinaryParser(data).read400();
+            if (major == 4 && (minor == 0 || minor == 1) && build == 0) {
+                return new BinaryParser(data, minor == 1).read400();
             } else {
                 throw KEMException.compilerError("Unsupported version of KAST binary file: " + major + "." + minor + "." + build);
             }
@@ -0,0 +1,37 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.parser.concrete2kore;
+
+import org.kframework.definition.Sentence;
+import org.kframework.utils.errorsystem.KException;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The sentences of a module after resolving its rule and context bubbles, together with the content hash
+ * of the module they were obtained from and the warnings reported while parsing the bubbles.
+ */
+public class ModuleParseCache implements Serializable {
+    private final String hash;
+    private final Set<Sentence> sentences;
+    private final List<KException> warnings;
+
+    public ModuleParseCache(String hash, Set<Sentence> sentences, List<KException> warnings) {
+        this.hash = hash;
+        this.sentences = sentences;
+        this.warnings = warnings;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public Set<Sentence> getSentences() {
+        return sentences;
+    }
+
+    public List<KException> getWarnings() {
+        return warnings;
+    }
+}
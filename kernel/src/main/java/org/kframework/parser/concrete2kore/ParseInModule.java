@@ -152,32 +152,12 @@ public class ParseInModule implements Serializable {
             return new Tuple2<>(Left.apply(Sets.newHashSet(new ParseFailedException(kex))), warn);
         }
 
-        Parser parser = new Parser(input, source, startLine, startColumn);
-        Term parsed;
-        try {
-            parsed = parser.parse(startSymbolNT, 0);
-        } catch (ParseFailedException e) {
-            return Tuple2.apply(Left.apply(Collections.singleton(e)), Collections.emptySet());
-        }
-
-        Either<Set<ParseFailedException>, Term> rez = new TreeCleanerVisitor().apply(parsed);
+        Either<Set<ParseFailedException>, Term> rez = parseAndClean(input, startSymbolNT, source, startLine, startColumn);
         if (rez.isLeft())
             return new Tuple2<>(rez, warn);
-        rez = new CorrectRewritePriorityVisitor().apply(rez.right().get());
-        if (rez.isLeft())
-            return new Tuple2<>(rez, warn);
-        rez = new CorrectKSeqPriorityVisitor().apply(rez.right().get());
-        if (rez.isLeft())
-            return new Tuple2<>(rez, warn);
-        rez = new CorrectCastPriorityVisitor().apply(rez.right().get());
-        if (rez.isLeft())
-            return new Tuple2<>(rez, warn);
-        if (typeCheck) {
-            rez = new ApplyTypeCheckVisitor(disambModule.subsorts()).apply(rez.right().get());
-            if (rez.isLeft())
-                return new Tuple2<>(rez, warn);
-        }
-        rez = new PriorityVisitor(disambModule.priorities(), disambModule.leftAssoc(), disambModule.rightAssoc()).apply(rez.right().get());
+        // the single pass may report the errors of a different filter than the separate passes, so the errors
+        // of the separate passes are reported instead, over the same forest
+        rez = LocalFiltersVisitor.applyReportingSequentialErrors(disambModule, typeCheck, rez.right().get());
         if (rez.isLeft())
             return new Tuple2<>(rez, warn);
         Tuple2<Either<Set<ParseFailedException>, Term>, Set<ParseFailedException>> rez2;
@@ -201,4 +181,27 @@ public class ParseInModule implements Serializable {
 
         return new Tuple2<>(Right.apply(rez3), warn);
     }
+
+    /**
+     * Parses the given input and applies the filters which reshape the forest or prefer some alternatives over
+     * others, which must run before {@link LocalFiltersVisitor}.
+     */
+    private Either<Set<ParseFailedException>, Term>
+            parseAndClean(String input, Grammar.NonTerminal startSymbolNT, Source source, int startLine, int startColumn) {
+        Parser parser = new Parser(input, source, startLine, startColumn);
+        Term parsed;
+        try {
+            parsed = parser.parse(startSymbolNT, 0);
+        } catch (ParseFailedException e) {
+            return Left.apply(Collections.singleton(e));
+        }
+
+        Either<Set<ParseFailedException>, Term> rez = new TreeCleanerVisitor().apply(parsed);
+        if (rez.isLeft())
+            return rez;
+        rez = new CorrectRewritePriorityVisitor().apply(rez.right().get());
+        if (rez.isLeft())
+            return rez;
+        return new CorrectKSeqPriorityVisitor().apply(rez.right().get());
+    }
 }
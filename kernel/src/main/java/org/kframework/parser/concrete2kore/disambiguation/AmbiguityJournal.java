@@ -0,0 +1,37 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.parser.concrete2kore.disambiguation;
+
+import org.kframework.parser.Ambiguity;
+import org.kframework.parser.Term;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the alternatives of the ambiguities of a parse forest before a filter prunes them in place,
+ * so that the forest can be restored and filtered again without parsing it again.
+ */
+class AmbiguityJournal {
+    private final Map<Ambiguity, Set<Term>> alternatives = new IdentityHashMap<>();
+
+    /**
+     * Records the alternatives of the given ambiguity, unless it was already recorded. Call before pruning it.
+     */
+    static void record(AmbiguityJournal journal, Ambiguity amb) {
+        if (journal != null) {
+            journal.alternatives.computeIfAbsent(amb, a -> new HashSet<>(a.items()));
+        }
+    }
+
+    /**
+     * Restores the recorded alternatives of all the ambiguities.
+     */
+    void restore() {
+        alternatives.forEach((amb, items) -> {
+            amb.items().clear();
+            amb.items().addAll(items);
+        });
+    }
+}
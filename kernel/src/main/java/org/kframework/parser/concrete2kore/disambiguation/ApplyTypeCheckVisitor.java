@@ -6,6 +6,7 @@ import org.kframework.POSet;
 import org.kframework.builtin.Sorts;
 import org.kframework.definition.NonTerminal;
 import org.kframework.frontend.Sort;
+import org.kframework.parser.Ambiguity;
 import org.kframework.parser.Constant;
 import org.kframework.parser.ProductionReference;
 import org.kframework.parser.SetsTransformerWithErrors;
@@ -31,13 +32,31 @@ public class ApplyTypeCheckVisitor extends SetsTransformerWithErrors<ParseFailed
     }
 
     public Either<java.util.Set<ParseFailedException>, Term> apply(TermCons tc) {
+        Either<java.util.Set<ParseFailedException>, Term> rez = filterChildren(tc);
+        if (rez.isLeft())
+            return rez;
+        return super.apply((TermCons) rez.right().get());
+    }
+
+    /**
+     * Applies the type checks on the immediate children of the given term only.
+     */
+    Either<java.util.Set<ParseFailedException>, Term> filterChildren(TermCons tc) {
+        return filterChildren(tc, null);
+    }
+
+    /**
+     * Applies the type checks on the immediate children of the given term only, recording the ambiguities
+     * they prune in the given journal, if any.
+     */
+    Either<java.util.Set<ParseFailedException>, Term> filterChildren(TermCons tc, AmbiguityJournal journal) {
         if (tc.production().klabel().isDefined()
                 && (tc.production().klabel().get().name().equals("#SyntacticCast")
                 || tc.production().klabel().get().name().startsWith("#SemanticCastTo")
                 || tc.production().klabel().get().name().equals("#InnerCast"))) {
             Term t = tc.get(0);
             boolean strict = !tc.production().klabel().get().name().startsWith("#SemanticCastTo");
-            Either<Set<ParseFailedException>, Term> rez = new ApplyTypeCheck2(VariableTypeInferenceFilter.getSortOfCast(tc), strict).apply(t);
+            Either<Set<ParseFailedException>, Term> rez = new ApplyTypeCheck2(VariableTypeInferenceFilter.getSortOfCast(tc), strict, journal).apply(t);
             if (rez.isLeft())
                 return rez;
             tc = tc.with(0, rez.right().get());
@@ -46,7 +65,7 @@ public class ApplyTypeCheckVisitor extends SetsTransformerWithErrors<ParseFailed
                 if (tc.production().items().apply(i) instanceof NonTerminal) {
                     Term t = tc.get(j);
                     Sort s = ((NonTerminal) tc.production().items().apply(i)).sort();
-                    Either<Set<ParseFailedException>, Term> rez = new ApplyTypeCheck2(s).apply(t);
+                    Either<Set<ParseFailedException>, Term> rez = new ApplyTypeCheck2(s, false, journal).apply(t);
                     if (rez.isLeft())
                         return rez;
                     tc = tc.with(j, rez.right().get());
@@ -54,23 +73,24 @@ public class ApplyTypeCheckVisitor extends SetsTransformerWithErrors<ParseFailed
                 }
             }
         }
-        Either<java.util.Set<ParseFailedException>, Term> rez = super.apply(tc);
-        if (rez.isLeft())
-            return rez;
-        return Right.apply(rez.right().get());
+        return Right.apply(tc);
     }
 
     private class ApplyTypeCheck2 extends SetsTransformerWithErrors<ParseFailedException> {
         private final Sort sort;
         private final boolean strict;
-        public ApplyTypeCheck2(Sort sort) {
-            this.sort = sort;
-            strict = false;
-        }
+        private final AmbiguityJournal journal;
 
-        public ApplyTypeCheck2(Sort sort, boolean strict) {
+        public ApplyTypeCheck2(Sort sort, boolean strict, AmbiguityJournal journal) {
             this.sort = sort;
             this.strict = strict;
+            this.journal = journal;
+        }
+
+        @Override
+        public Either<java.util.Set<ParseFailedException>, Term> apply(Ambiguity amb) {
+            AmbiguityJournal.record(journal, amb);
+            return super.apply(amb);
         }
 
         public Either<java.util.Set<ParseFailedException>, Term> apply(ProductionReference pr) {
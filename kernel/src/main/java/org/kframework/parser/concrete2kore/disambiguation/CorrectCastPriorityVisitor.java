@@ -3,6 +3,7 @@ package org.kframework.parser.concrete2kore.disambiguation;
 
 import com.google.common.collect.Sets;
 import org.kframework.definition.NonTerminal;
+import org.kframework.parser.Ambiguity;
 import org.kframework.parser.SetsTransformerWithErrors;
 import org.kframework.parser.Term;
 import org.kframework.parser.TermCons;
@@ -22,6 +23,24 @@ public class CorrectCastPriorityVisitor extends SetsTransformerWithErrors<ParseF
     @Override
     public Either<java.util.Set<ParseFailedException>, Term> apply(TermCons tc) {
         assert tc.production() != null : this.getClass() + ":" + " production not found." + tc;
+        Either<java.util.Set<ParseFailedException>, Term> rez = filterChildren(tc);
+        if (rez.isLeft())
+            return rez;
+        return super.apply((TermCons) rez.right().get());
+    }
+
+    /**
+     * Applies the filter on the immediate children of the given term only.
+     */
+    static Either<java.util.Set<ParseFailedException>, Term> filterChildren(TermCons tc) {
+        return filterChildren(tc, null);
+    }
+
+    /**
+     * Applies the filter on the immediate children of the given term only, recording the ambiguities
+     * it prunes in the given journal, if any.
+     */
+    static Either<java.util.Set<ParseFailedException>, Term> filterChildren(TermCons tc, AmbiguityJournal journal) {
         if (!tc.production().isSyntacticSubsort()
                 && tc.production().klabel().isDefined()
                 && (tc.production().klabel().get().name().equals("#SyntacticCast")
@@ -30,18 +49,26 @@ public class CorrectCastPriorityVisitor extends SetsTransformerWithErrors<ParseF
                     || tc.production().klabel().get().name().equals("#OuterCast"))) {
             // match only on the outermost elements
                 Either<java.util.Set<ParseFailedException>, Term> rez =
-                        new PriorityVisitor2(tc).apply(tc.get(0));
+                        new PriorityVisitor2(tc, journal).apply(tc.get(0));
                 if (rez.isLeft())
                     return rez;
                 tc = tc.with(0, rez.right().get());
         }
-        return super.apply(tc);
+        return Right.apply(tc);
     }
 
     private static class PriorityVisitor2 extends SetsTransformerWithErrors<ParseFailedException> {
         private final TermCons parent;
-        public PriorityVisitor2(TermCons parent) {
+        private final AmbiguityJournal journal;
+        public PriorityVisitor2(TermCons parent, AmbiguityJournal journal) {
             this.parent = parent;
+            this.journal = journal;
+        }
+
+        @Override
+        public Either<java.util.Set<ParseFailedException>, Term> apply(Ambiguity amb) {
+            AmbiguityJournal.record(journal, amb);
+            return super.apply(amb);
         }
 
         public Either<java.util.Set<ParseFailedException>, Term> apply(TermCons tc) {
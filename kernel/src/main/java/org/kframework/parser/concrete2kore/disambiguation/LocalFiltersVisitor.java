@@ -0,0 +1,101 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.parser.concrete2kore.disambiguation;
+
+import org.kframework.definition.Module;
+import org.kframework.parser.Ambiguity;
+import org.kframework.parser.SetsTransformerWithErrors;
+import org.kframework.parser.Term;
+import org.kframework.parser.TermCons;
+import org.kframework.utils.errorsystem.ParseFailedException;
+import scala.util.Either;
+
+import java.util.Set;
+
+/**
+ * Applies {@link CorrectCastPriorityVisitor}, {@link ApplyTypeCheckVisitor} and {@link PriorityVisitor}
+ * in a single traversal of the parse forest.
+ * <p>
+ * Each of these filters only removes the alternatives of the immediate children of a node which violate
+ * a constraint between the node and the child, so they can be checked together on each node without
+ * changing the terms that survive. Filters which prefer some alternatives of an ambiguity over others
+ * must still be applied as separate passes before this one.
+ * <p>
+ * When no term survives, the errors can differ from those of the separate passes: a node is checked by all
+ * the filters before its children, so e.g. a priority error may be reported where the separate passes
+ * report a cast error deeper in the term. {@link #applyReportingSequentialErrors} reports the errors of the
+ * separate passes instead.
+ */
+public class LocalFiltersVisitor extends SetsTransformerWithErrors<ParseFailedException> {
+
+    private final ApplyTypeCheckVisitor typeCheck;
+    private final PriorityVisitor priority;
+    /**
+     * The alternatives of the ambiguities pruned by this visitor; null if they are not recorded.
+     */
+    private final AmbiguityJournal journal;
+
+    /**
+     * @param typeCheck whether to apply the {@link ApplyTypeCheckVisitor} filter.
+     */
+    public LocalFiltersVisitor(Module module, boolean typeCheck) {
+        this(module, typeCheck, null);
+    }
+
+    private LocalFiltersVisitor(Module module, boolean typeCheck, AmbiguityJournal journal) {
+        this.typeCheck = typeCheck ? new ApplyTypeCheckVisitor(module.subsorts()) : null;
+        this.priority = new PriorityVisitor(module.priorities(), module.leftAssoc(), module.rightAssoc());
+        this.journal = journal;
+    }
+
+    /**
+     * Applies the filters in a single traversal. If no term survives, the forest is restored as it was before
+     * the traversal, and the errors are those of the separate passes of {@link #applySequentially}.
+     */
+    public static Either<Set<ParseFailedException>, Term> applyReportingSequentialErrors(Module module, boolean typeCheck, Term term) {
+        AmbiguityJournal journal = new AmbiguityJournal();
+        Either<Set<ParseFailedException>, Term> rez = new LocalFiltersVisitor(module, typeCheck, journal).apply(term);
+        if (rez.isRight())
+            return rez;
+        // the traversal pruned the ambiguities in place; the other nodes of the forest are immutable
+        journal.restore();
+        return applySequentially(module, typeCheck, term);
+    }
+
+    @Override
+    public Either<Set<ParseFailedException>, Term> apply(Ambiguity amb) {
+        AmbiguityJournal.record(journal, amb);
+        return super.apply(amb);
+    }
+
+    @Override
+    public Either<Set<ParseFailedException>, Term> apply(TermCons tc) {
+        assert tc.production() != null : this.getClass() + ":" + " production not found." + tc;
+        Either<Set<ParseFailedException>, Term> rez = CorrectCastPriorityVisitor.filterChildren(tc, journal);
+        if (rez.isLeft())
+            return rez;
+        if (typeCheck != null) {
+            rez = typeCheck.filterChildren((TermCons) rez.right().get(), journal);
+            if (rez.isLeft())
+                return rez;
+        }
+        rez = priority.filterChildren((TermCons) rez.right().get(), journal);
+        if (rez.isLeft())
+            return rez;
+        return super.apply((TermCons) rez.right().get());
+    }
+
+    /**
+     * Applies the filters as separate passes over the whole forest, in the same order.
+     */
+    public static Either<Set<ParseFailedException>, Term> applySequentially(Module module, boolean typeCheck, Term term) {
+        Either<Set<ParseFailedException>, Term> rez = new CorrectCastPriorityVisitor().apply(term);
+        if (rez.isLeft())
+            return rez;
+        if (typeCheck) {
+            rez = new ApplyTypeCheckVisitor(module.subsorts()).apply(rez.right().get());
+            if (rez.isLeft())
+                return rez;
+        }
+        return new PriorityVisitor(module.priorities(), module.leftAssoc(), module.rightAssoc()).apply(rez.right().get());
+    }
+}
@@ -5,6 +5,7 @@ import com.google.common.collect.Sets;
 import org.kframework.POSet;
 import org.kframework.definition.NonTerminal;
 import org.kframework.definition.Tag;
+import org.kframework.parser.Ambiguity;
 import org.kframework.parser.SetsTransformerWithErrors;
 import org.kframework.parser.Term;
 import org.kframework.parser.TermCons;
@@ -36,11 +37,29 @@ public class PriorityVisitor extends SetsTransformerWithErrors<ParseFailedExcept
     @Override
     public Either<java.util.Set<ParseFailedException>, Term> apply(TermCons tc) {
         assert tc.production() != null : this.getClass() + ":" + " production not found." + tc;
+        Either<java.util.Set<ParseFailedException>, Term> rez = filterChildren(tc);
+        if (rez.isLeft())
+            return rez;
+        return super.apply((TermCons) rez.right().get());
+    }
+
+    /**
+     * Applies the priority and associativity filters on the immediate children of the given term only.
+     */
+    Either<java.util.Set<ParseFailedException>, Term> filterChildren(TermCons tc) {
+        return filterChildren(tc, null);
+    }
+
+    /**
+     * Applies the priority and associativity filters on the immediate children of the given term only,
+     * recording the ambiguities they prune in the given journal, if any.
+     */
+    Either<java.util.Set<ParseFailedException>, Term> filterChildren(TermCons tc, AmbiguityJournal journal) {
         if (!tc.production().isSyntacticSubsort() && !tc.production().att().contains("bracket")) {
             // match only on the outermost elements
             if (tc.production().items().apply(0) instanceof NonTerminal) {
                 Either<java.util.Set<ParseFailedException>, Term> rez =
-                        new PriorityVisitor2(tc, PriorityVisitor2.Side.LEFT, priorities, leftAssoc, rightAssoc).apply(tc.get(0));
+                        new PriorityVisitor2(tc, PriorityVisitor2.Side.LEFT, priorities, leftAssoc, rightAssoc, journal).apply(tc.get(0));
                 if (rez.isLeft())
                     return rez;
                 tc = tc.with(0, rez.right().get());
@@ -48,13 +67,13 @@ public class PriorityVisitor extends SetsTransformerWithErrors<ParseFailedExcept
             if (tc.production().items().apply(tc.production().items().size() - 1) instanceof NonTerminal) {
                 int last = tc.items().size() - 1;
                 Either<java.util.Set<ParseFailedException>, Term> rez =
-                        new PriorityVisitor2(tc, PriorityVisitor2.Side.RIGHT, priorities, leftAssoc, rightAssoc).apply(tc.get(last));
+                        new PriorityVisitor2(tc, PriorityVisitor2.Side.RIGHT, priorities, leftAssoc, rightAssoc, journal).apply(tc.get(last));
                 if (rez.isLeft())
                     return rez;
                 tc = tc.with(last, rez.right().get());
             }
         }
-        return super.apply(tc);
+        return Right.apply(tc);
     }
 
     private static class PriorityVisitor2 extends SetsTransformerWithErrors<ParseFailedException> {
@@ -68,13 +87,21 @@ public class PriorityVisitor extends SetsTransformerWithErrors<ParseFailedExcept
         private final POSet<Tag> priorities;
         private final Set<Tuple2<Tag, Tag>> leftAssoc;
         private final Set<Tuple2<Tag, Tag>> rigthAssoc;
+        private final AmbiguityJournal journal;
 
-        public PriorityVisitor2(TermCons parent, Side side, POSet<Tag> priorities, Set<Tuple2<Tag, Tag>> leftAssoc, Set<Tuple2<Tag, Tag>> rightAssoc) {
+        public PriorityVisitor2(TermCons parent, Side side, POSet<Tag> priorities, Set<Tuple2<Tag, Tag>> leftAssoc, Set<Tuple2<Tag, Tag>> rightAssoc, AmbiguityJournal journal) {
             this.parent = parent;
             this.side = side;
             this.priorities = priorities;
             this.leftAssoc = leftAssoc;
             this.rigthAssoc = rightAssoc;
+            this.journal = journal;
+        }
+
+        @Override
+        public Either<java.util.Set<ParseFailedException>, Term> apply(Ambiguity amb) {
+            AmbiguityJournal.record(journal, amb);
+            return super.apply(amb);
         }
 
         public Either<java.util.Set<ParseFailedException>, Term> apply(TermCons tc) {
@@ -161,7 +161,10 @@ public class Grammar implements Serializable {
     static final RunAutomaton pattern = new RunAutomaton(new RegExp("("+ multiLine +"|"+ singleLine +"|"+ whites +")*").toAutomaton(), false);
 
     /**
-     * Calculates Nullability and OrderingInfo for all the states in the grammar.
+     * Calculates Nullability and OrderingInfo for all the states in the grammar,
+     * and numbers the states and NonTerminals densely so the parser can keep its tables
+     * in arrays indexed by them. {@link PrimitiveState}s which match the same patterns
+     * are given the same token number, so the parser scans for each token at most once per position.
      * Must be called before being handed over to the parser, but after
      * the grammar is finished being built.
      */
@@ -171,13 +174,33 @@ public class Grammar implements Serializable {
 
         // 2. make an array with all the states
         List<State> allStates = new ArrayList<>();
+        int ntIndex = 0;
         for (NonTerminal nonTerminal : getAllNonTerminals()) {
+            nonTerminal.index = ntIndex++;
             allStates.addAll(nonTerminal.getReachableStates());
         }
         // 3. prepare the inverse relation
         Map<State, Integer> inverseAllStates = new HashMap<>();
+        Map<List<RunAutomaton>, Integer> tokens = new HashMap<>();
         for (int i = 0; i < allStates.size(); i++) {
-            inverseAllStates.put(allStates.get(i), i);
+            State state = allStates.get(i);
+            inverseAllStates.put(state, i);
+            state.index = i;
+            if (state instanceof NextableState) {
+                NextableState ns = (NextableState) state;
+                ns.nextStates = ns.next.toArray(new State[ns.next.size()]);
+            }
+            if (state instanceof RegExState) {
+                RegExState res = (RegExState) state;
+                // RunAutomaton does not override equals, so states share a token only if they share the automata
+                List<RunAutomaton> key = Arrays.asList(res.precedePattern, res.pattern, res.followPattern);
+                Integer token = tokens.get(key);
+                if (token == null) {
+                    token = tokens.size();
+                    tokens.put(key, token);
+                }
+                res.token = token;
+            }
         }
 
         // prepare the Tarjan input data
@@ -279,6 +302,8 @@ public class Grammar implements Serializable {
         // contains a list of all States found in this NonTerminal other than the EntryState
         // and ExitState
         private final Set<NextableState> intermediaryStates = new HashSet<>();
+        /** The dense index of this NonTerminal in the grammar, assigned by {@link Grammar#compile()}. */
+        int index = -1;
 
         public NonTerminal(String name) {
             assert name != null && !name.equals("") : "NonTerminal name cannot be null or empty.";
@@ -337,6 +362,8 @@ public class Grammar implements Serializable {
         public final NonTerminal nt;
         /** The OrderingInfo for this state. */
         OrderingInfo orderingInfo = null;
+        /** The dense index of this state in the grammar, assigned by {@link Grammar#compile()}. */
+        int index = -1;
 
         /**
          * Metadata used by the parser used to determine in what order to process StateReturns
@@ -424,6 +451,8 @@ public class Grammar implements Serializable {
                 return super.add(s);
             }
         };
+        /** The contents of {@link #next} as an array, for iteration by the parser. Set by {@link Grammar#compile()}. */
+        State[] nextStates = null;
         NextableState(String name, NonTerminal nt, boolean intermediary) {
             super(name, nt);
             if (intermediary) { nt.intermediaryStates.add(this); }
@@ -482,9 +511,16 @@ public class Grammar implements Serializable {
             }
         }
 
+        /**
+         * The number identifying the patterns matched by this state, or -1 if the matches
+         * of this state should not be shared with other states. Assigned by {@link Grammar#compile()}.
+         */
+        int token = -1;
+
         /*
          *  Returns a set of matches at the given position in the given string.
          *  If there are no matches, the returned set will be empty.
+         *  The returned set must not be modified.
          */
         abstract Set<MatchResult> matches(String text, String reverseText, int startPosition);
 
@@ -512,8 +548,10 @@ public class Grammar implements Serializable {
         public final RunAutomaton precedePattern;
         public final RunAutomaton followPattern;
 
+        private static final RunAutomaton EMPTY = new RunAutomaton(BasicAutomata.makeEmpty(), false);
+
         public RegExState(String name, NonTerminal nt, RunAutomaton pattern) {
-            this(name, nt, new RunAutomaton(BasicAutomata.makeEmpty(), false), pattern, new RunAutomaton(BasicAutomata.makeEmpty(), false));
+            this(name, nt, EMPTY, pattern, EMPTY);
         }
 
         public RegExState(String name, NonTerminal nt, RunAutomaton precedePattern, RunAutomaton pattern, RunAutomaton followPattern) {
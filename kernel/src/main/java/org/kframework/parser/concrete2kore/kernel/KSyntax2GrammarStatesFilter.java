@@ -48,7 +48,9 @@ public class KSyntax2GrammarStatesFilter {
         }
 
         stream(module.productions()).forEach(p -> collectRejects(p, rejects));
-        stream(module.productions()).collect(Collectors.groupingBy(p -> p.sort())).forEach((sort, prods) -> processProductions(sort, prods, grammar, rejects));
+        // share the automata of equal terminals, so that the parser scans for them only once per position
+        Map<TerminalLike, TerminalLike> terminals = new HashMap<>();
+        stream(module.productions()).collect(Collectors.groupingBy(p -> p.sort())).forEach((sort, prods) -> processProductions(sort, prods, grammar, rejects, terminals));
 
         grammar.addWhiteSpace();
         grammar.compile();
@@ -77,7 +79,8 @@ public class KSyntax2GrammarStatesFilter {
         }
     }
 
-    public static void processProductions(Sort sort, List<Production> prods, Grammar grammar, Set<String> autoRejects) {
+    public static void processProductions(Sort sort, List<Production> prods, Grammar grammar, Set<String> autoRejects,
+                                          Map<TerminalLike, TerminalLike> terminals) {
         NonTerminal nt = grammar.get(sort.name());
         assert nt != null : "Could not find in the grammar the required sort: " + sort;
         // all types of production follow pretty much the same pattern
@@ -106,7 +109,7 @@ public class KSyntax2GrammarStatesFilter {
                     previous.next.add(nts);
                     previous = nts;
                 } else if (prdItem instanceof TerminalLike) {
-                    TerminalLike lx = (TerminalLike) prdItem;
+                    TerminalLike lx = terminals.computeIfAbsent((TerminalLike) prdItem, t -> t);
                     Grammar.PrimitiveState pstate = new Grammar.RegExState(
                             sort.name() + ":" + lx.toString(),
                             nt,
@@ -18,16 +18,17 @@ import org.kframework.parser.concrete2kore.kernel.Grammar.PrimitiveState;
 import org.kframework.parser.concrete2kore.kernel.Grammar.RegExState;
 import org.kframework.parser.concrete2kore.kernel.Grammar.RuleState;
 import org.kframework.parser.concrete2kore.kernel.Grammar.State;
-import org.kframework.utils.algorithms.AutoVivifyingBiMap;
+import org.kframework.utils.algorithms.IntTripleHashMap;
 import org.kframework.utils.errorsystem.KException;
 import org.kframework.utils.errorsystem.KException.ExceptionType;
 import org.kframework.utils.errorsystem.KException.KExceptionGroup;
 import org.kframework.utils.errorsystem.ParseFailedException;
 import org.pcollections.ConsPStack;
 
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * This is the main code for running the parser.
@@ -38,11 +39,11 @@ import java.util.TreeSet;
  *
  * The parser operates by maintaining tables of {@link NonTerminalCall},
  * {@link StateCall} and {@link StateReturn} records. These tables are stored
- * in ParseState and are keyed by {@link NonTerminalCall.Key},
- * {@link StateCall.Key} and {@link StateReturn.Key}. For any given Key, there is
- * a single value that can be looked up in an {@link AutoVivifyingBiMap}.
- * If no value exists for a given Key, then the {@link AutoVivifyingBiMap}
- * will create one.
+ * in ParseState and are keyed by the integer fields identifying each record:
+ * the dense indices that {@link Grammar#compile()} assigns to states and
+ * non-terminals, and positions in the input. For any given key, there is
+ * a single record that can be looked up in an {@link IntTripleHashMap}.
+ * If no record exists for a given key, then the parser creates one.
  *
  * In addition to these tables, a work queue of {@link StateReturn}s
  * to be processed is kept in {@link StateReturnWorkList}.
@@ -85,97 +86,94 @@ public class Parser {
 
     /**
      * A StateCall represents the fact that the parser started parsing
-     * a particular {@link State} (i.e., key.state) at a particular position
-     * (i.e., key.stateBegin) while parsing a particular {@link NonTerminalCall}
-     * (i.e., key.ntCall).
+     * a particular {@link State} (i.e., state) at a particular position
+     * (i.e., stateBegin) while parsing a particular {@link NonTerminalCall}
+     * (i.e., ntCall).
      *
      * For each StateCall, we keep track of the AST produced up to that point.
      * Since the AST produced may depend on the context in which the
      * {@link NonTerminalCall} associated with this StateCall
-     * (i.e., key.ntCall.context), we do not simply store an AST
+     * (i.e., ntCall.context), we do not simply store an AST
      * but rather a function from individual contexts.
      * This is stored in the 'function' field.
      * (See the {@link Function} class for how that is implemented).
+     *
+     * StateCalls are keyed by (state.index, ntCall.ntBegin, stateBegin), since the state
+     * determines the {@link NonTerminal} of the ntCall.
      */
     private static class StateCall {
         /** The {@link Function} storing the AST parsed so far */
         final Function function = Function.empty();
-
-        private static class Key implements AutoVivifyingBiMap.Create<StateCall> {
-            /** The {@link NonTerminalCall} containing this StateCall */
-            final NonTerminalCall ntCall;
-            /** The start position of this StateCall */
-            final int stateBegin;
-            /** The {@link State} that this StateCall is for */
-            final State state;
-
-            private final int hashCode;
-
-            //***************************** Start Boilerplate *****************************
-            public Key(NonTerminalCall ntCall, int stateBegin, State state) {
-                assert ntCall != null; assert state != null;
-                this.ntCall = ntCall; this.stateBegin = stateBegin; this.state = state;
-                this.hashCode = computeHash();
-            }
-
-            public StateCall create() { return new StateCall(this); }
-
-            @Override
-            public boolean equals(Object o) {
-                if (this == o) return true;
-                if (o == null || getClass() != o.getClass()) return false;
-
-                Key key = (Key) o;
-
-                if (stateBegin != key.stateBegin) return false;
-                if (!ntCall.equals(key.ntCall)) return false;
-                if (!state.equals(key.state)) return false;
-
-                return true;
-            }
-
-            @Override
-            public int hashCode() {
-                return hashCode;
-            }
-            public int computeHash() {
-                int result = ntCall.key.hashCode();
-                result = 31 * result + stateBegin;
-                result = 31 * result + state.hashCode();
-                return result;
-            }
-
-            @Override
-            public String toString() {
-                return ntCall.key.nt.name + "." + state.name + " @ "+ stateBegin;
-            }
+        /** The {@link NonTerminalCall} containing this StateCall */
+        final NonTerminalCall ntCall;
+        /** The start position of this StateCall */
+        final int stateBegin;
+        /** The {@link State} that this StateCall is for */
+        final State state;
+        /** The number of StateCalls created before this one, used as the key of its StateReturns */
+        final int id;
+
+        StateCall(NonTerminalCall ntCall, int stateBegin, State state, int id) {
+            assert ntCall != null; assert state != null;
+            assert state.index >= 0 : "The grammar must be compiled before parsing.";
+            this.ntCall = ntCall; this.stateBegin = stateBegin; this.state = state; this.id = id;
         }
-        final Key key;
-        StateCall(Key key) { assert key != null; this.key = key; }
 
+        @Override
         public int hashCode() {
-            return this.key.hashCode();
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return ntCall.nt.name + "." + state.name + " @ "+ stateBegin;
         }
-        //***************************** End Boilerplate *****************************
     }
 
     /**
      * A StateReturn represents the fact that the parser finished parsing
      * something that was started by a particular {@link StateCall}
-     * (i.e., key.stateCall) at a particular position (i.e. key.stateEnd).
+     * (i.e., stateCall) at a particular position (i.e. stateEnd).
      *
      * Just was with {@link StateCall}, a StateReturn stores the AST produced up to that
      * point as the 'function' field.
+     *
+     * StateReturns are keyed by (stateCall.id, stateEnd).
      */
     private static class StateReturn implements Comparable<StateReturn> {
         /** The {@link Function} storing the AST parsed so far */
         final Function function = Function.empty();
-
-        private final int[] orderingInfo = new int[5];
+        /** The {@link StateCall} that this StateReturn finishes */
+        final StateCall stateCall;
+        /** The end position of the parse */
+        final int stateEnd;
+
+        // copies of the fields compared by compareTo, to avoid dereferencing the StateCall
+        private final int ntBegin;
+        private final int stateOrder;
+        private final int stateBegin;
+        private final int stateUnique;
+
+        /** Whether this StateReturn is currently in the {@link StateReturnWorkList} */
+        boolean queued = false;
+
+        StateReturn(StateCall stateCall, int stateEnd) {
+            assert stateCall != null;
+            this.stateCall = stateCall;
+            this.stateEnd = stateEnd;
+            this.ntBegin = stateCall.ntCall.ntBegin;
+            this.stateOrder = stateCall.state.orderingInfo.key;
+            this.stateBegin = stateCall.stateBegin;
+            this.stateUnique = stateCall.state.unique;
+            //// NON-BOILERPLATE CODE: ////
+            // update the NonTerminalCalls set of ExitStateReturns
+            if (stateCall.state instanceof ExitState) {
+                stateCall.ntCall.exitStateReturns.add(this);
+            }
+        }
 
         public int compareTo(StateReturn that) {
-            // The following idiom is a short-circuiting, integer "and
-            // that does a lexicographic ordering over:
+            // a lexicographic ordering over:
             //  - ntBegin (contravariently),
             //  - nt.orderingInfo (not used until we get lookaheads fixed)
             //  - stateEnd,
@@ -183,114 +181,36 @@ public class Parser {
             //  - stateBegin and
             //  - state.
             // NOTE: these last two comparisons are just so we don't conflate distinct values
-
-            int v1[] = orderingInfo;
-            int v2[] = that.orderingInfo;
-
-            int k = 1;
-            int c1 = v2[0];
-            int c2 = v1[0];
-            if (c1 != c2) {
-                return c1 - c2;
-            }
-            while (k < 5) {
-                c1 = v1[k];
-                c2 = v2[k];
-                if (c1 != c2) {
-                    return c1 - c2;
-                }
-                k++;
-            }
-            return 0;
-        }
-
-        private static class Key implements AutoVivifyingBiMap.Create<StateReturn> {
-            /** The {@link StateCall} that this StateReturn finishes */
-            public final StateCall stateCall;
-            /** The end position of the parse */
-            public final int stateEnd;
-            private final int hashCode;
-            public Key(StateCall stateCall, int stateEnd) {
-                assert stateCall != null;
-                //***************************** Start Boilerplate *****************************
-                this.stateCall = stateCall; this.stateEnd = stateEnd;
-                this.hashCode = computeHash();
-            }
-
-            public StateReturn create() { return new StateReturn(this); }
-
-            @Override
-            public boolean equals(Object o) {
-                if (this == o) return true;
-                if (o == null || getClass() != o.getClass()) return false;
-
-                Key key = (Key) o;
-
-                if (stateEnd != key.stateEnd) return false;
-                if (!stateCall.equals(key.stateCall)) return false;
-
-                return true;
+            if (this.ntBegin != that.ntBegin) {
+                return that.ntBegin - this.ntBegin;
             }
-
-            @Override
-            public int hashCode() {
-                return hashCode;
+            if (this.stateEnd != that.stateEnd) {
+                return this.stateEnd - that.stateEnd;
             }
-
-            public int computeHash() {
-                int result = stateCall.key.hashCode();
-                result = 31 * result + stateEnd;
-                return result;
+            if (this.stateOrder != that.stateOrder) {
+                return this.stateOrder - that.stateOrder;
             }
-
-            @Override
-            public String toString() {
-                return stateCall.key.toString() + "-" + stateEnd;
+            if (this.stateBegin != that.stateBegin) {
+                return this.stateBegin - that.stateBegin;
             }
+            return this.stateUnique - that.stateUnique;
         }
 
-        final Key key;
-        StateReturn(Key key) {
-            this.key = key;
-            this.orderingInfo[0] = this.key.stateCall.key.ntCall.key.ntBegin;
-            this.orderingInfo[1] = this.key.stateEnd;
-            this.orderingInfo[2] = this.key.stateCall.key.state.orderingInfo.key;
-            this.orderingInfo[3] = this.key.stateCall.key.stateBegin;
-            this.orderingInfo[4] = this.key.stateCall.key.state.unique;
-            //// NON-BOILERPLATE CODE: ////
-            // update the NonTerminalCalls set of ExitStateReturns
-            if (this.key.stateCall.key.state instanceof ExitState) {
-                this.key.stateCall.key.ntCall.exitStateReturns.add(this);
-            }
-        }
         @Override
         public int hashCode() {
-            return key.hashCode;
+            return 31 * stateCall.id + stateEnd;
         }
+
         @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            StateReturn other = (StateReturn) obj;
-            if (key == null) {
-                if (other.key != null)
-                    return false;
-            } else if (!key.equals(other.key))
-                return false;
-            return true;
+        public String toString() {
+            return stateCall.toString() + "-" + stateEnd;
         }
-
-        //***************************** End Boilerplate *****************************
     }
 
     /**
      * A NonTerminalCall represents the fact that the parser needs to try parsing
-     * a particular {@link NonTerminal} (i.e., key.nt) starting at a particular position
-     * (i.e., key.ntBegin).
+     * a particular {@link NonTerminal} (i.e., nt) starting at a particular position
+     * (i.e., ntBegin).
      *
      * For each NonTerminalCall, we keep track of all {@link StateCall}
      * that triggered this NonTerminalCall (i.e., callers) so that when
@@ -305,82 +225,83 @@ public class Parser {
      * should be added back on the work queue if we discover that this NonTerminalCall
      * is called from a new context (i.e., reactivations).  This is used
      * to handle context sensitivity.
+     *
+     * NonTerminalCalls are keyed by (nt.index, ntBegin).
      */
     private static class NonTerminalCall {
         /** The {@link StateCall}s that call this NonTerminalCall */
         final Set<StateCall> callers = new HashSet<>();
         /** The {@link StateReturn}s for the {@link ExitState} in this NonTerminalCall */
         final Set<StateReturn> exitStateReturns = new HashSet<>();
-        private static class Key implements AutoVivifyingBiMap.Create<NonTerminalCall> {
-            /** The {@link NonTerminal} being called */
-            public final NonTerminal nt;
-            /** The start position for parsing the {@link NonTerminal} */
-            public final int ntBegin;
-            private final int hashCode;
-            //***************************** Start Boilerplate *****************************
-            public Key(NonTerminal nt, int ntBegin) {
-                assert nt != null;
-                // assert ntBegin == c.stateBegin for c in callers
-                this.nt = nt; this.ntBegin = ntBegin;
-                this.hashCode = computeHash();
-            }
-
-            public NonTerminalCall create() { return new NonTerminalCall(this); }
-
-            @Override
-            public boolean equals(Object o) {
-                if (this == o) return true;
-                if (o == null || getClass() != o.getClass()) return false;
-
-                Key key = (Key) o;
-
-                if (ntBegin != key.ntBegin) return false;
-                if (!nt.equals(key.nt)) return false;
-
-                return true;
-            }
-
-            @Override
-            public int hashCode() {
-                return hashCode;
-            }
-
-            public int computeHash() {
-                int result = nt.hashCode();
-                result = 31 * result + ntBegin;
-                return result;
-            }
-
-            @Override
-            public String toString() {
-                return nt.name + " @ " + ntBegin;
-            }
+        /** The {@link NonTerminal} being called */
+        final NonTerminal nt;
+        /** The start position for parsing the {@link NonTerminal} */
+        final int ntBegin;
+
+        NonTerminalCall(NonTerminal nt, int ntBegin) {
+            assert nt != null;
+            assert nt.index >= 0 : "The grammar must be compiled before parsing.";
+            // assert ntBegin == c.stateBegin for c in callers
+            this.nt = nt; this.ntBegin = ntBegin;
         }
-        final Key key;
-        NonTerminalCall(Key key) { assert key != null; this.key = key; }
 
+        @Override
         public int hashCode() {
-            return this.key.hashCode();
+            return 31 * nt.hashCode() + ntBegin;
+        }
+
+        @Override
+        public String toString() {
+            return nt.name + " @ " + ntBegin;
         }
-        //***************************** End Boilerplate *****************************
     }
 
     ////////////////
 
+    /**
+     * A priority queue of {@link StateReturn}s, implemented as a binary heap in an array.
+     * A StateReturn which is already in the queue is not added again.
+     */
     private static class StateReturnWorkList {
-        private final HashSet<StateReturn> contains = new HashSet<>();
-        private final TreeSet<StateReturn> ordering = new TreeSet<>();
+        private StateReturn[] heap = new StateReturn[64];
+        private int size = 0;
+
         public void enqueue(StateReturn stateReturn) {
-            if (!contains.add(stateReturn)) return;
-            ordering.add(stateReturn);
-        }
-        public void addAll(Set<? extends StateReturn> c) {
-            if (!contains.addAll(c)) return;
-            ordering.addAll(c);
+            if (stateReturn.queued) return;
+            stateReturn.queued = true;
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, 2 * size);
+            }
+            // sift up
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent].compareTo(stateReturn) <= 0) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = stateReturn;
         }
+
         public StateReturn dequeue() {
-            StateReturn next = ordering.pollFirst();
-            contains.remove(next);
+            if (size == 0) return null;
+            StateReturn next = heap[0];
+            StateReturn last = heap[--size];
+            heap[size] = null;
+            if (size > 0) {
+                // sift down
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && heap[child + 1].compareTo(heap[child]) < 0) child++;
+                    if (last.compareTo(heap[child]) <= 0) break;
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = last;
+            }
+            next.queued = false;
             return next;
         }
     }
@@ -400,9 +321,11 @@ public class Parser {
         // TODO: extract Location class into it's own file
         final int[] lines;
         final int[] columns;
-        AutoVivifyingBiMap<NonTerminalCall.Key, NonTerminalCall> ntCalls = new AutoVivifyingBiMap<>();
-        AutoVivifyingBiMap<StateCall.Key, StateCall> stateCalls = new AutoVivifyingBiMap<>();
-        AutoVivifyingBiMap<StateReturn.Key, StateReturn> stateReturns = new AutoVivifyingBiMap<>();
+        final IntTripleHashMap<NonTerminalCall> ntCalls = new IntTripleHashMap<>();
+        final IntTripleHashMap<StateCall> stateCalls = new IntTripleHashMap<>();
+        final IntTripleHashMap<StateReturn> stateReturns = new IntTripleHashMap<>();
+        // the matches of each token at each position scanned so far, keyed by (token, position)
+        final IntTripleHashMap<Set<PrimitiveState.MatchResult>> tokenMatches = new IntTripleHashMap<>();
 
         public ParseState(String input, int startLine, int startColumn) {
             /**
@@ -546,6 +469,42 @@ public class Parser {
         this.source = source;
     }
 
+    /**
+     * Returns the {@link NonTerminalCall} for the given key, creating it if it doesn't exist yet.
+     */
+    private NonTerminalCall ntCall(NonTerminal nt, int ntBegin) {
+        NonTerminalCall ntCall = s.ntCalls.get(nt.index, ntBegin, 0);
+        if (ntCall == null) {
+            ntCall = new NonTerminalCall(nt, ntBegin);
+            s.ntCalls.put(nt.index, ntBegin, 0, ntCall);
+        }
+        return ntCall;
+    }
+
+    /**
+     * Returns the {@link StateCall} for the given key, creating it if it doesn't exist yet.
+     */
+    private StateCall stateCall(NonTerminalCall ntCall, int stateBegin, State state) {
+        StateCall stateCall = s.stateCalls.get(state.index, ntCall.ntBegin, stateBegin);
+        if (stateCall == null) {
+            stateCall = new StateCall(ntCall, stateBegin, state, s.stateCalls.size());
+            s.stateCalls.put(state.index, ntCall.ntBegin, stateBegin, stateCall);
+        }
+        return stateCall;
+    }
+
+    /**
+     * Returns the {@link StateReturn} for the given key, creating it if it doesn't exist yet.
+     */
+    private StateReturn stateReturn(StateCall stateCall, int stateEnd) {
+        StateReturn stateReturn = s.stateReturns.get(stateCall.id, stateEnd, 0);
+        if (stateReturn == null) {
+            stateReturn = new StateReturn(stateCall, stateEnd);
+            s.stateReturns.put(stateCall.id, stateEnd, 0, stateReturn);
+        }
+        return stateReturn;
+    }
+
     /**
      * Main function to run the parser.
      * @param nt the start non-terminal
@@ -554,8 +513,7 @@ public class Parser {
      */
     public Term parse(NonTerminal nt, int position) {
         assert nt != null : "Start symbol cannot be null.";
-        activateStateCall(s.stateCalls.get(new StateCall.Key(s.ntCalls.get(
-            new NonTerminalCall.Key(nt, position)), position, nt.entryState)),
+        activateStateCall(stateCall(ntCall(nt, position), position, nt.entryState),
             Function.IDENTITY);
 
         for (StateReturn stateReturn;
@@ -564,8 +522,8 @@ public class Parser {
         }
 
         Ambiguity result = Ambiguity.apply(new HashSet<>());
-        for(StateReturn stateReturn : s.ntCalls.get(new NonTerminalCall.Key(nt,position)).exitStateReturns) {
-            if (stateReturn.key.stateEnd == s.input.length()) {
+        for(StateReturn stateReturn : ntCall(nt, position).exitStateReturns) {
+            if (stateReturn.stateEnd == s.input.length()) {
                 result.items().add(KList.apply(ConsPStack.singleton(Ambiguity.apply(stateReturn.function.values))));
             }
         }
@@ -595,15 +553,16 @@ public class Parser {
      */
     public ParseError getErrors() {
         int current = 0;
-        for (StateCall.Key key : s.stateCalls.keySet()) {
-            if (key.state instanceof PrimitiveState)
-                current = Math.max(current, key.stateBegin);
+        List<StateCall> stateCalls = s.stateCalls.values();
+        for (StateCall stateCall : stateCalls) {
+            if (stateCall.state instanceof PrimitiveState)
+                current = Math.max(current, stateCall.stateBegin);
         }
         Set<Pair<Production, RegExState>> tokens = new HashSet<>();
-        for (StateCall.Key key : s.stateCalls.keySet()) {
-            if (key.state instanceof RegExState && key.stateBegin == current) {
+        for (StateCall stateCall : stateCalls) {
+            if (stateCall.state instanceof RegExState && stateCall.stateBegin == current) {
                 tokens.add(new ImmutablePair<>(
-                    null, ((RegExState) key.state)));
+                    null, ((RegExState) stateCall.state)));
             }
         }
         return new ParseError(source, current, s.lines[current], s.columns[current], tokens);
@@ -638,17 +597,14 @@ public class Parser {
     // finish the process of one state return from the work list
     private void workListStep(StateReturn stateReturn) {
         if (finishStateReturn(stateReturn)) {
-            State state = stateReturn.key.stateCall.key.state;
+            State state = stateReturn.stateCall.state;
             if (state instanceof ExitState) {
-                for (StateCall stateCall : stateReturn.key.stateCall.key.ntCall.callers) {
-                    s.stateReturnWorkList.enqueue(
-                        s.stateReturns.get(
-                            new StateReturn.Key(stateCall, stateReturn.key.stateEnd)));
+                for (StateCall stateCall : stateReturn.stateCall.ntCall.callers) {
+                    s.stateReturnWorkList.enqueue(stateReturn(stateCall, stateReturn.stateEnd));
                 }
             } else if (state instanceof NextableState) {
-                for (State nextState : ((NextableState) state).next) {
-                    activateStateCall(s.stateCalls.get(new StateCall.Key(
-                        stateReturn.key.stateCall.key.ntCall, stateReturn.key.stateEnd, nextState)),
+                for (State nextState : ((NextableState) state).nextStates) {
+                    activateStateCall(stateCall(stateReturn.stateCall.ntCall, stateReturn.stateEnd, nextState),
                         stateReturn.function);
                 }
             } else { throw unknownStateType(); }
@@ -658,69 +614,75 @@ public class Parser {
     // compute the Function for a state return based on the Function for the state call associated
     // with the state return, and the type of the state
     private boolean finishStateReturn(StateReturn stateReturn) {
-        if (stateReturn.key.stateCall.key.state instanceof EntryState) {
-            return stateReturn.function.add(stateReturn.key.stateCall.function);
-        } else if (stateReturn.key.stateCall.key.state instanceof ExitState) {
-            return stateReturn.function.add(stateReturn.key.stateCall.function);
-        } else if (stateReturn.key.stateCall.key.state instanceof PrimitiveState) {
-            return stateReturn.function.add(stateReturn.key.stateCall.function);
-        } else if (stateReturn.key.stateCall.key.state instanceof RuleState) {
-            int startPosition = stateReturn.key.stateCall.key.ntCall.key.ntBegin;
-            int endPosition = stateReturn.key.stateEnd;
-            return stateReturn.function.addRule(stateReturn.key.stateCall.function,
-                ((RuleState) stateReturn.key.stateCall.key.state).rule, stateReturn,
+        State state = stateReturn.stateCall.state;
+        if (state instanceof EntryState) {
+            return stateReturn.function.add(stateReturn.stateCall.function);
+        } else if (state instanceof ExitState) {
+            return stateReturn.function.add(stateReturn.stateCall.function);
+        } else if (state instanceof PrimitiveState) {
+            return stateReturn.function.add(stateReturn.stateCall.function);
+        } else if (state instanceof RuleState) {
+            int startPosition = stateReturn.stateCall.ntCall.ntBegin;
+            int endPosition = stateReturn.stateEnd;
+            return stateReturn.function.addRule(stateReturn.stateCall.function,
+                ((RuleState) state).rule, stateReturn,
                 new Rule.MetaData(source,
                     new Rule.MetaData.Location(startPosition, s.lines[startPosition], s.columns[startPosition]),
                     new Rule.MetaData.Location(endPosition, s.lines[endPosition], s.columns[endPosition]),
                     s.input));
-        } else if (stateReturn.key.stateCall.key.state instanceof NonTerminalState) {
+        } else if (state instanceof NonTerminalState) {
+            NonTerminal child = ((NonTerminalState) state).child;
             return stateReturn.function.addNTCall(
-                stateReturn.key.stateCall.function,
-                s.stateReturns.get(new StateReturn.Key(
-                    s.stateCalls.get(new StateCall.Key(
-                        s.ntCalls.get(new NonTerminalCall.Key(
-                            ((Grammar.NonTerminalState) stateReturn.key.stateCall.key.state).child,
-                            stateReturn.key.stateCall.key.stateBegin)),
-                        stateReturn.key.stateEnd,
-                        ((Grammar.NonTerminalState) stateReturn.key.stateCall.key.state).child.exitState)),
-                    stateReturn.key.stateEnd)).function);
+                stateReturn.stateCall.function,
+                stateReturn(
+                    stateCall(
+                        ntCall(child, stateReturn.stateCall.stateBegin),
+                        stateReturn.stateEnd,
+                        child.exitState),
+                    stateReturn.stateEnd).function);
         } else { throw unknownStateType(); }
     }
 
+    // run the patterns of a primitive state at the given position, reusing the result
+    // if a state with the same patterns was already run there
+    private Set<PrimitiveState.MatchResult> matches(PrimitiveState state, int position) {
+        if (state.token < 0) {
+            return state.matches(s.input, s.reverseInput, position);
+        }
+        Set<PrimitiveState.MatchResult> result = s.tokenMatches.get(state.token, position, 0);
+        if (result == null) {
+            result = state.matches(s.input, s.reverseInput, position);
+            s.tokenMatches.put(state.token, position, 0, result);
+        }
+        return result;
+    }
+
     // copy Function from state return to next state call
     // also put state return in the queue if need be
     private void activateStateCall(StateCall stateCall, Function function) {
         if (!stateCall.function.add(function)) { return; }
-        State nextState = stateCall.key.state;
+        State nextState = stateCall.state;
         // These types of states
         if (nextState instanceof EntryState ||
             nextState instanceof ExitState ||
             nextState instanceof RuleState) {
-            s.stateReturnWorkList.enqueue(
-                s.stateReturns.get(
-                    new StateReturn.Key(stateCall, stateCall.key.stateBegin)));
+            s.stateReturnWorkList.enqueue(stateReturn(stateCall, stateCall.stateBegin));
         } else if (nextState instanceof PrimitiveState) {
             for (PrimitiveState.MatchResult matchResult :
-                    ((PrimitiveState)nextState).matches(s.input, s.reverseInput, stateCall.key.stateBegin)) {
-                s.stateReturnWorkList.enqueue(
-                    s.stateReturns.get(
-                        new StateReturn.Key(stateCall, matchResult.matchEnd)));
+                    matches((PrimitiveState) nextState, stateCall.stateBegin)) {
+                s.stateReturnWorkList.enqueue(stateReturn(stateCall, matchResult.matchEnd));
             }
         // not instanceof SimpleState
         } else if (nextState instanceof NonTerminalState) {
             // add to the ntCall
-            NonTerminalCall ntCall = s.ntCalls.get(new NonTerminalCall.Key(
-                ((NonTerminalState) nextState).child, stateCall.key.stateBegin));
+            NonTerminalCall ntCall = ntCall(((NonTerminalState) nextState).child, stateCall.stateBegin);
             ntCall.callers.add(stateCall);
             // activate the entry state call (almost like activateStateCall but we have no stateReturn)
-            StateCall entryStateCall = s.stateCalls.get(new StateCall.Key(
-                ntCall, stateCall.key.stateBegin, ntCall.key.nt.entryState));
+            StateCall entryStateCall = stateCall(ntCall, stateCall.stateBegin, ntCall.nt.entryState);
             activateStateCall(entryStateCall, Function.IDENTITY);
             // process existStateReturns already done in the ntCall
             for (StateReturn exitStateReturn : ntCall.exitStateReturns) {
-                s.stateReturnWorkList.enqueue(
-                    s.stateReturns.get(
-                        new StateReturn.Key(stateCall, exitStateReturn.key.stateEnd)));
+                s.stateReturnWorkList.enqueue(stateReturn(stateCall, exitStateReturn.stateEnd));
             }
         } else { throw unknownStateType(); }
     }
@@ -9,8 +9,10 @@ import org.kframework.frontend.KSequence;
 import org.kframework.frontend.KToken;
 import org.kframework.frontend.KVariable;
 import org.kframework.parser.binary.BinaryParser;
+import org.kframework.utils.ByteArrayValue;
 import org.kframework.utils.errorsystem.KEMException;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -23,18 +25,25 @@ import java.util.Map;
  */
 public class ToBinary {
 
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes the term to the given stream through a buffer of bounded size, and flushes the stream. The term is
+     * written in version 4.0.0 of the format unless it contains a token backed by bytes, which needs version 4.1.0.
+     */
     public static void apply(OutputStream out, K k) {
         try {
-            DataOutputStream data = new DataOutputStream(out);
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
             //magic
             data.writeByte(0x7f);
             data.writeBytes("KAST");
             //version
             data.writeByte(4);
-            data.writeByte(0);
+            data.writeByte(containsBytes(k) ? 1 : 0);
             data.writeByte(0);
             new ToBinary(data).traverse(k);
             data.writeByte(BinaryParser.END);
+            data.flush();
         } catch (IOException e) {
             throw KEMException.criticalError("Could not write K term to binary", e, k);
         }
@@ -47,6 +56,27 @@ public class ToBinary {
         return out.toByteArray();
     }
 
+    private static boolean containsBytes(K k) {
+        if (k instanceof ByteArrayValue && k instanceof KToken) {
+            return true;
+        } else if (k instanceof KApply) {
+            for (K item : ((KApply) k).asIterable()) {
+                if (containsBytes(item)) {
+                    return true;
+                }
+            }
+        } else if (k instanceof KSequence) {
+            for (K item : ((KSequence) k).asIterable()) {
+                if (containsBytes(item)) {
+                    return true;
+                }
+            }
+        } else if (k instanceof KRewrite) {
+            return containsBytes(((KRewrite) k).left()) || containsBytes(((KRewrite) k).right());
+        }
+        return false;
+    }
+
     DataOutputStream data;
     Map<String, Integer> interns = new HashMap<>();
 
@@ -55,7 +85,15 @@ public class ToBinary {
     }
 
     private void traverse(K k) throws IOException {
-        if (k instanceof KToken) {
+        if (k instanceof ByteArrayValue && k instanceof KToken) {
+            ByteArrayValue bytes = (ByteArrayValue) k;
+
+            data.writeByte(BinaryParser.KBYTES);
+            data.writeInt(bytes.length());
+            bytes.writeTo(data);
+            writeString(((KToken) k).sort().name());
+
+        } else if (k instanceof KToken) {
             KToken tok = (KToken) k;
 
             data.writeByte(BinaryParser.KTOKEN);
@@ -6,6 +6,7 @@ import org.kframework.utils.errorsystem.KExceptionManager;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -15,9 +16,29 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamException;
 import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BinaryLoader {
 
+    /**
+     * "KBIN", the first four bytes of a file saved by {@link #saveSections(File, Map)}.
+     */
+    private static final int SECTIONS_MAGIC = 0x4B42494E;
+
+    /**
+     * The version of the format of {@link #saveSections(File, Map)}. Increment it on any change of the format.
+     */
+    public static final int SECTIONS_FORMAT_VERSION = 1;
+
     private final KExceptionManager kem;
 
     public BinaryLoader(
@@ -109,4 +130,175 @@ public class BinaryLoader {
             throw KEMException.criticalError("Could not read from " + fileName, e);
         }
     }
+
+    /**
+     * Saves the given objects as the named sections of a single file. The file starts with a versioned table of
+     * contents, and each section is serialized independently, so that {@link #loadSections(File)} can
+     * deserialize only the sections which are accessed.
+     */
+    public void saveSections(File fileName, Map<String, ?> sections) throws IOException {
+        File dir = fileName.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw KEMException.criticalError("Could not create directory " + dir);
+        }
+
+        List<byte[]> names = new ArrayList<>();
+        List<byte[]> contents = new ArrayList<>();
+        int headerSize = 3 * Integer.BYTES;
+        for (Map.Entry<String, ?> section : sections.entrySet()) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            save(content, section.getValue());
+            byte[] name = section.getKey().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            contents.add(content.toByteArray());
+            headerSize += Integer.BYTES + name.length + Long.BYTES + Integer.BYTES;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(SECTIONS_MAGIC);
+        header.putInt(SECTIONS_FORMAT_VERSION);
+        header.putInt(names.size());
+        long offset = headerSize;
+        for (int i = 0; i < names.size(); i++) {
+            header.putInt(names.get(i).length);
+            header.put(names.get(i));
+            header.putLong(offset);
+            header.putInt(contents.get(i).length);
+            offset += contents.get(i).length;
+        }
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName))) {
+            out.write(header.array());
+            for (byte[] content : contents) {
+                out.write(content);
+            }
+        }
+    }
+
+    public void saveSectionsOrDie(File fileName, Map<String, ?> sections) {
+        try {
+            saveSections(fileName, sections);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write to " + fileName, e);
+        }
+    }
+
+    /**
+     * Reads a file saved by {@link #saveSections(File, Map)} and its table of contents. The sections
+     * themselves are deserialized on first access.
+     * <p>
+     * The file is copied in memory rather than mapped: a later kompile may truncate or replace it while the
+     * sections are still in use (e.g., by the K server), which a mapped file would expose as a crash or as
+     * the sections of another definition. The table of contents is checked against the size of the copy.
+     */
+    public Sections loadSections(File fileName) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(fileName.toPath()));
+
+        try {
+            if (buffer.remaining() < 3 * Integer.BYTES || buffer.getInt() != SECTIONS_MAGIC) {
+                throw new IOException(fileName + " is not a sectioned binary file");
+            }
+            if (buffer.getInt() != SECTIONS_FORMAT_VERSION) {
+                throw KEMException.criticalError("Kompiled definition is out of date with "
+                        + "the latest version of the K tool. Please re-run kompile and try again.");
+            }
+
+            Map<String, ByteBuffer> sections = new LinkedHashMap<>();
+            int count = buffer.getInt();
+            if (count < 0) {
+                throw new IOException(fileName + " is corrupted");
+            }
+            for (int i = 0; i < count; i++) {
+                int nameLength = buffer.getInt();
+                if (nameLength < 0 || nameLength > buffer.remaining()) {
+                    throw new IOException(fileName + " is corrupted");
+                }
+                byte[] name = new byte[nameLength];
+                buffer.get(name);
+                long offset = buffer.getLong();
+                int length = buffer.getInt();
+                if (offset < 0 || length < 0 || offset + length > buffer.capacity()) {
+                    throw new IOException(fileName + " is truncated or corrupted");
+                }
+                ByteBuffer section = buffer.duplicate();
+                section.position((int) offset);
+                section.limit((int) offset + length);
+                sections.put(new String(name, StandardCharsets.UTF_8), section.slice());
+            }
+            return new Sections(fileName, sections);
+        } catch (BufferUnderflowException e) {
+            throw new IOException(fileName + " is truncated", e);
+        }
+    }
+
+    public Sections loadSectionsOrDie(File fileName) {
+        try {
+            return loadSections(fileName);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not read from " + fileName, e);
+        }
+    }
+
+    /**
+     * The sections of a file saved by {@link #saveSections(File, Map)}. Each section is deserialized
+     * from the copy of the file on its first access, and is then kept in memory.
+     */
+    public class Sections {
+        private final File fileName;
+        private final Map<String, ByteBuffer> sections;
+        private final Map<String, Object> loadedSections = new ConcurrentHashMap<>();
+
+        private Sections(File fileName, Map<String, ByteBuffer> sections) {
+            this.fileName = fileName;
+            this.sections = Collections.unmodifiableMap(sections);
+        }
+
+        public java.util.Set<String> names() {
+            return sections.keySet();
+        }
+
+        public boolean isLoaded(String name) {
+            return loadedSections.containsKey(name);
+        }
+
+        public <T> T getOrDie(Class<T> cls, String name) {
+            ByteBuffer section = sections.get(name);
+            if (section == null) {
+                throw KEMException.criticalError("Missing section " + name + " in " + fileName);
+            }
+            return cls.cast(loadedSections.computeIfAbsent(name, n ->
+                    loadOrDie(cls, new ByteBufferInputStream(section.duplicate()), fileName.getAbsolutePath())));
+        }
+    }
+
+    /**
+     * Reads the remaining bytes of a buffer without copying them.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
 }
@@ -0,0 +1,89 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.utils;
+
+import org.kframework.attributes.Att;
+import org.kframework.frontend.KToken;
+import org.kframework.frontend.Sort;
+import org.kframework.unparser.Unparse;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.kframework.frontend.KORE.*;
+
+/**
+ * A token which holds its value as bytes rather than as text, e.g. a token of sort Bytes read from a KAST binary
+ * file. The textual representation of the bytes (see {@link StringUtil#enquoteBytes}) is only computed if it is
+ * needed, and the token is equal to a token with the same sort and textual representation.
+ */
+public final class ByteArrayToken implements KToken, ByteArrayValue {
+
+    private final byte[] bytes;
+    private final Sort sort;
+    private volatile String s;
+
+    /**
+     * @param bytes the bytes of the token, which must not be modified afterwards
+     */
+    public ByteArrayToken(byte[] bytes, Sort sort) {
+        this.bytes = bytes;
+        this.sort = sort;
+    }
+
+    @Override
+    public Sort sort() {
+        return sort;
+    }
+
+    @Override
+    public String s() {
+        String s = this.s;
+        if (s == null) {
+            s = StringUtil.enquoteBytes(bytes, 0, bytes.length);
+            this.s = s;
+        }
+        return s;
+    }
+
+    @Override
+    public Att att() {
+        return Att();
+    }
+
+    @Override
+    public int length() {
+        return bytes.length;
+    }
+
+    @Override
+    public byte[] bytesValue() {
+        return bytes.clone();
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.write(bytes);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other instanceof ByteArrayToken) {
+            return sort.equals(((ByteArrayToken) other).sort) && Arrays.equals(bytes, ((ByteArrayToken) other).bytes);
+        }
+        return other instanceof KToken && sort.equals(((KToken) other).sort()) && s().equals(((KToken) other).s());
+    }
+
+    @Override
+    public int hashCode() {
+        return computeHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return Unparse.apply(this);
+    }
+}
@@ -0,0 +1,27 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A value backed by a range of a byte array, which can be written out without first being copied
+ * or converted to text.
+ */
+public interface ByteArrayValue {
+
+    /**
+     * Returns the number of bytes of this value.
+     */
+    int length();
+
+    /**
+     * Returns a copy of the bytes of this value.
+     */
+    byte[] bytesValue();
+
+    /**
+     * Writes the bytes of this value to the given output.
+     */
+    void writeTo(DataOutput out) throws IOException;
+}
@@ -7,6 +7,9 @@ import com.beust.jcommander.JCommander;
 
 import org.kframework.kil.NonTerminal;
 import org.kframework.kil.Sort;
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.nio.charset.StandardCharsets;
 
 public class StringUtil {
     /**
@@ -253,6 +256,37 @@ public class StringUtil {
         return result.toString();
     }
 
+    /**
+     * Returns the textual representation of a sequence of bytes: the letter b followed by
+     * the bytes as a double-quoted string in which each character represents one byte.
+     * @see #enquoteKString(String)
+     */
+    public static String enquoteBytes(byte[] bytes, int offset, int length) {
+        return "b" + enquoteKString(new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Returns the sequence of bytes represented by the given string.
+     * @param str textual representation produced by {@link #enquoteBytes(byte[], int, int)}
+     * @throws IllegalArgumentException if the string is not a quoted string prefixed by b
+     * @throws KEMException if the string contains characters which are not bytes
+     */
+    public static byte[] unquoteBytes(String str) {
+        if (str.isEmpty() || str.charAt(0) != 'b') {
+            throw new IllegalArgumentException("Expected to find b at the beginning of bytes: " + str);
+        }
+        String value = unquoteKString(str.substring(1));
+        byte[] bytes = new byte[value.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = value.charAt(i);
+            if (c > 0xff) {
+                throw KEMException.criticalError("Expected only characters between 0 and 255 in bytes: " + str);
+            }
+            bytes[i] = (byte) c;
+        }
+        return bytes;
+    }
+
     /**
      * Returns the two-letter code for a general category of Unicode code point.
      */
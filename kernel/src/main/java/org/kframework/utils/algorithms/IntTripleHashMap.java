@@ -0,0 +1,102 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.utils.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hash map whose keys are triples of ints, stored without boxing in an open-addressing table.
+ * Keys which need fewer components can pass 0 for the unused ones.
+ * @param <V>    The type of the value
+ */
+public class IntTripleHashMap<V> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** the components of the key in slot i are at positions 3*i, 3*i+1 and 3*i+2 */
+    private int[] keys = new int[3 * INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Returns the value associated with the given key, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int a, int b, int c) {
+        return (V) values[slot(keys, values, a, b, c)];
+    }
+
+    /**
+     * Associates the given non-null value with the given key, replacing the previous value.
+     */
+    public void put(int a, int b, int c, V value) {
+        assert value != null;
+        int slot = slot(keys, values, a, b, c);
+        if (values[slot] == null) {
+            if (2 * (size + 1) > values.length) {
+                resize();
+                slot = slot(keys, values, a, b, c);
+            }
+            keys[3 * slot] = a;
+            keys[3 * slot + 1] = b;
+            keys[3 * slot + 2] = c;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a list of the values in the map, in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null) {
+                result.add((V) value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the slot holding the given key, or the empty slot where it should be inserted.
+     */
+    private static int slot(int[] keys, Object[] values, int a, int b, int c) {
+        int mask = values.length - 1;
+        int slot = hash(a, b, c) & mask;
+        while (values[slot] != null
+                && (keys[3 * slot] != a || keys[3 * slot + 1] != b || keys[3 * slot + 2] != c)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B9;
+        h = (h ^ b) * 0x85EBCA6B;
+        h = (h ^ c) * 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[2 * oldKeys.length];
+        values = new Object[2 * oldValues.length];
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int a = oldKeys[3 * i], b = oldKeys[3 * i + 1], c = oldKeys[3 * i + 2];
+                int slot = slot(keys, values, a, b, c);
+                keys[3 * slot] = a;
+                keys[3 * slot + 1] = b;
+                keys[3 * slot + 2] = c;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.Reader;
@@ -44,6 +45,15 @@ public class FileUtil {
     public static final String EXTRAS_FOLDER = "extras/";
     public static final String TOP_CELL_INITIALIZER_BIN = "extras/topCellInitializer.bin";
     public static final String CACHE_BIN = "extras/cache.bin";
+    /**
+     * The kompile options, parsed definition, top cell initializer and sorts of the configuration variables,
+     * as sections read by {@link org.kframework.utils.BinaryLoader#loadSections(File)}.
+     */
+    public static final String COMPILED_DEFINITION_KBIN = "extras/compiledDefinition.kbin";
+    public static final String KOMPILE_OPTIONS_SECTION = "kompileOptions";
+    public static final String PARSED_DEFINITION_SECTION = "parsedDefinition";
+    public static final String TOP_CELL_INITIALIZER_SECTION = "topCellInitializer";
+    public static final String CONFIGURATION_VARIABLE_SORTS_SECTION = "configurationVariableSorts";
     public static final String TIMESTAMP = "extras/timestamp";
 
     public FileUtil(
@@ -110,6 +120,21 @@ public class FileUtil {
         return FilenameUtils.getBaseName(filename).toUpperCase();
     }
 
+    /**
+     * Returns the latest modification time of the given directory and of the files directly in it, e.g., to tell
+     * whether a kompiled directory changed since it was loaded.
+     */
+    public static long lastModified(File dir) {
+        long lastModified = dir.lastModified();
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                lastModified = Math.max(lastModified, child.lastModified());
+            }
+        }
+        return lastModified;
+    }
+
     // generate an unique name for a folder with the name dirName
     public static String generateUniqueFolderName(String dirName) {
         DateFormat df = new SimpleDateFormat("-yyyy-MM-dd-HH-mm-ss-");
@@ -303,6 +328,18 @@ public class FileUtil {
         }
     }
 
+    /**
+     * Opens the given file, relative to the working directory, for writing, creating its parent directories.
+     */
+    public OutputStream writeToWorkingDirectory(String path) {
+        File f = resolveWorkingDirectory(path);
+        try {
+            return FileUtils.openOutputStream(f);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write to file " + f.getAbsolutePath(), e);
+        }
+    }
+
     public Reader readFromWorkingDirectory(String path) {
         File f = resolveWorkingDirectory(path);
         try {
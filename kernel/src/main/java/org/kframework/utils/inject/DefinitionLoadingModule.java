@@ -23,6 +23,7 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DefinitionLoadingModule {
 
@@ -80,12 +81,66 @@ public class DefinitionLoadingModule {
     public static CompiledDefinition koreDefinition(BinaryLoader loader, FileUtil files) {
         // org.kframework.definition.Definition kompiledDefinition = loader.loadOrDie(org.kframework.definition.Definition.class, files.resolveKompiled(FileUtil.KOMPILED_DEFINITION_BIN)); // deprecated
         org.kframework.definition.Definition kompiledDefinition = MiniToKore.apply(parseKore(files));
-        KompileOptions kompileOptions = loader.loadOrDie(KompileOptions.class, files.resolveKompiled(FileUtil.KOMPILE_OPTIONS_BIN));
-        org.kframework.definition.Definition parsedDefinition = loader.loadOrDie(org.kframework.definition.Definition.class, files.resolveKompiled(FileUtil.PARSED_DEFINITION_BIN));
-        org.kframework.frontend.KLabel topCellInitializer = loader.loadOrDie(org.kframework.frontend.KLabel.class, files.resolveKompiled(FileUtil.TOP_CELL_INITIALIZER_BIN));
+        BinaryLoader.Sections sections = compiledSections(loader, files);
+        KompileOptions kompileOptions = loadKompiled(loader, files, sections, KompileOptions.class, FileUtil.KOMPILE_OPTIONS_SECTION, FileUtil.KOMPILE_OPTIONS_BIN);
+        org.kframework.frontend.KLabel topCellInitializer = loadKompiled(loader, files, sections, org.kframework.frontend.KLabel.class, FileUtil.TOP_CELL_INITIALIZER_SECTION, FileUtil.TOP_CELL_INITIALIZER_BIN);
+        if (sections != null && sections.names().contains(FileUtil.CONFIGURATION_VARIABLE_SORTS_SECTION)) {
+            /* the parsed definition, the largest section, is only deserialized if a program or pattern is parsed */
+            @SuppressWarnings("unchecked")
+            Map<String, org.kframework.frontend.Sort> configurationVariableSorts = sections.getOrDie(Map.class, FileUtil.CONFIGURATION_VARIABLE_SORTS_SECTION);
+            return new CompiledDefinition(kompileOptions,
+                    () -> sections.getOrDie(org.kframework.definition.Definition.class, FileUtil.PARSED_DEFINITION_SECTION),
+                    configurationVariableSorts, kompiledDefinition, topCellInitializer);
+        }
+        org.kframework.definition.Definition parsedDefinition = loadKompiled(loader, files, sections, org.kframework.definition.Definition.class, FileUtil.PARSED_DEFINITION_SECTION, FileUtil.PARSED_DEFINITION_BIN);
         return new CompiledDefinition(kompileOptions, parsedDefinition, kompiledDefinition, topCellInitializer);
     }
 
+    /**
+     * The open sections of compiled definitions, by file. A file is read once and kept in memory until it is
+     * kompiled again, i.e., until its timestamp or size change, so each section is deserialized at most once
+     * however many times it is requested.
+     */
+    private static final Map<File, OpenSections> openSections = new ConcurrentHashMap<>();
+
+    private static class OpenSections {
+        final long lastModified;
+        final long length;
+        final BinaryLoader.Sections sections;
+
+        OpenSections(long lastModified, long length, BinaryLoader.Sections sections) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.sections = sections;
+        }
+    }
+
+    /**
+     * Returns the sections of the compiled definition, or null for definitions kompiled before the sectioned format.
+     */
+    private static BinaryLoader.Sections compiledSections(BinaryLoader loader, FileUtil files) {
+        File file = files.resolveKompiled(FileUtil.COMPILED_DEFINITION_KBIN).getAbsoluteFile();
+        if (!file.exists()) {
+            return null;
+        }
+        long lastModified = file.lastModified();
+        long length = file.length();
+        return openSections.compute(file, (f, open) -> open != null && open.lastModified == lastModified && open.length == length
+                ? open
+                : new OpenSections(lastModified, length, loader.loadSectionsOrDie(f))).sections;
+    }
+
+    /**
+     * Loads a section of the compiled definition, only deserializing that section. Definitions kompiled
+     * before the sectioned format are read from the file of the section.
+     */
+    private static <T> T loadKompiled(BinaryLoader loader, FileUtil files, BinaryLoader.Sections sections, Class<T> cls, String section, String legacyFile) {
+        if (sections != null) {
+            return sections.getOrDie(cls, section);
+        }
+        return loader.loadOrDie(cls, files.resolveKompiled(legacyFile));
+    }
+
     public static ProcessedDefinition miniKoreDefinition(BinaryLoader loader, FileUtil files) {
         org.kframework.kore.Builders defaultBuilder = org.kframework.kore.implementation.DefaultBuilders$.MODULE$;
         org.kframework.kore.Definition definition = null;
@@ -95,13 +150,14 @@ public class DefinitionLoadingModule {
             System.out.println(e.getMessage());
         }
 
-        KompileOptions kompileOptions = loader.loadOrDie(KompileOptions.class, files.resolveKompiled(FileUtil.KOMPILE_OPTIONS_BIN));
+        KompileOptions kompileOptions = loadKompiled(loader, files, compiledSections(loader, files), KompileOptions.class, FileUtil.KOMPILE_OPTIONS_SECTION, FileUtil.KOMPILE_OPTIONS_BIN);
         return new ProcessedDefinition(kompileOptions, definition);
     }
 
     public static KompileOptions kompileOptions(Context context, CompiledDefinition compiledDef, FileUtil files) {
         // a hack, but it's good enough for what we need from it, which is a temporary solution
-        if (files.resolveKompiled(FileUtil.KOMPILE_OPTIONS_BIN).exists()) {
+        if (files.resolveKompiled(FileUtil.COMPILED_DEFINITION_KBIN).exists()
+                || files.resolveKompiled(FileUtil.KOMPILE_OPTIONS_BIN).exists()) {
             KompileOptions res = compiledDef.kompileOptions;
             return res;
         } else {
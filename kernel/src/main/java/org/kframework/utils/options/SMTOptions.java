@@ -44,4 +44,13 @@ public class SMTOptions implements Serializable {
 
     @Parameter(names="--z3-impl-timeout", description="The default soft timeout (in milli seconds) of Z3 for checking implication.")
     public int z3ImplTimeout = 5000;
+
+    @Parameter(names="--z3-pool-size", description="Number of Z3 solvers kept alive and reused across queries. " +
+            "Each solver keeps its own context (or process, with --z3-executable) and checks every query between a push and a pop. " +
+            "0 creates a fresh solver for each query, and checks one query at a time; with --search-threads or --prove-threads " +
+            "greater than 1, 0 instead keeps one solver per thread.")
+    public int z3PoolSize = 0;
+
+    @Parameter(names="--smt-cache-size", description="Maximum number of SMT query results to cache. 0 disables the cache.")
+    public int smtCacheSize = 10000;
 }
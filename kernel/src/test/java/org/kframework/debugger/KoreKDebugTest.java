@@ -0,0 +1,119 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.debugger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.RewriterResult;
+import org.kframework.definition.Rule;
+import org.kframework.frontend.K;
+import org.kframework.frontend.KToken;
+import org.kframework.rewriter.Rewriter;
+import org.kframework.rewriter.SearchType;
+import scala.Tuple2;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.kframework.frontend.KORE.*;
+
+public class KoreKDebugTest {
+
+    private static final int LAST = 100;
+
+    /**
+     * Counts from its configuration up to LAST, one step at a time.
+     */
+    private static class CountingRewriter implements Rewriter {
+        int executions = 0;
+
+        @Override
+        public RewriterResult execute(K k, Optional<Integer> depth) {
+            executions++;
+            int n = Integer.parseInt(((KToken) k).s());
+            int steps = Math.min(depth.orElse(LAST), LAST - n);
+            return new RewriterResult(Optional.of(steps), counter(n + steps));
+        }
+
+        @Override
+        public K match(K k, Rule rule) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public K search(K initialConfiguration, Optional<Integer> depth, Optional<Integer> bound, Rule pattern, SearchType searchType, boolean resultsAsSubstitution) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Tuple2<RewriterResult, K> executeAndMatch(K k, Optional<Integer> depth, Rule rule) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<K> prove(List<Rule> rules) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static K counter(int n) {
+        return KToken(Integer.toString(n), Sort("Int"));
+    }
+
+    private CountingRewriter rewriter;
+    private KoreKDebug debugger;
+
+    @Before
+    public void setUp() {
+        rewriter = new CountingRewriter();
+        debugger = new KoreKDebug(counter(0), rewriter, 10, null, null, null, null);
+    }
+
+    @Test
+    public void testStepSavesCheckpoints() {
+        DebuggerState state = debugger.step(0, 25);
+        assertEquals(25, state.getStepNum());
+        assertEquals(counter(25), state.getCurrentK());
+        assertEquals(20, state.getlastMapCheckpoint());
+        assertEquals(10, state.getCheckpoints().getPrevious().getStepNum());
+        assertEquals(0, state.getCheckpoints().first().getStepNum());
+    }
+
+    @Test
+    public void testStepToFinalState() {
+        DebuggerState state = debugger.step(0, 1000);
+        assertEquals(LAST, state.getStepNum());
+        assertEquals(counter(LAST), state.getCurrentK());
+        assertEquals(LAST, debugger.resume().getStepNum());
+    }
+
+    @Test
+    public void testBackStepReplaysFromNearestCheckpoint() {
+        Checkpoint checkpoints = debugger.step(0, 25).getCheckpoints();
+        rewriter.executions = 0;
+
+        DebuggerState state = debugger.backStep(0, 7);
+        assertEquals(18, state.getStepNum());
+        assertEquals(counter(18), state.getCurrentK());
+        assertEquals(1, rewriter.executions);
+        assertSame(checkpoints.getPrevious(), state.getCheckpoints());
+        assertNull(debugger.backStep(0, 19));
+    }
+
+    @Test
+    public void testJumpTo() {
+        debugger.step(0, 25);
+        assertEquals(counter(3), debugger.jumpTo(0, 3).getCurrentK());
+        assertEquals(counter(42), debugger.jumpTo(0, 42).getCurrentK());
+        assertEquals(33, debugger.getActiveState().getlastMapCheckpoint());
+        assertNull(debugger.jumpTo(0, -1));
+    }
+
+    @Test
+    public void testCopySharesHistory() {
+        DebuggerState original = debugger.step(0, 25);
+        DebuggerState copy = debugger.createCopy(0);
+        assertSame(original.getCheckpoints(), copy.getCheckpoints());
+        assertSame(original.getCurrentState(), copy.getCurrentState());
+    }
+}
@@ -0,0 +1,111 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.krun;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.kframework.definition.Definition;
+import org.kframework.definition.Module;
+import org.kframework.frontend.K;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.parser.binary.BinaryParser;
+import org.kframework.parser.concrete2kore.generator.RuleGrammarGenerator;
+import org.kframework.unparser.OutputModes;
+import org.kframework.unparser.ToBinary;
+import org.kframework.unparser.ToKast;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.kframework.frontend.KORE.*;
+import static org.mockito.Mockito.*;
+
+public class KRunPrettyPrintTest {
+
+    private static K map(int size) {
+        List<K> entries = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            entries.add(KApply(KLabel("_|->_"), KToken(Integer.toString(i), Sort("Int")), KToken("\"" + i + "\"", Sort("String"))));
+        }
+        K map = KApply(KLabel(".Map"));
+        for (K entry : entries) {
+            map = KApply(KLabel("_Map_"), entry, map);
+        }
+        return KApply(KLabel("<T>"), KApply(KLabel("<k>"), KSequence(KVariable("X"))), KApply(KLabel("<state>"), map));
+    }
+
+    @Test
+    public void testKast() {
+        K term = map(100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        KRun.prettyPrint(null, OutputModes.KAST, out, term);
+        assertEquals(ToKast.apply(term) + "\n", new String(out.toByteArray()));
+    }
+
+    @Test
+    public void testBinary() {
+        K term = map(100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        KRun.prettyPrint(null, OutputModes.BINARY, out, term);
+        assertArrayEquals(ToBinary.apply(term), out.toByteArray());
+        assertEquals(term, BinaryParser.parse(out.toByteArray()));
+    }
+
+    @Test
+    public void testNone() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        KRun.prettyPrint(null, OutputModes.NONE, out, map(1));
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void testPretty() {
+        String def = "require \"domains.k\"\n" +
+                "module TEST\n" +
+                "  syntax Exp ::= Exp \"+\" Exp [left]\n" +
+                "  syntax Exp ::= \"1\"\n" +
+                "  syntax Exp ::= \"(\" Exp \")\" [bracket]\n" +
+                "endmodule\n";
+        Definition baseK = RuleGrammarGenerator.autoGenerateBaseKCasts(org.kframework.DefinitionParser.from(def, "TEST"));
+        Module test = baseK.getModule("TEST").get();
+        CompiledDefinition compiledDef = mock(CompiledDefinition.class);
+        when(compiledDef.languageParsingModule()).thenReturn(test);
+        when(compiledDef.getExtensionModule(test)).thenReturn(test);
+
+        K one = KApply(KLabel("1"));
+        K term = KApply(KLabel("_+_"), one, KApply(KLabel("_+_"), one, one));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        KRun.prettyPrint(compiledDef, OutputModes.PRETTY, out, term);
+        assertEquals("1 + ( 1 + 1 )\n", new String(out.toByteArray()));
+
+        out.reset();
+        KRun.prettyPrint(compiledDef, OutputModes.NOWRAP, out, term);
+        assertEquals("1 + 1 + 1\n", new String(out.toByteArray()));
+    }
+
+    /**
+     * Compares the streamed output of the modes which stream with building the output in memory first.
+     */
+    @Ignore
+    @Test
+    public void benchmarkLargeConfiguration() {
+        K term = map(1000000);
+        for (OutputModes mode : new OutputModes[] {OutputModes.KAST, OutputModes.BINARY}) {
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long start = System.nanoTime();
+            KRun.prettyPrint(null, mode, new NullOutputStream(), term);
+            long streamed = System.nanoTime() - start;
+            long streamedHeap = runtime.totalMemory() - runtime.freeMemory();
+            System.gc();
+            start = System.nanoTime();
+            KRun.prettyPrint(null, mode, (byte[] bytes) -> { }, term);
+            long buffered = System.nanoTime() - start;
+            long bufferedHeap = runtime.totalMemory() - runtime.freeMemory();
+            System.out.println(mode + ": streamed in " + streamed / 1000000 + "ms (heap " + streamedHeap / 1000000
+                    + "MB), built in memory in " + buffered / 1000000 + "ms (heap " + bufferedHeap / 1000000 + "MB)");
+        }
+    }
+}
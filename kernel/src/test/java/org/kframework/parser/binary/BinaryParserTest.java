@@ -0,0 +1,55 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.parser.binary;
+
+import org.junit.Test;
+import org.kframework.frontend.K;
+import org.kframework.frontend.KApply;
+import org.kframework.unparser.ToBinary;
+import org.kframework.utils.ByteArrayToken;
+import org.kframework.utils.StringUtil;
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.kframework.frontend.KORE.*;
+
+public class BinaryParserTest {
+
+    private static final byte[] BYTES = {0, 'a', (byte) 0x80, (byte) 0xff};
+
+    private static byte[] version(byte[] binary) {
+        return Arrays.copyOfRange(binary, 5, 8);
+    }
+
+    @Test
+    public void testVersion400WithoutBytes() {
+        K term = KApply(KLabel("f"), KToken("1", Sort("Int")), KVariable("X"));
+        byte[] binary = ToBinary.apply(term);
+        assertArrayEquals(new byte[] {4, 0, 0}, version(binary));
+        assertEquals(term, BinaryParser.parse(binary));
+    }
+
+    @Test
+    public void testBytesAreReadAsBytes() {
+        K term = KApply(KLabel("f"), KToken("1", Sort("Int")), new ByteArrayToken(BYTES.clone(), Sort("Bytes")));
+        byte[] binary = ToBinary.apply(term);
+        assertArrayEquals(new byte[] {4, 1, 0}, version(binary));
+
+        K parsed = BinaryParser.parse(binary);
+        assertEquals(term, parsed);
+        K token = ((KApply) parsed).klist().items().get(1);
+        assertTrue(token instanceof ByteArrayToken);
+        assertArrayEquals(BYTES, ((ByteArrayToken) token).bytesValue());
+        // equal to the token with the textual representation of the bytes
+        assertEquals(KToken(StringUtil.enquoteBytes(BYTES, 0, BYTES.length), Sort("Bytes")), token);
+        assertEquals(KToken(StringUtil.enquoteBytes(BYTES, 0, BYTES.length), Sort("Bytes")).hashCode(), token.hashCode());
+    }
+
+    @Test(expected = KEMException.class)
+    public void testNoBytesInVersion400() {
+        byte[] binary = ToBinary.apply(new ByteArrayToken(BYTES.clone(), Sort("Bytes")));
+        binary[6] = 0;
+        BinaryParser.parse(binary);
+    }
+}
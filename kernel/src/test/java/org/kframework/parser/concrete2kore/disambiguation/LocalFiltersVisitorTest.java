@@ -0,0 +1,129 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+
+package org.kframework.parser.concrete2kore.disambiguation;
+
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.kframework.attributes.Source;
+import org.kframework.definition.Definition;
+import org.kframework.definition.Module;
+import org.kframework.frontend.K;
+import org.kframework.kompile.DefinitionParsing;
+import org.kframework.parser.Term;
+import org.kframework.parser.concrete2kore.ParseInModule;
+import org.kframework.parser.concrete2kore.generator.RuleGrammarGenerator;
+import org.kframework.parser.concrete2kore.kernel.Grammar;
+import org.kframework.parser.concrete2kore.kernel.KSyntax2GrammarStatesFilter;
+import org.kframework.parser.concrete2kore.kernel.Parser;
+import org.kframework.utils.errorsystem.ParseFailedException;
+import scala.Tuple2;
+import scala.util.Either;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class LocalFiltersVisitorTest {
+
+    private static final String DEF = "require \"domains.k\"\n" +
+            "module TEST " +
+            "syntax Exp ::= Exp \"*\" Exp [left, klabel('Mul)] " +
+            "> Exp \"+\" Exp [left, klabel('Plus)] " +
+            "| r\"[0-9]+\" [token] " +
+            "syntax Stmt ::= Exp \";\" [klabel('Stmt)] " +
+            "syntax left 'Plus " +
+            "syntax left 'Mul " +
+            "endmodule";
+
+    private final Source source = Source.apply("generated by LocalFiltersVisitorTest");
+    private ParseInModule parser;
+    private Module module;
+    private Grammar grammar;
+
+    @Before
+    public void setUp() {
+        Definition baseK = RuleGrammarGenerator.autoGenerateBaseKCasts(org.kframework.DefinitionParser.from(DEF, "TEST"));
+        Module test = baseK.getModule("TEST").get();
+        parser = RuleGrammarGenerator.getCombinedGrammar(RuleGrammarGenerator.getRuleGrammar(test, s -> baseK.getModule(s).get()), true);
+        module = parser.getExtensionModule();
+        grammar = KSyntax2GrammarStatesFilter.getGrammar(parser.parsingModule);
+    }
+
+    /**
+     * Parses the input and applies the filters which run before the local filters in {@link ParseInModule}.
+     */
+    private Term parse(String input) {
+        Term parsed = new Parser(input, source, 1, 1).parse(grammar.get(parser.parsingModule.resolve(DefinitionParsing.START_SYMBOL).name()), 0);
+        Either<Set<ParseFailedException>, Term> rez = new TreeCleanerVisitor().apply(parsed);
+        rez = new CorrectRewritePriorityVisitor().apply(rez.right().get());
+        return new CorrectKSeqPriorityVisitor().apply(rez.right().get()).right().get();
+    }
+
+    private Either<Set<ParseFailedException>, Term> applyChain(Term term) {
+        Either<Set<ParseFailedException>, Term> rez = new CorrectCastPriorityVisitor().apply(term);
+        if (rez.isLeft())
+            return rez;
+        rez = new ApplyTypeCheckVisitor(module.subsorts()).apply(rez.right().get());
+        if (rez.isLeft())
+            return rez;
+        return new PriorityVisitor(module.priorities(), module.leftAssoc(), module.rightAssoc()).apply(rez.right().get());
+    }
+
+    private Either<Set<ParseFailedException>, Term> applyFused(Term term) {
+        return new LocalFiltersVisitor(module, true).apply(term);
+    }
+
+    private static Set<String> messages(Set<ParseFailedException> errors) {
+        return errors.stream().map(e -> e.getKException().toString()).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testSameAsChain() {
+        for (String input : new String[] {"1", "1+2*3", "1*2+3*4+5", "1+2:Exp", "1:Exp*2+3", "A:Exp+B", "(1+2)*3", "1+2*3;"}) {
+            // the filters prune ambiguities in place, so each of them gets its own parse forest
+            Either<Set<ParseFailedException>, Term> chain = applyChain(parse(input));
+            assertTrue(input, chain.isRight());
+            assertEquals(input, chain, applyFused(parse(input)));
+        }
+    }
+
+    @Test
+    public void testSameErrorsAsChain() {
+        // statements where expressions are expected, directly, under casts and under a rewrite; in "(1;)+2:Exp"
+        // one alternative breaks the cast priority and the other one is ill-sorted
+        for (String input : new String[] {"(1;)+2", "(1;):Exp", "(1;)::Exp*3", "(1;=>2)+3", "(1;)+2:Exp"}) {
+            Either<Set<ParseFailedException>, Term> chain = applyChain(parse(input));
+            assertTrue(input, chain.isLeft());
+            assertTrue(input, applyFused(parse(input)).isLeft());
+
+            Tuple2<Either<Set<ParseFailedException>, K>, Set<ParseFailedException>> parsed =
+                    parser.parseString(input, DefinitionParsing.START_SYMBOL, source);
+            assertTrue(input, parsed._1().isLeft());
+            assertEquals(input, messages(chain.left().get()), messages(parsed._1().left().get()));
+        }
+    }
+
+    @Ignore
+    @Test
+    public void benchmarkFilters() {
+        StringBuilder input = new StringBuilder("0");
+        for (int i = 1; i < 2000; i++) {
+            input.append(i % 3 == 0 ? "*" : "+").append(i);
+        }
+        for (int i = 0; i < 10; i++) {
+            Term term = parse(input.toString());
+            long start = System.nanoTime();
+            applyChain(term);
+            long chain = System.nanoTime() - start;
+
+            term = parse(input.toString());
+            start = System.nanoTime();
+            applyFused(term);
+            long fused = System.nanoTime() - start;
+
+            System.out.println("chain: " + chain / 1000000 + " ms, fused: " + fused / 1000000 + " ms");
+        }
+    }
+}
@@ -579,6 +579,32 @@ public class ParserTest {
         return Ambiguity.apply(Sets.newHashSet(terms));
     }
 
+    @Test
+    public void testSharedTokens() throws Exception {
+        // A ::= "x" "a" | "x" "b", where both "x" states use the same automaton
+        RunAutomaton x = regex("x");
+        NonTerminal nt1 = new NonTerminal("StartNT");
+        RegExState x1 = new RegExState("x1", nt1, x);
+        RegExState a = new RegExState("a", nt1, regex("a"));
+        RegExState x2 = new RegExState("x2", nt1, x);
+        RegExState b = new RegExState("b", nt1, regex("b"));
+        nt1.entryState.next.add(x1);
+        x1.next.add(a);
+        a.next.add(nt1.exitState);
+        nt1.entryState.next.add(x2);
+        x2.next.add(b);
+        b.next.add(nt1.exitState);
+        Grammar grammar = new Grammar();
+        grammar.add(nt1);
+        grammar.compile();
+
+        Assert.assertEquals(x1.token, x2.token);
+        Assert.assertNotEquals(a.token, b.token);
+        Term expected = amb(klist(amb(KList.apply(ConsPStack.empty()))));
+        Assert.assertEquals(expected, new Parser("xa").parse(nt1, 0));
+        Assert.assertEquals(expected, new Parser("xb").parse(nt1, 0));
+    }
+
     public static Production prod(Sort sort, ProductionItem... pi) {
         return Production(sort, immutable(Arrays.asList(pi)));
     }
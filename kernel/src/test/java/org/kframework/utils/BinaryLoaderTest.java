@@ -0,0 +1,145 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.utils;
+
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BinaryLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BinaryLoader loader = new BinaryLoader(new KExceptionManager(new GlobalOptions()));
+
+    @Test
+    public void testSectionsRoundTrip() throws Exception {
+        File file = folder.newFile("test.kbin");
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put("small", "options");
+        sections.put("large", largeObject(1000));
+        loader.saveSections(file, sections);
+
+        BinaryLoader.Sections loaded = loader.loadSections(file);
+        assertEquals(sections.keySet(), loaded.names());
+        assertEquals("options", loaded.getOrDie(String.class, "small"));
+        assertTrue(loaded.isLoaded("small"));
+        assertFalse(loaded.isLoaded("large"));
+        assertEquals(sections.get("large"), loaded.getOrDie(List.class, "large"));
+        assertSame(loaded.getOrDie(List.class, "large"), loaded.getOrDie(List.class, "large"));
+    }
+
+    @Test
+    public void testUntouchedSectionsAreNotDeserialized() throws Exception {
+        File file = folder.newFile("counted.kbin");
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put("first", new CountedObject());
+        sections.put("second", new CountedObject());
+        loader.saveSections(file, sections);
+
+        CountedObject.deserialized.set(0);
+        BinaryLoader.Sections loaded = loader.loadSections(file);
+        assertEquals(0, CountedObject.deserialized.get());
+        loaded.getOrDie(CountedObject.class, "first");
+        loaded.getOrDie(CountedObject.class, "first");
+        assertEquals(1, CountedObject.deserialized.get());
+        assertFalse(loaded.isLoaded("second"));
+    }
+
+    @Test
+    public void testTruncatedFileIsRejected() throws Exception {
+        File file = folder.newFile("truncated.kbin");
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put("small", "options");
+        sections.put("large", largeObject(1000));
+        loader.saveSections(file, sections);
+
+        for (long length : new long[] {file.length() - 1, file.length() / 2, 10}) {
+            try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+                truncated.setLength(length);
+            }
+            try {
+                loader.loadSections(file);
+                fail("Expected the truncated file to be rejected.");
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    @Test
+    public void testReplacedFileDoesNotAffectLoadedSections() throws Exception {
+        File file = folder.newFile("replaced.kbin");
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put("small", "options");
+        sections.put("large", largeObject(1000));
+        loader.saveSections(file, sections);
+        BinaryLoader.Sections loaded = loader.loadSections(file);
+
+        Map<String, Object> otherSections = new LinkedHashMap<>();
+        otherSections.put("small", "other options");
+        loader.saveSections(file, otherSections);
+        assertEquals("options", loaded.getOrDie(String.class, "small"));
+        assertEquals(sections.get("large"), loaded.getOrDie(List.class, "large"));
+    }
+
+    /**
+     * Compares the time to load the small section of a sectioned file with the time to deserialize
+     * the same objects saved as a single object graph. Run manually.
+     */
+    @Ignore
+    @Test
+    public void benchmarkStartup() throws Exception {
+        File legacyFile = folder.newFile("legacy.bin");
+        File sectionsFile = folder.newFile("sections.kbin");
+        Map<String, Object> sections = new LinkedHashMap<>();
+        sections.put("small", "options");
+        sections.put("large", largeObject(1000000));
+        loader.save(legacyFile, sections);
+        loader.saveSections(sectionsFile, sections);
+
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            loader.load(Map.class, legacyFile).get("small");
+            long legacy = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            loader.loadSections(sectionsFile).getOrDie(String.class, "small");
+            long lazy = System.nanoTime() - start;
+
+            System.out.println("legacy: " + legacy / 1000000 + " ms, sections: " + lazy / 1000000 + " ms");
+        }
+    }
+
+    private static class CountedObject implements Serializable {
+        private static final AtomicInteger deserialized = new AtomicInteger();
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            deserialized.incrementAndGet();
+        }
+    }
+
+    private static List<String> largeObject(int size) {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            list.add("element" + i);
+        }
+        return list;
+    }
+}
@@ -3,6 +3,7 @@ package org.kframework.utils;
 
 import junit.framework.Assert;
 import org.junit.Test;
+import org.kframework.utils.errorsystem.KEMException;
 
 public class StringUtilTest {
 
@@ -100,5 +101,16 @@ public class StringUtilTest {
                 "http://www.kframework.org\nshort\nenough\nline",
                 StringUtil.splitLines(multiLine, 10));
     }
-}
 
+    @Test
+    public void StringUtilBytes() throws Exception {
+        byte[] bytes = new byte[] {0, 'a', (byte) 0x80, (byte) 0xff};
+        Assert.assertEquals("b\"\\x00a\\x80\\xff\"", StringUtil.enquoteBytes(bytes, 0, bytes.length));
+        Assert.assertTrue(java.util.Arrays.equals(bytes, StringUtil.unquoteBytes(StringUtil.enquoteBytes(bytes, 0, bytes.length))));
+    }
+
+    @Test(expected = KEMException.class)
+    public void StringUtilBytesAbove255() throws Exception {
+        StringUtil.unquoteBytes("b\"\\u0100\"");
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.utils.algorithms;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntTripleHashMapTest {
+
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(42);
+        IntTripleHashMap<Integer> actual = new IntTripleHashMap<>();
+        Map<List<Integer>, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            int a = random.nextInt(100), b = random.nextInt(100) - 50, c = random.nextInt(10);
+            if (random.nextBoolean()) {
+                actual.put(a, b, c, i);
+                expected.put(Arrays.asList(a, b, c), i);
+            } else {
+                assertEquals(expected.get(Arrays.asList(a, b, c)), actual.get(a, b, c));
+            }
+        }
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(actual.values()));
+    }
+}
@@ -0,0 +1,144 @@
+// Copyright (c) 2016 K Team. All Rights Reserved.
+package org.kframework.kserver;
+
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.kframework.definition.ProcessedDefinition;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.kompile.KompileMetaInfo;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.file.FileUtil;
+import org.kframework.utils.inject.DefinitionLoadingModule;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps compiled definitions loaded between the requests served by the K server.
+ * <p>
+ * Definitions are keyed by the canonical path of their kompiled directory. An entry is reloaded when a file of
+ * the directory was modified after it was loaded, e.g., by running kompile again. At most the given number of
+ * definitions are kept, evicting the least recently used one. A definition requested concurrently by several
+ * requests is loaded once; requests for other definitions are not blocked while it loads.
+ */
+public class DefinitionCache {
+
+    /**
+     * The definition loaded from a kompiled directory, together with the backend state derived from it
+     * which is reused across requests (the rules and automaton of the java backend). The backend state is
+     * built against contexts owned by the entry rather than by the request which builds it first (see
+     * {@link InitializeRewriter.InitializeDefinition#shared}).
+     */
+    public static class CachedDefinition {
+        public final KompileMetaInfo kompileMetaInfo;
+        public final CompiledDefinition compiledDef;
+        public final ProcessedDefinition processedDefinition;
+        public final InitializeRewriter.InitializeDefinition initializeDefinition;
+
+        CachedDefinition(KompileMetaInfo kompileMetaInfo, CompiledDefinition compiledDef, ProcessedDefinition processedDefinition,
+                         FileUtil files) {
+            this.kompileMetaInfo = kompileMetaInfo;
+            this.compiledDef = compiledDef;
+            this.processedDefinition = processedDefinition;
+            this.initializeDefinition = InitializeRewriter.InitializeDefinition.shared(files);
+        }
+    }
+
+    private static class Entry {
+        final long lastModified;
+        final FutureTask<CachedDefinition> definition;
+
+        Entry(long lastModified, FutureTask<CachedDefinition> definition) {
+            this.lastModified = lastModified;
+            this.definition = definition;
+        }
+    }
+
+    private static class MetaInfoEntry {
+        final long lastModified;
+        final KompileMetaInfo kompileMetaInfo;
+
+        MetaInfoEntry(long lastModified, KompileMetaInfo kompileMetaInfo) {
+            this.lastModified = lastModified;
+            this.kompileMetaInfo = kompileMetaInfo;
+        }
+    }
+
+    private final Map<File, Entry> cache;
+    private final ConcurrentMap<File, MetaInfoEntry> metaInfos = new ConcurrentHashMap<>();
+
+    public DefinitionCache(int size) {
+        this.cache = new LinkedHashMap<File, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, Entry> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    /**
+     * Returns the definition in the kompiled directory of {@code files}, loading it if it is not cached
+     * or if it changed since it was cached.
+     */
+    public CachedDefinition get(BinaryLoader loader, FileUtil files) {
+        File kompiledDir = canonicalFile(files.resolveKompiled("."));
+        long lastModified = FileUtil.lastModified(kompiledDir);
+        Entry entry;
+        boolean load = false;
+        synchronized (cache) {
+            entry = cache.get(kompiledDir);
+            if (entry == null || entry.lastModified != lastModified) {
+                entry = new Entry(lastModified, new FutureTask<>(() -> new CachedDefinition(
+                        kompileMetaInfo(files),
+                        DefinitionLoadingModule.koreDefinition(loader, files),
+                        DefinitionLoadingModule.miniKoreDefinition(loader, files),
+                        files)));
+                cache.put(kompiledDir, entry);
+                load = true;
+            }
+        }
+        if (load) {
+            entry.definition.run();
+        }
+        try {
+            return entry.definition.get();
+        } catch (ExecutionException e) {
+            synchronized (cache) {
+                cache.remove(kompiledDir, entry);
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw KEMException.criticalError("Could not load the definition in " + kompiledDir, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KEMException.criticalError("Interrupted while loading the definition in " + kompiledDir, e);
+        }
+    }
+
+    /**
+     * Returns the meta information of the definition in the kompiled directory of {@code files}, without
+     * loading the definition itself.
+     */
+    public KompileMetaInfo kompileMetaInfo(FileUtil files) {
+        File kompiledDir = canonicalFile(files.resolveKompiled("."));
+        long lastModified = FileUtil.lastModified(kompiledDir);
+        return metaInfos.compute(kompiledDir, (dir, entry) -> entry != null && entry.lastModified == lastModified
+                ? entry
+                : new MetaInfoEntry(lastModified, DefinitionLoadingModule.kompilemetaInfo(files))).kompileMetaInfo;
+    }
+
+    private static File canonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+}
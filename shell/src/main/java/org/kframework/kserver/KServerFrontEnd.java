@@ -7,6 +7,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.fusesource.jansi.AnsiConsole;
 import org.fusesource.jansi.AnsiOutputStream;
@@ -40,9 +42,14 @@ public class KServerFrontEnd extends FrontEnd {
     private static final ImmutableList<String> tools = ImmutableList.of("-kompile", "-krun", "-kast", "-kdoc", "-ktest", "-kdep");
 
     private final KServerOptions options;
+    private DefinitionCache definitions;
+    private Semaphore requests;
+    private final AtomicLong requestCount = new AtomicLong();
 
     @Override
     protected int run() {
+        definitions = new DefinitionCache(options.cacheSize);
+        requests = new Semaphore(options.threads, true);
         NGServer server = new NGServer(InetAddress.getLoopbackAddress(), options.port);
         Thread t = new Thread(server);
         instance = this;
@@ -71,7 +78,44 @@ public class KServerFrontEnd extends FrontEnd {
         return instance;
     }
 
+    /**
+     * Returns the compiled definitions kept loaded by this server.
+     */
+    public DefinitionCache definitions() {
+        return definitions;
+    }
+
+    /**
+     * Runs the given tool on behalf of a client, once fewer than {@code --threads} requests are running,
+     * and, with {@code --verbose}, logs the time spent waiting and running to the standard error. Each request parses
+     * its own options and creates its own rewriter, so no state other than the cached definitions is shared
+     * between requests.
+     */
     public int run(String tool, String[] args, File workingDir, Map<String, String> env) {
+        long id = requestCount.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            requests.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        long started = System.nanoTime();
+        int result = 1;
+        try {
+            result = runRequest(tool, args, workingDir, env);
+            return result;
+        } finally {
+            requests.release();
+            long end = System.nanoTime();
+            if (options.global.verbose) {
+                System.err.printf("[%d] %s in %s: exit %d, queued %d ms, ran %d ms%n", id, tool.substring(1), workingDir,
+                        result, (started - start) / 1000000, (end - started) / 1000000);
+            }
+        }
+    }
+
+    private int runRequest(String tool, String[] args, File workingDir, Map<String, String> env) {
         ThreadLocalPrintStream system_out = (ThreadLocalPrintStream) System.out;
         ThreadLocalPrintStream system_err = (ThreadLocalPrintStream) System.err;
 
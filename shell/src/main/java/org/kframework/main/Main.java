@@ -37,6 +37,7 @@ import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
 import org.kframework.krun.modes.DebugMode.DebugExecutionMode;
 import org.kframework.krun.modes.ExecutionMode;
 import org.kframework.krun.modes.KRunExecutionMode;
+import org.kframework.kserver.DefinitionCache;
 import org.kframework.kserver.KServerFrontEnd;
 import org.kframework.kserver.KServerOptions;
 import org.kframework.ktest.CmdArgs.KTestOptions;
@@ -225,9 +226,22 @@ public class Main {
 
             // loading kompiled definition
             Context context = null; // DefinitionLoadingModule.context(loader, kRunOptions.configurationCreation.definitionLoading, kRunOptions.global, sw, kem, files, kRunOptions); // TODO: check if 'context.bin' exists
-            KompileMetaInfo kompileMetaInfo = DefinitionLoadingModule.kompilemetaInfo(files);
-            CompiledDefinition compiledDef = DefinitionLoadingModule.koreDefinition(loader, files);
-            ProcessedDefinition processedDefinition = DefinitionLoadingModule.miniKoreDefinition(loader, files);
+            KompileMetaInfo kompileMetaInfo;
+            CompiledDefinition compiledDef;
+            ProcessedDefinition processedDefinition;
+            InitializeRewriter.InitializeDefinition initializeDefinition;
+            if (isServed()) {
+                DefinitionCache.CachedDefinition cached = KServerFrontEnd.instance().definitions().get(loader, files);
+                kompileMetaInfo = cached.kompileMetaInfo;
+                compiledDef = cached.compiledDef;
+                processedDefinition = cached.processedDefinition;
+                initializeDefinition = cached.initializeDefinition;
+            } else {
+                kompileMetaInfo = DefinitionLoadingModule.kompilemetaInfo(files);
+                compiledDef = DefinitionLoadingModule.koreDefinition(loader, files);
+                processedDefinition = DefinitionLoadingModule.miniKoreDefinition(loader, files);
+                initializeDefinition = new InitializeRewriter.InitializeDefinition();
+            }
             KompileOptions kompileOptions = DefinitionLoadingModule.kompileOptions(context, compiledDef, files);
 
             // krun
@@ -237,7 +251,6 @@ public class Main {
             if (kompileOptions.backend.equals(Backends.JAVA)) {
                 //
                 Map<String, MethodHandle> hookProvider = HookProvider.get(kem);
-                InitializeRewriter.InitializeDefinition initializeDefinition = new InitializeRewriter.InitializeDefinition();
                 intializeMiniKoreRewriter = new InitializeRewriter(fs, javaExecutionOptions.deterministicFunctions,
                         kRunOptions.global, kem, kRunOptions.experimental.smt, hookProvider, kompileOptions.transition,
                         kRunOptions, files, initializeDefinition);
@@ -289,7 +302,9 @@ public class Main {
             File definitionDir = DefinitionLoadingModule.directory(kastOptions.definitionLoading, workingDir, kem, env);
             File kompiledDir = DefinitionLoadingModule.definition(definitionDir, kem);
             FileUtil files = new FileUtil(tempDir, definitionDir, workingDir, kompiledDir, kastOptions.global, env);
-            KompileMetaInfo kompileMetaInfo = DefinitionLoadingModule.kompilemetaInfo(files);
+            KompileMetaInfo kompileMetaInfo = isServed()
+                    ? KServerFrontEnd.instance().definitions().kompileMetaInfo(files)
+                    : DefinitionLoadingModule.kompilemetaInfo(files);
 
             kastOptions.setFiles(files);
             KastFrontEnd frontEnd = new KastFrontEnd(kastOptions, sw, kem, env, files, kompileMetaInfo);
@@ -429,6 +444,13 @@ public class Main {
         return isNailgun;
     }
 
+    /**
+     * Returns true if the current tool runs in a K server, which keeps compiled definitions loaded.
+     */
+    private static boolean isServed() {
+        return isNailgun && KServerFrontEnd.instance() != null;
+    }
+
     public static void nailMain(NGContext context) {
         isNailgun = true;
         if (context.getArgs().length >= 1) {